@@ -21,6 +21,7 @@ package org.apache.olingo.client.api;
 import java.util.concurrent.ExecutorService;
 
 import org.apache.olingo.client.api.http.HttpClientFactory;
+import org.apache.olingo.client.api.http.HttpResponseCache;
 import org.apache.olingo.client.api.http.HttpUriRequestFactory;
 import org.apache.olingo.commons.api.format.ContentType;
 
@@ -255,6 +256,10 @@ public interface Configuration {
 
   /**
    * Retrieves request executor service.
+   * <br/>
+   * It runs the blocking requests submitted with <code>asyncExecute</code>, their completion callbacks, and
+   * the prefetching of pages; by default it is a fixed pool of {@link #getExecutorThreads()} threads,
+   * created on first use.
    *
    * @return request executor service.
    */
@@ -262,8 +267,42 @@ public interface Configuration {
 
   /**
    * Sets request executor service.
+   * <br/>
+   * The caller keeps the ownership of the given executor; the number of threads configured with
+   * {@link #setExecutorThreads(int)} does not apply to it.
    *
    * @param executorService new executor services.
    */
   void setExecutor(ExecutorService executorService);
+
+  /**
+   * Gets the number of threads of the default request executor.
+   *
+   * @return number of threads; default is 10.
+   */
+  int getExecutorThreads();
+
+  /**
+   * Sets the number of threads of the default request executor.
+   * <br/>
+   * Since asynchronous requests block one executor thread each until their response is read, this bounds the
+   * number of asynchronous requests in flight. If the default executor is already running, it is resized.
+   *
+   * @param threads number of threads, at least 1.
+   */
+  void setExecutorThreads(int threads);
+
+  /**
+   * Gets the response cache, if any.
+   *
+   * @return response cache, or <tt>null</tt> if responses are not cached (default).
+   */
+  HttpResponseCache getResponseCache();
+
+  /**
+   * Sets the response cache; <tt>null</tt> disables caching.
+   *
+   * @param responseCache response cache.
+   */
+  void setResponseCache(HttpResponseCache responseCache);
 }
@@ -39,11 +39,30 @@ public interface ODataBasicRequest<T extends ODataResponse> extends ODataRequest
 
   /**
    * Async request execute.
+   * <br/>
+   * This is not asynchronous I/O: the blocking {@link #execute()} call is submitted to the executor of the
+   * client configuration, by default a fixed pool of 10 threads. Every request in progress occupies a thread of that
+   * pool; further requests wait in its queue.
    *
    * @return <code>Future&lt;ODataResponse&gt;</code> about the executed request.
    */
   Future<T> asyncExecute();
 
+  /**
+   * Async request execute, notifying the given callback upon completion.
+   * <br/>
+   * The caller does not need to wait on the returned future: the callback is invoked on the executor thread as soon
+   * as the response is available. As for {@link #asyncExecute()}, the request is executed with blocking I/O
+   * on a thread of the executor of the client configuration, by default a fixed pool of 10 threads.
+   * <br/>
+   * If the request fails and {@link ODataResponseCallback#onFailure(RuntimeException)} throws an exception itself,
+   * that exception is logged and the future completes with the failure of the request.
+   *
+   * @param callback completion callback.
+   * @return <code>Future&lt;ODataResponse&gt;</code> about the executed request.
+   */
+  Future<T> asyncExecute(ODataResponseCallback<T> callback);
+
   /**
    * Override configured request Content-Type.
    *
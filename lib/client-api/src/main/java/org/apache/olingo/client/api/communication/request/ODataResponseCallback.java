@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.api.communication.request;
+
+import org.apache.olingo.client.api.communication.response.ODataResponse;
+
+/**
+ * Completion callback for asynchronously executed requests.
+ * <br/>
+ * Callbacks are invoked on the thread that executed the request, so that the response body can be consumed there
+ * without blocking the thread that submitted the request.
+ *
+ * @param <T> OData response type corresponding to the request implementation.
+ */
+public interface ODataResponseCallback<T extends ODataResponse> {
+
+  /**
+   * Invoked when the request has been executed successfully.
+   *
+   * @param response OData response
+   */
+  void onSuccess(T response);
+
+  /**
+   * Invoked when the request execution failed.
+   *
+   * @param e cause of the failure
+   */
+  void onFailure(RuntimeException e);
+}
@@ -22,6 +22,7 @@ import java.net.URI;
 
 import org.apache.olingo.client.api.domain.ClientEntity;
 import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.api.domain.ClientEntitySetPagingIterator;
 import org.apache.olingo.client.api.domain.ClientProperty;
 import org.apache.olingo.client.api.domain.ClientSingleton;
 
@@ -76,6 +77,20 @@ public interface RetrieveRequestFactory {
    */
   ODataEntitySetIteratorRequest<ClientEntitySet, ClientEntity> getEntitySetIteratorRequest(URI uri);
 
+  /**
+   * Gets an iterator over all the entities of an entity set, following next links.
+   * <br/>
+   * Pages are retrieved on the executor returned by {@link org.apache.olingo.client.api.Configuration#getExecutor()},
+   * while the entities of the previous pages are consumed.
+   *
+   * @param uri request URI of the first page.
+   * @param prefetchDepth maximum number of pages retrieved ahead of the one being consumed; 0 disables prefetching.
+   * @param maxPageSize page size requested via the <tt>odata.maxpagesize</tt> preference; 0 or less to let the
+   * service decide.
+   * @return new {@link ClientEntitySetPagingIterator} instance.
+   */
+  ClientEntitySetPagingIterator<ClientEntity> getEntitySetPagingIterator(URI uri, int prefetchDepth, int maxPageSize);
+
   /**
    * Gets a uri request returning a single OData entity.
    *
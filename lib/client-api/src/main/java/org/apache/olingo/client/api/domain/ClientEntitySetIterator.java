@@ -18,11 +18,7 @@
  */
 package org.apache.olingo.client.api.domain;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -30,9 +26,10 @@ import java.util.NoSuchElementException;
 import org.apache.commons.io.IOUtils;
 import org.apache.olingo.client.api.ODataClient;
 import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.client.api.serialization.EntitySetStreamReader;
 import org.apache.olingo.client.api.serialization.ODataDeserializerException;
-import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +37,8 @@ import org.slf4j.LoggerFactory;
 /**
  * OData entity set iterator class.
  * <br/>
+ * The response is parsed in a single streaming pass: only the current entity is held in memory.
+ * <br/>
  * <b>Please don't forget to call the <tt>close()>/</tt> method when not needed any more.</b>
  *
  * @param <E> concrete ODataEntity implementation
@@ -59,14 +58,10 @@ public class ClientEntitySetIterator<T extends ClientEntitySet, E extends Client
 
   private final InputStream stream;
 
-  private final ContentType contentType;
+  private final EntitySetStreamReader reader;
 
   private T entitySet;
 
-  private final ByteArrayOutputStream osEntitySet;
-
-  private final String namespaces;
-
   private boolean available = true;
 
   /**
@@ -81,25 +76,12 @@ public class ClientEntitySetIterator<T extends ClientEntitySet, E extends Client
 
     this.odataClient = odataClient;
     this.stream = stream;
-    this.contentType = contentType;
-    this.osEntitySet = new ByteArrayOutputStream();
-    
-    if(contentType.isCompatible(ContentType.APPLICATION_ATOM_SVC)
-        || contentType.isCompatible(ContentType.APPLICATION_ATOM_XML)) {
-      namespaces = getAllElementAttributes(stream, "feed", osEntitySet);
-    } else {
-      namespaces = null;
-      try {
-        if (consume(stream, "\"value\":", osEntitySet, true) >= 0) {
-          int c = 0;
-          while (c != '[' && (c = stream.read()) >= 0) {
-            osEntitySet.write(c);
-          }
-        }
-      } catch (IOException e) {
-        LOG.error("Error parsing entity set", e);
-        throw new IllegalStateException(e);
-      }
+    try {
+      this.reader = odataClient.getDeserializer(contentType).toEntitySetStream(stream);
+    } catch (final ODataDeserializerException e) {
+      LOG.error("Error parsing entity set", e);
+      IOUtils.closeQuietly(stream);
+      throw new IllegalStateException(e);
     }
   }
 
@@ -107,21 +89,17 @@ public class ClientEntitySetIterator<T extends ClientEntitySet, E extends Client
   @Override
   public boolean hasNext() {
     if (available && cached == null) {
-      if (contentType.isCompatible(ContentType.APPLICATION_ATOM_SVC)
-          || contentType.isCompatible(ContentType.APPLICATION_ATOM_XML)) {
-        cached = nextAtomEntityFromEntitySet(stream, osEntitySet, namespaces);
-      } else {
-        cached = nextJSONEntityFromEntitySet(stream, osEntitySet);
+      try {
+        cached = reader.next();
+      } catch (final ODataDeserializerException e) {
+        LOG.error("Error retrieving entities from EntitySet", e);
+        cached = null;
       }
 
       if (cached == null) {
         available = false;
-        try {
-          entitySet = (T) odataClient.getReader().
-                  readEntitySet(new ByteArrayInputStream(osEntitySet.toByteArray()), contentType);
-        } catch (final ODataDeserializerException e) {
-          available = false;
-        }
+        entitySet = (T) odataClient.getBinder().getODataEntitySet(new ResWrap<EntityCollection>(
+            reader.getContextURL(), reader.getMetadataETag(), reader.getEntitySet()));
         close();
       }
     }
@@ -153,156 +131,34 @@ public class ClientEntitySetIterator<T extends ClientEntitySet, E extends Client
    * Closes the current iterator.
    */
   public void close() {
+    reader.close();
     IOUtils.closeQuietly(stream);
-    IOUtils.closeQuietly(osEntitySet);
+  }
+
+  /**
+   * Gets the count of entities, if it has been encountered so far (as it usually precedes the entities).
+   *
+   * @return count if exists; null otherwise.
+   */
+  public Integer getCount() {
+    return entitySet == null ? reader.getEntitySet().getCount() : entitySet.getCount();
   }
 
   /**
    * Gets the next link if exists.
+   * <br/>
+   * If the next link has not been encountered yet, the iteration must be completed in order to retrieve it.
    *
    * @return next link if exists; null otherwise.
    */
   public URI getNext() {
     if (entitySet == null) {
-      throw new IllegalStateException("Iteration must be completed in order to retrieve the link for next page");
-    }
-    return entitySet.getNext();
-  }
-
-  private ResWrap<Entity> nextJSONEntityFromEntitySet(final InputStream input, final OutputStream osEntitySet) {
-    final ByteArrayOutputStream entity = new ByteArrayOutputStream();
-
-    ResWrap<Entity> jsonEntity = null;
-    try {
-      int c;
-
-      boolean foundNewOne = false;
-
-      do {
-        c = input.read();
-        if (c == '{') {
-          entity.write(c);
-          c = -1;
-          foundNewOne = true;
-        }
-        if (c == ']') {
-          osEntitySet.write(c);
-          c = -1;
-        }
-      } while (c >= 0);
-
-      if (foundNewOne) {
-        int count = 1;
-        c = 0;
-
-        while (count > 0 && c >= 0) {
-          c = input.read();
-          if (c == '{') {
-            count++;
-          } else if (c == '}') {
-            count--;
-          }
-          entity.write(c);
-        }
-
-        if (c >= 0) {
-          jsonEntity = odataClient.getDeserializer(ContentType.JSON).toEntity(
-                  new ByteArrayInputStream(entity.toByteArray()));
-        }
-      } else {
-        while ((c = input.read()) >= 0) {
-          osEntitySet.write(c);
-        }
-      }
-    } catch (Exception e) {
-      LOG.error("Error retrieving entities from EntitySet", e);
-    }
-
-    return jsonEntity;
-  }
-
-  private ResWrap<Entity> nextAtomEntityFromEntitySet(
-          final InputStream input, final OutputStream osEntitySet, final String namespaces) {
-
-    final ByteArrayOutputStream entity = new ByteArrayOutputStream();
-
-    ResWrap<Entity> atomEntity = null;
-
-    try {
-      if (consume(input, "<entry>", osEntitySet, false) >= 0) {
-        entity.write("<entry ".getBytes(Constants.UTF8));
-        entity.write(namespaces.getBytes(Constants.UTF8));
-        entity.write(">".getBytes(Constants.UTF8));
-
-        if (consume(input, "</entry>", entity, true) >= 0) {
-          atomEntity = odataClient.getDeserializer(ContentType.APPLICATION_ATOM_XML).
-                  toEntity(new ByteArrayInputStream(entity.toByteArray()));
-        }
-      }
-    } catch (Exception e) {
-      LOG.error("Error retrieving entities from EntitySet", e);
-    }
-
-    return atomEntity;
-  }
-
-  private String getAllElementAttributes(final InputStream input, final String name, final OutputStream os) {
-    final ByteArrayOutputStream attrs = new ByteArrayOutputStream();
-
-    String res;
-
-    try {
-      byte[] attrsDeclaration = null;
-
-      final String key = "<" + name + " ";
-      if (consume(input, key, os, true) >= 0 && consume(input, ">", attrs, false) >= 0) {
-        attrsDeclaration = attrs.toByteArray();
-        os.write(attrsDeclaration);
-        os.write('>');
+      final URI next = reader.getEntitySet().getNext();
+      if (next == null) {
+        throw new IllegalStateException("Iteration must be completed in order to retrieve the link for next page");
       }
-
-      res = attrsDeclaration == null ? "" : new String(attrsDeclaration, Constants.UTF8).trim();
-    } catch (Exception e) {
-      LOG.error("Error retrieving entities from EntitySet", e);
-      res = "";
+      return next;
     }
-
-    return res.endsWith("/") ? res.substring(0, res.length() - 1) : res;
-  }
-
-  private int consume(
-          final InputStream input, final String end, final OutputStream os, final boolean includeEndKey)
-          throws IOException {
-
-    final char[] endKey = end.toCharArray();
-    final char[] endLowerKey = end.toLowerCase().toCharArray();
-    final char[] endUpperKey = end.toUpperCase().toCharArray();
-
-    int pos = 0;
-    int c = 0;
-    while (pos < endKey.length && (c = input.read()) >= 0) {
-      if (c == endLowerKey[pos] || c == endUpperKey[pos]) {
-        pos++;
-        if (includeEndKey && os != null) {
-          os.write(c);
-        }
-      } else if (pos > 0) {
-        if (!includeEndKey && os != null) {
-          for (int i = 0; i < pos; i++) {
-            os.write(endKey[i]);
-          }
-        }
-        if (os != null) {
-          os.write(c);
-        }
-        pos = 0;
-      } else {
-        if (os != null) {
-          os.write(c);
-        }
-      }
-    }
-
-    return c;
+    return entitySet.getNext();
   }
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.api.domain;
+
+import java.util.Iterator;
+
+/**
+ * Iterator over all the entities of an entity set, transparently following the next links returned by the service.
+ * <br/>
+ * While the entities of the current page are consumed, the following pages are retrieved in background, up to the
+ * configured prefetch depth; retrieval is suspended as long as that many pages are waiting to be consumed.
+ * <br/>
+ * <b>Please don't forget to call the <tt>close()</tt> method when not needed any more.</b>
+ *
+ * @param <E> concrete ODataEntity implementation
+ */
+public interface ClientEntitySetPagingIterator<E extends ClientEntity> extends Iterator<E> {
+
+  /**
+   * Gets the count of entities as returned with the first page, if requested via <tt>$count</tt>.
+   *
+   * @return count if available; null otherwise.
+   */
+  Integer getCount();
+
+  /**
+   * Gets the number of pages retrieved so far, including the ones prefetched but not consumed yet.
+   *
+   * @return number of retrieved pages.
+   */
+  int getRetrievedPages();
+
+  /**
+   * Stops retrieving further pages and releases the pages prefetched so far.
+   */
+  void close();
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.api.http;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.olingo.commons.api.http.HttpMethod;
+
+/**
+ * Client-side cache of responses carrying an ETag.
+ * <br/>
+ * Cached responses are revalidated sending <tt>If-None-Match</tt>; upon <tt>304 Not Modified</tt> the cached body is
+ * returned instead. Modifying requests sent through the same client invalidate the affected entries.
+ */
+public interface HttpResponseCache {
+
+  /**
+   * Prepares the given request before it is sent, e.g. adding conditional headers.
+   *
+   * @param method request method
+   * @param request HTTP request, with all headers already set
+   */
+  void prepare(HttpMethod method, HttpUriRequest request);
+
+  /**
+   * Processes the response received for the given request.
+   *
+   * @param method request method
+   * @param request HTTP request
+   * @param response HTTP response as received
+   * @return the response to be processed further: either the given one, or one built from the cache
+   * @throws IOException if the response body cannot be read
+   */
+  HttpResponse process(HttpMethod method, HttpUriRequest request, HttpResponse response) throws IOException;
+
+  /**
+   * Removes all entries.
+   */
+  void clear();
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.api.serialization;
+
+import java.net.URI;
+
+import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+
+/**
+ * Pull-style reader over an entity set payload.
+ * <br/>
+ * The whole payload is parsed in a single pass; entities are handed out one at a time and are never
+ * accumulated, so memory usage is bounded by the size of a single entity.
+ * <br/>
+ * <b>Please don't forget to call the <tt>close()</tt> method when not needed any more.</b>
+ */
+public interface EntitySetStreamReader {
+
+  /**
+   * Reads the next entity of the entity set.
+   *
+   * @return next entity, or <tt>null</tt> if the entity set has been completely read
+   * @throws ODataDeserializerException
+   */
+  ResWrap<Entity> next() throws ODataDeserializerException;
+
+  /**
+   * Gets the entity set information (count, next link, delta link, annotations) encountered so far.
+   * <br/>
+   * The returned collection never contains entities; its content is complete only after {@link #next()}
+   * has returned <tt>null</tt>.
+   *
+   * @return entity set information read so far
+   */
+  EntityCollection getEntitySet();
+
+  /**
+   * Gets the context URL of the payload, if available.
+   *
+   * @return context URL or <tt>null</tt>
+   */
+  URI getContextURL();
+
+  /**
+   * Gets the metadata ETag of the payload, if available.
+   *
+   * @return metadata ETag or <tt>null</tt>
+   */
+  String getMetadataETag();
+
+  /**
+   * Releases the underlying parser and the source stream.
+   */
+  void close();
+}
@@ -91,6 +91,17 @@ public interface ODataBinder {
    */
   ClientEntitySet getODataEntitySet(ResWrap<EntityCollection> resource);
 
+  /**
+   * Gets <tt>ODataEntitySet</tt> from the given entity set stream.
+   * <br/>
+   * Each entity is bound as soon as it is read, so that no intermediate entity collection is built.
+   *
+   * @param reader entity set stream reader; it is closed when this method returns.
+   * @return {@link ClientEntitySet} object.
+   * @throws ODataDeserializerException
+   */
+  ClientEntitySet getODataEntitySet(EntitySetStreamReader reader) throws ODataDeserializerException;
+
   /**
    * Gets <tt>ODataEntity</tt> from the given entity resource.
    *
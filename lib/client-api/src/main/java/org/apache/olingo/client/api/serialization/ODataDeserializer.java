@@ -39,6 +39,14 @@ public interface ODataDeserializer {
    */
   ResWrap<EntityCollection> toEntitySet(InputStream input) throws ODataDeserializerException;
 
+  /**
+   * Gets a streaming reader over the entity set contained in the given InputStream.
+   *
+   * @param input stream to be de-serialized.
+   * @return {@link EntitySetStreamReader} instance.
+   */
+  EntitySetStreamReader toEntitySetStream(InputStream input) throws ODataDeserializerException;
+
   /**
    * Gets an entity object from the given InputStream.
    *
@@ -22,9 +22,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.olingo.client.api.Configuration;
 import org.apache.olingo.client.api.http.HttpClientFactory;
+import org.apache.olingo.client.api.http.HttpResponseCache;
 import org.apache.olingo.client.api.http.HttpUriRequestFactory;
 import org.apache.olingo.client.core.http.DefaultHttpClientFactory;
 import org.apache.olingo.client.core.http.DefaultHttpUriRequestFactory;
@@ -58,9 +60,18 @@ public class ConfigurationImpl implements Configuration {
 
   private static final String CONTINUE_ON_ERROR = "continueOnError";
 
+  private static final String RESPONSE_CACHE = "responseCache";
+
+  private static final String EXECUTOR_THREADS = "executorThreads";
+
+  private static final int DEFAULT_EXECUTOR_THREADS = 10;
+
   private final Map<String, Object> CONF = new HashMap<String, Object>();
 
-  private transient ExecutorService executor = Executors.newFixedThreadPool(10);
+  private transient ExecutorService executor;
+
+  /** Whether {@link #executor} is the default executor, created here with the configured number of threads. */
+  private transient boolean defaultExecutor;
 
   /**
    * Gets given configuration property.
@@ -221,12 +232,51 @@ public class ConfigurationImpl implements Configuration {
   }
 
   @Override
-  public ExecutorService getExecutor() {
+  public synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(getExecutorThreads());
+      defaultExecutor = true;
+    }
     return executor;
   }
 
   @Override
-  public void setExecutor(final ExecutorService executorService) {
+  public synchronized void setExecutor(final ExecutorService executorService) {
     executor = executorService;
+    defaultExecutor = false;
+  }
+
+  @Override
+  public int getExecutorThreads() {
+    return (Integer) getProperty(EXECUTOR_THREADS, DEFAULT_EXECUTOR_THREADS);
+  }
+
+  @Override
+  public synchronized void setExecutorThreads(final int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The executor needs at least one thread.");
+    }
+    setProperty(EXECUTOR_THREADS, threads);
+    if (defaultExecutor) {
+      final ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+      // The core size must never exceed the maximum size, so the order depends on the direction.
+      if (threads > pool.getMaximumPoolSize()) {
+        pool.setMaximumPoolSize(threads);
+        pool.setCorePoolSize(threads);
+      } else {
+        pool.setCorePoolSize(threads);
+        pool.setMaximumPoolSize(threads);
+      }
+    }
+  }
+
+  @Override
+  public HttpResponseCache getResponseCache() {
+    return (HttpResponseCache) getProperty(RESPONSE_CACHE, null);
+  }
+
+  @Override
+  public void setResponseCache(final HttpResponseCache responseCache) {
+    setProperty(RESPONSE_CACHE, responseCache);
   }
 }
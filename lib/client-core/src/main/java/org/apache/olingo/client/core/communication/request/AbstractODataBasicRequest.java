@@ -29,6 +29,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.olingo.client.api.ODataBatchConstants;
 import org.apache.olingo.client.api.ODataClient;
 import org.apache.olingo.client.api.communication.request.ODataBasicRequest;
+import org.apache.olingo.client.api.communication.request.ODataResponseCallback;
 import org.apache.olingo.client.api.communication.request.ODataStreamer;
 import org.apache.olingo.client.api.communication.request.batch.ODataBatchRequest;
 import org.apache.olingo.client.api.communication.response.ODataResponse;
@@ -73,6 +74,29 @@ public abstract class AbstractODataBasicRequest<T extends ODataResponse>
     });
   }
 
+  @Override
+  public final Future<T> asyncExecute(final ODataResponseCallback<T> callback) {
+    return odataClient.getConfiguration().getExecutor().submit(new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        final T response;
+        try {
+          response = execute();
+        } catch (final RuntimeException e) {
+          try {
+            callback.onFailure(e);
+          } catch (final RuntimeException callbackException) {
+            // The future completes with the failure of the request, so the callback's exception is only logged.
+            LOG.error("Failure callback of the request to " + getURI() + " failed", callbackException);
+          }
+          throw e;
+        }
+        callback.onSuccess(response);
+        return response;
+      }
+    });
+  }
+
   /**
    * Gets payload as an InputStream.
    *
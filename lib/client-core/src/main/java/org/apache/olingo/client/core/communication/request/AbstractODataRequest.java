@@ -39,10 +39,12 @@ import org.apache.olingo.client.api.communication.request.ODataRequest;
 import org.apache.olingo.client.api.communication.request.ODataStreamer;
 import org.apache.olingo.client.api.communication.response.ODataResponse;
 import org.apache.olingo.client.api.http.HttpClientException;
+import org.apache.olingo.client.api.http.HttpResponseCache;
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.metrics.FlightRecorderEventType;
 
 /**
  * Abstract representation of an OData request. Get instance by using factories.
@@ -53,6 +55,15 @@ import org.apache.olingo.commons.api.http.HttpMethod;
  */
 public abstract class AbstractODataRequest extends AbstractRequest implements ODataRequest {
 
+  /** Event emitted to the JDK Flight Recorder for every executed request while a recording has it enabled. */
+  private static final FlightRecorderEventType REQUEST_EVENT = FlightRecorderEventType
+      .with("org.apache.olingo.ClientRequest", "OData Client Request")
+      .field(String.class, "method", "HTTP Method")
+      .field(String.class, "uri", "URI")
+      .field(int.class, "statusCode", "Status Code")
+      .field(String.class, "errorKind", "Error Kind")
+      .build();
+
   protected final ODataClient odataClient;
 
   /**
@@ -294,14 +305,32 @@ public abstract class AbstractODataRequest extends AbstractRequest implements OD
       }
     }
 
-    HttpResponse response;
+    final HttpResponseCache responseCache = odataClient.getConfiguration().getResponseCache();
+    if (responseCache != null) {
+      responseCache.prepare(method, request);
+    }
+
+    final Object event = REQUEST_EVENT.begin();
+    HttpResponse response = null;
+    String errorKind = null;
     try {
       response = httpClient.execute(request);
+      if (responseCache != null) {
+        response = responseCache.process(method, request, response);
+      }
     } catch (IOException e) {
+      errorKind = e.getClass().getSimpleName();
       throw new HttpClientException(e);
     } catch (RuntimeException e) {
+      errorKind = e.getClass().getSimpleName();
       request.abort();
       throw new HttpClientException(e);
+    } finally {
+      if (event != null) {
+        REQUEST_EVENT.commit(event, method == null ? null : method.name(), String.valueOf(request.getURI()),
+            response == null || response.getStatusLine() == null ? 0 : response.getStatusLine().getStatusCode(),
+            errorKind);
+      }
     }
 
     try {
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request.retrieve;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Future;
+
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.communication.request.retrieve.ODataEntitySetRequest;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.api.domain.ClientEntitySetPagingIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterator over all the pages of an entity set, prefetching the next pages on the configured executor.
+ * <br/>
+ * Since the link to a page is only known once the previous page has been read, pages are retrieved one after the
+ * other; retrieval however overlaps with the consumption of the pages already retrieved.
+ * Retrieval starts with the first call to {@link #hasNext()} or {@link #next()}.
+ *
+ * @param <E> concrete ODataEntity implementation
+ */
+public class ClientEntitySetPagingIteratorImpl<E extends ClientEntity> implements ClientEntitySetPagingIterator<E> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClientEntitySetPagingIteratorImpl.class);
+
+  private final ODataClient odataClient;
+
+  private final int prefetchDepth;
+
+  private final int maxPageSize;
+
+  private final LinkedList<ClientEntitySet> pages = new LinkedList<ClientEntitySet>();
+
+  private URI nextPage;
+
+  private boolean fetching = false;
+
+  private Future<?> pending;
+
+  private RuntimeException failure;
+
+  private boolean closed = false;
+
+  private int retrievedPages = 0;
+
+  private Integer count;
+
+  private Iterator<ClientEntity> current = Collections.<ClientEntity> emptyList().iterator();
+
+  /**
+   * Constructor.
+   *
+   * @param odataClient client instance
+   * @param uri request URI of the first page
+   * @param prefetchDepth maximum number of pages retrieved ahead of the one being consumed
+   * @param maxPageSize page size requested to the service; 0 or less to let the service decide
+   */
+  public ClientEntitySetPagingIteratorImpl(final ODataClient odataClient, final URI uri,
+      final int prefetchDepth, final int maxPageSize) {
+
+    this.odataClient = odataClient;
+    this.prefetchDepth = Math.max(prefetchDepth, 0);
+    this.maxPageSize = maxPageSize;
+    this.nextPage = uri;
+  }
+
+  /**
+   * Retrieves a single page.
+   */
+  protected ClientEntitySet fetch(final URI uri) {
+    final ODataEntitySetRequest<ClientEntitySet> request =
+        odataClient.getRetrieveRequestFactory().getEntitySetRequest(uri);
+    if (maxPageSize > 0) {
+      request.setPrefer(odataClient.newPreferences().maxPageSize(maxPageSize));
+    }
+    return request.execute().getBody();
+  }
+
+  /**
+   * Submits the retrieval of the next page, unless one is in progress or enough pages are already waiting.
+   * <br/>
+   * Must be called while holding the lock on this instance.
+   */
+  private void schedule() {
+    if (!fetching && !closed && failure == null && nextPage != null && pages.size() < prefetchDepth) {
+      fetching = true;
+      final URI uri = nextPage;
+      pending = odataClient.getConfiguration().getExecutor().submit(new Runnable() {
+        @Override
+        public void run() {
+          ClientEntitySet page = null;
+          RuntimeException error = null;
+          try {
+            page = fetch(uri);
+          } catch (final RuntimeException e) {
+            error = e;
+          }
+          synchronized (ClientEntitySetPagingIteratorImpl.this) {
+            if (closed) {
+              return;
+            }
+            if (error != null) {
+              LOG.error("Error retrieving page {}", uri, error);
+            }
+            fetching = false;
+            pending = null;
+            if (error == null) {
+              received(page);
+              pages.add(page);
+              schedule();
+            } else {
+              failure = error;
+            }
+            ClientEntitySetPagingIteratorImpl.this.notifyAll();
+          }
+        }
+      });
+    }
+  }
+
+  private void received(final ClientEntitySet page) {
+    if (retrievedPages++ == 0) {
+      count = page.getCount();
+    }
+    nextPage = page.getNext();
+  }
+
+  /**
+   * Gets the next page to be consumed, waiting for its retrieval if needed.
+   *
+   * @return next page, or <tt>null</tt> if there are no more pages
+   */
+  private ClientEntitySet nextPage() {
+    URI uri = null;
+    synchronized (this) {
+      if (prefetchDepth > 0) {
+        schedule();
+      }
+      while (pages.isEmpty() && fetching) {
+        try {
+          wait();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      }
+      if (!pages.isEmpty()) {
+        final ClientEntitySet page = pages.removeFirst();
+        schedule();
+        return page;
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      if (closed || nextPage == null) {
+        return null;
+      }
+      // no prefetching: retrieve the page in the calling thread
+      uri = nextPage;
+      nextPage = null;
+    }
+
+    final ClientEntitySet page = fetch(uri);
+    synchronized (this) {
+      received(page);
+    }
+    return page;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!current.hasNext()) {
+      final ClientEntitySet page = nextPage();
+      if (page == null) {
+        return false;
+      }
+      current = page.getEntities().iterator();
+    }
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E next() {
+    if (hasNext()) {
+      return (E) current.next();
+    }
+    throw new NoSuchElementException("No entity found");
+  }
+
+  /**
+   * Unsupported operation.
+   */
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Operation not supported");
+  }
+
+  @Override
+  public synchronized Integer getCount() {
+    return count;
+  }
+
+  @Override
+  public synchronized int getRetrievedPages() {
+    return retrievedPages;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (pending != null) {
+      pending.cancel(true);
+      pending = null;
+    }
+    fetching = false;
+    notifyAll();
+    pages.clear();
+    current = Collections.<ClientEntity> emptyList().iterator();
+  }
+}
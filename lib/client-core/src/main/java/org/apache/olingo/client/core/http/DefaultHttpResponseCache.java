@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.apache.olingo.client.api.http.HttpResponseCache;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+
+/**
+ * In-memory {@link HttpResponseCache} implementation, bounded in total body size and entry age.
+ * <br/>
+ * Only successful GET responses carrying an ETag are stored, keyed by request URI and the <tt>Accept</tt> and
+ * <tt>Prefer</tt> headers; the least recently used entries are evicted first. Responses with
+ * <tt>Cache-Control: no-store</tt> or <tt>private</tt>, or varying on other request headers, are not stored.
+ * Cached entries are revalidated with <tt>If-None-Match</tt>; a <tt>304 Not Modified</tt> response to a request
+ * with its own <tt>If-None-Match</tt> header is passed through.
+ * <br/>
+ * A successful POST, PUT, PATCH, MERGE or DELETE request invalidates the entries about the same entity set, i.e.,
+ * whose entity-set segment (the first path segment with a key predicate in parentheses, or else the last one)
+ * is the same, as well as the entries that may contain data of other entity sets: those with <tt>$expand</tt>
+ * or with path segments after the entity set and key.
+ * A modifying request with path segments after the entity set and key, e.g., for a navigation property or a bound
+ * action, or to a system resource like <tt>$batch</tt>, may change any entity set and invalidates all entries.
+ */
+public class DefaultHttpResponseCache implements HttpResponseCache {
+
+  /**
+   * <tt>If-None-Match</tt> header added by the cache, to tell it from a header set by the caller.
+   * It carries the entry it was made from, so that a <tt>304 Not Modified</tt> response can be answered from it
+   * even if the entry has been evicted or has expired in the meantime.
+   */
+  private static class ValidationHeader extends BasicHeader {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Entry entry;
+
+    private ValidationHeader(final Entry entry) {
+      super(HttpHeader.IF_NONE_MATCH, entry.etag);
+      this.entry = entry;
+    }
+  }
+
+  /** The resource addressed by a request URI, as far as it matters for invalidation. */
+  private static class Target {
+
+    /** The URI up to the entity-set segment, without key predicate and query. */
+    private final String base;
+
+    /** Whether data of other entity sets may be involved. */
+    private final boolean crossesEntitySets;
+
+    private Target(final String uri) {
+      final int query = uri.indexOf('?');
+      final String path = query < 0 ? uri : uri.substring(0, query);
+      final String[] segments = path.split("/");
+      int index = segments.length - 1;
+      for (int i = 0; i < segments.length; i++) {
+        if (segments[i].indexOf('(') >= 0) {
+          index = i;
+          break;
+        }
+      }
+      final int key = segments[index].indexOf('(');
+      final String name = key < 0 ? segments[index] : segments[index].substring(0, key);
+      final StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < index; i++) {
+        builder.append(segments[i]).append('/');
+      }
+      base = builder.append(name).toString();
+      crossesEntitySets = index < segments.length - 1
+          || name.startsWith("$") && !"$metadata".equals(name)
+          || query >= 0 && (uri.indexOf("$expand=", query) >= 0 || uri.indexOf("%24expand=", query) >= 0);
+    }
+  }
+
+  private static class Entry {
+
+    private final String etag;
+
+    private final Header[] headers;
+
+    private final byte[] body;
+
+    private final long storedAt;
+
+    private Entry(final String etag, final Header[] headers, final byte[] body, final long storedAt) {
+      this.etag = etag;
+      this.headers = headers;
+      this.body = body;
+      this.storedAt = storedAt;
+    }
+  }
+
+  /** The request headers that are part of the key, besides the URI. */
+  private static final String[] KEY_HEADERS = { HttpHeader.ACCEPT, HttpHeader.PREFER };
+
+  private final long maxSize;
+
+  private final long timeToLive;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+  private long size = 0;
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  private long evictions = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param maxSize maximum total size, in bytes, of the cached bodies
+   * @param timeToLive maximum age, in milliseconds, of a cached entry; 0 or less for no limit
+   */
+  public DefaultHttpResponseCache(final long maxSize, final long timeToLive) {
+    this.maxSize = maxSize;
+    this.timeToLive = timeToLive;
+  }
+
+  /** Gets the key of a request: its URI, followed by the headers that select the shape of the response. */
+  private String getKey(final HttpUriRequest request) {
+    final StringBuilder key = new StringBuilder(request.getURI().toASCIIString());
+    for (final String name : KEY_HEADERS) {
+      key.append('\n');
+      for (final Header header : request.getHeaders(name)) {
+        key.append(header.getValue()).append(',');
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Determines whether the response may be stored: neither <tt>Cache-Control: no-store</tt> nor <tt>private</tt>
+   * must be given, and <tt>Vary</tt> must not name other request headers than those in the key.
+   */
+  private boolean isStorable(final HttpResponse response) {
+    for (final Header header : response.getHeaders(HttpHeader.CACHE_CONTROL)) {
+      for (final HeaderElement element : header.getElements()) {
+        if ("no-store".equalsIgnoreCase(element.getName()) || "private".equalsIgnoreCase(element.getName())) {
+          return false;
+        }
+      }
+    }
+    for (final Header header : response.getHeaders(HttpHeader.VARY)) {
+      for (final HeaderElement element : header.getElements()) {
+        boolean inKey = false;
+        for (final String name : KEY_HEADERS) {
+          inKey |= name.equalsIgnoreCase(element.getName());
+        }
+        if (!inKey) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private Entry getEntry(final String key) {
+    final Entry entry = entries.get(key);
+    if (entry != null && timeToLive > 0 && System.currentTimeMillis() - entry.storedAt > timeToLive) {
+      remove(key);
+      return null;
+    }
+    return entry;
+  }
+
+  private void remove(final String key) {
+    final Entry entry = entries.remove(key);
+    if (entry != null) {
+      size -= entry.body.length;
+    }
+  }
+
+  @Override
+  public synchronized void prepare(final HttpMethod method, final HttpUriRequest request) {
+    if (method == HttpMethod.GET && !request.containsHeader(HttpHeader.IF_NONE_MATCH)) {
+      final Entry entry = getEntry(getKey(request));
+      if (entry != null) {
+        request.addHeader(new ValidationHeader(entry));
+      }
+    }
+  }
+
+  @Override
+  public HttpResponse process(final HttpMethod method, final HttpUriRequest request, final HttpResponse response)
+      throws IOException {
+
+    final int statusCode = response.getStatusLine().getStatusCode();
+    if (method == HttpMethod.GET) {
+      final Header validation = request.getFirstHeader(HttpHeader.IF_NONE_MATCH);
+      if (statusCode == HttpStatus.SC_NOT_MODIFIED && validation instanceof ValidationHeader) {
+        synchronized (this) {
+          hits++;
+        }
+        EntityUtils.consumeQuietly(response.getEntity());
+        return toResponse(response, ((ValidationHeader) validation).entry);
+      } else if (statusCode == HttpStatus.SC_OK && response.containsHeader(HttpHeader.ETAG)
+          && response.getEntity() != null && isStorable(response)) {
+
+        final HttpEntity entity = response.getEntity();
+        final byte[] body = EntityUtils.toByteArray(entity);
+        final ByteArrayEntity buffered = new ByteArrayEntity(body);
+        buffered.setContentType(entity.getContentType());
+        buffered.setContentEncoding(entity.getContentEncoding());
+        response.setEntity(buffered);
+
+        synchronized (this) {
+          misses++;
+          put(getKey(request), new Entry(response.getFirstHeader(HttpHeader.ETAG).getValue(),
+              response.getAllHeaders(), body, System.currentTimeMillis()));
+        }
+      } else {
+        synchronized (this) {
+          misses++;
+        }
+      }
+    } else if (statusCode >= HttpStatus.SC_OK && statusCode < HttpStatus.SC_MULTIPLE_CHOICES) {
+      invalidate(request.getURI());
+    }
+    return response;
+  }
+
+  private HttpResponse toResponse(final HttpResponse notModified, final Entry entry) {
+    final BasicHttpResponse response = new BasicHttpResponse(
+        notModified.getStatusLine().getProtocolVersion(), HttpStatus.SC_OK, "OK");
+    response.setHeaders(entry.headers);
+    final ByteArrayEntity entity = new ByteArrayEntity(entry.body);
+    entity.setContentType(response.getFirstHeader(HttpHeader.CONTENT_TYPE));
+    response.setEntity(entity);
+    return response;
+  }
+
+  private void put(final String key, final Entry entry) {
+    remove(key);
+    if (entry.body.length > maxSize) {
+      return;
+    }
+    entries.put(key, entry);
+    size += entry.body.length;
+
+    final Iterator<Map.Entry<String, Entry>> itor = entries.entrySet().iterator();
+    while (size > maxSize && itor.hasNext()) {
+      final Entry eldest = itor.next().getValue();
+      itor.remove();
+      size -= eldest.body.length;
+      evictions++;
+    }
+  }
+
+  /**
+   * Removes all the entries whose data may have been changed by a modifying request to the given URI.
+   *
+   * @param uri URI of a modifying request
+   */
+  public synchronized void invalidate(final URI uri) {
+    final Target modified = new Target(uri.toASCIIString());
+    if (modified.crossesEntitySets) {
+      clear();
+      return;
+    }
+    for (final Iterator<Map.Entry<String, Entry>> itor = entries.entrySet().iterator(); itor.hasNext();) {
+      final Map.Entry<String, Entry> entry = itor.next();
+      final String key = entry.getKey();
+      final int accept = key.indexOf('\n');
+      final Target cached = new Target(accept < 0 ? key : key.substring(0, accept));
+      if (cached.crossesEntitySets || cached.base.equals(modified.base)) {
+        itor.remove();
+        size -= entry.getValue().body.length;
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  /**
+   * Gets the number of GET requests answered from the cache after successful revalidation.
+   *
+   * @return number of hits
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of GET requests for which a full response was received.
+   *
+   * @return number of misses
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Gets the ratio of hits over all GET requests processed.
+   *
+   * @return hit rate, between 0 and 1
+   */
+  public synchronized double getHitRate() {
+    return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+  }
+
+  /**
+   * Gets the number of entries evicted because of the size bound.
+   *
+   * @return number of evictions
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * Gets the number of cached entries.
+   *
+   * @return number of entries
+   */
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the total size, in bytes, of the cached bodies.
+   *
+   * @return size in bytes
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+}
@@ -35,8 +35,10 @@ import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.client.api.serialization.EntitySetStreamReader;
 import org.apache.olingo.client.api.serialization.ODataDeserializer;
 import org.apache.olingo.client.api.serialization.ODataDeserializerException;
 import org.apache.olingo.commons.api.Constants;
@@ -744,38 +746,12 @@ public class AtomDeserializer extends AbstractAtomDealer implements ODataDeseria
     while (reader.hasNext() && !foundEndFeed) {
       final XMLEvent event = reader.nextEvent();
       if (event.isStartElement()) {
-        if (countQName.equals(event.asStartElement().getName())) {
-          count(reader, event.asStartElement(), entitySet);
-        } else if (Constants.QNAME_ATOM_ELEM_ID.equals(event.asStartElement().getName())) {
-          common(reader, event.asStartElement(), entitySet, "id");
-        } else if (Constants.QNAME_ATOM_ELEM_TITLE.equals(event.asStartElement().getName())) {
-          common(reader, event.asStartElement(), entitySet, "title");
-        } else if (Constants.QNAME_ATOM_ELEM_SUMMARY.equals(event.asStartElement().getName())) {
-          common(reader, event.asStartElement(), entitySet, "summary");
-        } else if (Constants.QNAME_ATOM_ELEM_UPDATED.equals(event.asStartElement().getName())) {
-          common(reader, event.asStartElement(), entitySet, "updated");
-        } else if (Constants.QNAME_ATOM_ELEM_LINK.equals(event.asStartElement().getName())) {
-          final Attribute rel = event.asStartElement().getAttributeByName(QName.valueOf(Constants.ATTR_REL));
-          if (rel != null) {
-            if (Constants.NEXT_LINK_REL.equals(rel.getValue())) {
-              final Attribute href = event.asStartElement().getAttributeByName(QName.valueOf(Constants.ATTR_HREF));
-              if (href != null) {
-                entitySet.setNext(URI.create(href.getValue()));
-              }
-            }
-            if (Constants.NS_DELTA_LINK_REL.equals(rel.getValue())) {
-              final Attribute href = event.asStartElement().getAttributeByName(QName.valueOf(Constants.ATTR_HREF));
-              if (href != null) {
-                entitySet.setDeltaLink(URI.create(href.getValue()));
-              }
-            }
-          }
-        } else if (Constants.QNAME_ATOM_ELEM_ENTRY.equals(event.asStartElement().getName())) {
+        if (Constants.QNAME_ATOM_ELEM_ENTRY.equals(event.asStartElement().getName())) {
           entitySet.getEntities().add(entity(reader, event.asStartElement()));
         } else if (entryRefQName.equals(event.asStartElement().getName())) {
           entitySet.getEntities().add(entityRef(event.asStartElement()));
-        } else if (annotationQName.equals(event.asStartElement().getName())) {
-          entitySet.getAnnotations().add(annotation(reader, event.asStartElement()));
+        } else {
+          feedElement(reader, event.asStartElement(), entitySet);
         }
       }
 
@@ -787,6 +763,43 @@ public class AtomDeserializer extends AbstractAtomDealer implements ODataDeseria
     return entitySet;
   }
 
+  /**
+   * Handles any feed child element other than entries.
+   */
+  private void feedElement(final XMLEventReader reader, final StartElement start, final EntityCollection entitySet)
+      throws XMLStreamException, EdmPrimitiveTypeException {
+
+    if (countQName.equals(start.getName())) {
+      count(reader, start, entitySet);
+    } else if (Constants.QNAME_ATOM_ELEM_ID.equals(start.getName())) {
+      common(reader, start, entitySet, "id");
+    } else if (Constants.QNAME_ATOM_ELEM_TITLE.equals(start.getName())) {
+      common(reader, start, entitySet, "title");
+    } else if (Constants.QNAME_ATOM_ELEM_SUMMARY.equals(start.getName())) {
+      common(reader, start, entitySet, "summary");
+    } else if (Constants.QNAME_ATOM_ELEM_UPDATED.equals(start.getName())) {
+      common(reader, start, entitySet, "updated");
+    } else if (Constants.QNAME_ATOM_ELEM_LINK.equals(start.getName())) {
+      final Attribute rel = start.getAttributeByName(QName.valueOf(Constants.ATTR_REL));
+      if (rel != null) {
+        if (Constants.NEXT_LINK_REL.equals(rel.getValue())) {
+          final Attribute href = start.getAttributeByName(QName.valueOf(Constants.ATTR_HREF));
+          if (href != null) {
+            entitySet.setNext(URI.create(href.getValue()));
+          }
+        }
+        if (Constants.NS_DELTA_LINK_REL.equals(rel.getValue())) {
+          final Attribute href = start.getAttributeByName(QName.valueOf(Constants.ATTR_HREF));
+          if (href != null) {
+            entitySet.setDeltaLink(URI.create(href.getValue()));
+          }
+        }
+      }
+    } else if (annotationQName.equals(start.getName())) {
+      entitySet.getAnnotations().add(annotation(reader, start));
+    }
+  }
+
   @Override
   public ResWrap<EntityCollection> toEntitySet(final InputStream input) throws ODataDeserializerException {
     try {
@@ -800,6 +813,101 @@ public class AtomDeserializer extends AbstractAtomDealer implements ODataDeseria
     }
   }
 
+  @Override
+  public EntitySetStreamReader toEntitySetStream(final InputStream input) throws ODataDeserializerException {
+    try {
+      final XMLEventReader reader = getReader(input);
+      return new AtomEntitySetStreamReader(input, reader, skipBeforeFirstStartElement(reader));
+    } catch (XMLStreamException e) {
+      throw new ODataDeserializerException(e);
+    }
+  }
+
+  /**
+   * Reads an Atom feed one entry at a time, using a single event reader over the whole payload.
+   */
+  private class AtomEntitySetStreamReader implements EntitySetStreamReader {
+
+    private final InputStream input;
+
+    private final XMLEventReader reader;
+
+    private final StartElement start;
+
+    private final EntityCollection entitySet = new EntityCollection();
+
+    private boolean finished;
+
+    private AtomEntitySetStreamReader(final InputStream input, final XMLEventReader reader,
+        final StartElement start) {
+
+      this.input = input;
+      this.reader = reader;
+      this.start = start;
+      finished = !Constants.QNAME_ATOM_ELEM_FEED.equals(start.getName());
+
+      final Attribute xmlBase = start.getAttributeByName(Constants.QNAME_ATTR_XML_BASE);
+      if (xmlBase != null) {
+        entitySet.setBaseURI(URI.create(xmlBase.getValue()));
+      }
+    }
+
+    @Override
+    public ResWrap<Entity> next() throws ODataDeserializerException {
+      try {
+        while (!finished && reader.hasNext()) {
+          final XMLEvent event = reader.nextEvent();
+          if (event.isStartElement()) {
+            if (Constants.QNAME_ATOM_ELEM_ENTRY.equals(event.asStartElement().getName())) {
+              return getContainer(event.asStartElement(), entity(reader, event.asStartElement()));
+            } else if (entryRefQName.equals(event.asStartElement().getName())) {
+              return getContainer(event.asStartElement(), entityRef(event.asStartElement()));
+            } else {
+              feedElement(reader, event.asStartElement(), entitySet);
+            }
+          }
+
+          if (event.isEndElement() && start.getName().equals(event.asEndElement().getName())) {
+            finished = true;
+          }
+        }
+        finished = true;
+        return null;
+      } catch (XMLStreamException e) {
+        throw new ODataDeserializerException(e);
+      } catch (final EdmPrimitiveTypeException e) {
+        throw new ODataDeserializerException(e);
+      }
+    }
+
+    @Override
+    public EntityCollection getEntitySet() {
+      return entitySet;
+    }
+
+    @Override
+    public URI getContextURL() {
+      final Attribute context = start.getAttributeByName(contextQName);
+      return context == null ? null : URI.create(context.getValue());
+    }
+
+    @Override
+    public String getMetadataETag() {
+      final Attribute metadataETag = start.getAttributeByName(metadataEtagQName);
+      return metadataETag == null ? null : metadataETag.getValue();
+    }
+
+    @Override
+    public void close() {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // ignore
+      }
+      IOUtils.closeQuietly(input);
+    }
+  }
+
   private ODataError error(final XMLEventReader reader, final StartElement start) throws XMLStreamException {
     final ODataError error = new ODataError();
 
@@ -27,6 +27,7 @@ import org.apache.olingo.client.api.data.ResWrap;
 import org.apache.olingo.client.api.data.ServiceDocument;
 import org.apache.olingo.client.api.edm.xml.XMLMetadata;
 import org.apache.olingo.client.api.serialization.ClientODataDeserializer;
+import org.apache.olingo.client.api.serialization.EntitySetStreamReader;
 import org.apache.olingo.client.api.serialization.ODataDeserializer;
 import org.apache.olingo.client.api.serialization.ODataDeserializerException;
 import org.apache.olingo.client.core.data.JSONServiceDocumentDeserializer;
@@ -73,6 +74,11 @@ public class ClientODataDeserializerImpl implements ClientODataDeserializer {
     return deserializer.toEntitySet(input);
   }
 
+  @Override
+  public EntitySetStreamReader toEntitySetStream(final InputStream input) throws ODataDeserializerException {
+    return deserializer.toEntitySetStream(input);
+  }
+
   @Override
   public ResWrap<Entity> toEntity(final InputStream input) throws ODataDeserializerException {
     return deserializer.toEntity(input);
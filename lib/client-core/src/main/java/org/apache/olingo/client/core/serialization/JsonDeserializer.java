@@ -32,6 +32,7 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.client.api.serialization.EntitySetStreamReader;
 import org.apache.olingo.client.api.serialization.ODataDeserializer;
 import org.apache.olingo.client.api.serialization.ODataDeserializerException;
 import org.apache.olingo.commons.api.Constants;
@@ -389,6 +390,16 @@ public class JsonDeserializer implements ODataDeserializer {
     }
   }
 
+  @Override
+  public EntitySetStreamReader toEntitySetStream(final InputStream input) throws ODataDeserializerException {
+    try {
+      parser = new JsonFactory(new ObjectMapper()).createParser(input);
+      return new JsonEntitySetStreamReader(serverMode, parser);
+    } catch (final IOException e) {
+      throw new ODataDeserializerException(e);
+    }
+  }
+
   @Override
   public ResWrap<Entity> toEntity(final InputStream input) throws ODataDeserializerException {
     try {
@@ -56,6 +56,13 @@ public class JsonEntityDeserializer extends JsonDeserializer {
   }
 
   protected ResWrap<Entity> doDeserialize(final JsonParser parser) throws IOException {
+    return doDeserialize(parser, new Entity());
+  }
+
+  /**
+   * Reads an entity into the given one, which must be empty.
+   */
+  protected ResWrap<Entity> doDeserialize(final JsonParser parser, final Entity entity) throws IOException {
 
     final ObjectNode tree = parser.getCodec().readTree(parser);
 
@@ -63,8 +70,6 @@ public class JsonEntityDeserializer extends JsonDeserializer {
       throw new JsonParseException("Expected OData Entity, found EntitySet", parser.getCurrentLocation());
     }
 
-    final Entity entity = new Entity();
-
     final URI contextURL;
     if (tree.hasNonNull(Constants.JSON_CONTEXT)) {
       contextURL = URI.create(tree.get(Constants.JSON_CONTEXT).textValue());
@@ -19,20 +19,14 @@
 package org.apache.olingo.client.core.serialization;
 
 import java.io.IOException;
-import java.net.URI;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.olingo.client.api.data.ResWrap;
-import org.apache.olingo.commons.api.Constants;
-import org.apache.olingo.commons.api.data.Annotation;
+import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
-import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * Reads JSON string into an entity set.
@@ -46,75 +40,20 @@ public class JsonEntitySetDeserializer extends JsonDeserializer {
   }
 
   protected ResWrap<EntityCollection> doDeserialize(final JsonParser parser) throws IOException {
+    final JsonEntitySetStreamReader reader = new JsonEntitySetStreamReader(serverMode, parser);
 
-    final ObjectNode tree = (ObjectNode) parser.getCodec().readTree(parser);
-
-    if (!tree.has(Constants.VALUE)) {
-      return null;
-    }
-
-    final EntityCollection entitySet = new EntityCollection();
-
-    URI contextURL;
-    if (tree.hasNonNull(Constants.JSON_CONTEXT)) {
-      contextURL = URI.create(tree.get(Constants.JSON_CONTEXT).textValue());
-      tree.remove(Constants.JSON_CONTEXT);
-    } else if (tree.hasNonNull(Constants.JSON_METADATA)) {
-      contextURL = URI.create(tree.get(Constants.JSON_METADATA).textValue());
-      tree.remove(Constants.JSON_METADATA);
-    } else {
-      contextURL = null;
-    }
-    if (contextURL != null) {
-      entitySet.setBaseURI(URI.create(StringUtils.substringBefore(contextURL.toASCIIString(), Constants.METADATA)));
-    }
-
-    final String metadataETag;
-    if (tree.hasNonNull(Constants.JSON_METADATA_ETAG)) {
-      metadataETag = tree.get(Constants.JSON_METADATA_ETAG).textValue();
-      tree.remove(Constants.JSON_METADATA_ETAG);
-    } else {
-      metadataETag = null;
+    final List<Entity> entities = new ArrayList<Entity>();
+    for (ResWrap<Entity> entity = reader.read(); entity != null; entity = reader.read()) {
+      entities.add(entity.getPayload());
     }
 
-    if (tree.hasNonNull(Constants.JSON_COUNT)) {
-      entitySet.setCount(tree.get(Constants.JSON_COUNT).asInt());
-      tree.remove(Constants.JSON_COUNT);
-    }
-    if (tree.hasNonNull(Constants.JSON_NEXT_LINK)) {
-      entitySet.setNext(URI.create(tree.get(Constants.JSON_NEXT_LINK).textValue()));
-      tree.remove(Constants.JSON_NEXT_LINK);
-    }
-    if (tree.hasNonNull(Constants.JSON_DELTA_LINK)) {
-      entitySet.setDeltaLink(URI.create(tree.get(Constants.JSON_DELTA_LINK).textValue()));
-      tree.remove(Constants.JSON_DELTA_LINK);
-    }
-
-    if (tree.hasNonNull(Constants.VALUE)) {
-      final JsonEntityDeserializer entityDeserializer = new JsonEntityDeserializer(serverMode);
-      for (JsonNode jsonNode : tree.get(Constants.VALUE)) {
-        entitySet.getEntities().add(
-            entityDeserializer.doDeserialize(jsonNode.traverse(parser.getCodec())).getPayload());
-      }
-      tree.remove(Constants.VALUE);
+    if (!reader.isValueFound()) {
+      return null;
     }
 
-    // any remaining entry is supposed to be an annotation or is ignored
-    for (final Iterator<Map.Entry<String, JsonNode>> itor = tree.fields(); itor.hasNext();) {
-      final Map.Entry<String, JsonNode> field = itor.next();
-      if (field.getKey().charAt(0) == '@') {
-        final Annotation annotation = new Annotation();
-        annotation.setTerm(field.getKey().substring(1));
-
-        try {
-          value(annotation, field.getValue(), parser.getCodec());
-        } catch (final EdmPrimitiveTypeException e) {
-          throw new IOException(e);
-        }
-        entitySet.getAnnotations().add(annotation);
-      }
-    }
+    final EntityCollection entitySet = reader.getEntitySet();
+    entitySet.getEntities().addAll(entities);
 
-    return new ResWrap<EntityCollection>(contextURL, metadataETag, entitySet);
+    return new ResWrap<EntityCollection>(reader.getContextURL(), reader.getMetadataETag(), entitySet);
   }
 }
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.serialization;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.olingo.client.api.data.ResWrap;
+import org.apache.olingo.client.api.serialization.EntitySetStreamReader;
+import org.apache.olingo.client.api.serialization.ODataDeserializerException;
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.Annotation;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Reads a JSON entity set one entity at a time, using a single streaming parser over the whole payload.
+ * <br/>
+ * Entity set level information (context, count, next link, delta link, annotations) is collected as it is
+ * encountered, both before and after the <tt>value</tt> array.
+ */
+public class JsonEntitySetStreamReader extends JsonDeserializer implements EntitySetStreamReader {
+
+  private final JsonParser parser;
+
+  private final JsonEntityDeserializer entityDeserializer;
+
+  private final EntityCollection entitySet = new EntityCollection();
+
+  private URI contextURL;
+
+  private String metadataETag;
+
+  private boolean inValue = false;
+
+  private boolean valueFound = false;
+
+  private boolean finished = false;
+
+  public JsonEntitySetStreamReader(final boolean serverMode, final JsonParser parser) throws IOException {
+    super(serverMode);
+    this.parser = parser;
+    this.entityDeserializer = new JsonEntityDeserializer(serverMode);
+
+    if (parser.nextToken() == JsonToken.START_OBJECT) {
+      readToValue();
+    } else {
+      finished = true;
+    }
+  }
+
+  /**
+   * Consumes the top-level fields until the start of the <tt>value</tt> array or the end of the payload.
+   */
+  private void readToValue() throws IOException {
+    while (!inValue && !finished) {
+      final JsonToken token = parser.nextToken();
+      if (token == null || token == JsonToken.END_OBJECT) {
+        finished = true;
+      } else if (token == JsonToken.FIELD_NAME) {
+        final String name = parser.getCurrentName();
+        final JsonToken valueToken = parser.nextToken();
+        if (Constants.VALUE.equals(name)) {
+          // A value that is not an array, "value": null in particular, is an entity set without entities.
+          valueFound = true;
+          inValue = valueToken == JsonToken.START_ARRAY;
+          if (!inValue) {
+            parser.skipChildren();
+          }
+        } else {
+          field(name, valueToken);
+        }
+      }
+    }
+  }
+
+  private void field(final String name, final JsonToken valueToken) throws IOException {
+    if (valueToken == JsonToken.VALUE_NULL) {
+      return;
+    }
+
+    if (Constants.JSON_CONTEXT.equals(name) || Constants.JSON_METADATA.equals(name)) {
+      if (contextURL == null) {
+        contextURL = URI.create(parser.getText());
+        entitySet.setBaseURI(URI.create(StringUtils.substringBefore(contextURL.toASCIIString(), Constants.METADATA)));
+      }
+    } else if (Constants.JSON_METADATA_ETAG.equals(name)) {
+      metadataETag = parser.getText();
+    } else if (Constants.JSON_COUNT.equals(name)) {
+      entitySet.setCount(parser.getValueAsInt());
+    } else if (Constants.JSON_NEXT_LINK.equals(name)) {
+      entitySet.setNext(URI.create(parser.getText()));
+    } else if (Constants.JSON_DELTA_LINK.equals(name)) {
+      entitySet.setDeltaLink(URI.create(parser.getText()));
+    } else if (name.charAt(0) == '@') {
+      final JsonNode node = parser.getCodec().readTree(parser);
+      final Annotation annotation = new Annotation();
+      annotation.setTerm(name.substring(1));
+      try {
+        value(annotation, node, parser.getCodec());
+      } catch (final EdmPrimitiveTypeException e) {
+        throw new IOException(e);
+      }
+      entitySet.getAnnotations().add(annotation);
+    } else {
+      // any other entry is ignored
+      parser.skipChildren();
+    }
+  }
+
+  /**
+   * Tells whether the payload contains a <tt>value</tt> array, i.e. whether it actually is an entity set.
+   */
+  protected boolean isValueFound() {
+    return valueFound;
+  }
+
+  protected ResWrap<Entity> read() throws IOException {
+    return read(null);
+  }
+
+  private ResWrap<Entity> read(final Entity reused) throws IOException {
+    while (inValue) {
+      final JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_OBJECT) {
+        return reused == null
+            ? entityDeserializer.doDeserialize(parser)
+            : entityDeserializer.doDeserialize(parser, clear(reused));
+      } else if (token == null) {
+        inValue = false;
+        finished = true;
+      } else if (token == JsonToken.END_ARRAY) {
+        inValue = false;
+        readToValue();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public ResWrap<Entity> next() throws ODataDeserializerException {
+    try {
+      return read();
+    } catch (final IOException e) {
+      throw new ODataDeserializerException(e);
+    }
+  }
+
+  /**
+   * Reads the next entity into the given one instead of allocating a new entity.
+   * <br/>
+   * The previous content of the given entity is discarded, so the caller must be done with it;
+   * this is meant for callers that convert each entity before reading the next one.
+   *
+   * @param reused the entity to fill
+   * @return the entity, or <code>null</code> if there are no more entities
+   * @throws ODataDeserializerException if the payload cannot be read
+   */
+  public ResWrap<Entity> next(final Entity reused) throws ODataDeserializerException {
+    try {
+      return read(reused);
+    } catch (final IOException e) {
+      throw new ODataDeserializerException(e);
+    }
+  }
+
+  /** Resets all the fields the JSON entity deserializer may have set. */
+  private static Entity clear(final Entity entity) {
+    entity.setBaseURI(null);
+    entity.setId(null);
+    entity.setETag(null);
+    entity.setType(null);
+    entity.setSelfLink(null);
+    entity.setEditLink(null);
+    entity.setMediaContentSource(null);
+    entity.setMediaContentType(null);
+    entity.setMediaETag(null);
+    entity.getAnnotations().clear();
+    entity.getAssociationLinks().clear();
+    entity.getNavigationLinks().clear();
+    entity.getNavigationBindings().clear();
+    entity.getMediaEditLinks().clear();
+    entity.getOperations().clear();
+    entity.getProperties().clear();
+    return entity;
+  }
+
+  @Override
+  public EntityCollection getEntitySet() {
+    return entitySet;
+  }
+
+  @Override
+  public URI getContextURL() {
+    return contextURL;
+  }
+
+  @Override
+  public String getMetadataETag() {
+    return metadataETag;
+  }
+
+  @Override
+  public void close() {
+    try {
+      parser.close();
+    } catch (final IOException e) {
+      // ignore
+    }
+  }
+}
@@ -50,7 +50,9 @@ import org.apache.olingo.client.api.domain.ClientProperty;
 import org.apache.olingo.client.api.domain.ClientServiceDocument;
 import org.apache.olingo.client.api.domain.ClientValuable;
 import org.apache.olingo.client.api.domain.ClientValue;
+import org.apache.olingo.client.api.serialization.EntitySetStreamReader;
 import org.apache.olingo.client.api.serialization.ODataBinder;
+import org.apache.olingo.client.api.serialization.ODataDeserializerException;
 import org.apache.olingo.client.api.serialization.ODataSerializerException;
 import org.apache.olingo.client.core.domain.ClientAnnotationImpl;
 import org.apache.olingo.client.core.domain.ClientDeletedEntityImpl;
@@ -399,6 +401,42 @@ public class ODataBinderImpl implements ODataBinder {
       LOG.debug("EntitySet -> ODataEntitySet:\n{}", writer.toString());
     }
 
+    final List<ClientEntity> entities = new ArrayList<ClientEntity>(resource.getPayload().getEntities().size());
+    for (Entity entityResource : resource.getPayload().getEntities()) {
+      entities.add(getODataEntity(
+          new ResWrap<Entity>(resource.getContextURL(), resource.getMetadataETag(), entityResource)));
+    }
+
+    return getODataEntitySet(resource, entities);
+  }
+
+  @Override
+  public ClientEntitySet getODataEntitySet(final EntitySetStreamReader reader) throws ODataDeserializerException {
+    try {
+      // Each entity is bound before the next one is read, so the JSON reader can fill the same entity every time.
+      final Entity reused = reader instanceof JsonEntitySetStreamReader ? new Entity() : null;
+      final List<ClientEntity> entities = new ArrayList<ClientEntity>();
+      for (ResWrap<Entity> entityResource = next(reader, reused); entityResource != null;
+          entityResource = next(reader, reused)) {
+        entities.add(getODataEntity(new ResWrap<Entity>(
+            reader.getContextURL(), reader.getMetadataETag(), entityResource.getPayload())));
+      }
+
+      return getODataEntitySet(new ResWrap<EntityCollection>(
+          reader.getContextURL(), reader.getMetadataETag(), reader.getEntitySet()), entities);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private ResWrap<Entity> next(final EntitySetStreamReader reader, final Entity reused)
+      throws ODataDeserializerException {
+    return reused == null ? reader.next() : ((JsonEntitySetStreamReader) reader).next(reused);
+  }
+
+  private ClientEntitySet getODataEntitySet(final ResWrap<EntityCollection> resource,
+      final List<ClientEntity> entities) {
+
     final URI base = resource.getContextURL() == null
         ? resource.getPayload().getBaseURI()
         : ContextURLParser.parse(resource.getContextURL()).getServiceRoot();
@@ -413,9 +451,8 @@ public class ODataBinderImpl implements ODataBinder {
       entitySet.setCount(resource.getPayload().getCount());
     }
 
-    for (Entity entityResource : resource.getPayload().getEntities()) {
-      add(entitySet, getODataEntity(
-          new ResWrap<Entity>(resource.getContextURL(), resource.getMetadataETag(), entityResource)));
+    for (ClientEntity entity : entities) {
+      add(entitySet, entity);
     }
 
     if (resource.getPayload().getDeltaLink() != null) {
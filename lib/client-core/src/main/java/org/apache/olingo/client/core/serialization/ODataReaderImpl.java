@@ -160,7 +160,7 @@ public class ODataReaderImpl implements ODataReader {
   @Override
   public ClientEntitySet readEntitySet(final InputStream input, final ContentType contentType)
       throws ODataDeserializerException {
-    return client.getBinder().getODataEntitySet(client.getDeserializer(contentType).toEntitySet(input));
+    return client.getBinder().getODataEntitySet(client.getDeserializer(contentType).toEntitySetStream(input));
   }
 
   @Override
@@ -19,9 +19,12 @@
 package org.apache.olingo.client.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -29,6 +32,7 @@ import java.net.URI;
 import org.apache.olingo.client.api.data.ResWrap;
 import org.apache.olingo.client.api.domain.ClientEntity;
 import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.api.domain.ClientEntitySetIterator;
 import org.apache.olingo.client.api.serialization.ODataDeserializerException;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.format.ContentType;
@@ -87,4 +91,75 @@ public class EntitySetTest extends AbstractTest {
   public void jsonRef() throws Exception {
     ref(ContentType.JSON);
   }
+
+  private void iterate(final ContentType contentType) throws ODataDeserializerException {
+    final ClientEntitySet entitySet = client.getBinder().getODataEntitySet(client.getDeserializer(contentType)
+        .toEntitySet(getClass().getResourceAsStream("Customers." + getSuffix(contentType))));
+
+    final ClientEntitySetIterator<ClientEntitySet, ClientEntity> iterator =
+        new ClientEntitySetIterator<ClientEntitySet, ClientEntity>(
+            client, getClass().getResourceAsStream("Customers." + getSuffix(contentType)), contentType);
+    int index = 0;
+    while (iterator.hasNext()) {
+      assertEquals(entitySet.getEntities().get(index++), iterator.next());
+    }
+    assertEquals(entitySet.getEntities().size(), index);
+    assertEquals(Integer.valueOf(2), iterator.getCount());
+    assertNull(iterator.getNext());
+  }
+
+  private void bindStreamed(final ContentType contentType) throws ODataDeserializerException {
+    final ClientEntitySet entitySet = client.getBinder().getODataEntitySet(client.getDeserializer(contentType)
+        .toEntitySet(getClass().getResourceAsStream("Customers." + getSuffix(contentType))));
+    final ClientEntitySet streamed = client.getReader().readEntitySet(
+        getClass().getResourceAsStream("Customers." + getSuffix(contentType)), contentType);
+    assertEquals(entitySet, streamed);
+    assertEquals(Integer.valueOf(2), streamed.getCount());
+  }
+
+  @Test
+  public void bindStreamedAtom() throws Exception {
+    bindStreamed(ContentType.APPLICATION_ATOM_XML);
+  }
+
+  @Test
+  public void bindStreamedJSON() throws Exception {
+    bindStreamed(ContentType.JSON);
+  }
+
+  @Test
+  public void nullValueJSON() throws Exception {
+    final ResWrap<EntityCollection> entitySet = client.getDeserializer(ContentType.JSON).toEntitySet(
+        new ByteArrayInputStream("{\"value\":null,\"@odata.count\":0}".getBytes("UTF-8")));
+    assertNotNull(entitySet);
+    assertTrue(entitySet.getPayload().getEntities().isEmpty());
+    assertEquals(Integer.valueOf(0), entitySet.getPayload().getCount());
+    assertTrue(client.getBinder().getODataEntitySet(entitySet).getEntities().isEmpty());
+  }
+
+  @Test
+  public void iterateAtom() throws Exception {
+    iterate(ContentType.APPLICATION_ATOM_XML);
+  }
+
+  @Test
+  public void iterateJSON() throws Exception {
+    iterate(ContentType.JSON);
+  }
+
+  @Test
+  public void iterateJSONWithBracesInStrings() throws Exception {
+    final String payload = "{\"@odata.context\":\"http://host/service/$metadata#ESAllPrim\","
+        + "\"value\":[{\"PropertyString\":\"}{[\\\"\"},{\"PropertyString\":\"second\","
+        + "\"NavPropertyETTwoPrimOne\":{\"PropertyString\":\"nested\"}}],"
+        + "\"@odata.nextLink\":\"http://host/service/ESAllPrim?$skiptoken=2\"}";
+    final ClientEntitySetIterator<ClientEntitySet, ClientEntity> iterator =
+        new ClientEntitySetIterator<ClientEntitySet, ClientEntity>(
+            client, new ByteArrayInputStream(payload.getBytes("UTF-8")), ContentType.JSON);
+
+    assertEquals("}{[\"", iterator.next().getProperty("PropertyString").getPrimitiveValue().toValue());
+    assertEquals("second", iterator.next().getProperty("PropertyString").getPrimitiveValue().toValue());
+    assertFalse(iterator.hasNext());
+    assertEquals(URI.create("http://host/service/ESAllPrim?$skiptoken=2"), iterator.getNext());
+  }
 }
@@ -19,9 +19,23 @@
 package org.apache.olingo.client.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.olingo.client.api.Configuration;
 import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.communication.request.ODataResponseCallback;
+import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
 import org.apache.olingo.commons.api.edm.constants.ODataServiceVersion;
 import org.junit.Test;
 
@@ -33,4 +47,80 @@ public class ODataClientTest {
     assertNotNull(client);
     assertEquals(ODataServiceVersion.V40, client.getServiceVersion());
   }
+
+  @Test
+  public void asyncExecuteNotifiesFailure() throws Exception {
+    final ODataClient client = ODataClientFactory.getClient();
+    final AtomicReference<ODataRetrieveResponse<ClientEntitySet>> success =
+        new AtomicReference<ODataRetrieveResponse<ClientEntitySet>>();
+    final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+    final Future<ODataRetrieveResponse<ClientEntitySet>> future =
+        client.getRetrieveRequestFactory().getEntitySetRequest(URI.create("http://localhost:1/service/ES"))
+            .asyncExecute(new ODataResponseCallback<ODataRetrieveResponse<ClientEntitySet>>() {
+              @Override
+              public void onSuccess(final ODataRetrieveResponse<ClientEntitySet> response) {
+                success.set(response);
+              }
+
+              @Override
+              public void onFailure(final RuntimeException e) {
+                failure.set(e);
+              }
+            });
+    try {
+      future.get();
+    } catch (final ExecutionException e) {
+      assertEquals(failure.get(), e.getCause());
+    }
+    assertNull(success.get());
+    assertTrue(future.isDone());
+    assertNotNull(failure.get());
+  }
+
+  @Test
+  public void asyncExecuteKeepsFailureOfRequest() throws Exception {
+    final ODataClient client = ODataClientFactory.getClient();
+    final Future<ODataRetrieveResponse<ClientEntitySet>> future =
+        client.getRetrieveRequestFactory().getEntitySetRequest(URI.create("http://localhost:1/service/ES"))
+            .asyncExecute(new ODataResponseCallback<ODataRetrieveResponse<ClientEntitySet>>() {
+              @Override
+              public void onSuccess(final ODataRetrieveResponse<ClientEntitySet> response) {
+                // not expected
+              }
+
+              @Override
+              public void onFailure(final RuntimeException e) {
+                throw new IllegalStateException("callback failure");
+              }
+            });
+    try {
+      future.get();
+      fail("Expected an exception.");
+    } catch (final ExecutionException e) {
+      assertFalse(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void executorThreads() {
+    final Configuration configuration = ODataClientFactory.getClient().getConfiguration();
+    assertEquals(10, configuration.getExecutorThreads());
+    configuration.setExecutorThreads(2);
+    final ThreadPoolExecutor executor = (ThreadPoolExecutor) configuration.getExecutor();
+    assertEquals(2, executor.getMaximumPoolSize());
+    configuration.setExecutorThreads(20);
+    assertEquals(20, executor.getCorePoolSize());
+    assertEquals(20, executor.getMaximumPoolSize());
+    configuration.setExecutorThreads(5);
+    assertEquals(5, executor.getCorePoolSize());
+    assertEquals(5, executor.getMaximumPoolSize());
+    executor.shutdown();
+    try {
+      configuration.setExecutorThreads(0);
+      fail("Expected an exception.");
+    } catch (final IllegalArgumentException e) {
+      assertEquals(5, configuration.getExecutorThreads());
+    }
+  }
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.communication.request.retrieve;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.core.ODataClientFactory;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.junit.Test;
+
+public class ClientEntitySetPagingIteratorTest {
+
+  private static final ODataClient client = ODataClientFactory.getClient();
+
+  private static final int PAGES = 5;
+
+  private static final int PAGE_SIZE = 3;
+
+  /**
+   * Serves PAGES pages of PAGE_SIZE entities each, the page number being the <tt>page</tt> query option.
+   */
+  private static class TestIterator extends ClientEntitySetPagingIteratorImpl<ClientEntity> {
+
+    private final int countPage;
+
+    public TestIterator(final int prefetchDepth) {
+      this(prefetchDepth, 0);
+    }
+
+    /** The count is returned with the page <tt>countPage</tt>. */
+    public TestIterator(final int prefetchDepth, final int countPage) {
+      super(client, URI.create("http://host/service/ES?page=0"), prefetchDepth, PAGE_SIZE);
+      this.countPage = countPage;
+    }
+
+    @Override
+    protected ClientEntitySet fetch(final URI uri) {
+      final int page = Integer.parseInt(uri.getQuery().substring("page=".length()));
+      final ClientEntitySet entitySet = page + 1 < PAGES
+          ? client.getObjectFactory().newEntitySet(URI.create("http://host/service/ES?page=" + (page + 1)))
+          : client.getObjectFactory().newEntitySet();
+      if (page == countPage) {
+        entitySet.setCount(PAGES * PAGE_SIZE);
+      }
+      for (int i = 0; i < PAGE_SIZE; i++) {
+        entitySet.getEntities().add(client.getObjectFactory().newEntity(
+            new FullQualifiedName("Namespace", "ET" + (page * PAGE_SIZE + i))));
+      }
+      return entitySet;
+    }
+  }
+
+  private void iterate(final int prefetchDepth) {
+    final TestIterator iterator = new TestIterator(prefetchDepth);
+    int index = 0;
+    while (iterator.hasNext()) {
+      assertEquals("ET" + index++, iterator.next().getTypeName().getName());
+    }
+    assertEquals(PAGES * PAGE_SIZE, index);
+    assertEquals(Integer.valueOf(PAGES * PAGE_SIZE), iterator.getCount());
+    assertEquals(PAGES, iterator.getRetrievedPages());
+    iterator.close();
+  }
+
+  @Test
+  public void sequential() {
+    iterate(0);
+  }
+
+  @Test
+  public void prefetch() {
+    iterate(1);
+    iterate(3);
+    iterate(PAGES * 2);
+  }
+
+  @Test
+  public void close() {
+    final TestIterator iterator = new TestIterator(2);
+    assertTrue(iterator.hasNext());
+    iterator.next();
+    iterator.close();
+    assertFalse(iterator.hasNext());
+    assertTrue(iterator.getRetrievedPages() <= 3);
+  }
+
+  @Test
+  public void lazyStart() throws Exception {
+    final TestIterator iterator = new TestIterator(2);
+    Thread.sleep(50);
+    assertEquals(0, iterator.getRetrievedPages());
+    iterator.close();
+    assertFalse(iterator.hasNext());
+    assertEquals(0, iterator.getRetrievedPages());
+  }
+
+  @Test
+  public void countFromFirstPageOnly() {
+    final TestIterator iterator = new TestIterator(2, 1);
+    while (iterator.hasNext()) {
+      iterator.next();
+    }
+    assertNull(iterator.getCount());
+    iterator.close();
+  }
+
+  @Test
+  public void closeCancelsRetrieval() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    final URI uri = URI.create("http://host/service/ES");
+    final ClientEntitySetPagingIteratorImpl<ClientEntity> iterator =
+        new ClientEntitySetPagingIteratorImpl<ClientEntity>(client, uri, 1, PAGE_SIZE) {
+      @Override
+      protected ClientEntitySet fetch(final URI pageUri) {
+        started.countDown();
+        try {
+          Thread.sleep(10000);
+        } catch (final InterruptedException e) {
+          interrupted.countDown();
+        }
+        return client.getObjectFactory().newEntitySet();
+      }
+    };
+    final Thread consumer = new Thread() {
+      @Override
+      public void run() {
+        iterator.hasNext();
+      }
+    };
+    consumer.start();
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    iterator.close();
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    consumer.join(5000);
+    assertFalse(consumer.isAlive());
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.junit.Test;
+
+public class DefaultHttpResponseCacheTest {
+
+  private static final String URI = "http://host/service/ESAllPrim(1)";
+
+  private HttpResponse ok(final String etag, final String body) {
+    final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+    response.addHeader(HttpHeader.ETAG, etag);
+    response.addHeader(HttpHeader.CONTENT_TYPE, "application/json");
+    response.setEntity(new ByteArrayEntity(body.getBytes()));
+    return response;
+  }
+
+  private HttpResponse notModified() {
+    return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_NOT_MODIFIED, "Not Modified");
+  }
+
+  private HttpResponse noContent() {
+    return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_NO_CONTENT, "No Content");
+  }
+
+  private HttpUriRequest get(final DefaultHttpResponseCache cache, final String uri) {
+    final HttpGet request = new HttpGet(uri);
+    request.addHeader(HttpHeader.ACCEPT, "application/json");
+    cache.prepare(HttpMethod.GET, request);
+    return request;
+  }
+
+  @Test
+  public void revalidate() throws Exception {
+    final DefaultHttpResponseCache cache = new DefaultHttpResponseCache(1024, 0);
+
+    HttpUriRequest request = get(cache, URI);
+    assertFalse(request.containsHeader(HttpHeader.IF_NONE_MATCH));
+    HttpResponse response = cache.process(HttpMethod.GET, request, ok("W/\"1\"", "{\"a\":1}"));
+    assertEquals("{\"a\":1}", EntityUtils.toString(response.getEntity()));
+
+    request = get(cache, URI);
+    assertEquals("W/\"1\"", request.getFirstHeader(HttpHeader.IF_NONE_MATCH).getValue());
+    response = cache.process(HttpMethod.GET, request, notModified());
+    assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+    assertEquals("W/\"1\"", response.getFirstHeader(HttpHeader.ETAG).getValue());
+    assertEquals("{\"a\":1}", EntityUtils.toString(response.getEntity()));
+
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0.5, cache.getHitRate(), 0);
+  }
+
+  @Test
+  public void invalidate() throws Exception {
+    final DefaultHttpResponseCache cache = new DefaultHttpResponseCache(1024, 0);
+    cache.process(HttpMethod.GET, get(cache, URI), ok("W/\"1\"", "{}"));
+    cache.process(HttpMethod.GET, get(cache, "http://host/service/ESAllPrim?$top=1"), ok("W/\"2\"", "{}"));
+    cache.process(HttpMethod.GET, get(cache, "http://host/service/ESTwoPrim(1)"), ok("W/\"3\"", "{}"));
+    cache.process(HttpMethod.GET, get(cache, "http://host/service/ESAllPrimX(1)"), ok("W/\"4\"", "{}"));
+    cache.process(HttpMethod.GET, get(cache, "http://host/service/ESTwoPrim?$expand=NavPropertyETAllPrimOne"),
+        ok("W/\"5\"", "{}"));
+    cache.process(HttpMethod.GET, get(cache, "http://host/service/ESTwoPrim(2)/NavPropertyETAllPrimOne"),
+        ok("W/\"6\"", "{}"));
+    assertEquals(6, cache.getEntryCount());
+
+    cache.process(HttpMethod.PATCH, new HttpPut(URI), noContent());
+    assertEquals(2, cache.getEntryCount());
+    assertNull(get(cache, URI).getFirstHeader(HttpHeader.IF_NONE_MATCH));
+    assertEquals("W/\"3\"", get(cache, "http://host/service/ESTwoPrim(1)")
+        .getFirstHeader(HttpHeader.IF_NONE_MATCH).getValue());
+    assertEquals("W/\"4\"", get(cache, "http://host/service/ESAllPrimX(1)")
+        .getFirstHeader(HttpHeader.IF_NONE_MATCH).getValue());
+
+    // A modification through a navigation property may change any entity set.
+    cache.process(HttpMethod.POST, new HttpPost("http://host/service/ESAllPrimX(1)/NavPropertyETTwoPrimMany"),
+        noContent());
+    assertEquals(0, cache.getEntryCount());
+  }
+
+  @Test
+  public void notModifiedForCaller() throws Exception {
+    final DefaultHttpResponseCache cache = new DefaultHttpResponseCache(1024, 0);
+    cache.process(HttpMethod.GET, get(cache, URI), ok("W/\"1\"", "{}"));
+
+    final HttpGet request = new HttpGet(URI);
+    request.addHeader(HttpHeader.ACCEPT, "application/json");
+    request.addHeader(HttpHeader.IF_NONE_MATCH, "W/\"1\"");
+    cache.prepare(HttpMethod.GET, request);
+    assertEquals(1, request.getHeaders(HttpHeader.IF_NONE_MATCH).length);
+    final HttpResponse response = cache.process(HttpMethod.GET, request, notModified());
+    assertEquals(HttpStatus.SC_NOT_MODIFIED, response.getStatusLine().getStatusCode());
+    assertEquals(0, cache.getHitCount());
+  }
+
+  @Test
+  public void notModifiedAfterEviction() throws Exception {
+    final DefaultHttpResponseCache cache = new DefaultHttpResponseCache(1024, 0);
+    cache.process(HttpMethod.GET, get(cache, URI), ok("W/\"1\"", "{\"a\":1}"));
+
+    final HttpUriRequest request = get(cache, URI);
+    cache.clear();
+    final HttpResponse response = cache.process(HttpMethod.GET, request, notModified());
+    assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+    assertEquals("{\"a\":1}", EntityUtils.toString(response.getEntity()));
+  }
+
+  @Test
+  public void keyWithPreferences() throws Exception {
+    final DefaultHttpResponseCache cache = new DefaultHttpResponseCache(1024, 0);
+    cache.process(HttpMethod.GET, get(cache, URI), ok("W/\"1\"", "{}"));
+
+    final HttpGet request = new HttpGet(URI);
+    request.addHeader(HttpHeader.ACCEPT, "application/json");
+    request.addHeader(HttpHeader.PREFER, "odata.maxpagesize=10");
+    cache.prepare(HttpMethod.GET, request);
+    assertNull(request.getFirstHeader(HttpHeader.IF_NONE_MATCH));
+    cache.process(HttpMethod.GET, request, ok("W/\"2\"", "{}"));
+    assertEquals(2, cache.getEntryCount());
+  }
+
+  @Test
+  public void notStorable() throws Exception {
+    final DefaultHttpResponseCache cache = new DefaultHttpResponseCache(1024, 0);
+    HttpResponse response = ok("W/\"1\"", "{}");
+    response.addHeader(HttpHeader.CACHE_CONTROL, "max-age=0, no-store");
+    cache.process(HttpMethod.GET, get(cache, URI), response);
+    response = ok("W/\"1\"", "{}");
+    response.addHeader(HttpHeader.CACHE_CONTROL, "private");
+    cache.process(HttpMethod.GET, get(cache, URI), response);
+    response = ok("W/\"1\"", "{}");
+    response.addHeader(HttpHeader.VARY, "Accept-Language");
+    cache.process(HttpMethod.GET, get(cache, URI), response);
+    assertEquals(0, cache.getEntryCount());
+
+    response = ok("W/\"1\"", "{}");
+    response.addHeader(HttpHeader.VARY, "Accept, Prefer");
+    cache.process(HttpMethod.GET, get(cache, URI), response);
+    assertEquals(1, cache.getEntryCount());
+  }
+
+  @Test
+  public void evict() throws Exception {
+    final DefaultHttpResponseCache cache = new DefaultHttpResponseCache(10, 0);
+    cache.process(HttpMethod.GET, get(cache, URI + "?a"), ok("W/\"1\"", "123456"));
+    cache.process(HttpMethod.GET, get(cache, URI + "?b"), ok("W/\"2\"", "123456"));
+    assertEquals(1, cache.getEntryCount());
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(6, cache.getSize());
+  }
+}
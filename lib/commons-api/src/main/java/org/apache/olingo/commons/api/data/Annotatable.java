@@ -36,4 +36,22 @@ public abstract class Annotatable {
   public List<Annotation> getAnnotations() {
     return annotations;
   }
+
+  /**
+   * Gets the annotations for comparisons without allocating a list in elements that create them on demand.
+   * @return the annotations, or <code>null</code> if there are none
+   */
+  List<Annotation> peekAnnotations() {
+    return annotations;
+  }
+
+  /** Compares lists that may be <code>null</code>, <code>null</code> being equal to an empty list. */
+  static boolean equalLists(final List<?> list1, final List<?> list2) {
+    return list1 == null || list1.isEmpty() ? list2 == null || list2.isEmpty() : list1.equals(list2);
+  }
+
+  /** Gets the hash code of a list that may be <code>null</code>, the same as for an empty list. */
+  static int hashCode(final List<?> list) {
+    return list == null ? 1 : list.hashCode();
+  }
 }
@@ -0,0 +1,531 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Collection of entities of one type stored column by column.
+ * <br/>
+ * Each structural property of the {@link EntityLayout} gets a column; columns of the primitive types
+ * <code>Boolean</code>, <code>Byte</code>, <code>Int16</code>, <code>Int32</code>, <code>Int64</code>,
+ * <code>Single</code>, and <code>Double</code> keep their values in primitive arrays, together with a bitmap
+ * of the non-null rows. Rows are added with {@link #addRow()} and filled through the columns, so data read from
+ * columnar or JDBC sources can be handed to the serializer without creating an entity per row.
+ * <br/>
+ * The entities of the collection are created on access, as {@link CompactEntity} instances reading the values
+ * of their row at that time; the entity list is read-only.
+ */
+public class ColumnarEntityCollection extends EntityCollection {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final EntityLayout layout;
+  private final Column[] columns;
+  private int rows = 0;
+  private int capacity;
+
+  private final List<Entity> entities = new AbstractList<Entity>() {
+    @Override
+    public Entity get(final int index) {
+      return getEntity(index);
+    }
+
+    @Override
+    public int size() {
+      return rows;
+    }
+  };
+
+  /**
+   * Creates an empty collection.
+   * @param layout the layout of the entity type
+   */
+  public ColumnarEntityCollection(final EntityLayout layout) {
+    this(layout, INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates an empty collection.
+   * @param layout the layout of the entity type
+   * @param capacity the expected number of rows
+   */
+  public ColumnarEntityCollection(final EntityLayout layout, final int capacity) {
+    this.layout = layout;
+    this.capacity = Math.max(capacity, 1);
+    columns = new Column[layout.size()];
+    for (int slot = 0; slot < columns.length; slot++) {
+      columns[slot] = createColumn(layout.getValueType(slot), layout.getPropertyType(slot), this.capacity);
+    }
+  }
+
+  private static Column createColumn(final ValueType valueType, final String type, final int capacity) {
+    if (valueType == ValueType.PRIMITIVE) {
+      if ("Edm.Boolean".equals(type)) {
+        return new BooleanColumn(capacity);
+      } else if ("Edm.Int16".equals(type) || "Edm.Byte".equals(type)) {
+        return new ShortColumn(capacity);
+      } else if ("Edm.SByte".equals(type)) {
+        return new ByteColumn(capacity);
+      } else if ("Edm.Int32".equals(type)) {
+        return new IntColumn(capacity);
+      } else if ("Edm.Int64".equals(type)) {
+        return new LongColumn(capacity);
+      } else if ("Edm.Single".equals(type)) {
+        return new FloatColumn(capacity);
+      } else if ("Edm.Double".equals(type)) {
+        return new DoubleColumn(capacity);
+      }
+    }
+    return new ObjectColumn(capacity);
+  }
+
+  /**
+   * Gets the layout of the entities.
+   * @return the layout
+   */
+  public EntityLayout getLayout() {
+    return layout;
+  }
+
+  /**
+   * Gets the number of rows.
+   * @return number of rows
+   */
+  public int getRowCount() {
+    return rows;
+  }
+
+  /**
+   * Adds a row where all values are <code>null</code>.
+   * @return the index of the new row
+   */
+  public int addRow() {
+    if (rows == capacity) {
+      capacity = capacity * 2;
+      for (final Column column : columns) {
+        column.grow(capacity);
+      }
+    }
+    return rows++;
+  }
+
+  /**
+   * Gets the column of a property.
+   * @param slot the slot of the property in the layout
+   * @return the column
+   */
+  public Column getColumn(final int slot) {
+    return columns[slot];
+  }
+
+  /**
+   * Gets the column of a property.
+   * @param name the name of the property
+   * @return the column, or <code>null</code> if the layout has no property with the given name
+   */
+  public Column getColumn(final String name) {
+    final int slot = layout.getSlot(name);
+    return slot < 0 ? null : columns[slot];
+  }
+
+  /**
+   * Creates an entity with the values of a row; later changes of the row are not reflected in the entity.
+   * @param row the row index
+   * @return the entity
+   */
+  public CompactEntity getEntity(final int row) {
+    if (row < 0 || row >= rows) {
+      throw new IndexOutOfBoundsException(String.valueOf(row));
+    }
+    final CompactEntity entity = new CompactEntity(layout);
+    for (int slot = 0; slot < columns.length; slot++) {
+      entity.setValue(slot, columns[slot].getValue(row));
+    }
+    return entity;
+  }
+
+  /**
+   * Gets a read-only view of the rows as entities; see {@link #getEntity(int)}.
+   */
+  @Override
+  public List<Entity> getEntities() {
+    return entities;
+  }
+
+  @Override
+  public Iterator<Entity> iterator() {
+    return entities.iterator();
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    return super.equals(o) && entities.equals(((ColumnarEntityCollection) o).entities);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * super.hashCode() + entities.hashCode();
+  }
+
+  /**
+   * Column of values of one property; a value can be read and written as object for all columns,
+   * typed accessors avoid boxing for columns of primitive types.
+   */
+  public abstract static class Column {
+
+    private final BitSet nonNull = new BitSet();
+
+    Column() {}
+
+    abstract void grow(int capacity);
+
+    /**
+     * Whether the value in the given row is <code>null</code>.
+     * @param row the row index
+     */
+    public boolean isNull(final int row) {
+      return !nonNull.get(row);
+    }
+
+    /**
+     * Sets the value in the given row to <code>null</code>.
+     * @param row the row index
+     */
+    public void setNull(final int row) {
+      nonNull.clear(row);
+    }
+
+    void setNonNull(final int row) {
+      nonNull.set(row);
+    }
+
+    /**
+     * Gets the value in the given row.
+     * @param row the row index
+     * @return the value, or <code>null</code>
+     */
+    public abstract Object getValue(int row);
+
+    /**
+     * Sets the value in the given row.
+     * @param row the row index
+     * @param value the value, or <code>null</code>; numbers are converted to the type of the column
+     */
+    public abstract void setValue(int row, Object value);
+  }
+
+  /** Column of <code>Edm.Boolean</code> values. */
+  public static final class BooleanColumn extends Column {
+    private boolean[] values;
+
+    private BooleanColumn(final int capacity) {
+      values = new boolean[capacity];
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    public boolean getBoolean(final int row) {
+      return values[row];
+    }
+
+    public void setBoolean(final int row, final boolean value) {
+      values[row] = value;
+      setNonNull(row);
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value == null) {
+        setNull(row);
+      } else {
+        setBoolean(row, (Boolean) value);
+      }
+    }
+  }
+
+  /** Column of <code>Edm.SByte</code> values. */
+  public static final class ByteColumn extends Column {
+    private byte[] values;
+
+    private ByteColumn(final int capacity) {
+      values = new byte[capacity];
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    public byte getByte(final int row) {
+      return values[row];
+    }
+
+    public void setByte(final int row, final byte value) {
+      values[row] = value;
+      setNonNull(row);
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value == null) {
+        setNull(row);
+      } else {
+        setByte(row, ((Number) value).byteValue());
+      }
+    }
+  }
+
+  /** Column of <code>Edm.Int16</code> or <code>Edm.Byte</code> values. */
+  public static final class ShortColumn extends Column {
+    private short[] values;
+
+    private ShortColumn(final int capacity) {
+      values = new short[capacity];
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    public short getShort(final int row) {
+      return values[row];
+    }
+
+    public void setShort(final int row, final short value) {
+      values[row] = value;
+      setNonNull(row);
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value == null) {
+        setNull(row);
+      } else {
+        setShort(row, ((Number) value).shortValue());
+      }
+    }
+  }
+
+  /** Column of <code>Edm.Int32</code> values. */
+  public static final class IntColumn extends Column {
+    private int[] values;
+
+    private IntColumn(final int capacity) {
+      values = new int[capacity];
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    public int getInt(final int row) {
+      return values[row];
+    }
+
+    public void setInt(final int row, final int value) {
+      values[row] = value;
+      setNonNull(row);
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value == null) {
+        setNull(row);
+      } else {
+        setInt(row, ((Number) value).intValue());
+      }
+    }
+  }
+
+  /** Column of <code>Edm.Int64</code> values. */
+  public static final class LongColumn extends Column {
+    private long[] values;
+
+    private LongColumn(final int capacity) {
+      values = new long[capacity];
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    public long getLong(final int row) {
+      return values[row];
+    }
+
+    public void setLong(final int row, final long value) {
+      values[row] = value;
+      setNonNull(row);
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value == null) {
+        setNull(row);
+      } else {
+        setLong(row, ((Number) value).longValue());
+      }
+    }
+  }
+
+  /** Column of <code>Edm.Single</code> values. */
+  public static final class FloatColumn extends Column {
+    private float[] values;
+
+    private FloatColumn(final int capacity) {
+      values = new float[capacity];
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    public float getFloat(final int row) {
+      return values[row];
+    }
+
+    public void setFloat(final int row, final float value) {
+      values[row] = value;
+      setNonNull(row);
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value == null) {
+        setNull(row);
+      } else {
+        setFloat(row, ((Number) value).floatValue());
+      }
+    }
+  }
+
+  /** Column of <code>Edm.Double</code> values. */
+  public static final class DoubleColumn extends Column {
+    private double[] values;
+
+    private DoubleColumn(final int capacity) {
+      values = new double[capacity];
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    public double getDouble(final int row) {
+      return values[row];
+    }
+
+    public void setDouble(final int row, final double value) {
+      values[row] = value;
+      setNonNull(row);
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value == null) {
+        setNull(row);
+      } else {
+        setDouble(row, ((Number) value).doubleValue());
+      }
+    }
+  }
+
+  /** Column of values of any other type, including <code>Edm.String</code>, complex, and collection values. */
+  public static final class ObjectColumn extends Column {
+    private Object[] values;
+
+    private ObjectColumn(final int capacity) {
+      values = new Object[capacity];
+    }
+
+    @Override
+    void grow(final int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    public void setNull(final int row) {
+      super.setNull(row);
+      values[row] = null;
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return values[row];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value == null) {
+        setNull(row);
+      } else {
+        values[row] = value;
+        setNonNull(row);
+      }
+    }
+  }
+}
@@ -0,0 +1,540 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entity bound to an {@link EntityLayout}: the values of the structural properties are kept in a slot array
+ * instead of one {@link Property} object each, and properties are looked up by name in constant time.
+ * <br/>
+ * The entity is used through the {@link Entity} API. The {@link Property} objects returned by
+ * {@link #getProperty(String)} and {@link #getProperties()} are lightweight views created on access; they
+ * read and write the slots of the entity, so changing their value changes the entity. Renaming such a view
+ * detaches the property from its slot. A property added to the entity is copied into its slot, replacing any previous
+ * value at the position of that value; properties not part of the layout are kept as they are.
+ * Unless properties are inserted at other positions with {@link List#add(int, Object)}, the present layout
+ * properties come first in layout order, followed by the other properties.
+ * Types and value types differing from the layout, as well as property annotations, are kept aside and allocated
+ * only when used.
+ */
+public class CompactEntity extends Entity {
+
+  private static final Object ABSENT = new Object();
+
+  private final EntityLayout layout;
+  private final Object[] values;
+  private int present = 0;
+
+  private String[] types;
+  private ValueType[] valueTypes;
+  private List<?>[] annotations;
+  private List<Property> others;
+
+  /**
+   * The slots of the present layout properties in list order, while the default order is used.
+   * It is computed on read, so it is published only when complete.
+   */
+  private volatile int[] positions;
+  /**
+   * The list order, if it differs from the default order: the slots (as {@link Integer}) of the present
+   * layout properties and the other properties.
+   */
+  private List<Object> order;
+
+  private final PropertyList properties = new PropertyList();
+
+  /**
+   * Creates an entity without any property value.
+   * @param layout the layout of the entity type; the entity type name is taken from it
+   */
+  public CompactEntity(final EntityLayout layout) {
+    this.layout = layout;
+    values = new Object[layout.size()];
+    for (int slot = 0; slot < values.length; slot++) {
+      values[slot] = ABSENT;
+    }
+    setType(layout.getType());
+  }
+
+  /**
+   * Gets the layout of this entity.
+   * @return the layout
+   */
+  public EntityLayout getLayout() {
+    return layout;
+  }
+
+  /**
+   * Sets the value of a property of the layout, keeping its type and value type.
+   * @param name property name
+   * @param value the value
+   * @return this entity for method chaining
+   * @throws IllegalArgumentException if the layout has no property with the given name
+   */
+  public CompactEntity setValue(final String name, final Object value) {
+    final int slot = layout.getSlot(name);
+    if (slot < 0) {
+      throw new IllegalArgumentException("Property " + name + " is not part of type " + layout.getType());
+    }
+    return setValue(slot, value);
+  }
+
+  /**
+   * Sets the value of the property in the given slot of the layout, keeping its type and value type.
+   * @param slot the slot, see {@link EntityLayout#getSlot(String)}
+   * @param value the value
+   * @return this entity for method chaining
+   */
+  public CompactEntity setValue(final int slot, final Object value) {
+    store(slot, value);
+    return this;
+  }
+
+  @Override
+  public Entity addProperty(final Property property) {
+    properties.add(property);
+    return this;
+  }
+
+  @Override
+  public List<Property> getProperties() {
+    return properties;
+  }
+
+  @Override
+  public Property getProperty(final String name) {
+    return properties.get(name);
+  }
+
+  private void store(final int slot, final Object value) {
+    if (values[slot] == ABSENT) {
+      present++;
+      positions = null;
+      if (order != null) {
+        order.add(slot);
+      }
+    }
+    values[slot] = value;
+  }
+
+  private void store(final int slot, final Property property) {
+    store(slot, property.getValue());
+    if (property.getValueType() != null && property.getValueType() != layout.getValueType(slot)
+        || valueTypes != null && valueTypes[slot] != null) {
+      if (valueTypes == null) {
+        valueTypes = new ValueType[values.length];
+      }
+      valueTypes[slot] = property.getValueType();
+    }
+    if (property.getType() != null && !property.getType().equals(layout.getPropertyType(slot))
+        || types != null && types[slot] != null) {
+      if (types == null) {
+        types = new String[values.length];
+      }
+      types[slot] = property.getType();
+    }
+    if (!property.getAnnotations().isEmpty() || annotations != null && annotations[slot] != null) {
+      getAnnotations(slot).clear();
+      getAnnotations(slot).addAll(property.getAnnotations());
+    }
+  }
+
+  /** Removes the value of a slot and returns it as a detached property. */
+  private Property remove(final int slot) {
+    final Property property = new Property(null, layout.getName(slot));
+    final SlotProperty view = new SlotProperty(slot);
+    property.setType(view.getType());
+    property.setValue(view.getValueType(), view.getValue());
+    if (annotations != null && annotations[slot] != null) {
+      property.getAnnotations().addAll(getAnnotations(slot));
+      annotations[slot] = null;
+    }
+    if (valueTypes != null) {
+      valueTypes[slot] = null;
+    }
+    if (types != null) {
+      types[slot] = null;
+    }
+    values[slot] = ABSENT;
+    present--;
+    positions = null;
+    if (order != null) {
+      order.remove(Integer.valueOf(slot));
+    }
+    return property;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Annotation> getAnnotations(final int slot) {
+    if (annotations == null) {
+      annotations = new List<?>[values.length];
+    }
+    if (annotations[slot] == null) {
+      annotations[slot] = new ArrayList<Annotation>();
+    }
+    return (List<Annotation>) annotations[slot];
+  }
+
+  /** Gets the slot of the property at the given position among the present layout properties in default order. */
+  private int getSlot(final int index) {
+    if (present == values.length) {
+      return index;
+    }
+    int[] slots = positions;
+    if (slots == null) {
+      slots = new int[present];
+      int position = 0;
+      for (int slot = 0; slot < values.length; slot++) {
+        if (values[slot] != ABSENT) {
+          slots[position++] = slot;
+        }
+      }
+      positions = slots;
+    }
+    return slots[index];
+  }
+
+  /** Gets the position of the present property in the given slot. */
+  private int getPosition(final int slot) {
+    if (order != null) {
+      return order.indexOf(slot);
+    }
+    int position = 0;
+    for (int other = 0; other < slot; other++) {
+      if (values[other] != ABSENT) {
+        position++;
+      }
+    }
+    return position;
+  }
+
+  /** Switches from the default order to an explicit list order. */
+  private List<Object> getOrder() {
+    if (order == null) {
+      order = new ArrayList<Object>(properties.size());
+      for (int slot = 0; slot < values.length; slot++) {
+        if (values[slot] != ABSENT) {
+          order.add(slot);
+        }
+      }
+      if (others != null) {
+        order.addAll(others);
+      }
+      positions = null;
+    }
+    return order;
+  }
+
+  private List<Property> getOthers() {
+    if (others == null) {
+      others = new ArrayList<Property>();
+    }
+    return others;
+  }
+
+  /** Removes a property not part of the layout, by identity. */
+  private void removeOther(final Property property) {
+    for (int index = 0; index < others.size(); index++) {
+      if (others.get(index) == property) {
+        others.remove(index);
+        return;
+      }
+    }
+  }
+
+  /**
+   * The properties of a compact entity: first the present layout properties in layout order,
+   * then the other properties.
+   */
+  public final class PropertyList extends AbstractList<Property> {
+
+    private PropertyList() {}
+
+    /**
+     * Gets a property by name.
+     * @param name property name
+     * @return the property, or <code>null</code> if the entity has no property with the given name
+     */
+    public Property get(final String name) {
+      final int slot = layout.getSlot(name);
+      if (slot >= 0) {
+        return values[slot] == ABSENT ? null : new SlotProperty(slot);
+      }
+      if (others != null) {
+        for (final Property property : others) {
+          if (name.equals(property.getName())) {
+            return property;
+          }
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Property get(final int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      }
+      if (order != null) {
+        final Object element = order.get(index);
+        return element instanceof Integer ? new SlotProperty((Integer) element) : (Property) element;
+      }
+      return index < present ? new SlotProperty(getSlot(index)) : others.get(index - present);
+    }
+
+    @Override
+    public int size() {
+      return present + (others == null ? 0 : others.size());
+    }
+
+    /**
+     * Appends a property. As long as no property has been inserted at another position, a property of the
+     * layout takes the position of its slot, so that the layout properties stay in layout order.
+     */
+    @Override
+    public boolean add(final Property property) {
+      final int slot = property.getName() == null ? -1 : layout.getSlot(property.getName());
+      if (slot >= 0 && order == null) {
+        store(slot, property);
+        modCount++;
+      } else {
+        add(size(), property);
+      }
+      return true;
+    }
+
+    /**
+     * Inserts a property at the given position. A property of the layout is copied into its slot;
+     * if the entity already has a value for it, that value is replaced and keeps its position.
+     */
+    @Override
+    public void add(final int index, final Property property) {
+      if (index < 0 || index > size()) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      }
+      final int slot = property.getName() == null ? -1 : layout.getSlot(property.getName());
+      if (slot >= 0 && values[slot] != ABSENT) {
+        store(slot, property);
+      } else if (slot >= 0) {
+        if (order == null && index == getPosition(slot)) {
+          store(slot, property);
+        } else {
+          getOrder();
+          store(slot, property);
+          order.remove(order.size() - 1);
+          order.add(index, slot);
+        }
+      } else if (order == null && index >= present) {
+        getOthers().add(index - present, property);
+      } else {
+        getOrder().add(index, property);
+        getOthers().add(property);
+      }
+      modCount++;
+    }
+
+    @Override
+    public Property set(final int index, final Property property) {
+      final Property old = remove(index);
+      add(index, property);
+      return old;
+    }
+
+    @Override
+    public Property remove(final int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      }
+      modCount++;
+      if (order != null) {
+        final Object element = order.get(index);
+        if (element instanceof Integer) {
+          return CompactEntity.this.remove((Integer) element);
+        }
+        order.remove(index);
+        removeOther((Property) element);
+        return (Property) element;
+      }
+      return index < present ? CompactEntity.this.remove(getSlot(index)) : others.remove(index - present);
+    }
+  }
+
+  /**
+   * View on the slot of a layout property.
+   * <br/>
+   * When it is renamed, the property is detached from its slot: it is replaced in the entity, at the same position,
+   * by a plain property or, for the name of another layout property, by the slot of that property, and the view
+   * reads and writes that instead.
+   */
+  private final class SlotProperty extends Property {
+
+    private int slot;
+    private Property detached;
+
+    private SlotProperty(final int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public String getName() {
+      return detached == null ? layout.getName(slot) : detached.getName();
+    }
+
+    @Override
+    public void setName(final String name) {
+      if (detached != null) {
+        detached.setName(name);
+        return;
+      }
+      if (layout.getName(slot).equals(name) || values[slot] == ABSENT) {
+        return;
+      }
+      final List<Object> list = getOrder();
+      final int position = list.indexOf(slot);
+      final Property property = CompactEntity.this.remove(slot);
+      property.setName(name);
+      properties.add(Math.min(position, list.size()), property);
+      final int newSlot = name == null ? -1 : layout.getSlot(name);
+      if (newSlot >= 0) {
+        slot = newSlot;
+      } else {
+        detached = property;
+      }
+    }
+
+    @Override
+    public String getType() {
+      if (detached != null) {
+        return detached.getType();
+      }
+      return types == null || types[slot] == null ? layout.getPropertyType(slot) : types[slot];
+    }
+
+    @Override
+    public void setType(final String type) {
+      if (detached != null) {
+        detached.setType(type);
+        return;
+      }
+      if (types == null) {
+        types = new String[values.length];
+      }
+      types[slot] = type;
+    }
+
+    @Override
+    public ValueType getValueType() {
+      if (detached != null) {
+        return detached.getValueType();
+      }
+      return valueTypes == null || valueTypes[slot] == null ? layout.getValueType(slot) : valueTypes[slot];
+    }
+
+    @Override
+    public Object getValue() {
+      if (detached != null) {
+        return detached.getValue();
+      }
+      return values[slot] == ABSENT ? null : values[slot];
+    }
+
+    @Override
+    public void setValue(final ValueType valueType, final Object value) {
+      if (detached != null) {
+        detached.setValue(valueType, value);
+        return;
+      }
+      store(slot, value);
+      if (valueType != layout.getValueType(slot) || valueTypes != null) {
+        if (valueTypes == null) {
+          valueTypes = new ValueType[values.length];
+        }
+        valueTypes[slot] = valueType;
+      }
+    }
+
+    @Override
+    public List<Annotation> getAnnotations() {
+      return detached == null ? new SlotAnnotations(slot) : detached.getAnnotations();
+    }
+
+    @Override
+    List<Annotation> peekAnnotations() {
+      if (detached != null) {
+        return detached.peekAnnotations();
+      }
+      @SuppressWarnings("unchecked")
+      final List<Annotation> result = annotations == null ? null : (List<Annotation>) annotations[slot];
+      return result;
+    }
+  }
+
+  /**
+   * The annotations of a layout property; reading them does not change the entity,
+   * the list of the slot is allocated when it is changed for the first time.
+   */
+  private final class SlotAnnotations extends AbstractList<Annotation> {
+
+    private final int slot;
+
+    private SlotAnnotations(final int slot) {
+      this.slot = slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Annotation> peek() {
+      return annotations == null ? null : (List<Annotation>) annotations[slot];
+    }
+
+    @Override
+    public Annotation get(final int index) {
+      final List<Annotation> list = peek();
+      if (list == null) {
+        throw new IndexOutOfBoundsException(String.valueOf(index));
+      }
+      return list.get(index);
+    }
+
+    @Override
+    public int size() {
+      final List<Annotation> list = peek();
+      return list == null ? 0 : list.size();
+    }
+
+    @Override
+    public void add(final int index, final Annotation annotation) {
+      getAnnotations(slot).add(index, annotation);
+      modCount++;
+    }
+
+    @Override
+    public Annotation set(final int index, final Annotation annotation) {
+      return getAnnotations(slot).set(index, annotation);
+    }
+
+    @Override
+    public Annotation remove(final int index) {
+      modCount++;
+      return getAnnotations(slot).remove(index);
+    }
+  }
+}
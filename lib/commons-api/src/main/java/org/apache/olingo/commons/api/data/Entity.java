@@ -138,7 +138,7 @@ public class Entity extends Linked {
    * @return this Entity for fluid/flow adding
    */
   public Entity addProperty(final Property property) {
-    properties.add(property);
+    getProperties().add(property);
     return this;
   }
 
@@ -160,7 +160,7 @@ public class Entity extends Linked {
   public Property getProperty(final String name) {
     Property result = null;
 
-    for (Property property : properties) {
+    for (Property property : getProperties()) {
       if (name.equals(property.getName())) {
         result = property;
         break;
@@ -242,7 +242,7 @@ public class Entity extends Linked {
         && (editLink == null ? ((Entity) o).editLink == null : editLink.equals(((Entity) o).editLink))
         && mediaEditLinks.equals(((Entity) o).mediaEditLinks)
         && operations.equals(((Entity) o).operations)
-        && properties.equals(((Entity) o).properties)
+        && getProperties().equals(((Entity) o).getProperties())
         && (mediaContentSource == null ?
             ((Entity) o).mediaContentSource == null :
             mediaContentSource.equals(((Entity) o).mediaContentSource))
@@ -261,7 +261,7 @@ public class Entity extends Linked {
     result = 31 * result + (editLink == null ? 0 : editLink.hashCode());
     result = 31 * result + mediaEditLinks.hashCode();
     result = 31 * result + operations.hashCode();
-    result = 31 * result + properties.hashCode();
+    result = 31 * result + getProperties().hashCode();
     result = 31 * result + (mediaContentSource == null ? 0 : mediaContentSource.hashCode());
     result = 31 * result + (mediaContentType == null ? 0 : mediaContentType.hashCode());
     result = 31 * result + (mediaETag == null ? 0 : mediaETag.hashCode());
@@ -270,6 +270,6 @@ public class Entity extends Linked {
 
   @Override
   public String toString() {
-    return properties.toString();
+    return getProperties().toString();
   }
 }
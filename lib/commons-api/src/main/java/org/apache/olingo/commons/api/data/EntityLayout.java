@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.commons.api.edm.EdmType;
+
+/**
+ * Property layout of a structured type, shared by all the {@link CompactEntity} instances of that type.
+ * <br/>
+ * Each structural property of the type is assigned a slot; the layout holds the name, the type name, and the
+ * value type of each slot, and maps property names to slots in constant time.
+ * Layouts are immutable and can be shared across threads.
+ */
+public final class EntityLayout {
+
+  private final String type;
+  private final String[] names;
+  private final String[] types;
+  private final ValueType[] valueTypes;
+  private final Map<String, Integer> slots;
+
+  /**
+   * Creates the layout of the structural properties of a structured type, including inherited ones.
+   * @param structuredType the entity or complex type
+   */
+  public EntityLayout(final EdmStructuredType structuredType) {
+    type = structuredType.getFullQualifiedName().getFullQualifiedNameAsString();
+    final List<String> propertyNames = structuredType.getPropertyNames();
+    final int size = propertyNames.size();
+    names = new String[size];
+    types = new String[size];
+    valueTypes = new ValueType[size];
+    slots = new HashMap<String, Integer>(size * 2);
+    for (int slot = 0; slot < size; slot++) {
+      final EdmProperty property = structuredType.getStructuralProperty(propertyNames.get(slot));
+      names[slot] = property.getName();
+      types[slot] = property.getType().getFullQualifiedName().getFullQualifiedNameAsString();
+      valueTypes[slot] = getValueType(property.getType(), property.isCollection());
+      slots.put(names[slot], slot);
+    }
+  }
+
+  private static ValueType getValueType(final EdmType type, final boolean isCollection) {
+    switch (type.getKind()) {
+    case COMPLEX:
+      return isCollection ? ValueType.COLLECTION_COMPLEX : ValueType.COMPLEX;
+    case ENUM:
+      return isCollection ? ValueType.COLLECTION_ENUM : ValueType.ENUM;
+    default:
+      if (EdmPrimitiveType.EDM_NAMESPACE.equals(type.getNamespace()) && type.getName().startsWith("Geo")) {
+        return isCollection ? ValueType.COLLECTION_GEOSPATIAL : ValueType.GEOSPATIAL;
+      }
+      return isCollection ? ValueType.COLLECTION_PRIMITIVE : ValueType.PRIMITIVE;
+    }
+  }
+
+  /**
+   * Gets the full-qualified name of the structured type.
+   * @return the type name
+   */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * Gets the number of slots.
+   * @return number of slots
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Gets the slot of a property.
+   * @param name property name
+   * @return the slot, or <code>-1</code> if the type has no structural property with the given name
+   */
+  public int getSlot(final String name) {
+    final Integer slot = slots.get(name);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * Gets the name of the property in a slot.
+   * @param slot the slot
+   * @return the property name
+   */
+  public String getName(final int slot) {
+    return names[slot];
+  }
+
+  /**
+   * Gets the full-qualified type name of the property in a slot.
+   * @param slot the slot
+   * @return the type name
+   */
+  public String getPropertyType(final int slot) {
+    return types[slot];
+  }
+
+  /**
+   * Gets the value type of the property in a slot.
+   * @param slot the slot
+   * @return the value type
+   */
+  public ValueType getValueType(final int slot) {
+    return valueTypes[slot];
+  }
+}
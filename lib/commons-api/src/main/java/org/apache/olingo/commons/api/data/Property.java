@@ -83,18 +83,18 @@ public class Property extends Valuable {
   @Override
   public boolean equals(final Object o) {
     return super.equals(o)
-        && (name == null ? ((Property) o).name == null : name.equals(((Property) o).name));
+        && (getName() == null ? ((Property) o).getName() == null : getName().equals(((Property) o).getName()));
   }
 
   @Override
   public int hashCode() {
     int result = super.hashCode();
-    result = 31 * result + (name == null ? 0 : name.hashCode());
+    result = 31 * result + (getName() == null ? 0 : getName().hashCode());
     return result;
   }
 
   @Override
   public String toString() {
-    return (name == null ? "null" : name) + '=' + (getValue() == null ? "null" : getValue());
+    return (getName() == null ? "null" : getName()) + '=' + (getValue() == null ? "null" : getValue());
   }
 }
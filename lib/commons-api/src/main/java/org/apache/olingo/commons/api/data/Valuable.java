@@ -36,7 +36,7 @@ public abstract class Valuable extends Annotatable {
    * @return <code>true</code> if value is <code>null</code>, otherwise <code>false</code>
    */
   public boolean isNull() {
-    return value == null;
+    return getValue() == null;
   }
 
   /**
@@ -61,7 +61,7 @@ public abstract class Valuable extends Annotatable {
    * @return true if ValueType is a PRIMITIVE or COLLECTION_PRIMITIVE, otherwise false
    */
   public boolean isPrimitive() {
-    return valueType == ValueType.PRIMITIVE || valueType == ValueType.COLLECTION_PRIMITIVE;
+    return getValueType() == ValueType.PRIMITIVE || getValueType() == ValueType.COLLECTION_PRIMITIVE;
   }
 
   /**
@@ -70,7 +70,7 @@ public abstract class Valuable extends Annotatable {
    * @return true if ValueType is a GEOSPATIAL or COLLECTION_GEOSPATIAL, otherwise false
    */
   public boolean isGeospatial() {
-    return valueType == ValueType.GEOSPATIAL || valueType == ValueType.COLLECTION_GEOSPATIAL;
+    return getValueType() == ValueType.GEOSPATIAL || getValueType() == ValueType.COLLECTION_GEOSPATIAL;
   }
 
   /**
@@ -79,7 +79,7 @@ public abstract class Valuable extends Annotatable {
    * @return true if ValueType is a ENUM or COLLECTION_ENUM, otherwise false
    */
   public boolean isEnum() {
-    return valueType == ValueType.ENUM || valueType == ValueType.COLLECTION_ENUM;
+    return getValueType() == ValueType.ENUM || getValueType() == ValueType.COLLECTION_ENUM;
   }
 
   /**
@@ -88,7 +88,7 @@ public abstract class Valuable extends Annotatable {
    * @return true if ValueType is a COMPLEX or COLLECTION_COMPLEX, otherwise false
    */
   public boolean isComplex() {
-    return valueType == ValueType.COMPLEX || valueType == ValueType.COLLECTION_COMPLEX;
+    return getValueType() == ValueType.COMPLEX || getValueType() == ValueType.COLLECTION_COMPLEX;
   }
 
   /**
@@ -97,6 +97,7 @@ public abstract class Valuable extends Annotatable {
    * @return true if ValueType is a COLLECTION_*, otherwise false
    */
   public boolean isCollection() {
+    final ValueType valueType = getValueType();
     return valueType != null && valueType != valueType.getBaseType();
   }
 
@@ -106,7 +107,7 @@ public abstract class Valuable extends Annotatable {
    * @return primitive representation or null if it is not based on a primitive ValueType
    */
   public Object asPrimitive() {
-    return isPrimitive() && !isCollection() ? value : null;
+    return isPrimitive() && !isCollection() ? getValue() : null;
   }
 
   /**
@@ -115,7 +116,7 @@ public abstract class Valuable extends Annotatable {
    * @return geospatial representation or null if it is not based on a geospatial ValueType
    */
   public Geospatial asGeospatial() {
-    return isGeospatial() && !isCollection() ? (Geospatial) value : null;
+    return isGeospatial() && !isCollection() ? (Geospatial) getValue() : null;
   }
 
   /**
@@ -124,7 +125,7 @@ public abstract class Valuable extends Annotatable {
    * @return enum representation or null if it is not based on a enum ValueType
    */
   public Object asEnum() {
-    return isEnum() && !isCollection() ? value : null;
+    return isEnum() && !isCollection() ? getValue() : null;
   }
 
   /**
@@ -133,7 +134,7 @@ public abstract class Valuable extends Annotatable {
    * @return primitive complex or null if it is not based on a complex ValueType
    */
   public ComplexValue asComplex() {
-    return isComplex() && !isCollection() ? (ComplexValue) value : null;
+    return isComplex() && !isCollection() ? (ComplexValue) getValue() : null;
   }
 
   /**
@@ -142,7 +143,7 @@ public abstract class Valuable extends Annotatable {
    * @return collection or null if it is not a collection ValueType
    */
   public List<?> asCollection() {
-    return isCollection() ? (List<?>) value : null;
+    return isCollection() ? (List<?>) getValue() : null;
   }
 
   /**
@@ -182,23 +183,23 @@ public abstract class Valuable extends Annotatable {
     }
 
     final Valuable other = (Valuable) o;
-    return getAnnotations().equals(other.getAnnotations())
-        && (valueType == null ? other.valueType == null : valueType.equals(other.valueType))
-        && (value == null ? other.value == null : value.equals(other.value))
-        && (type == null ? other.type == null : type.equals(other.type));
+    return equalLists(peekAnnotations(), other.peekAnnotations())
+        && (getValueType() == null ? other.getValueType() == null : getValueType().equals(other.getValueType()))
+        && (getValue() == null ? other.getValue() == null : getValue().equals(other.getValue()))
+        && (getType() == null ? other.getType() == null : getType().equals(other.getType()));
   }
 
   @Override
   public int hashCode() {
-    int result = getAnnotations().hashCode();
-    result = 31 * result + (valueType == null ? 0 : valueType.hashCode());
-    result = 31 * result + (value == null ? 0 : value.hashCode());
-    result = 31 * result + (type == null ? 0 : type.hashCode());
+    int result = hashCode(peekAnnotations());
+    result = 31 * result + (getValueType() == null ? 0 : getValueType().hashCode());
+    result = 31 * result + (getValue() == null ? 0 : getValue().hashCode());
+    result = 31 * result + (getType() == null ? 0 : getType().hashCode());
     return result;
   }
 
   @Override
   public String toString() {
-    return value == null ? "null" : value.toString();
+    return getValue() == null ? "null" : getValue().toString();
   }
 }
@@ -24,6 +24,8 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 /**
@@ -48,6 +50,12 @@ public final class AcceptType {
 
   private static final Pattern Q_PATTERN = Pattern.compile("\\A(?:0(?:\\.\\d{0,3})?)|(?:1(?:\\.0{0,3})?)\\Z");
 
+  /** Maximum number of parsed accept-type lists kept; if reached, the cache is cleared. */
+  private static final int MAX_CACHED = 256;
+  /** Sorted accept types parsed from header values; there are usually only a few distinct ones. */
+  private static final ConcurrentMap<String, List<AcceptType>> CACHE =
+      new ConcurrentHashMap<String, List<AcceptType>>();
+
   private final String type;
   private final String subtype;
   private final Map<String, String> parameters;
@@ -119,16 +127,24 @@ public final class AcceptType {
    * @throws IllegalArgumentException if input string is not parseable
    */
   public static List<AcceptType> create(final String acceptTypes) {
-    List<AcceptType> result = new ArrayList<AcceptType>();
+    List<AcceptType> result = CACHE.get(acceptTypes);
+    if (result == null) {
+      result = new ArrayList<AcceptType>();
 
-    String[] values = acceptTypes.split(",");
-    for (String value : values) {
-      result.add(new AcceptType(value.trim()));
-    }
+      String[] values = acceptTypes.split(",");
+      for (String value : values) {
+        result.add(new AcceptType(value.trim()));
+      }
 
-    sort(result);
+      sort(result);
 
-    return result;
+      if (CACHE.size() >= MAX_CACHED) {
+        CACHE.clear();
+      }
+      CACHE.put(acceptTypes, result);
+    }
+    // Accept types are immutable, but the list may be modified by the caller.
+    return new ArrayList<AcceptType>(result);
   }
 
   /**
@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Internally used {@link ContentType} for OData library.
@@ -92,6 +94,11 @@ public final class ContentType {
   public static final ContentType MULTIPART_MIXED = new ContentType(MULTIPART, "mixed", null);
   public static final ContentType MULTIPART_FORM_DATA = new ContentType(MULTIPART, "form-data", null);
 
+  /** Maximum number of parsed content types kept; if reached, the cache is cleared. */
+  private static final int MAX_CACHED = 256;
+  /** Content types parsed from strings; the set of distinct header values is usually very small. */
+  private static final ConcurrentMap<String, ContentType> CACHE = new ConcurrentHashMap<String, ContentType>();
+
   private final String type;
   private final String subtype;
   private final Map<String, String> parameters;
@@ -144,18 +151,28 @@ public final class ContentType {
    * Creates a {@link ContentType} based on given input string (<code>format</code>). Supported format is
    * <code>Media Type</code> format as defined in RFC 7231, chapter 3.1.1.1.
    *
+   * Since content types are immutable, the result for a given string may be shared.
+   *
    * @param format a string in format as defined in RFC 7231, chapter 3.1.1.1
-   * @return a new {@link ContentType} object
+   * @return a {@link ContentType} object
    * @throws IllegalArgumentException if input string is not parseable
    */
   public static ContentType create(final String format) throws IllegalArgumentException {
     if (format == null) {
       throw new IllegalArgumentException("Parameter format MUST NOT be NULL.");
     }
-    List<String> typeSubtype = new ArrayList<String>();
-    Map<String, String> parameters = new HashMap<String, String>();
-    parse(format, typeSubtype, parameters);
-    return new ContentType(typeSubtype.get(0), typeSubtype.get(1), parameters);
+    ContentType contentType = CACHE.get(format);
+    if (contentType == null) {
+      List<String> typeSubtype = new ArrayList<String>();
+      Map<String, String> parameters = new HashMap<String, String>();
+      parse(format, typeSubtype, parameters);
+      contentType = new ContentType(typeSubtype.get(0), typeSubtype.get(1), parameters);
+      if (CACHE.size() >= MAX_CACHED) {
+        CACHE.clear();
+      }
+      CACHE.put(format, contentType);
+    }
+    return contentType;
   }
 
   /**
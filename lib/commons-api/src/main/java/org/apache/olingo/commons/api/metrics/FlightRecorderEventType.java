@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Type of the events of one kind emitted to the JDK Flight Recorder.</p>
+ * <p>Events are measured while they happen: {@link #begin()} starts an event, but only if a running recording
+ * has the event type enabled, so that nothing is allocated otherwise; {@link #commit(Object, Object...)} ends
+ * the event and commits it with its field values if it passes the thresholds of the recording.
+ * Callers should check the event for <code>null</code> before they compute the field values.</p>
+ * <p>The Flight Recorder API is used through reflection, since it is not available on all supported Java
+ * versions; on Java versions without it ({@link #isAvailable()} returns <code>false</code>) no events
+ * are emitted.</p>
+ */
+public final class FlightRecorderEventType {
+
+  private static final String JFR = "jdk.jfr.";
+
+  private final Object eventFactory;
+  private final Object eventType;
+  private final int fieldCount;
+  private final Method isEnabled;
+  private final Method newEvent;
+  private final Method begin;
+  private final Method end;
+  private final Method shouldCommit;
+  private final Method set;
+  private final Method commit;
+
+  private FlightRecorderEventType(final Builder builder) {
+    Object factory = null;
+    Object type = null;
+    Method[] methods = null;
+    try {
+      factory = builder.createEventFactory();
+      type = factory.getClass().getMethod("getEventType").invoke(factory);
+      final Class<?> eventClass = Class.forName(JFR + "Event");
+      methods = new Method[] {
+          Class.forName(JFR + "EventType").getMethod("isEnabled"),
+          factory.getClass().getMethod("newEvent"),
+          eventClass.getMethod("begin"),
+          eventClass.getMethod("end"),
+          eventClass.getMethod("shouldCommit"),
+          eventClass.getMethod("set", int.class, Object.class),
+          eventClass.getMethod("commit") };
+    } catch (final Exception e) {
+      // The Flight Recorder is not available; no events are emitted.
+      factory = null;
+    } catch (final LinkageError e) {
+      factory = null;
+    }
+    eventFactory = factory;
+    eventType = factory == null ? null : type;
+    fieldCount = builder.fields.size();
+    isEnabled = factory == null ? null : methods[0];
+    newEvent = factory == null ? null : methods[1];
+    begin = factory == null ? null : methods[2];
+    end = factory == null ? null : methods[3];
+    shouldCommit = factory == null ? null : methods[4];
+    set = factory == null ? null : methods[5];
+    commit = factory == null ? null : methods[6];
+  }
+
+  /**
+   * Whether the Flight Recorder API is available, i.e., whether events can be emitted at all.
+   */
+  public boolean isAvailable() {
+    return eventFactory != null;
+  }
+
+  /**
+   * Whether a running recording has the event type enabled.
+   */
+  public boolean isEnabled() {
+    try {
+      return eventType != null && (Boolean) isEnabled.invoke(eventType);
+    } catch (final Exception e) {
+      return false;
+    }
+  }
+
+  /**
+   * Begins an event if a running recording has the event type enabled.
+   * @return the event, to be passed to {@link #commit(Object, Object...)}, or <code>null</code>
+   */
+  public Object begin() {
+    if (!isEnabled()) {
+      return null;
+    }
+    try {
+      final Object event = newEvent.invoke(eventFactory);
+      begin.invoke(event);
+      return event;
+    } catch (final Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * Ends an event begun with {@link #begin()} and commits it if it passes the thresholds of the recording.
+   * Nothing is done for <code>null</code> events.
+   * @param event the event or <code>null</code>
+   * @param values the values of the fields, in the order in which the fields have been defined
+   */
+  public void commit(final Object event, final Object... values) {
+    if (event == null) {
+      return;
+    }
+    try {
+      end.invoke(event);
+      if ((Boolean) shouldCommit.invoke(event)) {
+        for (int i = 0; i < fieldCount && i < values.length; i++) {
+          set.invoke(event, i, values[i]);
+        }
+        commit.invoke(event);
+      }
+    } catch (final Exception e) {
+      // Events must never disturb the measured work.
+    }
+  }
+
+  /**
+   * Initializes the builder of an event type.
+   * @param name the name of the event type, e.g., <code>org.apache.olingo.ODataRequest</code>
+   * @param label the human-readable label of the event type
+   */
+  public static Builder with(final String name, final String label) {
+    return new Builder(name, label);
+  }
+
+  /** Builder of an event type; the values of the fields are committed in the order of definition. */
+  public static final class Builder {
+
+    private final String name;
+    private final String label;
+    private final List<String[]> fields = new ArrayList<String[]>();
+    private final List<Class<?>> fieldTypes = new ArrayList<Class<?>>();
+
+    private Builder(final String name, final String label) {
+      this.name = name;
+      this.label = label;
+    }
+
+    /**
+     * Adds a field.
+     * @param type the type: a primitive type or {@link String}
+     * @param fieldName the name of the field
+     * @param fieldLabel the human-readable label of the field
+     */
+    public Builder field(final Class<?> type, final String fieldName, final String fieldLabel) {
+      return add(type, fieldName, fieldLabel, null, null);
+    }
+
+    /** Adds a field of type <code>long</code> with a duration in nanoseconds. */
+    public Builder timespan(final String fieldName, final String fieldLabel) {
+      return add(long.class, fieldName, fieldLabel, "Timespan", "NANOSECONDS");
+    }
+
+    /** Adds a field of type <code>long</code> with an amount of data in bytes. */
+    public Builder dataAmount(final String fieldName, final String fieldLabel) {
+      return add(long.class, fieldName, fieldLabel, "DataAmount", "BYTES");
+    }
+
+    private Builder add(final Class<?> type, final String fieldName, final String fieldLabel,
+        final String unit, final String unitValue) {
+      fieldTypes.add(type);
+      fields.add(new String[] { fieldName, fieldLabel, unit, unitValue });
+      return this;
+    }
+
+    /** Builds the event type; it is not {@link FlightRecorderEventType#isAvailable() available} without JFR. */
+    public FlightRecorderEventType build() {
+      return new FlightRecorderEventType(this);
+    }
+
+    private Object createEventFactory() throws Exception {
+      final Constructor<?> annotationElement =
+          Class.forName(JFR + "AnnotationElement").getConstructor(Class.class, Object.class);
+      final Constructor<?> valueDescriptor =
+          Class.forName(JFR + "ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+
+      final List<Object> eventAnnotations = Arrays.asList(
+          annotationElement.newInstance(annotation("Name"), name),
+          annotationElement.newInstance(annotation("Label"), label),
+          annotationElement.newInstance(annotation("Category"), new String[] { "Olingo", "OData" }),
+          // The events are frequent; their stack traces would cost more than they tell.
+          annotationElement.newInstance(annotation("StackTrace"), false));
+
+      final List<Object> descriptors = new ArrayList<Object>();
+      for (int i = 0; i < fields.size(); i++) {
+        final String[] field = fields.get(i);
+        final List<Object> annotations = new ArrayList<Object>();
+        annotations.add(annotationElement.newInstance(annotation("Label"), field[1]));
+        if (field[2] != null) {
+          annotations.add(annotationElement.newInstance(annotation(field[2]),
+              Class.forName(JFR + field[2]).getField(field[3]).get(null)));
+        }
+        descriptors.add(valueDescriptor.newInstance(fieldTypes.get(i), field[0],
+            Collections.unmodifiableList(annotations)));
+      }
+
+      return Class.forName(JFR + "EventFactory").getMethod("create", List.class, List.class)
+          .invoke(null, eventAnnotations, descriptors);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Annotation> annotation(final String name) throws ClassNotFoundException {
+      return (Class<? extends Annotation>) Class.forName(JFR + name);
+    }
+  }
+}
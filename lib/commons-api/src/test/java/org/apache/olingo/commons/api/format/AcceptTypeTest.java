@@ -21,6 +21,7 @@ package org.apache.olingo.commons.api.format;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -163,6 +164,16 @@ public class AcceptTypeTest {
     assertEquals(ContentType.APPLICATION_JSON.toContentTypeString(), acceptType.get(0).toString());
   }
 
+  @Test
+  public void cached() {
+    final List<AcceptType> first = AcceptType.create("a/b;q=0.5, c/d");
+    first.clear();
+    final List<AcceptType> second = AcceptType.create("a/b;q=0.5, c/d");
+    assertEquals(2, second.size());
+    assertEquals("c/d", second.get(0).toString());
+    assertSame(second.get(1), AcceptType.create("a/b;q=0.5, c/d").get(1));
+  }
+
   private void expectCreateError(final String value) {
     try {
       AcceptType.create(value);
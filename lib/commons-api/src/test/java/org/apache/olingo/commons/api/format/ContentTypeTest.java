@@ -23,6 +23,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -38,6 +39,13 @@ public class ContentTypeTest {
     assertEquals(ContentType.create("A/B"), ContentType.create("a/b"));
   }
 
+  @Test
+  public void createCached() {
+    assertSame(ContentType.create("a/b;c=d"), ContentType.create("a/b;c=d"));
+    assertNull(ContentType.parse("a/b;c"));
+    assertNull(ContentType.parse("a/b;c"));
+  }
+
   @Test
   public void createFail() {
     createWrong("a");
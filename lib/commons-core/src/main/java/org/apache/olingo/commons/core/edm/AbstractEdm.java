@@ -36,9 +36,17 @@ import org.apache.olingo.commons.api.edm.EdmSchema;
 import org.apache.olingo.commons.api.edm.EdmTerm;
 import org.apache.olingo.commons.api.edm.EdmTypeDefinition;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.metrics.FlightRecorderEventType;
 
 public abstract class AbstractEdm implements Edm {
 
+  private static final FlightRecorderEventType LOOKUP_MISS_EVENT =
+      FlightRecorderEventType.with("org.apache.olingo.EdmLookupMiss", "EDM Lookup Miss")
+          .field(String.class, "kind", "Kind")
+          .field(String.class, "name", "Name")
+          .field(boolean.class, "found", "Found")
+          .build();
+
   protected Map<String, EdmSchema> schemas;
   protected List<EdmSchema> schemaList;
 
@@ -127,7 +135,9 @@ public abstract class AbstractEdm implements Edm {
     final FullQualifiedName fqn = resolvePossibleAlias(namespaceOrAliasFQN);
     EdmEntityContainer container = entityContainers.get(fqn);
     if (container == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       container = createEntityContainer(fqn);
+      lookupMissed(event, "EntityContainer", fqn, container);
       if (container != null) {
         entityContainers.put(fqn, container);
         if (fqn == null) {
@@ -143,7 +153,9 @@ public abstract class AbstractEdm implements Edm {
     final FullQualifiedName fqn = resolvePossibleAlias(namespaceOrAliasFQN);
     EdmEnumType enumType = enumTypes.get(fqn);
     if (enumType == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       enumType = createEnumType(fqn);
+      lookupMissed(event, "EnumType", fqn, enumType);
       if (enumType != null) {
         enumTypes.put(fqn, enumType);
       }
@@ -156,7 +168,9 @@ public abstract class AbstractEdm implements Edm {
     final FullQualifiedName fqn = resolvePossibleAlias(namespaceOrAliasFQN);
     EdmTypeDefinition typeDefinition = typeDefinitions.get(fqn);
     if (typeDefinition == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       typeDefinition = createTypeDefinition(fqn);
+      lookupMissed(event, "TypeDefinition", fqn, typeDefinition);
       if (typeDefinition != null) {
         typeDefinitions.put(fqn, typeDefinition);
       }
@@ -169,7 +183,9 @@ public abstract class AbstractEdm implements Edm {
     final FullQualifiedName fqn = resolvePossibleAlias(namespaceOrAliasFQN);
     EdmEntityType entityType = entityTypes.get(fqn);
     if (entityType == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       entityType = createEntityType(fqn);
+      lookupMissed(event, "EntityType", fqn, entityType);
       if (entityType != null) {
         entityTypes.put(fqn, entityType);
       }
@@ -182,7 +198,9 @@ public abstract class AbstractEdm implements Edm {
     final FullQualifiedName fqn = resolvePossibleAlias(namespaceOrAliasFQN);
     EdmComplexType complexType = complexTypes.get(fqn);
     if (complexType == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       complexType = createComplexType(fqn);
+      lookupMissed(event, "ComplexType", fqn, complexType);
       if (complexType != null) {
         complexTypes.put(fqn, complexType);
       }
@@ -195,7 +213,9 @@ public abstract class AbstractEdm implements Edm {
     final FullQualifiedName fqn = resolvePossibleAlias(actionName);
     EdmAction action = unboundActions.get(fqn);
     if (action == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       action = createUnboundAction(fqn);
+      lookupMissed(event, "Action", fqn, action);
       if (action != null) {
         unboundActions.put(actionName, action);
       }
@@ -213,7 +233,9 @@ public abstract class AbstractEdm implements Edm {
     final ActionMapKey key = new ActionMapKey(actionFqn, bindingParameterTypeFqn, isBindingParameterCollection);
     EdmAction action = boundActions.get(key);
     if (action == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       action = createBoundAction(actionFqn, bindingParameterTypeFqn, isBindingParameterCollection);
+      lookupMissed(event, "Action", actionFqn, action);
       if (action != null) {
         boundActions.put(key, action);
       }
@@ -228,7 +250,9 @@ public abstract class AbstractEdm implements Edm {
 
     List<EdmFunction> functions = unboundFunctionsByName.get(functionFqn);
     if (functions == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       functions = createUnboundFunctions(functionFqn);
+      lookupMissed(event, "Function", functionFqn, functions);
       if (functions != null) {
         unboundFunctionsByName.put(functionFqn, functions);
 
@@ -253,7 +277,9 @@ public abstract class AbstractEdm implements Edm {
     final FunctionMapKey key = new FunctionMapKey(functionFqn, null, null, parameterNames);
     EdmFunction function = unboundFunctionsByKey.get(key);
     if (function == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       function = createUnboundFunction(functionFqn, parameterNames);
+      lookupMissed(event, "Function", functionFqn, function);
       if (function != null) {
         unboundFunctionsByKey.put(key, function);
       }
@@ -273,8 +299,10 @@ public abstract class AbstractEdm implements Edm {
         new FunctionMapKey(functionFqn, bindingParameterTypeFqn, isBindingParameterCollection, parameterNames);
     EdmFunction function = boundFunctions.get(key);
     if (function == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       function = createBoundFunction(functionFqn, bindingParameterTypeFqn, isBindingParameterCollection,
           parameterNames);
+      lookupMissed(event, "Function", functionFqn, function);
       if (function != null) {
         boundFunctions.put(key, function);
       }
@@ -288,7 +316,9 @@ public abstract class AbstractEdm implements Edm {
     final FullQualifiedName fqn = resolvePossibleAlias(termName);
     EdmTerm term = terms.get(fqn);
     if (term == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       term = createTerm(fqn);
+      lookupMissed(event, "Term", fqn, term);
       if (term != null) {
         terms.put(fqn, term);
       }
@@ -302,7 +332,9 @@ public abstract class AbstractEdm implements Edm {
     TargetQualifierMapKey key = new TargetQualifierMapKey(fqn, qualifier);
     EdmAnnotations _annotations = annotationGroups.get(key);
     if (_annotations == null) {
+      final Object event = LOOKUP_MISS_EVENT.begin();
       _annotations = createAnnotationGroup(fqn, qualifier);
+      lookupMissed(event, "AnnotationGroup", fqn, _annotations);
       if (_annotations != null) {
         annotationGroups.put(key, _annotations);
       }
@@ -310,6 +342,15 @@ public abstract class AbstractEdm implements Edm {
     return _annotations;
   }
 
+  /** Emits the event of a lookup that has not been answered from the cache. */
+  private static void lookupMissed(final Object event, final String kind, final FullQualifiedName name,
+      final Object result) {
+    if (event != null) {
+      LOOKUP_MISS_EVENT.commit(event, kind, name == null ? null : name.getFullQualifiedNameAsString(),
+          result != null);
+    }
+  }
+
   private FullQualifiedName resolvePossibleAlias(final FullQualifiedName namespaceOrAliasFQN) {
     if (aliasToNamespaceInfo == null) {
       loadAliasToNamespaceInfo();
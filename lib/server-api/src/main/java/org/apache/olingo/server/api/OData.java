@@ -26,6 +26,7 @@ import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.provider.CsdlEdmProvider;
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.apply.ApplyHelper;
 import org.apache.olingo.server.api.debug.DebugResponseHelper;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.FixedFormatDeserializer;
@@ -33,6 +34,7 @@ import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.edmx.EdmxReference;
 import org.apache.olingo.server.api.etag.ETagHelper;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.expand.ExpandHelper;
 import org.apache.olingo.server.api.prefer.Preferences;
 import org.apache.olingo.server.api.serializer.FixedFormatSerializer;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
@@ -154,6 +156,22 @@ public abstract class OData {
    */
   public abstract ETagHelper createETagHelper();
 
+  /**
+   * Creates a new expand helper object for loading expanded navigation properties in batches.
+   * It can be used in Processor implementations.
+   */
+  public abstract ExpandHelper createExpandHelper();
+
+  /**
+   * Creates a new apply helper object for aggregating entities according to the system query option $apply.
+   * It can be used in Processor implementations.
+   * This implementation throws an {@link UnsupportedOperationException};
+   * it exists so that implementations written before this method was added keep compiling.
+   */
+  public ApplyHelper createApplyHelper() {
+    throw new UnsupportedOperationException("$apply is not supported by " + getClass().getName() + ".");
+  }
+
   /**
    * Creates a new Preferences object out of Prefer HTTP request headers.
    * It can be used in Processor implementations.
@@ -21,8 +21,11 @@ package org.apache.olingo.server.api;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.olingo.server.api.cache.ResponseCache;
 import org.apache.olingo.server.api.debug.DebugSupport;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
+import org.apache.olingo.server.api.etag.ETagProvider;
+import org.apache.olingo.server.api.metrics.MetricsSupport;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.serializer.CustomContentTypeSupport;
 
@@ -61,16 +64,41 @@ public interface ODataHttpHandler {
    */
   void setSplit(int split);
 
+  /**
+   * Sets the limits for the content of requests; without them, request bodies are not limited.
+   * @param requestLimits
+   */
+  void setRequestLimits(RequestLimits requestLimits);
+
   /**
    * Registers support for concurrency control for certain entity sets.
    * @param customETagSupport
    */
   void register(CustomETagSupport customConcurrencyControlSupport);
 
+  /**
+   * Registers a provider of current ETags; with it, preconditions are checked before the processors are called.
+   * @param eTagProvider
+   */
+  void register(ETagProvider eTagProvider);
+
   /**
    * Registers the debug support handler.
    * @param debugSupport
    */
   void register(DebugSupport debugSupport);
 
+  /**
+   * Registers the metrics support handler; without it, no request metrics are collected.
+   * @param metricsSupport
+   * @see org.apache.olingo.server.api.metrics.DefaultMetricsSupport
+   */
+  void register(MetricsSupport metricsSupport);
+
+  /**
+   * Registers a cache for the responses of read requests; without it, no responses are cached.
+   * @param responseCache
+   */
+  void register(ResponseCache responseCache);
+
 }
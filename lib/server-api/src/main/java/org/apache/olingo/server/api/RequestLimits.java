@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api;
+
+/**
+ * Limits for the content of requests, enforced while the request body is read.
+ * A request exceeding a limit gets a "Payload Too Large" response.
+ * <br/>
+ * The limits for entities, nesting depth, and string lengths are enforced by the deserializers
+ * of the library if they are called with the body stream of the request.
+ * @see ODataHttpHandler#setRequestLimits(RequestLimits)
+ */
+public final class RequestLimits {
+  private long maxBodySize = Long.MAX_VALUE;
+  private int maxEntities = Integer.MAX_VALUE;
+  private int maxDepth = Integer.MAX_VALUE;
+  private int maxBatchParts = Integer.MAX_VALUE;
+  private int maxStringLength = Integer.MAX_VALUE;
+
+  private RequestLimits() {}
+
+  /**
+   * Gets the maximum size of a request body in bytes.
+   * Default is no limit.
+   */
+  public long getMaxBodySize() {
+    return maxBodySize;
+  }
+
+  /**
+   * Gets the maximum number of entities in a collection, including expanded collections.
+   * The JSON deserializer applies it to collections of complex values as well.
+   * Default is no limit.
+   */
+  public int getMaxEntities() {
+    return maxEntities;
+  }
+
+  /**
+   * Gets the maximum nesting depth of JSON objects and arrays or XML elements.
+   * Default is no limit.
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Gets the maximum number of requests in a batch request, including the requests in change sets.
+   * Default is no limit.
+   */
+  public int getMaxBatchParts() {
+    return maxBatchParts;
+  }
+
+  /**
+   * Gets the maximum length of a string value or name in characters.
+   * In XML, it applies to the whole text of an element and to attribute values.
+   * The limit is checked after a string has been read, so it does not bound the memory
+   * needed to read a request; {@link #getMaxBodySize()} does.
+   * Default is no limit.
+   */
+  public int getMaxStringLength() {
+    return maxStringLength;
+  }
+
+  /**
+   * Creates a new RequestLimits builder.
+   * @return new RequestLimits builder instance
+   */
+  public static Builder with() {
+    return new Builder();
+  }
+
+  /**
+   * RequestLimits builder
+   */
+  public static class Builder {
+    private RequestLimits limits;
+
+    /** Initializes the limits builder. */
+    public Builder() {
+      limits = new RequestLimits();
+    }
+
+    /**
+     * @see RequestLimits#getMaxBodySize()
+     */
+    public Builder maxBodySize(final long maxBodySize) {
+      limits.maxBodySize = maxBodySize;
+      return this;
+    }
+
+    /**
+     * @see RequestLimits#getMaxEntities()
+     */
+    public Builder maxEntities(final int maxEntities) {
+      limits.maxEntities = maxEntities;
+      return this;
+    }
+
+    /**
+     * @see RequestLimits#getMaxDepth()
+     */
+    public Builder maxDepth(final int maxDepth) {
+      limits.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * @see RequestLimits#getMaxBatchParts()
+     */
+    public Builder maxBatchParts(final int maxBatchParts) {
+      limits.maxBatchParts = maxBatchParts;
+      return this;
+    }
+
+    /**
+     * @see RequestLimits#getMaxStringLength()
+     */
+    public Builder maxStringLength(final int maxStringLength) {
+      limits.maxStringLength = maxStringLength;
+      return this;
+    }
+
+    /**
+     * Creates a new RequestLimits instance.
+     * @return new RequestLimits instance
+     */
+    public RequestLimits build() {
+      return limits;
+    }
+  }
+}
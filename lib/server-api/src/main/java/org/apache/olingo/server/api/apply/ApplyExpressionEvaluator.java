@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.apply;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+
+/**
+ * Evaluates expressions of <code>$apply</code> transformations for the {@link ApplyHelper}.
+ */
+public interface ApplyExpressionEvaluator {
+
+  /**
+   * Evaluates an expression for an entity.
+   * @param expression the expression
+   * @param entity the entity
+   * @return the value of the expression, in the default Java representation of its EDM type,
+   * or <code>null</code>
+   */
+  Object evaluate(Expression expression, Entity entity) throws ODataApplicationException;
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.apply;
+
+import org.apache.olingo.commons.api.data.AbstractEntityCollection;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+
+/**
+ * <p>Applies the transformations of the system query option <code>$apply</code> to entities read from
+ * a data source. Processors that can push the aggregation down to their data source evaluate the
+ * {@link ApplyOption} tree themselves instead.</p>
+ * <p>The entities are read only once and are not kept: <code>groupby</code> and <code>aggregate</code>
+ * hold one set of accumulators per group, <code>topcount</code> and <code>bottomcount</code> hold the
+ * requested number of entities, and <code>filter</code> passes the entities on directly.</p>
+ */
+public interface ApplyHelper {
+
+  /**
+   * <p>Applies the transformations to the given entities.</p>
+   * <p>The resulting entities of <code>groupby</code> have the grouping properties, nested in complex
+   * properties for paths through complex properties, and the aggregated values; the resulting entity of
+   * <code>aggregate</code> has one property per aggregate expression, named by its alias.
+   * Sums of integer values are of type <code>Edm.Int64</code>, sums and averages of other values of type
+   * <code>Edm.Double</code> or <code>Edm.Decimal</code>; counts are of type <code>Edm.Int64</code>.</p>
+   * @param entities the entities, for example an {@link org.apache.olingo.commons.api.data.EntityIterator}
+   * @param applyOption the $apply system query option
+   * @return the resulting entities
+   */
+  EntityCollection apply(AbstractEntityCollection entities, ApplyOption applyOption)
+      throws ODataApplicationException;
+
+  /**
+   * Sets the evaluator for expressions other than property paths, for example the conditions of
+   * <code>filter</code> transformations. Without evaluator, such expressions are rejected as not implemented.
+   * @param evaluator the expression evaluator
+   */
+  void setExpressionEvaluator(ApplyExpressionEvaluator evaluator);
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response stored in the {@link ResponseCache}, with status code, headers, and content.
+ * Once created, a cached response is immutable.
+ */
+public final class CachedResponse {
+
+  private final int statusCode;
+  private final Map<String, List<String>> headers;
+  private final byte[] content;
+
+  /**
+   * Creates a cached response.
+   * @param statusCode the HTTP status code
+   * @param headers the headers, by name
+   * @param content the content; is not copied and must not be modified afterwards
+   */
+  public CachedResponse(final int statusCode, final Map<String, List<String>> headers, final byte[] content) {
+    this.statusCode = statusCode;
+    final Map<String, List<String>> copy = new LinkedHashMap<String, List<String>>();
+    for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+      copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<String>(entry.getValue())));
+    }
+    this.headers = Collections.unmodifiableMap(copy);
+    this.content = content;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /** Gets the headers as unmodifiable map. */
+  public Map<String, List<String>> getHeaders() {
+    return headers;
+  }
+
+  /** Gets the content; it must not be modified. */
+  public byte[] getContent() {
+    return content;
+  }
+
+  /** Gets the estimated memory size of this response in bytes. */
+  long getSize() {
+    long size = 64L + content.length;
+    for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+      size += 32L + 2L * entry.getKey().length();
+      for (final String value : entry.getValue()) {
+        size += 16L + (value == null ? 0 : 2L * value.length());
+      }
+    }
+    return size;
+  }
+}
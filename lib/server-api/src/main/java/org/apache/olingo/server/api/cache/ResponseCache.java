@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+
+/**
+ * <p>Caches the serialized responses of read requests to entity sets and singletons.</p>
+ * <p>Register an instance with {@link org.apache.olingo.server.api.ODataHttpHandler#register(ResponseCache)};
+ * use the same instance for all handlers of a service. The handler then answers a GET request from the cache
+ * if an identical request (same URI, <code>Accept</code>, and <code>Prefer</code> headers) has been answered
+ * before and the data of the requested entity set has not changed since. A successful change request to an
+ * entity set, processed by a handler with this cache, invalidates the cached responses of that entity set;
+ * if the entity type has navigation properties, the request may change other entity sets as well (deep insert,
+ * deep update, bindings), and all cached responses are invalidated.
+ * See also {@link ResponseCacheVersionSupport} for changes made elsewhere.</p>
+ * <p>Only use a response cache if the responses depend on nothing else, e.g., not on the user.
+ * Requests with conditional headers, navigation, <code>$expand</code>, or paths in expressions
+ * are not cached.</p>
+ * <p>The cache keeps at most the configured number of bytes; if more are needed,
+ * the least recently used responses are evicted.</p>
+ */
+public class ResponseCache {
+
+  private final long maxSize;
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75F, true);
+  private long size = 0;
+  private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+  private final AtomicLong generation = new AtomicLong();
+  private ResponseCacheVersionSupport versionSupport;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Creates a response cache.
+   * @param maxSize the maximum size of all cached responses in bytes
+   */
+  public ResponseCache(final long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /** Sets the support providing versions of data changed without the handlers using this cache. */
+  public ResponseCache setVersionSupport(final ResponseCacheVersionSupport versionSupport) {
+    this.versionSupport = versionSupport;
+    return this;
+  }
+
+  /**
+   * Gets the current version of the cached data of the given entity set or singleton.
+   * Get it before processing a request and use it for {@link #get} and {@link #put};
+   * a response is then not used if the data changes during its processing.
+   */
+  public String getVersion(final EdmBindingTarget entitySetOrSingleton) {
+    final AtomicLong counter = versions.get(entitySetOrSingleton.getName());
+    final String version = generation.get() + "." + (counter == null ? 0 : counter.get());
+    return versionSupport == null ? version : version + '.' + versionSupport.getVersion(entitySetOrSingleton);
+  }
+
+  /**
+   * Gets the cached response for the given key.
+   * @param key the key of the request
+   * @param version the current version of the data, see {@link #getVersion}
+   * @return the cached response or <code>null</code> if there is no cached response for this version
+   */
+  public CachedResponse get(final String key, final String version) {
+    synchronized (entries) {
+      final Entry entry = entries.get(key);
+      if (entry != null) {
+        if (entry.version.equals(version)) {
+          hits.incrementAndGet();
+          return entry.response;
+        }
+        remove(key, entry);
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Puts a response into the cache.
+   * @param key the key of the request
+   * @param version the version of the data the response has been created from, see {@link #getVersion}
+   * @param response the response
+   */
+  public void put(final String key, final String version, final CachedResponse response) {
+    final long entrySize = response.getSize() + 2L * key.length();
+    if (entrySize > maxSize) {
+      return;
+    }
+    synchronized (entries) {
+      final Entry previous = entries.put(key, new Entry(version, response, entrySize));
+      if (previous != null) {
+        size -= previous.size;
+      }
+      size += entrySize;
+      final Iterator<Entry> iterator = entries.values().iterator();
+      while (size > maxSize && iterator.hasNext()) {
+        size -= iterator.next().size;
+        iterator.remove();
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  /** Invalidates all cached responses of the given entity set or singleton. */
+  public void invalidate(final EdmBindingTarget entitySetOrSingleton) {
+    AtomicLong counter = versions.get(entitySetOrSingleton.getName());
+    if (counter == null) {
+      versions.putIfAbsent(entitySetOrSingleton.getName(), new AtomicLong());
+      counter = versions.get(entitySetOrSingleton.getName());
+    }
+    counter.incrementAndGet();
+  }
+
+  /** Invalidates all cached responses. */
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    synchronized (entries) {
+      entries.clear();
+      size = 0;
+    }
+  }
+
+  private void remove(final String key, final Entry entry) {
+    entries.remove(key);
+    size -= entry.size;
+  }
+
+  /** Gets the number of requests answered from the cache. */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /** Gets the number of requests that could not be answered from the cache. */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /** Gets the number of responses evicted to keep the maximum size. */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /** Gets the number of cached responses. */
+  public int getEntryCount() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /** Gets the estimated size of all cached responses in bytes. */
+  public long getSize() {
+    synchronized (entries) {
+      return size;
+    }
+  }
+
+  private static final class Entry {
+    private final String version;
+    private final CachedResponse response;
+    private final long size;
+
+    private Entry(final String version, final CachedResponse response, final long size) {
+      this.version = version;
+      this.response = response;
+      this.size = size;
+    }
+  }
+}
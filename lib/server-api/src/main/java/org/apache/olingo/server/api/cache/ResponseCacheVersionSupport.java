@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.cache;
+
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+
+/**
+ * Provides versions of the data of entity sets and singletons for the {@link ResponseCache}.
+ * <br/>
+ * Changes made through the same handlers are detected without it. Implement it if the data can also change
+ * in other ways, for example through another application or another server instance.
+ * Cached responses of an entity set are used only as long as its version stays the same.
+ */
+public interface ResponseCacheVersionSupport {
+
+  /**
+   * Gets the current version of the data of the given entity set or singleton, e.g., a time stamp or change counter.
+   * This method is called for every request that could be answered from the cache, so it should return quickly.
+   * @param entitySetOrSingleton the entity set or singleton
+   * @return the version; must change whenever the data changes
+   */
+  String getVersion(EdmBindingTarget entitySetOrSingleton);
+}
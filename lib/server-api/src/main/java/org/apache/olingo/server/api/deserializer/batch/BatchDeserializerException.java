@@ -63,7 +63,9 @@ public class BatchDeserializerException extends DeserializerException {
     /** parameter: line */
     FORBIDDEN_HEADER,
     /** parameter: line */
-    INVALID_BASE_URI;
+    INVALID_BASE_URI,
+    /** parameters: limit name, limit */
+    LIMIT_EXCEEDED;
 
     @Override
     public String getKey() {
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.etag;
+
+import java.util.List;
+
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.server.api.uri.UriParameter;
+
+/**
+ * <p>Provides the current ETags of entities without calling a processor.</p>
+ * <p>If registered at the ODataHttpHandler, the If-Match and If-None-Match headers of requests to single entities,
+ * their properties, and their media values are checked before the processor is called:
+ * a read request whose If-None-Match header matches gets a "Not Modified" response,
+ * a request whose preconditions are not fulfilled gets a "Precondition Failed" response.
+ * The processor is called only if the preconditions are fulfilled or the ETag is not known.</p>
+ */
+public interface ETagProvider {
+
+  /**
+   * Gets the current ETag of an entity or of its media value.
+   * This method is called for every conditional request to a single entity and should therefore be cheap,
+   * e.g., served from a version index.
+   * @param entitySetOrSingleton the entity set or singleton of the entity
+   * @param keyPredicates the key predicates of the entity; empty for a singleton
+   * @param isMediaValue whether the ETag of the media value is requested
+   * @return the ETag or <code>null</code> if it is not known;
+   * the preconditions then have to be validated in the processor
+   */
+  String getETag(EdmBindingTarget entitySetOrSingleton, List<UriParameter> keyPredicates, boolean isMediaValue);
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.expand;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+
+/**
+ * Used to fill the expanded navigation properties of entities before serialization.
+ */
+public interface ExpandHelper {
+
+  /**
+   * <p>Loads the expanded navigation properties of all entities of an entity collection and sets them
+   * as inline content of the navigation links of the entities, creating the links where necessary.</p>
+   * <p>The loader is called once per expanded navigation property and expand level, with the entities
+   * of the whole level as parents. Expand items with <code>$levels</code> are expanded level by level;
+   * entities already expanded before are not expanded again, so cycles in the data end the recursion.</p>
+   * @param entitySet the entities to expand
+   * @param edmBindingTarget the entity set or singleton the entities belong to
+   * @param expandOption the expand system query option; nothing is done if it is <code>null</code>
+   * @param loader the loader of related entities
+   */
+  void expand(EntityCollection entitySet, EdmBindingTarget edmBindingTarget, ExpandOption expandOption,
+      ExpandLoader loader) throws ODataApplicationException;
+
+  /**
+   * Loads the expanded navigation properties of a single entity.
+   * @see #expand(EntityCollection, EdmBindingTarget, ExpandOption, ExpandLoader)
+   */
+  void expand(Entity entity, EdmBindingTarget edmBindingTarget, ExpandOption expandOption,
+      ExpandLoader loader) throws ODataApplicationException;
+
+  /**
+   * Sets the maximum number of levels of a recursive expansion. It is used for <code>$levels=max</code>;
+   * larger explicit values are rejected.
+   * @param maxLevels the maximum number of levels
+   */
+  void setMaxLevels(int maxLevels);
+
+  /**
+   * Sets the maximum number of entities one call of the helper may load; expansions loading more entities
+   * are rejected.
+   * @param maxEntities the maximum number of entities
+   */
+  void setMaxEntities(int maxEntities);
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.expand;
+
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+
+/**
+ * <p>Processors that want expanded navigation properties to be loaded with one backend call per navigation
+ * property and expand level, instead of one call per parent entity, implement this interface and pass it to
+ * {@link ExpandHelper}.</p>
+ */
+public interface ExpandLoader {
+
+  /**
+   * <p>Loads the entities related to all the given parent entities through a navigation property.</p>
+   * <p>The system query options <code>$filter</code>, <code>$orderby</code>, <code>$skip</code>,
+   * <code>$top</code>, and <code>$count</code> of the expand item have to be applied to the entities of each
+   * parent separately. A nested <code>$expand</code> must not be handled here; the helper calls this method again
+   * for the next level with all the entities loaded.</p>
+   * @param target the entity set or singleton the related entities belong to, or <code>null</code> if unknown
+   * @param navigationProperty the navigation property to follow
+   * @param parents the parent entities
+   * @param expandItem the expand item, containing the nested system query options
+   * @return one entity collection per parent entity, in the order of the parents;
+   * for a single-valued navigation property the collection contains at most one entity
+   */
+  List<EntityCollection> loadRelated(EdmBindingTarget target, EdmNavigationProperty navigationProperty,
+      List<Entity> parents, ExpandItem expandItem) throws ODataApplicationException;
+}
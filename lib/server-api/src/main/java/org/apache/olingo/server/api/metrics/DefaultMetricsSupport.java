@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.server.api.metrics.RequestMetrics.Stage;
+
+/**
+ * <p>Default implementation of {@link MetricsSupport}.</p>
+ * <p>Keeps, per resource and HTTP method, a {@link LatencyHistogram} of the request durations in microseconds
+ * together with counters of errors, response bytes, and time spent per {@link Stage}. Recording is lock-free;
+ * the collected metrics can be read in a simple text format with {@link #getText()}, e.g., to be scraped
+ * by a monitoring system.</p>
+ */
+public class DefaultMetricsSupport implements MetricsSupport {
+
+  private static final double[] PERCENTILES = { 50, 90, 99 };
+
+  private final ConcurrentMap<String, ResourceMetrics> metrics = new ConcurrentHashMap<String, ResourceMetrics>();
+
+  @Override
+  public void requestStarted(final RequestMetrics requestMetrics) {
+    // Only processed requests are recorded.
+  }
+
+  @Override
+  public void requestProcessed(final RequestMetrics requestMetrics) {
+    final String key = (requestMetrics.getMethod() == null ? "" : requestMetrics.getMethod().name())
+        + ' ' + (requestMetrics.getResource() == null ? "" : requestMetrics.getResource());
+    ResourceMetrics resourceMetrics = metrics.get(key);
+    if (resourceMetrics == null) {
+      final ResourceMetrics newMetrics = new ResourceMetrics();
+      resourceMetrics = metrics.putIfAbsent(key, newMetrics);
+      if (resourceMetrics == null) {
+        resourceMetrics = newMetrics;
+      }
+    }
+    resourceMetrics.record(requestMetrics);
+  }
+
+  /**
+   * Gets the latency histogram of the requests with the given method and resource.
+   * @param method the name of the HTTP method
+   * @param resource the resource name, see {@link RequestMetrics#getResource()}
+   * @return the histogram of the durations in microseconds, or <code>null</code> if there was no such request
+   */
+  public LatencyHistogram getLatencyHistogram(final String method, final String resource) {
+    final ResourceMetrics resourceMetrics = metrics.get(method + ' ' + resource);
+    return resourceMetrics == null ? null : resourceMetrics.latency;
+  }
+
+  /**
+   * Gets the collected metrics as text, one metric per line in the form
+   * <code>name{method="GET",resource="ESAllPrim"} value</code>.
+   */
+  public String getText() {
+    final StringBuilder text = new StringBuilder();
+    try {
+      writeText(text);
+    } catch (final IOException e) {
+      throw new ODataRuntimeException(e);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Writes the collected metrics as text.
+   * @see #getText()
+   */
+  public void writeText(final Appendable out) throws IOException {
+    for (final Map.Entry<String, ResourceMetrics> entry : metrics.entrySet()) {
+      final int separator = entry.getKey().indexOf(' ');
+      final String labels = "method=\"" + entry.getKey().substring(0, separator)
+          + "\",resource=\"" + entry.getKey().substring(separator + 1).replace("\"", "\\\"") + '"';
+      final ResourceMetrics resourceMetrics = entry.getValue();
+      final LatencyHistogram latency = resourceMetrics.latency;
+      writeLine(out, "odata_requests_total", labels, latency.getCount());
+      writeLine(out, "odata_errors_total", labels, resourceMetrics.errors.get());
+      writeLine(out, "odata_response_bytes_total", labels, resourceMetrics.responseBytes.get());
+      writeLine(out, "odata_request_duration_microseconds_sum", labels, latency.getSum());
+      for (final double percentile : PERCENTILES) {
+        writeLine(out, "odata_request_duration_microseconds",
+            labels + ",quantile=\"" + percentile / 100 + '"', latency.getValueAtPercentile(percentile));
+      }
+      writeLine(out, "odata_request_duration_microseconds_max", labels, latency.getMax());
+      for (final Stage stage : Stage.values()) {
+        writeLine(out, "odata_stage_duration_microseconds_sum",
+            labels + ",stage=\"" + stage.name().toLowerCase(Locale.ROOT) + '"',
+            resourceMetrics.stageNanos.get(stage.ordinal()) / 1000);
+      }
+    }
+  }
+
+  private void writeLine(final Appendable out, final String name, final String labels, final long value)
+      throws IOException {
+    out.append(name).append('{').append(labels).append("} ").append(Long.toString(value)).append('\n');
+  }
+
+  /** The metrics of the requests with one method and resource. */
+  private static final class ResourceMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+
+    private void record(final RequestMetrics requestMetrics) {
+      latency.record(requestMetrics.getDuration() / 1000);
+      if (requestMetrics.getErrorKind() != null) {
+        errors.incrementAndGet();
+      }
+      if (requestMetrics.getResponseSize() > 0) {
+        responseBytes.addAndGet(requestMetrics.getResponseSize());
+      }
+      for (final Stage stage : Stage.values()) {
+        final long nanos = requestMetrics.getDuration(stage);
+        if (nanos > 0) {
+          stageNanos.addAndGet(stage.ordinal(), nanos);
+        }
+      }
+    }
+  }
+}
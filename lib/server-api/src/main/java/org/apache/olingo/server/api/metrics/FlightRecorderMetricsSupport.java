@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import java.util.Locale;
+
+import org.apache.olingo.commons.api.metrics.FlightRecorderEventType;
+import org.apache.olingo.server.api.metrics.RequestMetrics.Stage;
+
+/**
+ * <p>Emits every request as event <code>org.apache.olingo.ODataRequest</code> to the JDK Flight Recorder,
+ * so that live traffic can be profiled with a continuous recording.</p>
+ * <p>The event begins when the processing of the request starts and ends after the response has been
+ * written, so its start time and duration are those of the request. It carries the HTTP method, the resource,
+ * the status code, the error kind, the request and response sizes, and the time spent in each {@link Stage}.
+ * Events are only created while a recording has the event enabled.</p>
+ * <p>The library emits further events independent of this class, while a recording has them enabled:
+ * <code>org.apache.olingo.EdmLookupMiss</code> for metadata lookups not answered from the cache,
+ * <code>org.apache.olingo.Serialization</code> and <code>org.apache.olingo.Deserialization</code> for
+ * entities and entity collections, <code>org.apache.olingo.BatchPart</code> for the requests in a batch request,
+ * and <code>org.apache.olingo.ClientRequest</code> for the requests of the client.</p>
+ * <p>The Flight Recorder API is used through reflection, since it is not available on all supported Java
+ * versions; on Java versions without it ({@link #isAvailable()} returns <code>false</code>) no events
+ * are emitted. Requests can be passed on to a further {@link MetricsSupport}, e.g., a
+ * {@link DefaultMetricsSupport}.</p>
+ */
+public class FlightRecorderMetricsSupport implements MetricsSupport {
+
+  /** The name of the emitted event. */
+  public static final String EVENT_NAME = "org.apache.olingo.ODataRequest";
+
+  private static final FlightRecorderEventType EVENT_TYPE = createEventType();
+
+  private final MetricsSupport next;
+  /** The event of the request processed by the current thread. */
+  private final ThreadLocal<Object> events = new ThreadLocal<Object>();
+
+  /** Creates a metrics support emitting Flight Recorder events only. */
+  public FlightRecorderMetricsSupport() {
+    this(null);
+  }
+
+  /**
+   * Creates a metrics support emitting Flight Recorder events and passing the requests on.
+   * @param next the metrics support to pass the metrics on to, or <code>null</code>
+   */
+  public FlightRecorderMetricsSupport(final MetricsSupport next) {
+    this.next = next;
+  }
+
+  /**
+   * Whether events are emitted, i.e., whether the Flight Recorder API is available.
+   */
+  public boolean isAvailable() {
+    return EVENT_TYPE.isAvailable();
+  }
+
+  @Override
+  public void requestStarted(final RequestMetrics metrics) {
+    final Object event = EVENT_TYPE.begin();
+    if (event == null) {
+      events.remove();
+    } else {
+      events.set(event);
+    }
+    if (next != null) {
+      next.requestStarted(metrics);
+    }
+  }
+
+  @Override
+  public void requestProcessed(final RequestMetrics metrics) {
+    final Object event = events.get();
+    if (event != null) {
+      events.remove();
+      final Object[] values = new Object[7 + Stage.values().length];
+      values[0] = metrics.getMethod() == null ? null : metrics.getMethod().name();
+      values[1] = metrics.getResource();
+      values[2] = metrics.getStatusCode();
+      values[3] = metrics.getErrorKind();
+      values[4] = metrics.getRequestSize();
+      values[5] = metrics.getResponseSize();
+      values[6] = metrics.getDuration();
+      for (final Stage stage : Stage.values()) {
+        values[7 + stage.ordinal()] = metrics.getDuration(stage);
+      }
+      EVENT_TYPE.commit(event, values);
+    }
+    if (next != null) {
+      next.requestProcessed(metrics);
+    }
+  }
+
+  private static FlightRecorderEventType createEventType() {
+    final FlightRecorderEventType.Builder builder = FlightRecorderEventType.with(EVENT_NAME, "OData Request")
+        .field(String.class, "method", "HTTP Method")
+        .field(String.class, "resource", "Resource")
+        .field(int.class, "statusCode", "Status Code")
+        .field(String.class, "errorKind", "Error Kind")
+        .dataAmount("requestSize", "Request Size")
+        .dataAmount("responseSize", "Response Size")
+        .timespan("processingTime", "Processing Time");
+    for (final Stage stage : Stage.values()) {
+      builder.timespan(toCamelCase(stage.name()) + "Time", toLabel(stage.name()) + " Time");
+    }
+    return builder.build();
+  }
+
+  private static String toLabel(final String name) {
+    final StringBuilder result = new StringBuilder();
+    for (final String word : name.split("_")) {
+      result.append(result.length() == 0 ? "" : " ")
+          .append(word.charAt(0)).append(word.substring(1).toLowerCase(Locale.ROOT));
+    }
+    return result.toString();
+  }
+
+  private static String toCamelCase(final String name) {
+    final StringBuilder result = new StringBuilder();
+    boolean upper = false;
+    for (final char character : name.toCharArray()) {
+      if (character == '_') {
+        upper = true;
+      } else {
+        result.append(upper ? character : Character.toLowerCase(character));
+        upper = false;
+      }
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Lock-free histogram of non-negative values, e.g., latencies in microseconds.</p>
+ * <p>Values below 32 are counted exactly; larger values are counted in 16 buckets per power of two,
+ * so percentiles are reported with a relative error of at most 1/16. Recording a value is a single
+ * atomic increment (plus updates of the sum and the maximum) and never allocates.</p>
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+  private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value; negative values are recorded as 0.
+   * @param value the value
+   */
+  public void record(final long value) {
+    final long recorded = Math.max(value, 0);
+    counts.incrementAndGet(getBucket(recorded));
+    count.incrementAndGet();
+    sum.addAndGet(recorded);
+    long currentMax = max.get();
+    while (recorded > currentMax && !max.compareAndSet(currentMax, recorded)) {
+      currentMax = max.get();
+    }
+  }
+
+  static int getBucket(final long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Gets the highest value counted in the given bucket. */
+  static long getHighestValue(final int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+    final int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+    final long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+    final long lowest = (1L << exponent) | subBucket << (exponent - SUB_BUCKET_BITS);
+    return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getSum() {
+    return sum.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the value below or at which the given percentage of the recorded values lie.
+   * Values recorded concurrently may or may not be taken into account.
+   * @param percentile the percentage, between 0 and 100
+   * @return the value (the highest value of its bucket, but not more than the maximum), or 0 if nothing
+   * has been recorded
+   */
+  public long getValueAtPercentile(final double percentile) {
+    long total = 0;
+    final long[] snapshot = new long[BUCKETS];
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      snapshot[bucket] = counts.get(bucket);
+      total += snapshot[bucket];
+    }
+    final long target = Math.max((long) Math.ceil(Math.min(percentile, 100) / 100 * total), 1);
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += snapshot[bucket];
+      if (seen >= target) {
+        return Math.min(getHighestValue(bucket), getMax());
+      }
+    }
+    return 0;
+  }
+}
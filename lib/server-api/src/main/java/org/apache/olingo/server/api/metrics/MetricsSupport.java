@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+/**
+ * Receives the metrics of every processed request.
+ * <br/>
+ * Register an implementation with {@link org.apache.olingo.server.api.ODataHttpHandler#register(MetricsSupport)}.
+ * Without a registered implementation no metrics are collected.
+ * The methods are called on the thread that processes the request,
+ * so implementations must be thread-safe and should return quickly.
+ * @see DefaultMetricsSupport
+ */
+public interface MetricsSupport {
+
+  /**
+   * Is called once for every request when its processing starts.
+   * @param metrics the metrics of the request, still empty; the same object is passed to
+   * {@link #requestProcessed(RequestMetrics)} later
+   */
+  void requestStarted(RequestMetrics metrics);
+
+  /**
+   * Is called once for every processed request, after the response has been written.
+   * @param metrics the metrics of the request; must not be kept after the call
+   */
+  void requestProcessed(RequestMetrics metrics);
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import org.apache.olingo.commons.api.http.HttpMethod;
+
+/**
+ * <p>Metrics of a single request.</p>
+ * <p>All durations are in nanoseconds; sizes are in bytes and -1 if not known.</p>
+ * @see MetricsSupport
+ */
+public final class RequestMetrics {
+
+  /** Stages of request processing. */
+  public enum Stage {
+    /** Parsing the resource path and the query options. */
+    URI_PARSE,
+    /** Validating the parsed URI against the HTTP method. */
+    URI_VALIDATE,
+    /** Dispatching to the processor, including the work of the processor and the serializer. */
+    DISPATCH,
+    /** Writing the response content to the client; includes serialization for streamed content. */
+    WRITE
+  }
+
+  private final long[] durations = new long[Stage.values().length];
+  private long duration;
+  private HttpMethod method;
+  private String resource;
+  private int statusCode;
+  private String errorKind;
+  private long requestSize = -1;
+  private long responseSize = -1;
+
+  /**
+   * Adds time spent in a stage; stages can be entered more than once, e.g., for batch requests.
+   * @param stage the stage
+   * @param nanos the duration in nanoseconds
+   */
+  public void addDuration(final Stage stage, final long nanos) {
+    durations[stage.ordinal()] += nanos;
+  }
+
+  /**
+   * Gets the time spent in a stage.
+   * @param stage the stage
+   * @return the duration in nanoseconds, 0 if the stage has not been reached
+   */
+  public long getDuration(final Stage stage) {
+    return durations[stage.ordinal()];
+  }
+
+  /**
+   * Gets the overall processing time of the request.
+   * @return the duration in nanoseconds
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  public void setDuration(final long nanos) {
+    duration = nanos;
+  }
+
+  /**
+   * Gets the HTTP method of the request.
+   * @return the method, or <code>null</code> if it could not be determined
+   */
+  public HttpMethod getMethod() {
+    return method;
+  }
+
+  public void setMethod(final HttpMethod method) {
+    this.method = method;
+  }
+
+  /**
+   * Gets the name of the addressed resource: the name of the entity set, singleton, action import, or
+   * function import in the first path segment, or <code>$</code> followed by the kind of the request
+   * for requests not addressing a resource (e.g., <code>$metadata</code> or <code>$batch</code>).
+   * @return the name, or <code>null</code> if the URI could not be parsed
+   */
+  public String getResource() {
+    return resource;
+  }
+
+  public void setResource(final String resource) {
+    this.resource = resource;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public void setStatusCode(final int statusCode) {
+    this.statusCode = statusCode;
+  }
+
+  /**
+   * Gets the kind of error that occurred during processing.
+   * @return the simple name of the exception class, or <code>null</code> if no error occurred
+   */
+  public String getErrorKind() {
+    return errorKind;
+  }
+
+  public void setErrorKind(final String errorKind) {
+    this.errorKind = errorKind;
+  }
+
+  public long getRequestSize() {
+    return requestSize;
+  }
+
+  public void setRequestSize(final long requestSize) {
+    this.requestSize = requestSize;
+  }
+
+  public long getResponseSize() {
+    return responseSize;
+  }
+
+  public void setResponseSize(final long responseSize) {
+    this.responseSize = responseSize;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.processor;
+
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+
+/**
+ * Processor interface for handling a collection of entities with the system query option $apply
+ * of the OData Data Aggregation extension.
+ * Requests with $apply are answered with status 501 (Not Implemented)
+ * as long as no processor implementing this interface is registered.
+ */
+public interface ApplyEntityCollectionProcessor extends EntityCollectionProcessor {
+
+  /**
+   * Reads entities from persistence, applies the transformations of $apply to them,
+   * and puts the serialized result and status into the response.
+   * The transformations can be applied in memory with an
+   * {@link org.apache.olingo.server.api.apply.ApplyHelper ApplyHelper}.
+   * @param request OData request object containing raw HTTP information
+   * @param response OData response object for collecting response data
+   * @param uriInfo information of a parsed OData URI
+   * @param applyOption the transformations of the system query option $apply
+   * @param responseFormat requested content type after content negotiation
+   * @throws ODataApplicationException if the service implementation encounters a failure
+   * @throws ODataLibraryException
+   */
+  void applyEntityCollection(ODataRequest request, ODataResponse response, UriInfo uriInfo, ApplyOption applyOption,
+      ContentType responseFormat) throws ODataApplicationException, ODataLibraryException;
+}
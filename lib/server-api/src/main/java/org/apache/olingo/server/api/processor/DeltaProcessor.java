@@ -18,22 +18,32 @@
  */
 package org.apache.olingo.server.api.processor;
 
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.queryoption.DeltaTokenOption;
+
 /**
  * Processor interface for handling a single instance of an Delta Response.
+ * Requests with $deltatoken are answered with status 501 (Not Implemented)
+ * as long as no processor implementing this interface is registered.
  */
 public interface DeltaProcessor extends Processor {
 
-  // NOT YET AVAILABLE
-  // /**
-  // * Reads delta information from persistence and put it as serialized content and
-  // * with according status into the response.
-  // * @param request OData request object containing raw HTTP information
-  // * @param response OData response object for collecting response data
-  // * @param uriInfo information of a parsed OData URI
-  // * @param responseFormat requested content type after content negotiation
-  // * @throws ODataApplicationException if the service implementation encounters a failure
-  // * @throws ODataLibraryException
-  // */
-  // void readDelta(ODataRequest request, ODataResponse response, UriInfo uriInfo, ContentType responseFormat)
-  // throws ODataApplicationException, ODataLibraryException;
-}
\ No newline at end of file
+  /**
+   * Reads delta information from persistence and put it as serialized content and
+   * with according status into the response.
+   * @param request OData request object containing raw HTTP information
+   * @param response OData response object for collecting response data
+   * @param uriInfo information of a parsed OData URI
+   * @param deltaToken the system query option $deltatoken
+   * @param responseFormat requested content type after content negotiation
+   * @throws ODataApplicationException if the service implementation encounters a failure
+   * @throws ODataLibraryException
+   */
+  void readDelta(ODataRequest request, ODataResponse response, UriInfo uriInfo, DeltaTokenOption deltaToken,
+      ContentType responseFormat) throws ODataApplicationException, ODataLibraryException;
+}
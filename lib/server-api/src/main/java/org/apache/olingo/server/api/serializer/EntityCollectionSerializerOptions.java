@@ -18,6 +18,8 @@
  */
 package org.apache.olingo.server.api.serializer;
 
+import java.util.concurrent.ExecutorService;
+
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.server.api.ODataContentWriteErrorCallback;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
@@ -27,6 +29,9 @@ import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 /** Options for the OData serializer. */
 public class EntityCollectionSerializerOptions {
 
+  /** Default number of entities serialized together if the entities are serialized in parallel. */
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
   private ContextURL contextURL;
   private CountOption count;
   private ExpandOption expand;
@@ -35,6 +40,10 @@ public class EntityCollectionSerializerOptions {
   private String id;
   private ODataContentWriteErrorCallback ODataContentWriteErrorCallback;
   private String xml10InvalidCharReplacement;
+  private ExecutorService executor;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  private int maxLevels = EntitySerializerOptions.DEFAULT_MAX_LEVELS;
+  private int maxExpandedEntities = EntitySerializerOptions.DEFAULT_MAX_EXPANDED_ENTITIES;
 
   /** Gets the {@link ContextURL}. */
   public ContextURL getContextURL() {
@@ -82,6 +91,35 @@ public class EntityCollectionSerializerOptions {
     return xml10InvalidCharReplacement;
   }  
 
+  /**
+   * Gets the executor on which chunks of the entities are serialized in parallel,
+   * or <code>null</code> if the entities are serialized one after the other.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /** Gets the number of entities serialized together if the entities are serialized in parallel. */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Gets the maximum number of levels written for an expand item with <code>$levels</code>.
+   * It is used for <code>$levels=max</code>; larger explicit values are rejected.
+   */
+  public int getMaxLevels() {
+    return maxLevels;
+  }
+
+  /**
+   * Gets the maximum number of entities written for expand items with <code>$levels</code>
+   * in one response; serialization of more entities is rejected.
+   */
+  public int getMaxExpandedEntities() {
+    return maxExpandedEntities;
+  }
+
   /** Initializes the options builder. */
   public static Builder with() {
     return new Builder();
@@ -149,7 +187,41 @@ public class EntityCollectionSerializerOptions {
       options.xml10InvalidCharReplacement = replacement;
       return this;
     } 
-    
+
+    /**
+     * Sets the executor on which chunks of the entities are serialized in parallel.
+     * The serialized chunks are written in the order of the entities.
+     * Expanded navigation properties are serialized together with their entity.
+     * <br/>
+     * Use an executor dedicated to serialization, not one that processes requests: the request thread
+     * waits for the chunks. Chunks the executor rejects or has not started yet when they are to be written
+     * are serialized on the request thread, so a busy executor slows serialization down but does not block it.
+     * @param executor the executor, or <code>null</code> to serialize the entities one after the other
+     * @return the builder
+     */
+    public Builder executor(final ExecutorService executor) {
+      options.executor = executor;
+      return this;
+    }
+
+    /** Sets the number of entities serialized together if the entities are serialized in parallel. */
+    public Builder chunkSize(final int chunkSize) {
+      options.chunkSize = chunkSize;
+      return this;
+    }
+
+    /** Sets the maximum number of levels written for an expand item with <code>$levels</code>. */
+    public Builder maxLevels(final int maxLevels) {
+      options.maxLevels = maxLevels;
+      return this;
+    }
+
+    /** Sets the maximum number of entities written for expand items with <code>$levels</code>. */
+    public Builder maxExpandedEntities(final int maxExpandedEntities) {
+      options.maxExpandedEntities = maxExpandedEntities;
+      return this;
+    }
+
     /** Builds the OData serializer options. */
     public EntityCollectionSerializerOptions build() {
       return options;
@@ -24,11 +24,19 @@ import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 
 /** Options for the OData serializer. */
 public class EntitySerializerOptions {
+
+  /** Default maximum number of levels written for <code>$levels=max</code>. */
+  public static final int DEFAULT_MAX_LEVELS = 10;
+  /** Default maximum number of entities written for expand items with <code>$levels</code>. */
+  public static final int DEFAULT_MAX_EXPANDED_ENTITIES = 10000;
+
   private ContextURL contextURL;
   private ExpandOption expand;
   private SelectOption select;
   private boolean writeOnlyReferences;
   private String xml10InvalidCharReplacement;
+  private int maxLevels = DEFAULT_MAX_LEVELS;
+  private int maxExpandedEntities = DEFAULT_MAX_EXPANDED_ENTITIES;
 
   /** Gets the {@link ContextURL}. */
   public ContextURL getContextURL() {
@@ -55,6 +63,22 @@ public class EntitySerializerOptions {
     return xml10InvalidCharReplacement;
   }  
 
+  /**
+   * Gets the maximum number of levels written for an expand item with <code>$levels</code>.
+   * It is used for <code>$levels=max</code>; larger explicit values are rejected.
+   */
+  public int getMaxLevels() {
+    return maxLevels;
+  }
+
+  /**
+   * Gets the maximum number of entities written for expand items with <code>$levels</code>
+   * in one response; serialization of more entities is rejected.
+   */
+  public int getMaxExpandedEntities() {
+    return maxExpandedEntities;
+  }
+
   private EntitySerializerOptions() {}
 
   /** Initializes the options builder. */
@@ -101,6 +125,18 @@ public class EntitySerializerOptions {
       return this;
     } 
     
+    /** Sets the maximum number of levels written for an expand item with <code>$levels</code>. */
+    public Builder maxLevels(final int maxLevels) {
+      options.maxLevels = maxLevels;
+      return this;
+    }
+
+    /** Sets the maximum number of entities written for expand items with <code>$levels</code>. */
+    public Builder maxExpandedEntities(final int maxExpandedEntities) {
+      options.maxExpandedEntities = maxExpandedEntities;
+      return this;
+    }
+
     /** Builds the OData serializer options. */
     public EntitySerializerOptions build() {
       return options;
@@ -48,7 +48,11 @@ public class SerializerException extends ODataLibraryException {
     UNKNOWN_TYPE,
     WRONG_BASE_TYPE,
     /** parameter: encoding-name */
-    UNSUPPORTED_ENCODING;
+    UNSUPPORTED_ENCODING,
+    /** parameter: maximum number of levels */
+    TOO_MANY_EXPAND_LEVELS,
+    /** parameter: maximum number of entities */
+    TOO_MANY_EXPANDED_ENTITIES;
 
     @Override
     public String getKey() {
@@ -82,7 +82,17 @@ public enum SystemQueryOptionKind {
   /**
    * @see LevelsExpandOption
    */
-  LEVELS("$levels");
+  LEVELS("$levels"),
+
+  /**
+   * @see ApplyOption
+   */
+  APPLY("$apply"),
+
+  /**
+   * @see DeltaTokenOption
+   */
+  DELTATOKEN("$deltatoken");
 
   private final String syntax;
 
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.uri.queryoption.apply;
+
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+
+/**
+ * Represents a single aggregate expression within the transformation <code>aggregate</code>,
+ * like <code>Amount with sum as Total</code> or <code>$count as Count</code>.
+ */
+public interface AggregateExpression {
+
+  /** The standard aggregation methods. */
+  public enum StandardMethod {
+    SUM, MIN, MAX, AVERAGE, COUNT_DISTINCT
+  }
+
+  /**
+   * @return the expression to be aggregated,
+   * or <code>null</code> for the virtual property <code>$count</code>
+   */
+  Expression getExpression();
+
+  /**
+   * @return the aggregation method, or <code>null</code> for the virtual property <code>$count</code>
+   */
+  StandardMethod getStandardMethod();
+
+  /**
+   * @return the name of the property holding the aggregated value
+   */
+  String getAlias();
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.uri.queryoption.apply;
+
+import java.util.List;
+
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+/**
+ * Represents the transformation <code>groupby</code>.
+ * For example: groupby((Address/City,Name),aggregate(Amount with sum as Total))
+ */
+public interface GroupBy extends ApplyItem {
+
+  /**
+   * @return the property paths to group by
+   */
+  List<Member> getGroupByItems();
+
+  /**
+   * @return the transformations applied to the entities of each group,
+   * or <code>null</code> if only the distinct values of the grouping properties are requested
+   */
+  ApplyOption getApplyOption();
+}
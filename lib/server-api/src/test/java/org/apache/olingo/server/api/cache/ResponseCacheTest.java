@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+  private static EdmBindingTarget target(final String name) {
+    return (EdmBindingTarget) Proxy.newProxyInstance(ResponseCacheTest.class.getClassLoader(),
+        new Class<?>[] { EdmBindingTarget.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            return "getName".equals(method.getName()) ? name : null;
+          }
+        });
+  }
+
+  private static CachedResponse response(final int length) {
+    return new CachedResponse(200, Collections.singletonMap("Content-Type",
+        Collections.singletonList("application/json")), new byte[length]);
+  }
+
+  @Test
+  public void hitAndMiss() {
+    final ResponseCache cache = new ResponseCache(10000);
+    final String version = cache.getVersion(target("ESAllPrim"));
+    assertNull(cache.get("a", version));
+    cache.put("a", version, response(10));
+    final CachedResponse cached = cache.get("a", version);
+    assertNotNull(cached);
+    assertEquals(200, cached.getStatusCode());
+    assertEquals(Collections.singletonList("application/json"), cached.getHeaders().get("Content-Type"));
+    assertArrayEquals(new byte[10], cached.getContent());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getEntryCount());
+  }
+
+  @Test
+  public void invalidate() {
+    final ResponseCache cache = new ResponseCache(10000);
+    final EdmBindingTarget allPrim = target("ESAllPrim");
+    final EdmBindingTarget twoPrim = target("ESTwoPrim");
+    final String allPrimVersion = cache.getVersion(allPrim);
+    final String twoPrimVersion = cache.getVersion(twoPrim);
+    cache.put("a", allPrimVersion, response(10));
+    cache.put("b", twoPrimVersion, response(10));
+
+    cache.invalidate(allPrim);
+    assertFalse(allPrimVersion.equals(cache.getVersion(allPrim)));
+    assertNull(cache.get("a", cache.getVersion(allPrim)));
+    assertNotNull(cache.get("b", cache.getVersion(twoPrim)));
+    assertEquals(1, cache.getEntryCount());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.getEntryCount());
+    assertEquals(0, cache.getSize());
+    assertNull(cache.get("b", twoPrimVersion));
+  }
+
+  @Test
+  public void versionSupport() {
+    final int[] version = new int[] { 1 };
+    final ResponseCache cache = new ResponseCache(10000).setVersionSupport(new ResponseCacheVersionSupport() {
+      @Override
+      public String getVersion(final EdmBindingTarget entitySetOrSingleton) {
+        return String.valueOf(version[0]);
+      }
+    });
+    final EdmBindingTarget allPrim = target("ESAllPrim");
+    cache.put("a", cache.getVersion(allPrim), response(10));
+    assertNotNull(cache.get("a", cache.getVersion(allPrim)));
+    version[0]++;
+    assertNull(cache.get("a", cache.getVersion(allPrim)));
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() {
+    final ResponseCache cache = new ResponseCache(1000);
+    final String version = cache.getVersion(target("ESAllPrim"));
+    cache.put("a", version, response(300));
+    cache.put("b", version, response(300));
+    assertNotNull(cache.get("a", version));
+    cache.put("c", version, response(300));
+    assertEquals(1, cache.getEvictionCount());
+    assertNull(cache.get("b", version));
+    assertNotNull(cache.get("a", version));
+    assertNotNull(cache.get("c", version));
+    assertEquals(2, cache.getEntryCount());
+
+    // Too large responses are not cached at all.
+    cache.put("d", version, response(2000));
+    assertNull(cache.get("d", version));
+    assertEquals(2, cache.getEntryCount());
+    assertEquals(1, cache.getEvictionCount());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void unmodifiableHeaders() {
+    response(0).getHeaders().get("Content-Type").add("text/plain");
+  }
+}
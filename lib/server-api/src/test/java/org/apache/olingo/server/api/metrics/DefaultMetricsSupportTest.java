@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.server.api.metrics.RequestMetrics.Stage;
+import org.junit.Test;
+
+public class DefaultMetricsSupportTest {
+
+  @Test
+  public void buckets() {
+    for (long value = 0; value < 100000; value += 7) {
+      final int bucket = LatencyHistogram.getBucket(value);
+      assertTrue(LatencyHistogram.getHighestValue(bucket) >= value);
+      assertTrue(bucket == 0 || LatencyHistogram.getHighestValue(bucket - 1) < value);
+    }
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.getHighestValue(LatencyHistogram.getBucket(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void percentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getValueAtPercentile(50));
+    for (int value = 1; value <= 1000; value++) {
+      histogram.record(value);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500500, histogram.getSum());
+    assertEquals(1000, histogram.getMax());
+    assertEquals(1000, histogram.getValueAtPercentile(100));
+    assertTrue(Math.abs(histogram.getValueAtPercentile(50) - 500) <= 500 / 16);
+    assertTrue(Math.abs(histogram.getValueAtPercentile(99) - 990) <= 990 / 16);
+    assertEquals(1, histogram.getValueAtPercentile(0));
+  }
+
+  @Test
+  public void text() {
+    final DefaultMetricsSupport metricsSupport = new DefaultMetricsSupport();
+    for (int i = 1; i <= 3; i++) {
+      final RequestMetrics metrics = new RequestMetrics();
+      metrics.setMethod(HttpMethod.GET);
+      metrics.setResource("ESAllPrim");
+      metrics.setDuration(i * 1000000L);
+      metrics.addDuration(Stage.URI_PARSE, 2000);
+      metrics.setResponseSize(100);
+      metrics.setErrorKind(i == 3 ? "ODataApplicationException" : null);
+      metricsSupport.requestProcessed(metrics);
+    }
+    assertEquals(3, metricsSupport.getLatencyHistogram("GET", "ESAllPrim").getCount());
+    assertNull(metricsSupport.getLatencyHistogram("POST", "ESAllPrim"));
+
+    final String text = metricsSupport.getText();
+    final String labels = "{method=\"GET\",resource=\"ESAllPrim\"";
+    assertTrue(text.contains("odata_requests_total" + labels + "} 3\n"));
+    assertTrue(text.contains("odata_errors_total" + labels + "} 1\n"));
+    assertTrue(text.contains("odata_response_bytes_total" + labels + "} 300\n"));
+    assertTrue(text.contains("odata_request_duration_microseconds_max" + labels + "} 3000\n"));
+    assertTrue(text.contains("odata_stage_duration_microseconds_sum" + labels + ",stage=\"uri_parse\"} 6\n"));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.server.api.metrics.RequestMetrics.Stage;
+import org.junit.Test;
+
+public class FlightRecorderMetricsSupportTest {
+
+  private static RequestMetrics createMetrics() {
+    final RequestMetrics metrics = new RequestMetrics();
+    metrics.setMethod(HttpMethod.GET);
+    metrics.setResource("ESAllPrim");
+    metrics.setStatusCode(200);
+    metrics.setDuration(3000000L);
+    metrics.addDuration(Stage.URI_PARSE, 2000);
+    metrics.setResponseSize(100);
+    return metrics;
+  }
+
+  @Test
+  public void next() {
+    final DefaultMetricsSupport next = new DefaultMetricsSupport();
+    final FlightRecorderMetricsSupport metricsSupport = new FlightRecorderMetricsSupport(next);
+    // Without a running recording no event is created.
+    final RequestMetrics metrics = createMetrics();
+    metricsSupport.requestStarted(metrics);
+    metricsSupport.requestProcessed(metrics);
+    assertEquals(1, next.getLatencyHistogram("GET", "ESAllPrim").getCount());
+  }
+
+  @Test
+  public void recording() throws Exception {
+    final FlightRecorderMetricsSupport metricsSupport = new FlightRecorderMetricsSupport();
+    assumeTrue(metricsSupport.isAvailable());
+
+    // The Flight Recorder API is only available on some Java versions, so it is used through reflection.
+    final Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+    final Object recording = recordingClass.newInstance();
+    recordingClass.getMethod("enable", String.class).invoke(recording, FlightRecorderMetricsSupport.EVENT_NAME);
+    recordingClass.getMethod("start").invoke(recording);
+    final RequestMetrics metrics = createMetrics();
+    metricsSupport.requestStarted(metrics);
+    Thread.sleep(5);
+    metricsSupport.requestProcessed(metrics);
+    recordingClass.getMethod("stop").invoke(recording);
+    final File file = File.createTempFile("olingo", ".jfr");
+    try {
+      final Class<?> pathClass = Class.forName("java.nio.file.Path");
+      final Object path = File.class.getMethod("toPath").invoke(file);
+      recordingClass.getMethod("dump", pathClass).invoke(recording, path);
+      recordingClass.getMethod("close").invoke(recording);
+
+      final List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+          .getMethod("readAllEvents", pathClass).invoke(null, path);
+      assertEquals(1, events.size());
+      final Object event = events.get(0);
+      final Method getValue = event.getClass().getMethod("getValue", String.class);
+      assertEquals("GET", getValue.invoke(event, "method"));
+      assertEquals("ESAllPrim", getValue.invoke(event, "resource"));
+      assertEquals(200, getValue.invoke(event, "statusCode"));
+      assertEquals(100L, getValue.invoke(event, "responseSize"));
+      assertEquals(3000000L, getValue.invoke(event, "processingTime"));
+      assertEquals(2000L, getValue.invoke(event, "uriParseTime"));
+      assertNull(getValue.invoke(event, "errorKind"));
+      // The event spans the processing of the request.
+      final Object duration = event.getClass().getMethod("getDuration").invoke(event);
+      assertTrue((Long) duration.getClass().getMethod("toNanos").invoke(duration) >= 5000000L);
+    } finally {
+      file.delete();
+    }
+  }
+}
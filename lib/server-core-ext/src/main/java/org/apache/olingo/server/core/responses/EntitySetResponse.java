@@ -24,6 +24,7 @@ import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.format.PreferenceName;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataResponse;
@@ -70,6 +71,11 @@ public class EntitySetResponse extends ServiceResponse {
       return;
     }
 
+    if (entitySet.getDeltaLink() != null
+        && this.preferences.containsKey(PreferenceName.TRACK_CHANGES.getName())) {
+      writeHeader(HttpHeader.PREFERENCE_APPLIED, PreferenceName.TRACK_CHANGES.getName());
+    }
+
     // write the whole collection to response
     this.response.setContent(this.serializer.entityCollection(metadata, entityType, entitySet, this.options)
                                             .getContent());
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+
+/**
+ * Change log of the tracked entity sets of an {@link InMemoryDataStore}, from which delta responses are computed.
+ * <br/>
+ * Every change gets a token from a single, monotonically increasing counter, so that a token denotes the same
+ * point in time for all entity sets. The changes of an entity set are appended to fixed-size segments; a full
+ * segment is never modified again, so readers scan the log without locking. When more than a given number of full
+ * segments have piled up, they are compacted into one that keeps only the latest change of each entity and of each
+ * link: the log is then bounded by the number of changed entities and links, and the changes reported for any
+ * token stay the same. {@link #expire(long)} drops the changes up to a token, after which older tokens are rejected.
+ * <br/>
+ * Writes must be serialized by the caller.
+ */
+final class ChangeTracker {
+
+  enum Kind {
+    ENTITY_CHANGED, ENTITY_DELETED, LINK_ADDED, LINK_DELETED
+  }
+
+  /** A change of an entity, or of a link from an entity of the tracked entity set. */
+  static final class Change {
+
+    private final long token;
+
+    private final Kind kind;
+
+    private final EntityKey key;
+
+    private final String navigationPropertyName;
+
+    private final String targetEntitySetName;
+
+    private final EntityKey targetKey;
+
+    /** The changed entity or link; a later change of the same subject supersedes this one. */
+    private final Object subject;
+
+    private Change(final long token, final Kind kind, final EntityKey key, final String navigationPropertyName,
+        final String targetEntitySetName, final EntityKey targetKey) {
+      this.token = token;
+      this.kind = kind;
+      this.key = key;
+      this.navigationPropertyName = navigationPropertyName;
+      this.targetEntitySetName = targetEntitySetName;
+      this.targetKey = targetKey;
+      subject = navigationPropertyName == null ? key :
+          Arrays.<Object> asList(key, navigationPropertyName, targetEntitySetName, targetKey);
+    }
+
+    long getToken() {
+      return token;
+    }
+
+    Kind getKind() {
+      return kind;
+    }
+
+    /** Key of the changed entity, or of the source of the changed link. */
+    EntityKey getKey() {
+      return key;
+    }
+
+    String getNavigationPropertyName() {
+      return navigationPropertyName;
+    }
+
+    String getTargetEntitySetName() {
+      return targetEntitySetName;
+    }
+
+    EntityKey getTargetKey() {
+      return targetKey;
+    }
+  }
+
+  /** Part of a log; the changes below <tt>size</tt> are never modified. */
+  private static final class Segment {
+
+    private final Change[] changes;
+
+    private volatile int size;
+
+    private Segment(final Change[] changes, final int size) {
+      this.changes = changes;
+      this.size = size;
+    }
+
+    private boolean isFull() {
+      return size == changes.length;
+    }
+  }
+
+  /** Change log of an entity set; the segment list is replaced, never modified. */
+  private static final class Log {
+
+    private volatile List<Segment> segments;
+
+    /** Oldest token changes can be computed from. */
+    private volatile long horizon;
+
+    private Log(final long horizon) {
+      this.horizon = horizon;
+      segments = Collections.emptyList();
+    }
+  }
+
+  private final int segmentSize;
+
+  private final int maxSegments;
+
+  private final Map<String, Log> logs = new ConcurrentHashMap<String, Log>();
+
+  private volatile long lastToken = 0;
+
+  /**
+   * @param segmentSize number of changes per segment
+   * @param maxSegments number of full segments above which they are compacted
+   */
+  ChangeTracker(final int segmentSize, final int maxSegments) {
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+  }
+
+  /** Gets the token of the latest change, across all entity sets. */
+  long getLastToken() {
+    return lastToken;
+  }
+
+  /** Starts tracking the changes of an entity set; the current token is the oldest one accepted. */
+  synchronized void track(final String entitySetName) {
+    if (!logs.containsKey(entitySetName)) {
+      logs.put(entitySetName, new Log(lastToken));
+    }
+  }
+
+  boolean isTracked(final String entitySetName) {
+    return logs.containsKey(entitySetName);
+  }
+
+  /** Records an entity change; does nothing if the entity set is not tracked. */
+  synchronized void record(final String entitySetName, final Kind kind, final EntityKey key) {
+    record(entitySetName, kind, key, null, null, null);
+  }
+
+  /**
+   * Records a change; link changes are recorded for the entity set of the link source.
+   * Does nothing if the entity set is not tracked.
+   */
+  synchronized void record(final String entitySetName, final Kind kind, final EntityKey key,
+      final String navigationPropertyName, final String targetEntitySetName, final EntityKey targetKey) {
+    final Log log = logs.get(entitySetName);
+    if (log == null) {
+      return;
+    }
+    final Change change =
+        new Change(lastToken + 1, kind, key, navigationPropertyName, targetEntitySetName, targetKey);
+    List<Segment> segments = log.segments;
+    Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    if (active == null || active.isFull()) {
+      active = new Segment(new Change[segmentSize], 0);
+      segments = new ArrayList<Segment>(segments);
+      segments.add(active);
+      if (segments.size() - 1 > maxSegments) {
+        segments = compact(segments.subList(0, segments.size() - 1), Long.MIN_VALUE, active);
+      }
+      log.segments = Collections.unmodifiableList(segments);
+    }
+    active.changes[active.size] = change;
+    // The volatile write publishes the change to readers.
+    active.size++;
+    lastToken = change.token;
+  }
+
+  /**
+   * Drops the changes up to the given token; changes can no longer be computed for older tokens.
+   * The active segment is kept as it is.
+   */
+  synchronized void expire(final long token) {
+    for (final Log log : logs.values()) {
+      if (token > log.horizon) {
+        // Readers check the horizon after reading the segments, so it has to move first.
+        log.horizon = token;
+        final List<Segment> segments = log.segments;
+        if (segments.size() > 1) {
+          log.segments = Collections.unmodifiableList(
+              compact(segments.subList(0, segments.size() - 1), token, segments.get(segments.size() - 1)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Merges full segments into one, keeping the latest change of each subject newer than <tt>after</tt>,
+   * and appends the given active segment.
+   */
+  private static List<Segment> compact(final List<Segment> full, final long after, final Segment active) {
+    final Map<Object, Long> latest = new HashMap<Object, Long>();
+    for (final Segment segment : full) {
+      for (int i = 0; i < segment.size; i++) {
+        latest.put(segment.changes[i].subject, segment.changes[i].token);
+      }
+    }
+    final List<Change> kept = new ArrayList<Change>(latest.size());
+    for (final Segment segment : full) {
+      for (int i = 0; i < segment.size; i++) {
+        final Change change = segment.changes[i];
+        if (change.token > after && latest.get(change.subject) == change.token) {
+          kept.add(change);
+        }
+      }
+    }
+    final List<Segment> result = new ArrayList<Segment>(2);
+    if (!kept.isEmpty()) {
+      result.add(new Segment(kept.toArray(new Change[kept.size()]), kept.size()));
+    }
+    result.add(active);
+    return result;
+  }
+
+  /**
+   * Gets the latest change of each entity and link of an entity set changed after the token <tt>since</tt>
+   * and up to the token <tt>until</tt>, in the order of the changes.
+   * <br/>
+   * The log is read twice, once to find the latest change of each subject and once, lazily, to return the
+   * changes; only the token of the latest change of each subject is held in memory. A change up to <tt>until</tt>
+   * that a compaction has replaced with a later change of the same subject is not returned: the later change is
+   * returned for the next token.
+   *
+   * @throws ODataApplicationException if the entity set is not tracked or if the changes since the given token
+   * have been expired
+   */
+  Iterator<Change> getChanges(final String entitySetName, final long since, final long until)
+      throws ODataApplicationException {
+    final Log log = logs.get(entitySetName);
+    if (log == null) {
+      throw new ODataApplicationException("Changes of entity set " + entitySetName + " are not tracked",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+    // Read the segments before the horizon; expiration moves the horizon before replacing the segments.
+    final List<Segment> segments = log.segments;
+    if (since < log.horizon || since > lastToken) {
+      throw new ODataApplicationException("The delta token is no longer valid",
+          HttpStatusCode.GONE.getStatusCode(), Locale.ROOT);
+    }
+    final int[] sizes = new int[segments.size()];
+    int first = sizes.length;
+    for (int i = sizes.length - 1; i >= 0; i--) {
+      sizes[i] = segments.get(i).size;
+      if (sizes[i] > 0 && segments.get(i).changes[sizes[i] - 1].token > since) {
+        first = i;
+      }
+    }
+
+    final Map<Object, Long> latest = new HashMap<Object, Long>();
+    for (int i = first; i < sizes.length; i++) {
+      final Change[] changes = segments.get(i).changes;
+      for (int j = 0; j < sizes[i]; j++) {
+        if (changes[j].token > since && changes[j].token <= until) {
+          latest.put(changes[j].subject, changes[j].token);
+        }
+      }
+    }
+
+    final int start = first;
+    return new Iterator<Change>() {
+      private int segment = start;
+      private int position = 0;
+      private Change next = advance();
+
+      private Change advance() {
+        while (segment < sizes.length) {
+          if (position < sizes[segment]) {
+            final Change change = segments.get(segment).changes[position++];
+            final Long token = latest.get(change.subject);
+            if (token != null && token == change.token) {
+              return change;
+            }
+          } else {
+            segment++;
+            position = 0;
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Change next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        final Change change = next;
+        next = advance();
+        return change;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.commons.core.Encoder;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+
+/**
+ * Key of an entity, made of the canonical literal representations of its key property values, so that keys built
+ * from stored entities and keys built from URI parameters compare equal whatever the Java types involved.
+ */
+final class EntityKey implements Comparable<EntityKey> {
+
+  private final String[] values;
+
+  private final int hashCode;
+
+  private EntityKey(final String[] values) {
+    this.values = values;
+    this.hashCode = Arrays.hashCode(values);
+  }
+
+  static EntityKey of(final EdmEntityType type, final Entity entity) throws ODataApplicationException {
+    final List<EdmKeyPropertyRef> refs = type.getKeyPropertyRefs();
+    final String[] values = new String[refs.size()];
+    for (int i = 0; i < values.length; i++) {
+      final EdmKeyPropertyRef ref = refs.get(i);
+      final Property property = findProperty(entity.getProperties(), ref.getName().split("/"), 0);
+      if (property == null || property.isNull()) {
+        throw new ODataApplicationException("Missing value for key property " + ref.getName(),
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+      values[i] = canonical(ref.getProperty(), property.getValue());
+    }
+    return new EntityKey(values);
+  }
+
+  static EntityKey of(final EdmEntityType type, final List<UriParameter> keys) throws ODataApplicationException {
+    final List<EdmKeyPropertyRef> refs = type.getKeyPropertyRefs();
+    final String[] values = new String[refs.size()];
+    for (int i = 0; i < values.length; i++) {
+      final EdmKeyPropertyRef ref = refs.get(i);
+      final UriParameter key = findKey(keys, ref);
+      if (key == null) {
+        throw new ODataApplicationException("Missing value for key property " + ref.getName(),
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+      if (key.getExpression() != null && !(key.getExpression() instanceof Literal)) {
+        throw new ODataApplicationException("Expression in key value is not supported",
+            HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+      }
+      final String text = key.getAlias() == null ? key.getText() : ((Literal) key.getExpression()).getText();
+      final EdmProperty property = ref.getProperty();
+      final EdmPrimitiveType primitiveType = (EdmPrimitiveType) property.getType();
+      try {
+        values[i] = canonical(property, primitiveType.valueOfString(primitiveType.fromUriLiteral(text),
+            property.isNullable(), property.getMaxLength(), property.getPrecision(), property.getScale(),
+            property.isUnicode(), primitiveType.getDefaultType()));
+      } catch (final EdmPrimitiveTypeException e) {
+        throw new ODataApplicationException("Wrong key value for key property " + ref.getName(),
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+      }
+    }
+    return new EntityKey(values);
+  }
+
+  /**
+   * Gets the key predicate of the entity as in its canonical URL, without the parentheses.
+   */
+  String toKeyPredicate(final EdmEntityType type) {
+    final List<EdmKeyPropertyRef> refs = type.getKeyPropertyRefs();
+    final List<String> names = type.getKeyPredicateNames();
+    final StringBuilder result = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        result.append(',');
+      }
+      if (values.length > 1) {
+        result.append(Encoder.encode(names.get(i))).append('=');
+      }
+      result.append(Encoder.encode(((EdmPrimitiveType) refs.get(i).getProperty().getType()).toUriLiteral(values[i])));
+    }
+    return result.toString();
+  }
+
+  private static UriParameter findKey(final List<UriParameter> keys, final EdmKeyPropertyRef ref) {
+    for (final UriParameter key : keys) {
+      if (key.getName().equals(ref.getName()) || key.getName().equals(ref.getAlias())) {
+        return key;
+      }
+    }
+    return null;
+  }
+
+  private static Property findProperty(final List<Property> properties, final String[] path, final int index) {
+    for (final Property property : properties) {
+      if (path[index].equals(property.getName())) {
+        return index == path.length - 1 ? property
+            : property.isComplex() && !property.isNull() ?
+                findProperty(((ComplexValue) property.getValue()).getValue(), path, index + 1) : null;
+      }
+    }
+    return null;
+  }
+
+  private static String canonical(final EdmProperty property, final Object value) throws ODataApplicationException {
+    final EdmPrimitiveType type = (EdmPrimitiveType) property.getType();
+    try {
+      return type.valueToString(value, property.isNullable(), property.getMaxLength(),
+          property.getPrecision(), property.getScale(), property.isUnicode());
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new ODataApplicationException("Wrong value for key property " + property.getName(),
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  @Override
+  public int compareTo(final EntityKey other) {
+    for (int i = 0; i < values.length && i < other.values.length; i++) {
+      final int comparison = values[i].compareTo(other.values[i]);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return values.length - other.values.length;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    return obj instanceof EntityKey && Arrays.equals(values, ((EntityKey) obj).values);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(values);
+  }
+}
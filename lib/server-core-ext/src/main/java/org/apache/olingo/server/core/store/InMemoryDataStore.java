@@ -0,0 +1,1023 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.DeletedEntity.Reason;
+import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaLink;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmEntityContainer;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.commons.core.Encoder;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchExpression;
+import org.apache.olingo.server.core.store.ChangeTracker.Change;
+import org.apache.olingo.server.core.store.ChangeTracker.Kind;
+
+/**
+ * In-memory entity store meant to back a {@link org.apache.olingo.server.core.ServiceHandler} implementation.
+ * <br/>
+ * Entities are kept per entity set in a sorted tree on their key; navigation links are kept in a forward and a
+ * reverse index, so that following a link and removing all the links to a deleted entity do not need to scan any
+ * entity set. Secondary indexes on primitive properties can be added with {@link #addIndex(EdmEntitySet, String)}
+ * and serve equality and range lookups; a full-text {@link SearchIndex} can be added with
+ * {@link #addSearchIndex(EdmEntitySet)} and serves <code>$search</code>. The changes of an entity set can be
+ * tracked with {@link #addChangeTracking(EdmEntitySet)}; {@link #readDelta(EdmEntitySet, String)} then serves the
+ * delta responses for the delta links issued on reads.
+ * <br/>
+ * Reads are lock-free and work on an immutable {@link Snapshot}: all the reads done on the same snapshot see the
+ * same state, whatever the concurrent writes. Writes are serialized; all structures are persistent trees, so a
+ * write copies only the paths to the entries it touches and costs O(log n) per entity, index entry, and link
+ * changed, before publishing a new snapshot. {@link #createAll(EdmEntitySet, Collection)} stores many entities
+ * with a single new snapshot. Stored entities must not be modified by callers.
+ */
+public class InMemoryDataStore {
+
+  /** Reference to a stored entity, across entity sets. */
+  private static final class EntityRef implements Comparable<EntityRef> {
+
+    private final String entitySetName;
+
+    private final EntityKey key;
+
+    private EntityRef(final String entitySetName, final EntityKey key) {
+      this.entitySetName = entitySetName;
+      this.key = key;
+    }
+
+    @Override
+    public int compareTo(final EntityRef other) {
+      final int comparison = entitySetName.compareTo(other.entitySetName);
+      return comparison == 0 ? key.compareTo(other.key) : comparison;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof EntityRef
+          && entitySetName.equals(((EntityRef) obj).entitySetName) && key.equals(((EntityRef) obj).key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * entitySetName.hashCode() + key.hashCode();
+    }
+  }
+
+  /** Source side of a navigation link, as seen from its target. */
+  private static final class LinkSource implements Comparable<LinkSource> {
+
+    private final EntityRef source;
+
+    private final String navigationPropertyName;
+
+    private LinkSource(final EntityRef source, final String navigationPropertyName) {
+      this.source = source;
+      this.navigationPropertyName = navigationPropertyName;
+    }
+
+    @Override
+    public int compareTo(final LinkSource other) {
+      final int comparison = source.compareTo(other.source);
+      return comparison == 0 ? navigationPropertyName.compareTo(other.navigationPropertyName) : comparison;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof LinkSource
+          && source.equals(((LinkSource) obj).source)
+          && navigationPropertyName.equals(((LinkSource) obj).navigationPropertyName);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * source.hashCode() + navigationPropertyName.hashCode();
+    }
+  }
+
+  /** Stored entity with its position in the insertion order of its entity set. */
+  private static final class Row {
+
+    private final long sequence;
+
+    private final EntityKey key;
+
+    private final Entity entity;
+
+    private Row(final long sequence, final EntityKey key, final Entity entity) {
+      this.sequence = sequence;
+      this.key = key;
+      this.entity = entity;
+    }
+  }
+
+  /**
+   * Order of the (normalized) index values: numbers before all other values, ordered by value, with the special
+   * floating-point values, which have no decimal representation, after all other numbers (or, for negative
+   * infinity, before them); the other values by type first, so that values of different types never meet.
+   */
+  private static final Comparator<Object> INDEX_ORDER = new Comparator<Object>() {
+    @Override
+    @SuppressWarnings("unchecked")
+    public int compare(final Object o1, final Object o2) {
+      final boolean number1 = o1 instanceof Number;
+      final boolean number2 = o2 instanceof Number;
+      if (number1 != number2) {
+        return number1 ? -1 : 1;
+      } else if (number1) {
+        final int rank1 = rank(o1);
+        final int rank2 = rank(o2);
+        return rank1 == rank2 && rank1 == 0 ? ((BigDecimal) o1).compareTo((BigDecimal) o2) : rank1 - rank2;
+      } else if (o1.getClass() != o2.getClass()) {
+        return o1.getClass().getName().compareTo(o2.getClass().getName());
+      }
+      return ((Comparable<Object>) o1).compareTo(o2);
+    }
+
+    private int rank(final Object value) {
+      if (value instanceof Double) {
+        final double doubleValue = (Double) value;
+        return doubleValue == Double.NEGATIVE_INFINITY ? -1 : doubleValue == Double.POSITIVE_INFINITY ? 1 : 2;
+      }
+      return 0;
+    }
+  };
+
+  /** Sorted secondary index on a primitive property; never modified once published. */
+  private static final class Index {
+
+    private final String propertyName;
+
+    /** Rows per value, in insertion order. */
+    private final PersistentSortedMap<Object, PersistentSortedMap<Long, Row>> values;
+
+    private final PersistentSortedMap<Long, Row> nulls;
+
+    private Index(final String propertyName, final PersistentSortedMap<Object, PersistentSortedMap<Long, Row>> values,
+        final PersistentSortedMap<Long, Row> nulls) {
+      this.propertyName = propertyName;
+      this.values = values;
+      this.nulls = nulls;
+    }
+
+    private Index(final String propertyName) {
+      this(propertyName, PersistentSortedMap.<Object, PersistentSortedMap<Long, Row>> empty(INDEX_ORDER),
+          PersistentSortedMap.<Long, Row> empty());
+    }
+
+    /** Gets the index with the row added or, with <tt>add</tt> false, removed. */
+    private Index update(final Row row, final boolean add) {
+      final Object value = indexValue(row.entity, propertyName);
+      if (value == null) {
+        return new Index(propertyName, values, add ? nulls.put(row.sequence, row) : nulls.remove(row.sequence));
+      }
+      PersistentSortedMap<Long, Row> rows = values.get(value);
+      if (rows == null) {
+        rows = PersistentSortedMap.empty();
+      }
+      rows = add ? rows.put(row.sequence, row) : rows.remove(row.sequence);
+      return new Index(propertyName, rows.isEmpty() ? values.remove(value) : values.put(value, rows), nulls);
+    }
+  }
+
+  /** Content of an entity set; never modified once published. */
+  private static final class Table {
+
+    private static final Table EMPTY = new Table(PersistentSortedMap.<EntityKey, Row> empty(),
+        PersistentSortedMap.<Long, Row> empty(), Collections.<String, Index> emptyMap(), 0);
+
+    private final PersistentSortedMap<EntityKey, Row> rows;
+
+    /** Rows in insertion order. */
+    private final PersistentSortedMap<Long, Row> order;
+
+    /** Indexes by property name; there are few, so the map is copied when an index changes. */
+    private final Map<String, Index> indexes;
+
+    private final long nextSequence;
+
+    private Table(final PersistentSortedMap<EntityKey, Row> rows, final PersistentSortedMap<Long, Row> order,
+        final Map<String, Index> indexes, final long nextSequence) {
+      this.rows = rows;
+      this.order = order;
+      this.indexes = indexes;
+      this.nextSequence = nextSequence;
+    }
+
+    private Entity get(final EntityKey key) {
+      final Row row = rows.get(key);
+      return row == null ? null : row.entity;
+    }
+
+    /** Gets the table with the entity added, or replacing the entity with the same key at its position. */
+    private Table put(final EntityKey key, final Entity entity) {
+      final Row old = rows.get(key);
+      final Row row = new Row(old == null ? nextSequence : old.sequence, key, entity);
+      final Map<String, Index> updatedIndexes = new HashMap<String, Index>();
+      for (final Map.Entry<String, Index> entry : indexes.entrySet()) {
+        final Index index = old == null ? entry.getValue() : entry.getValue().update(old, false);
+        updatedIndexes.put(entry.getKey(), index.update(row, true));
+      }
+      return new Table(rows.put(key, row), order.put(row.sequence, row), updatedIndexes,
+          old == null ? nextSequence + 1 : nextSequence);
+    }
+
+    private Table remove(final EntityKey key) {
+      final Row old = rows.get(key);
+      if (old == null) {
+        return this;
+      }
+      final Map<String, Index> updatedIndexes = new HashMap<String, Index>();
+      for (final Map.Entry<String, Index> entry : indexes.entrySet()) {
+        updatedIndexes.put(entry.getKey(), entry.getValue().update(old, false));
+      }
+      return new Table(rows.remove(key), order.remove(old.sequence), updatedIndexes, nextSequence);
+    }
+
+    private Table withIndex(final Index index) {
+      final Map<String, Index> updatedIndexes = new HashMap<String, Index>(indexes);
+      updatedIndexes.put(index.propertyName, index);
+      return new Table(rows, order, updatedIndexes, nextSequence);
+    }
+  }
+
+  /**
+   * Immutable, consistent view of the store content at a given point in time.
+   */
+  public static final class Snapshot {
+
+    /** Tables by entity set name; there are few, so the map is copied when a table changes. */
+    private final Map<String, Table> tables;
+
+    private final PersistentSortedMap<EntityRef, PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>>>
+        links;
+
+    private final PersistentSortedMap<EntityRef, PersistentSortedMap<LinkSource, LinkSource>> reverseLinks;
+
+    /** Token of the latest change included. */
+    private final long token;
+
+    private Snapshot(final Map<String, Table> tables,
+        final PersistentSortedMap<EntityRef, PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>>>
+        links,
+        final PersistentSortedMap<EntityRef, PersistentSortedMap<LinkSource, LinkSource>> reverseLinks,
+        final long token) {
+      this.tables = tables;
+      this.links = links;
+      this.reverseLinks = reverseLinks;
+      this.token = token;
+    }
+
+    private Table getTable(final String entitySetName) {
+      final Table table = tables.get(entitySetName);
+      return table == null ? Table.EMPTY : table;
+    }
+
+    private Index getIndex(final EdmEntitySet edmEntitySet, final String propertyName)
+        throws ODataApplicationException {
+      final Index index = getTable(edmEntitySet.getName()).indexes.get(propertyName);
+      if (index == null) {
+        throw new ODataApplicationException("No index on property " + propertyName
+            + " of entity set " + edmEntitySet.getName(),
+            HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+      }
+      return index;
+    }
+
+    private static EntityCollection toCollection(final Iterable<PersistentSortedMap<Long, Row>> rowSets) {
+      final EntityCollection entitySet = new EntityCollection();
+      for (final PersistentSortedMap<Long, Row> rows : rowSets) {
+        for (final Row row : rows.values()) {
+          entitySet.getEntities().add(row.entity);
+        }
+      }
+      return entitySet;
+    }
+
+    /**
+     * Gets all the entities of an entity set, in insertion order.
+     */
+    public EntityCollection readAll(final EdmEntitySet edmEntitySet) {
+      final EntityCollection entitySet = new EntityCollection();
+      for (final Row row : getTable(edmEntitySet.getName()).order.values()) {
+        entitySet.getEntities().add(row.entity);
+      }
+      return entitySet;
+    }
+
+    /**
+     * Gets an entity by its key.
+     *
+     * @return the entity, or <tt>null</tt> if there is no entity with the given key
+     */
+    public Entity read(final EdmEntitySet edmEntitySet, final List<UriParameter> keys)
+        throws ODataApplicationException {
+      return getTable(edmEntitySet.getName()).get(EntityKey.of(edmEntitySet.getEntityType(), keys));
+    }
+
+    /**
+     * Gets the entities whose indexed property has the given value, in insertion order.
+     * <br/>
+     * Numeric values compare by value whatever their Java type; date and time values compare by instant.
+     * Values of another type than the indexed ones, e.g., a number for a string property, match nothing.
+     *
+     * @param value value to look for, or <tt>null</tt> to look for entities without value
+     */
+    public EntityCollection findEqual(final EdmEntitySet edmEntitySet, final String propertyName,
+        final Object value) throws ODataApplicationException {
+      final Index index = getIndex(edmEntitySet, propertyName);
+      final PersistentSortedMap<Long, Row> rows = value == null ? index.nulls : index.values.get(normalize(value));
+      return toCollection(rows == null ?
+          Collections.<PersistentSortedMap<Long, Row>> emptyList() : Collections.singletonList(rows));
+    }
+
+    /**
+     * Gets the entities whose indexed property lies in the given range, in ascending order of that property.
+     * Entities without value are never part of the result.
+     *
+     * @param from lower bound, or <tt>null</tt> for no lower bound
+     * @param to upper bound, or <tt>null</tt> for no upper bound
+     */
+    public EntityCollection findRange(final EdmEntitySet edmEntitySet, final String propertyName,
+        final Object from, final boolean fromInclusive, final Object to, final boolean toInclusive)
+        throws ODataApplicationException {
+      final List<PersistentSortedMap<Long, Row>> rowSets = new ArrayList<PersistentSortedMap<Long, Row>>();
+      for (final Map.Entry<Object, PersistentSortedMap<Long, Row>> entry : getIndex(edmEntitySet, propertyName)
+          .values.range(from == null ? null : normalize(from), fromInclusive,
+              to == null ? null : normalize(to), toInclusive)) {
+        rowSets.add(entry.getValue());
+      }
+      return toCollection(rowSets);
+    }
+
+    /**
+     * Gets the entities linked to an entity through a navigation property, in the order of their keys.
+     */
+    public EntityCollection readRelated(final EdmEntitySet edmEntitySet, final Entity entity,
+        final EdmNavigationProperty navigationProperty) throws ODataApplicationException {
+      final EntityCollection entitySet = new EntityCollection();
+      final PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>> sourceLinks =
+          links.get(new EntityRef(edmEntitySet.getName(), EntityKey.of(edmEntitySet.getEntityType(), entity)));
+      final PersistentSortedMap<EntityRef, EntityRef> targets =
+          sourceLinks == null ? null : sourceLinks.get(navigationProperty.getName());
+      if (targets != null) {
+        for (final EntityRef target : targets.values()) {
+          entitySet.getEntities().add(getTable(target.entitySetName).get(target.key));
+        }
+      }
+      return entitySet;
+    }
+
+    /**
+     * Gets the number of entities in an entity set.
+     */
+    public int size(final EdmEntitySet edmEntitySet) {
+      return getTable(edmEntitySet.getName()).rows.size();
+    }
+  }
+
+  /**
+   * Store content being modified by a write; published as a new snapshot once the write is complete.
+   * The tables, links, and search index changes are applied to copies; the change log is written directly,
+   * so each change must be checked before it is recorded.
+   */
+  private final class Draft {
+
+    private final Map<String, Table> tables;
+
+    private PersistentSortedMap<EntityRef, PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>>>
+        links;
+
+    private PersistentSortedMap<EntityRef, PersistentSortedMap<LinkSource, LinkSource>> reverseLinks;
+
+    /** Changes for the full-text indexes, with <tt>null</tt> for deleted entities. */
+    private final Map<EntityRef, Entity> searchUpdates = new LinkedHashMap<EntityRef, Entity>();
+
+    private Draft(final Snapshot base) {
+      tables = new HashMap<String, Table>(base.tables);
+      links = base.links;
+      reverseLinks = base.reverseLinks;
+    }
+
+    private Table getTable(final String entitySetName) {
+      final Table table = tables.get(entitySetName);
+      return table == null ? Table.EMPTY : table;
+    }
+
+    private void checkNew(final EdmEntitySet edmEntitySet, final EntityKey key) throws ODataApplicationException {
+      if (getTable(edmEntitySet.getName()).rows.containsKey(key)) {
+        throw new ODataApplicationException("Entity with key " + key + " already exists",
+            HttpStatusCode.CONFLICT.getStatusCode(), Locale.ROOT);
+      }
+    }
+
+    private void create(final EdmEntitySet edmEntitySet, final EntityKey key, final Entity entity) {
+      tables.put(edmEntitySet.getName(), getTable(edmEntitySet.getName()).put(key, entity));
+      changeTracker.record(edmEntitySet.getName(), Kind.ENTITY_CHANGED, key);
+      searchUpdates.put(new EntityRef(edmEntitySet.getName(), key), entity);
+    }
+
+    private Entity update(final EdmEntitySet edmEntitySet, final List<UriParameter> keys, final Entity entity,
+        final boolean merge) throws ODataApplicationException {
+      final EntityKey key = EntityKey.of(edmEntitySet.getEntityType(), keys);
+      final Entity old = getTable(edmEntitySet.getName()).get(key);
+      if (old == null) {
+        throw new ODataApplicationException("Entity with key " + key + " not found",
+            HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ROOT);
+      }
+      final Entity updated = merge ? merge(old, entity) : copy(entity);
+      updated.setETag(newETag());
+      if (!key.equals(EntityKey.of(edmEntitySet.getEntityType(), updated))) {
+        throw new ODataApplicationException("Key properties must not be changed",
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+      tables.put(edmEntitySet.getName(), getTable(edmEntitySet.getName()).put(key, updated));
+      changeTracker.record(edmEntitySet.getName(), Kind.ENTITY_CHANGED, key);
+      searchUpdates.put(new EntityRef(edmEntitySet.getName(), key), updated);
+      return updated;
+    }
+
+    private void delete(final EdmEntitySet edmEntitySet, final List<UriParameter> keys)
+        throws ODataApplicationException {
+      final EntityKey key = EntityKey.of(edmEntitySet.getEntityType(), keys);
+      if (!getTable(edmEntitySet.getName()).rows.containsKey(key)) {
+        throw new ODataApplicationException("Entity with key " + key + " not found",
+            HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ROOT);
+      }
+      tables.put(edmEntitySet.getName(), getTable(edmEntitySet.getName()).remove(key));
+
+      final EntityRef ref = new EntityRef(edmEntitySet.getName(), key);
+      final PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>> outgoing = links.get(ref);
+      if (outgoing != null) {
+        for (final Map.Entry<String, PersistentSortedMap<EntityRef, EntityRef>> entry : outgoing.entries()) {
+          for (final EntityRef target : entry.getValue().values()) {
+            removeReverse(target, new LinkSource(ref, entry.getKey()));
+          }
+        }
+        links = links.remove(ref);
+      }
+      final PersistentSortedMap<LinkSource, LinkSource> incoming = reverseLinks.get(ref);
+      if (incoming != null) {
+        for (final LinkSource source : incoming.values()) {
+          removeForward(source.source, source.navigationPropertyName, ref);
+          recordLink(Kind.LINK_DELETED, source.source, source.navigationPropertyName, ref);
+        }
+        reverseLinks = reverseLinks.remove(ref);
+      }
+      changeTracker.record(edmEntitySet.getName(), Kind.ENTITY_DELETED, key);
+      searchUpdates.put(ref, null);
+    }
+
+    private void addLink(final EntityRef source, final EdmNavigationProperty navigationProperty,
+        final EntityRef target) {
+      final String name = navigationProperty.getName();
+      if (!navigationProperty.isCollection()) {
+        final PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>> outgoing = links.get(source);
+        final PersistentSortedMap<EntityRef, EntityRef> targets = outgoing == null ? null : outgoing.get(name);
+        if (targets != null) {
+          for (final EntityRef old : targets.values()) {
+            removeForward(source, name, old);
+            removeReverse(old, new LinkSource(source, name));
+            if (!old.equals(target)) {
+              recordLink(Kind.LINK_DELETED, source, name, old);
+            }
+          }
+        }
+      }
+
+      PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>> outgoing = links.get(source);
+      if (outgoing == null) {
+        outgoing = PersistentSortedMap.empty();
+      }
+      PersistentSortedMap<EntityRef, EntityRef> targets = outgoing.get(name);
+      if (targets == null) {
+        targets = PersistentSortedMap.empty();
+      }
+      links = links.put(source, outgoing.put(name, targets.put(target, target)));
+
+      PersistentSortedMap<LinkSource, LinkSource> sources = reverseLinks.get(target);
+      if (sources == null) {
+        sources = PersistentSortedMap.empty();
+      }
+      final LinkSource linkSource = new LinkSource(source, name);
+      reverseLinks = reverseLinks.put(target, sources.put(linkSource, linkSource));
+
+      recordLink(Kind.LINK_ADDED, source, name, target);
+    }
+
+    private void removeLink(final EntityRef source, final String name, final EntityRef target) {
+      final PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>> outgoing = links.get(source);
+      final PersistentSortedMap<EntityRef, EntityRef> targets = outgoing == null ? null : outgoing.get(name);
+      if (targets == null) {
+        return;
+      }
+      final List<EntityRef> removed = new ArrayList<EntityRef>();
+      if (target == null) {
+        for (final EntityRef targetRef : targets.values()) {
+          removed.add(targetRef);
+        }
+      } else if (targets.containsKey(target)) {
+        removed.add(target);
+      }
+      for (final EntityRef targetRef : removed) {
+        removeForward(source, name, targetRef);
+        removeReverse(targetRef, new LinkSource(source, name));
+        recordLink(Kind.LINK_DELETED, source, name, targetRef);
+      }
+    }
+
+    private EntityRef getExisting(final EdmEntitySet edmEntitySet, final Entity entity)
+        throws ODataApplicationException {
+      final EntityKey key = EntityKey.of(edmEntitySet.getEntityType(), entity);
+      if (!getTable(edmEntitySet.getName()).rows.containsKey(key)) {
+        throw new ODataApplicationException("Entity with key " + key + " not found",
+            HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ROOT);
+      }
+      return new EntityRef(edmEntitySet.getName(), key);
+    }
+
+    private void removeForward(final EntityRef source, final String name, final EntityRef target) {
+      final PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>> outgoing = links.get(source);
+      final PersistentSortedMap<EntityRef, EntityRef> targets = outgoing == null ? null : outgoing.get(name);
+      if (targets != null) {
+        final PersistentSortedMap<EntityRef, EntityRef> updatedTargets = targets.remove(target);
+        final PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>> updated =
+            updatedTargets.isEmpty() ? outgoing.remove(name) : outgoing.put(name, updatedTargets);
+        links = updated.isEmpty() ? links.remove(source) : links.put(source, updated);
+      }
+    }
+
+    private void removeReverse(final EntityRef target, final LinkSource source) {
+      final PersistentSortedMap<LinkSource, LinkSource> sources = reverseLinks.get(target);
+      if (sources != null) {
+        final PersistentSortedMap<LinkSource, LinkSource> updated = sources.remove(source);
+        reverseLinks = updated.isEmpty() ? reverseLinks.remove(target) : reverseLinks.put(target, updated);
+      }
+    }
+
+    /** Publishes the modified content as the new snapshot of the store. */
+    private void publish() {
+      snapshot = new Snapshot(tables, links, reverseLinks, changeTracker.getLastToken());
+      for (final Map.Entry<EntityRef, Entity> update : searchUpdates.entrySet()) {
+        final SearchIndex<EntityKey> searchIndex = searchIndexes.get(update.getKey().entitySetName);
+        if (searchIndex != null) {
+          if (update.getValue() == null) {
+            searchIndex.remove(update.getKey().key);
+          } else {
+            searchIndex.put(update.getKey().key, update.getValue());
+          }
+        }
+      }
+    }
+  }
+
+  private volatile Snapshot snapshot = new Snapshot(Collections.<String, Table> emptyMap(),
+      PersistentSortedMap.<EntityRef, PersistentSortedMap<String, PersistentSortedMap<EntityRef, EntityRef>>> empty(),
+      PersistentSortedMap.<EntityRef, PersistentSortedMap<LinkSource, LinkSource>> empty(), 0);
+
+  private final Map<String, SearchIndex<EntityKey>> searchIndexes =
+      new ConcurrentHashMap<String, SearchIndex<EntityKey>>();
+
+  private final ChangeTracker changeTracker = new ChangeTracker(1024, 16);
+
+  /** Number of ETags issued for updated entities; changed only while writing. */
+  private long etagCounter = 0;
+
+  /**
+   * Gets the current state of the store; later writes are not visible in the returned snapshot.
+   */
+  public Snapshot snapshot() {
+    return snapshot;
+  }
+
+  public EntityCollection readAll(final EdmEntitySet edmEntitySet) {
+    return snapshot.readAll(edmEntitySet);
+  }
+
+  /**
+   * Gets all the entities of an entity set, in insertion order. If requested and if the changes of the entity
+   * set are tracked, the result carries a delta link for {@link #readDelta(EdmEntitySet, String)}.
+   */
+  public EntityCollection readAll(final EdmEntitySet edmEntitySet, final boolean trackChanges) {
+    final Snapshot current = snapshot;
+    final EntityCollection entitySet = current.readAll(edmEntitySet);
+    if (trackChanges && changeTracker.isTracked(edmEntitySet.getName())) {
+      entitySet.setDeltaLink(deltaLink(edmEntitySet, current.token));
+    }
+    return entitySet;
+  }
+
+  public Entity read(final EdmEntitySet edmEntitySet, final List<UriParameter> keys)
+      throws ODataApplicationException {
+    return snapshot.read(edmEntitySet, keys);
+  }
+
+  public EntityCollection findEqual(final EdmEntitySet edmEntitySet, final String propertyName,
+      final Object value) throws ODataApplicationException {
+    return snapshot.findEqual(edmEntitySet, propertyName, value);
+  }
+
+  public EntityCollection findRange(final EdmEntitySet edmEntitySet, final String propertyName,
+      final Object from, final boolean fromInclusive, final Object to, final boolean toInclusive)
+      throws ODataApplicationException {
+    return snapshot.findRange(edmEntitySet, propertyName, from, fromInclusive, to, toInclusive);
+  }
+
+  public EntityCollection readRelated(final EdmEntitySet edmEntitySet, final Entity entity,
+      final EdmNavigationProperty navigationProperty) throws ODataApplicationException {
+    return snapshot.readRelated(edmEntitySet, entity, navigationProperty);
+  }
+
+  /**
+   * Gets the entities of an entity set matching a <code>$search</code> expression, in no particular order.
+   * <br/>
+   * The full-text index is not part of the snapshots: the search sees all completed writes, and the entities
+   * are read from the current snapshot.
+   *
+   * @throws ODataApplicationException if there is no full-text index on the entity set
+   */
+  public EntityCollection search(final EdmEntitySet edmEntitySet, final SearchExpression searchExpression)
+      throws ODataApplicationException {
+    final SearchIndex<EntityKey> searchIndex = searchIndexes.get(edmEntitySet.getName());
+    if (searchIndex == null) {
+      throw new ODataApplicationException("No full-text index on entity set " + edmEntitySet.getName(),
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+    }
+    final Set<EntityKey> keys = searchIndex.search(searchExpression);
+    final Table table = snapshot.getTable(edmEntitySet.getName());
+    final EntityCollection entitySet = new EntityCollection();
+    for (final EntityKey key : keys) {
+      final Entity entity = table.get(key);
+      if (entity != null) {
+        entitySet.getEntities().add(entity);
+      }
+    }
+    return entitySet;
+  }
+
+  /**
+   * Adds a full-text index on an entity set, covering the entities already stored.
+   */
+  public synchronized void addSearchIndex(final EdmEntitySet edmEntitySet) {
+    if (!searchIndexes.containsKey(edmEntitySet.getName())) {
+      final SearchIndex<EntityKey> searchIndex = new SearchIndex<EntityKey>();
+      for (final Row row : snapshot.getTable(edmEntitySet.getName()).order.values()) {
+        searchIndex.put(row.key, row.entity);
+      }
+      searchIndexes.put(edmEntitySet.getName(), searchIndex);
+    }
+  }
+
+  /**
+   * Starts tracking the changes of an entity set: entity changes and deletions, and added and removed links from
+   * its entities.
+   */
+  public synchronized void addChangeTracking(final EdmEntitySet edmEntitySet) {
+    changeTracker.track(edmEntitySet.getName());
+  }
+
+  /**
+   * Gets the changes of a tracked entity set since the read that issued the given delta token, together with a
+   * delta link for the changes to come.
+   * <br/>
+   * Only the latest change of each entity and link is part of the result; changed entities are read from the
+   * current snapshot. The change log is iterated without being copied, but the returned {@link Delta} is built
+   * completely in memory, with one entry per changed entity and link since the token; use
+   * {@link #expireChanges(String)} to bound the number of changes a delta can contain.
+   *
+   * @throws ODataApplicationException if the token is not valid, if the changes since the token have been expired
+   * with {@link #expireChanges(String)}, or if the changes of the entity set are not tracked
+   */
+  public Delta readDelta(final EdmEntitySet edmEntitySet, final String deltaToken)
+      throws ODataApplicationException {
+    final Snapshot current = snapshot;
+    final Iterator<Change> changes =
+        changeTracker.getChanges(edmEntitySet.getName(), parseToken(deltaToken), current.token);
+    final Table table = current.getTable(edmEntitySet.getName());
+    final EdmEntityContainer container = edmEntitySet.getEntityContainer();
+    final Delta delta = new Delta();
+    while (changes.hasNext()) {
+      final Change change = changes.next();
+      final Entity entity = change.getKind() == Kind.ENTITY_CHANGED ? table.get(change.getKey()) : null;
+      if (entity != null) {
+        delta.getEntities().add(entity);
+      } else if (change.getKind() == Kind.ENTITY_CHANGED || change.getKind() == Kind.ENTITY_DELETED) {
+        final DeletedEntity deletedEntity = new DeletedEntity();
+        deletedEntity.setId(entityId(edmEntitySet, change.getKey()));
+        deletedEntity.setReason(Reason.deleted);
+        delta.getDeletedEntities().add(deletedEntity);
+      } else {
+        final DeltaLink link = new DeltaLink();
+        link.setSource(entityId(edmEntitySet, change.getKey()));
+        link.setRelationship(change.getNavigationPropertyName());
+        link.setTarget(entityId(container.getEntitySet(change.getTargetEntitySetName()), change.getTargetKey()));
+        (change.getKind() == Kind.LINK_ADDED ? delta.getAddedLinks() : delta.getDeletedLinks()).add(link);
+      }
+    }
+    delta.setDeltaLink(deltaLink(edmEntitySet, current.token));
+    return delta;
+  }
+
+  /**
+   * Drops the tracked changes up to the given delta token, to bound the memory used by the change log.
+   * Delta links issued before the given token can no longer be served.
+   */
+  public void expireChanges(final String deltaToken) throws ODataApplicationException {
+    changeTracker.expire(parseToken(deltaToken));
+  }
+
+  private static long parseToken(final String deltaToken) throws ODataApplicationException {
+    try {
+      return Long.parseLong(deltaToken);
+    } catch (final NumberFormatException e) {
+      throw new ODataApplicationException("Wrong delta token " + deltaToken,
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  private static URI deltaLink(final EdmEntitySet edmEntitySet, final long token) {
+    return URI.create(Encoder.encode(edmEntitySet.getName()) + '?'
+        + SystemQueryOptionKind.DELTATOKEN + '=' + token);
+  }
+
+  private static URI entityId(final EdmEntitySet edmEntitySet, final EntityKey key) {
+    return URI.create(Encoder.encode(edmEntitySet.getName())
+        + '(' + key.toKeyPredicate(edmEntitySet.getEntityType()) + ')');
+  }
+
+  /**
+   * Adds a secondary index on a primitive property of an entity set, covering the entities already stored.
+   */
+  public synchronized void addIndex(final EdmEntitySet edmEntitySet, final String propertyName) {
+    final Draft draft = new Draft(snapshot);
+    final Table table = draft.getTable(edmEntitySet.getName());
+    if (!table.indexes.containsKey(propertyName)) {
+      Index index = new Index(propertyName);
+      for (final Row row : table.order.values()) {
+        index = index.update(row, true);
+      }
+      draft.tables.put(edmEntitySet.getName(), table.withIndex(index));
+      draft.publish();
+    }
+  }
+
+  /**
+   * Stores a new entity.
+   *
+   * @throws ODataApplicationException if an entity with the same key already exists
+   */
+  public synchronized void create(final EdmEntitySet edmEntitySet, final Entity entity)
+      throws ODataApplicationException {
+    final Draft draft = new Draft(snapshot);
+    final EntityKey key = EntityKey.of(edmEntitySet.getEntityType(), entity);
+    draft.checkNew(edmEntitySet, key);
+    draft.create(edmEntitySet, key, entity);
+    draft.publish();
+  }
+
+  /**
+   * Stores new entities with a single write, for example to load initial data: concurrent reads see either none
+   * or all of them.
+   *
+   * @throws ODataApplicationException if two of the entities have the same key or if an entity with the key of one
+   * of them already exists; then none of them is stored
+   */
+  public synchronized void createAll(final EdmEntitySet edmEntitySet, final Collection<Entity> entities)
+      throws ODataApplicationException {
+    final Draft draft = new Draft(snapshot);
+    final List<EntityKey> keys = new ArrayList<EntityKey>(entities.size());
+    final Set<EntityKey> newKeys = new HashSet<EntityKey>();
+    for (final Entity entity : entities) {
+      final EntityKey key = EntityKey.of(edmEntitySet.getEntityType(), entity);
+      draft.checkNew(edmEntitySet, key);
+      if (!newKeys.add(key)) {
+        throw new ODataApplicationException("Entity with key " + key + " is to be created twice",
+            HttpStatusCode.CONFLICT.getStatusCode(), Locale.ROOT);
+      }
+      keys.add(key);
+    }
+    final Iterator<EntityKey> keyIterator = keys.iterator();
+    for (final Entity entity : entities) {
+      draft.create(edmEntitySet, keyIterator.next(), entity);
+    }
+    draft.publish();
+  }
+
+  /**
+   * Replaces a stored entity, or merges the given properties into it. A merge keeps everything of the stored
+   * entity that is not changed, like its media information and annotations, and merges complex properties
+   * recursively. Either way, the entity now stored is a copy with a new ETag; the given entity is not modified.
+   *
+   * @param merge whether properties absent from <tt>entity</tt> keep their stored value
+   * @return the entity now stored
+   * @throws ODataApplicationException if the entity does not exist or if the key would change
+   */
+  public synchronized Entity update(final EdmEntitySet edmEntitySet, final List<UriParameter> keys,
+      final Entity entity, final boolean merge) throws ODataApplicationException {
+    final Draft draft = new Draft(snapshot);
+    final Entity updated = draft.update(edmEntitySet, keys, entity, merge);
+    draft.publish();
+    return updated;
+  }
+
+  /** Gets a new ETag for an updated entity; called only while writing. */
+  private String newETag() {
+    return "W/\"" + ++etagCounter + '"';
+  }
+
+  /**
+   * Copies an entity. The copy shares the properties, links, and annotations, which are never modified,
+   * but has its own lists of them.
+   */
+  private static Entity copy(final Entity entity) {
+    final Entity copy = new Entity();
+    copy.setBaseURI(entity.getBaseURI());
+    copy.setId(entity.getId());
+    if (entity.getTitle() != null) {
+      copy.setCommonProperty("title", entity.getTitle());
+    }
+    copy.setType(entity.getType());
+    copy.setETag(entity.getETag());
+    copy.setSelfLink(entity.getSelfLink());
+    copy.setEditLink(entity.getEditLink());
+    copy.getMediaEditLinks().addAll(entity.getMediaEditLinks());
+    copy.setMediaContentType(entity.getMediaContentType());
+    copy.setMediaContentSource(entity.getMediaContentSource());
+    copy.setMediaETag(entity.getMediaETag());
+    copy.getOperations().addAll(entity.getOperations());
+    copy.getAssociationLinks().addAll(entity.getAssociationLinks());
+    copy.getNavigationLinks().addAll(entity.getNavigationLinks());
+    copy.getNavigationBindings().addAll(entity.getNavigationBindings());
+    copy.getAnnotations().addAll(entity.getAnnotations());
+    copy.getProperties().addAll(entity.getProperties());
+    return copy;
+  }
+
+  /**
+   * Merges changes into a copy of a stored entity: changed properties are replaced, with complex values merged
+   * recursively, and changed navigation bindings are replaced; everything else is kept.
+   */
+  private static Entity merge(final Entity old, final Entity changes) {
+    final Entity merged = copy(old);
+    mergeProperties(merged.getProperties(), changes.getProperties());
+    for (final Link binding : changes.getNavigationBindings()) {
+      final Link existing = merged.getNavigationBinding(binding.getTitle());
+      if (existing != null) {
+        merged.getNavigationBindings().remove(existing);
+      }
+      merged.getNavigationBindings().add(binding);
+    }
+    return merged;
+  }
+
+  private static void mergeProperties(final List<Property> properties, final List<Property> changes) {
+    for (final Property change : changes) {
+      int index = 0;
+      while (index < properties.size() && !properties.get(index).getName().equals(change.getName())) {
+        index++;
+      }
+      if (index == properties.size()) {
+        properties.add(change);
+      } else {
+        final Property property = properties.get(index);
+        properties.set(index, property.isComplex() && change.isComplex() && !property.isNull() && !change.isNull() ?
+            mergeComplex(property, change) : change);
+      }
+    }
+  }
+
+  private static Property mergeComplex(final Property property, final Property change) {
+    final ComplexValue old = property.asComplex();
+    final ComplexValue merged = new ComplexValue();
+    merged.getValue().addAll(old.getValue());
+    mergeProperties(merged.getValue(), change.asComplex().getValue());
+    merged.getAssociationLinks().addAll(old.getAssociationLinks());
+    merged.getNavigationLinks().addAll(old.getNavigationLinks());
+    merged.getNavigationBindings().addAll(old.getNavigationBindings());
+    merged.getAnnotations().addAll(old.getAnnotations());
+    final Property result = new Property(change.getType() == null ? property.getType() : change.getType(),
+        change.getName(), ValueType.COMPLEX, merged);
+    result.getAnnotations().addAll(property.getAnnotations());
+    return result;
+  }
+
+  /**
+   * Removes an entity, together with all the links from and to it.
+   *
+   * @throws ODataApplicationException if the entity does not exist
+   */
+  public synchronized void delete(final EdmEntitySet edmEntitySet, final List<UriParameter> keys)
+      throws ODataApplicationException {
+    final Draft draft = new Draft(snapshot);
+    draft.delete(edmEntitySet, keys);
+    draft.publish();
+  }
+
+  /**
+   * Links two stored entities through a navigation property. For a single-valued navigation property, any
+   * existing link is replaced.
+   *
+   * @throws ODataApplicationException if one of the entities does not exist
+   */
+  public synchronized void addLink(final EdmEntitySet edmEntitySet, final Entity entity,
+      final EdmNavigationProperty navigationProperty, final EdmEntitySet targetEntitySet, final Entity target)
+      throws ODataApplicationException {
+    final Draft draft = new Draft(snapshot);
+    final EntityRef source = draft.getExisting(edmEntitySet, entity);
+    final EntityRef targetRef = draft.getExisting(targetEntitySet, target);
+    draft.addLink(source, navigationProperty, targetRef);
+    draft.publish();
+  }
+
+  /**
+   * Removes the link between two entities, or all the links of the navigation property if <tt>target</tt> is
+   * <tt>null</tt>.
+   */
+  public synchronized void removeLink(final EdmEntitySet edmEntitySet, final Entity entity,
+      final EdmNavigationProperty navigationProperty, final EdmEntitySet targetEntitySet, final Entity target)
+      throws ODataApplicationException {
+    final Draft draft = new Draft(snapshot);
+    final EntityRef source = draft.getExisting(edmEntitySet, entity);
+    draft.removeLink(source, navigationProperty.getName(), target == null ? null :
+        new EntityRef(targetEntitySet.getName(), EntityKey.of(targetEntitySet.getEntityType(), target)));
+    draft.publish();
+  }
+
+  private void recordLink(final Kind kind, final EntityRef source, final String navigationPropertyName,
+      final EntityRef target) {
+    changeTracker.record(source.entitySetName, kind, source.key,
+        navigationPropertyName, target.entitySetName, target.key);
+  }
+
+  private static Object indexValue(final Entity entity, final String propertyName) {
+    final Property property = entity.getProperty(propertyName);
+    return property == null || property.isNull() ? null : normalize(property.getValue());
+  }
+
+  /**
+   * Normalizes numbers to decimals, with the special floating-point values kept as doubles, date and time values
+   * to a {@link Date} with their instant, and binary values to a {@link ByteBuffer}.
+   */
+  private static Object normalize(final Object value) {
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).stripTrailingZeros();
+    } else if ((value instanceof Double || value instanceof Float)
+        && (Double.isNaN(((Number) value).doubleValue()) || Double.isInfinite(((Number) value).doubleValue()))) {
+      return ((Number) value).doubleValue();
+    } else if (value instanceof Number) {
+      return new BigDecimal(value.toString()).stripTrailingZeros();
+    } else if (value instanceof Calendar) {
+      return new Date(((Calendar) value).getTimeInMillis());
+    } else if (value instanceof Date) {
+      return value.getClass() == Date.class ? value : new Date(((Date) value).getTime());
+    } else if (value instanceof byte[]) {
+      return ByteBuffer.wrap((byte[]) value);
+    } else {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sorted map, implemented as an AVL tree.
+ * <br/>
+ * The modifying operations return a new map that shares all unchanged nodes with this one: only the path from the
+ * root to the modified node is copied, so that they cost O(log n) time and space and the old map stays valid.
+ */
+final class PersistentSortedMap<K, V> {
+
+  private static final class Node<K, V> implements Map.Entry<K, V> {
+
+    private final K key;
+
+    private final V value;
+
+    private final Node<K, V> left;
+
+    private final Node<K, V> right;
+
+    private final int height;
+
+    private final int size;
+
+    private Node(final K key, final V value, final Node<K, V> left, final Node<K, V> right) {
+      this.key = key;
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      height = 1 + Math.max(height(left), height(right));
+      size = 1 + size(left) + size(right);
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(final V value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final Comparator NATURAL_ORDER = new Comparator<Comparable<Object>>() {
+    @Override
+    public int compare(final Comparable<Object> o1, final Comparable<Object> o2) {
+      return o1.compareTo(o2);
+    }
+  };
+
+  private final Comparator<? super K> comparator;
+
+  private final Node<K, V> root;
+
+  private PersistentSortedMap(final Comparator<? super K> comparator, final Node<K, V> root) {
+    this.comparator = comparator;
+    this.root = root;
+  }
+
+  /** Gets an empty map ordered by the natural order of its keys. */
+  @SuppressWarnings("unchecked")
+  static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+    return new PersistentSortedMap<K, V>(NATURAL_ORDER, null);
+  }
+
+  /** Gets an empty map ordered by the given comparator. */
+  static <K, V> PersistentSortedMap<K, V> empty(final Comparator<? super K> comparator) {
+    return new PersistentSortedMap<K, V>(comparator, null);
+  }
+
+  int size() {
+    return size(root);
+  }
+
+  boolean isEmpty() {
+    return root == null;
+  }
+
+  V get(final K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      final int comparison = comparator.compare(key, node.key);
+      if (comparison == 0) {
+        return node.value;
+      }
+      node = comparison < 0 ? node.left : node.right;
+    }
+    return null;
+  }
+
+  boolean containsKey(final K key) {
+    return get(key) != null;
+  }
+
+  /** Gets a map with the given mapping added or replaced; the value must not be <tt>null</tt>. */
+  PersistentSortedMap<K, V> put(final K key, final V value) {
+    final Node<K, V> newRoot = put(root, key, value);
+    return newRoot == root ? this : new PersistentSortedMap<K, V>(comparator, newRoot);
+  }
+
+  /** Gets a map without the mapping of the given key. */
+  PersistentSortedMap<K, V> remove(final K key) {
+    final Node<K, V> newRoot = remove(root, key);
+    return newRoot == root ? this : new PersistentSortedMap<K, V>(comparator, newRoot);
+  }
+
+  /** Gets the mappings in ascending key order. */
+  Iterable<Map.Entry<K, V>> entries() {
+    return range(null, false, null, false);
+  }
+
+  /**
+   * Gets the mappings with keys in the given range, in ascending key order.
+   * @param from lower bound, or <tt>null</tt> for no lower bound
+   * @param to upper bound, or <tt>null</tt> for no upper bound
+   */
+  Iterable<Map.Entry<K, V>> range(final K from, final boolean fromInclusive, final K to, final boolean toInclusive) {
+    return new Iterable<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new RangeIterator(from, fromInclusive, to, toInclusive);
+      }
+    };
+  }
+
+  /** Gets the values in ascending key order. */
+  Iterable<V> values() {
+    return new Iterable<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        final Iterator<Map.Entry<K, V>> entries = entries().iterator();
+        return new Iterator<V>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public V next() {
+            return entries.next().getValue();
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  private Node<K, V> put(final Node<K, V> node, final K key, final V value) {
+    if (node == null) {
+      return new Node<K, V>(key, value, null, null);
+    }
+    final int comparison = comparator.compare(key, node.key);
+    if (comparison < 0) {
+      return balance(node.key, node.value, put(node.left, key, value), node.right);
+    } else if (comparison > 0) {
+      return balance(node.key, node.value, node.left, put(node.right, key, value));
+    } else {
+      return node.value == value ? node : new Node<K, V>(key, value, node.left, node.right);
+    }
+  }
+
+  private Node<K, V> remove(final Node<K, V> node, final K key) {
+    if (node == null) {
+      return null;
+    }
+    final int comparison = comparator.compare(key, node.key);
+    if (comparison < 0) {
+      final Node<K, V> left = remove(node.left, key);
+      return left == node.left ? node : balance(node.key, node.value, left, node.right);
+    } else if (comparison > 0) {
+      final Node<K, V> right = remove(node.right, key);
+      return right == node.right ? node : balance(node.key, node.value, node.left, right);
+    } else if (node.left == null) {
+      return node.right;
+    } else if (node.right == null) {
+      return node.left;
+    } else {
+      Node<K, V> min = node.right;
+      while (min.left != null) {
+        min = min.left;
+      }
+      return balance(min.key, min.value, node.left, removeMin(node.right));
+    }
+  }
+
+  private Node<K, V> removeMin(final Node<K, V> node) {
+    return node.left == null ? node.right : balance(node.key, node.value, removeMin(node.left), node.right);
+  }
+
+  private Node<K, V> balance(final K key, final V value, final Node<K, V> left, final Node<K, V> right) {
+    if (height(left) > height(right) + 1) {
+      if (height(left.left) >= height(left.right)) {
+        return new Node<K, V>(left.key, left.value, left.left, new Node<K, V>(key, value, left.right, right));
+      } else {
+        final Node<K, V> middle = left.right;
+        return new Node<K, V>(middle.key, middle.value,
+            new Node<K, V>(left.key, left.value, left.left, middle.left),
+            new Node<K, V>(key, value, middle.right, right));
+      }
+    } else if (height(right) > height(left) + 1) {
+      if (height(right.right) >= height(right.left)) {
+        return new Node<K, V>(right.key, right.value, new Node<K, V>(key, value, left, right.left), right.right);
+      } else {
+        final Node<K, V> middle = right.left;
+        return new Node<K, V>(middle.key, middle.value,
+            new Node<K, V>(key, value, left, middle.left),
+            new Node<K, V>(right.key, right.value, middle.right, right.right));
+      }
+    }
+    return new Node<K, V>(key, value, left, right);
+  }
+
+  private static int height(final Node<?, ?> node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int size(final Node<?, ?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  /** In-order iterator over a key range, keeping the path to the next node on a stack. */
+  private final class RangeIterator implements Iterator<Map.Entry<K, V>> {
+
+    private final List<Node<K, V>> stack = new ArrayList<Node<K, V>>();
+
+    private final K to;
+
+    private final boolean toInclusive;
+
+    private Node<K, V> next;
+
+    private RangeIterator(final K from, final boolean fromInclusive, final K to, final boolean toInclusive) {
+      this.to = to;
+      this.toInclusive = toInclusive;
+      Node<K, V> node = root;
+      while (node != null) {
+        final int comparison = from == null ? 1 : comparator.compare(node.key, from);
+        if (comparison > 0 || comparison == 0 && fromInclusive) {
+          stack.add(node);
+          node = node.left;
+        } else {
+          node = node.right;
+        }
+      }
+      advance();
+    }
+
+    private void advance() {
+      next = null;
+      if (!stack.isEmpty()) {
+        final Node<K, V> node = stack.remove(stack.size() - 1);
+        for (Node<K, V> child = node.right; child != null; child = child.left) {
+          stack.add(child);
+        }
+        final int comparison = to == null ? -1 : comparator.compare(node.key, to);
+        if (comparison < 0 || comparison == 0 && toInclusive) {
+          next = node;
+        } else {
+          stack.clear();
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      final Node<K, V> result = next;
+      advance();
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchBinary;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchBinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchExpression;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchUnary;
+
+/**
+ * Inverted full-text index evaluating <code>$search</code> expressions as parsed by the URI parser.
+ * <br/>
+ * The textual values of an entity (strings, numbers, and booleans, also inside complex and collection
+ * properties) are split into tokens of letters and digits and folded to lower case. For each token, the index
+ * keeps the positions at which it occurs per entity, so that a search term matches the entities containing all
+ * its tokens consecutively (a single word is just a phrase of one token) and a search never looks at the
+ * entities themselves. <code>AND</code> starts from the shortest posting list, and <code>NOT</code> operands of
+ * <code>AND</code> are subtracted instead of being complemented.
+ * <br/>
+ * Unlike a plain substring search, a term matches only whole tokens: <tt>ron</tt> does not find <tt>Ronald</tt>.
+ * <br/>
+ * The index is safe for concurrent use; searches run in parallel, modifications are exclusive.
+ *
+ * @param <K> type of the entity keys
+ */
+public class SearchIndex<K> {
+
+  /** Token to the sorted positions of the token per entity. */
+  private final Map<String, Map<K, int[]>> postings = new HashMap<String, Map<K, int[]>>();
+
+  /** Entity to its distinct tokens, needed to remove the entity from the postings. */
+  private final Map<K, Set<String>> entities = new LinkedHashMap<K, Set<String>>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Adds an entity to the index, replacing what has been indexed before for the same key.
+   */
+  public void put(final K key, final Entity entity) {
+    final Map<String, List<Integer>> positions = new LinkedHashMap<String, List<Integer>>();
+    final int[] position = new int[] { 0 };
+    for (final Property property : entity.getProperties()) {
+      tokenize(property, positions, position);
+    }
+
+    lock.writeLock().lock();
+    try {
+      removeInternal(key);
+      for (final Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+        Map<K, int[]> posting = postings.get(entry.getKey());
+        if (posting == null) {
+          posting = new LinkedHashMap<K, int[]>();
+          postings.put(entry.getKey(), posting);
+        }
+        final int[] tokenPositions = new int[entry.getValue().size()];
+        for (int i = 0; i < tokenPositions.length; i++) {
+          tokenPositions[i] = entry.getValue().get(i);
+        }
+        posting.put(key, tokenPositions);
+      }
+      entities.put(key, new LinkedHashSet<String>(positions.keySet()));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes an entity from the index; nothing happens if it is not indexed.
+   */
+  public void remove(final K key) {
+    lock.writeLock().lock();
+    try {
+      removeInternal(key);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeInternal(final K key) {
+    final Set<String> tokens = entities.remove(key);
+    if (tokens != null) {
+      for (final String token : tokens) {
+        final Map<K, int[]> posting = postings.get(token);
+        posting.remove(key);
+        if (posting.isEmpty()) {
+          postings.remove(token);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the number of indexed entities.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return entities.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the keys of the entities matching a search expression; the order of the keys is not specified.
+   */
+  public Set<K> search(final SearchExpression expression) throws ODataApplicationException {
+    lock.readLock().lock();
+    try {
+      return evaluate(expression);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private Set<K> evaluate(final SearchExpression expression) throws ODataApplicationException {
+    if (expression.isSearchTerm()) {
+      return findPhrase(tokenize(expression.asSearchTerm().getSearchTerm()));
+    } else if (expression.isSearchUnary()) {
+      final Set<K> result = new LinkedHashSet<K>(entities.keySet());
+      result.removeAll(evaluate(expression.asSearchUnary().getOperand()));
+      return result;
+    } else if (expression.isSearchBinary()) {
+      return evaluate(expression.asSearchBinary());
+    }
+    throw new ODataApplicationException("Found unknown SearchExpression: " + expression,
+        HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+  }
+
+  private Set<K> evaluate(final SearchBinary binary) throws ODataApplicationException {
+    final SearchExpression left = binary.getLeftOperand();
+    final SearchExpression right = binary.getRightOperand();
+    if (binary.getOperator() == SearchBinaryOperatorKind.AND) {
+      if (right.isSearchUnary() && !left.isSearchUnary()) {
+        return subtract(evaluate(left), right.asSearchUnary());
+      } else if (left.isSearchUnary() && !right.isSearchUnary()) {
+        return subtract(evaluate(right), left.asSearchUnary());
+      }
+      final Set<K> leftResult = evaluate(left);
+      if (leftResult.isEmpty()) {
+        return leftResult;
+      }
+      final Set<K> rightResult = evaluate(right);
+      final Set<K> smaller = leftResult.size() <= rightResult.size() ? leftResult : rightResult;
+      smaller.retainAll(smaller == leftResult ? rightResult : leftResult);
+      return smaller;
+    } else if (binary.getOperator() == SearchBinaryOperatorKind.OR) {
+      final Set<K> result = evaluate(left);
+      result.addAll(evaluate(right));
+      return result;
+    } else {
+      throw new ODataApplicationException("Found unknown SearchBinaryOperatorKind: " + binary.getOperator(),
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+    }
+  }
+
+  private Set<K> subtract(final Set<K> result, final SearchUnary negation) throws ODataApplicationException {
+    if (!result.isEmpty()) {
+      result.removeAll(evaluate(negation.getOperand()));
+    }
+    return result;
+  }
+
+  /** Finds the entities containing the given tokens at consecutive positions. */
+  private Set<K> findPhrase(final List<String> tokens) {
+    final Set<K> result = new LinkedHashSet<K>();
+    if (tokens.isEmpty()) {
+      return result;
+    }
+    final List<Map<K, int[]>> tokenPostings = new ArrayList<Map<K, int[]>>(tokens.size());
+    Map<K, int[]> shortest = null;
+    for (final String token : tokens) {
+      final Map<K, int[]> posting = postings.get(token);
+      if (posting == null) {
+        return result;
+      }
+      tokenPostings.add(posting);
+      if (shortest == null || posting.size() < shortest.size()) {
+        shortest = posting;
+      }
+    }
+    if (tokens.size() == 1) {
+      result.addAll(shortest.keySet());
+      return result;
+    }
+
+    for (final K key : shortest.keySet()) {
+      if (containsPhrase(tokenPostings, key)) {
+        result.add(key);
+      }
+    }
+    return result;
+  }
+
+  private boolean containsPhrase(final List<Map<K, int[]>> tokenPostings, final K key) {
+    final int[][] positions = new int[tokenPostings.size()][];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = tokenPostings.get(i).get(key);
+      if (positions[i] == null) {
+        return false;
+      }
+    }
+    for (final int start : positions[0]) {
+      boolean found = true;
+      for (int i = 1; i < positions.length && found; i++) {
+        found = Arrays.binarySearch(positions[i], start + i) >= 0;
+      }
+      if (found) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void tokenize(final Property property, final Map<String, List<Integer>> positions,
+      final int[] position) {
+    if (property.isNull()) {
+      return;
+    }
+    if (property.isCollection()) {
+      for (final Object item : property.asCollection()) {
+        tokenize(item, positions, position);
+      }
+    } else {
+      tokenize(property.getValue(), positions, position);
+    }
+  }
+
+  private static void tokenize(final Object value, final Map<String, List<Integer>> positions,
+      final int[] position) {
+    if (value instanceof ComplexValue) {
+      for (final Property property : ((ComplexValue) value).getValue()) {
+        tokenize(property, positions, position);
+      }
+    } else if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+      for (final String token : tokenize(value.toString())) {
+        List<Integer> tokenPositions = positions.get(token);
+        if (tokenPositions == null) {
+          tokenPositions = new ArrayList<Integer>();
+          positions.put(token, tokenPositions);
+        }
+        tokenPositions.add(position[0]++);
+      }
+      // Leave a gap so that a phrase never spans two values.
+      position[0]++;
+    }
+  }
+
+  /** Splits a text into lower-case tokens of letters and digits. */
+  static List<String> tokenize(final String text) {
+    if (text == null || text.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<String> tokens = new ArrayList<String>();
+    int start = -1;
+    int index = 0;
+    while (index < text.length()) {
+      final int codePoint = text.codePointAt(index);
+      if (Character.isLetterOrDigit(codePoint)) {
+        if (start < 0) {
+          start = index;
+        }
+      } else if (start >= 0) {
+        tokens.add(text.substring(start, index).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+      index += Character.charCount(codePoint);
+    }
+    if (start >= 0) {
+      tokens.add(text.substring(start).toLowerCase(Locale.ROOT));
+    }
+    return tokens;
+  }
+}
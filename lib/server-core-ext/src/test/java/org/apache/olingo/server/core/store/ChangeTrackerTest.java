@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmEntityContainer;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.core.MetadataParser;
+import org.apache.olingo.server.core.store.ChangeTracker.Change;
+import org.apache.olingo.server.core.store.ChangeTracker.Kind;
+import org.apache.olingo.server.core.uri.UriParameterImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangeTrackerTest {
+
+  private EdmEntitySet people;
+  private EdmEntitySet photos;
+  private EdmNavigationProperty friends;
+  private InMemoryDataStore store;
+
+  @Before
+  public void before() throws Exception {
+    final EdmEntityContainer container = new MetadataParser().buildServiceMetadata(
+        new FileReader("src/test/resources/trippin.xml")).getEdm().getEntityContainer(null);
+    people = container.getEntitySet("People");
+    photos = container.getEntitySet("Photos");
+    friends = people.getEntityType().getNavigationProperty("Friends");
+    store = new InMemoryDataStore();
+    store.create(people, person("russellwhyte", "Whyte"));
+    store.addChangeTracking(people);
+  }
+
+  private static Entity person(final String userName, final String lastName) {
+    return new Entity()
+        .addProperty(new Property(null, "UserName", ValueType.PRIMITIVE, userName))
+        .addProperty(new Property(null, "LastName", ValueType.PRIMITIVE, lastName));
+  }
+
+  private static List<UriParameter> key(final String userName) {
+    return Collections.<UriParameter> singletonList(
+        new UriParameterImpl().setName("UserName").setText("'" + userName + "'"));
+  }
+
+  private static List<String> userNames(final Delta delta) {
+    final List<String> userNames = new ArrayList<String>();
+    for (final Entity entity : delta.getEntities()) {
+      userNames.add((String) entity.getProperty("UserName").getValue());
+    }
+    return userNames;
+  }
+
+  private void assertStatus(final String deltaToken, final EdmEntitySet edmEntitySet, final HttpStatusCode status) {
+    try {
+      store.readDelta(edmEntitySet, deltaToken);
+      fail("Expected an exception");
+    } catch (final ODataApplicationException e) {
+      assertEquals(status.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void deltaLinks() throws Exception {
+    assertEquals(URI.create("People?$deltatoken=0"), store.readAll(people, true).getDeltaLink());
+    assertNull(store.readAll(people, false).getDeltaLink());
+    assertNull(store.readAll(photos, true).getDeltaLink());
+
+    final Entity scott = person("scottketchum", "Ketchum");
+    store.create(people, scott);
+    store.update(people, key("russellwhyte"), person("russellwhyte", "White"), true);
+    store.create(people, person("ronaldmundy", "Mundy"));
+    store.delete(people, key("ronaldmundy"));
+    store.addLink(people, store.read(people, key("russellwhyte")), friends, people, scott);
+
+    Delta delta = store.readDelta(people, "0");
+    assertEquals(URI.create("People?$deltatoken=5"), delta.getDeltaLink());
+    assertEquals(2, delta.getEntities().size());
+    assertEquals("scottketchum", delta.getEntities().get(0).getProperty("UserName").getValue());
+    assertEquals("White", delta.getEntities().get(1).getProperty("LastName").getValue());
+    assertEquals(1, delta.getDeletedEntities().size());
+    assertEquals(URI.create("People('ronaldmundy')"), delta.getDeletedEntities().get(0).getId());
+    assertEquals(1, delta.getAddedLinks().size());
+    assertEquals(URI.create("People('russellwhyte')"), delta.getAddedLinks().get(0).getSource());
+    assertEquals("Friends", delta.getAddedLinks().get(0).getRelationship());
+    assertEquals(URI.create("People('scottketchum')"), delta.getAddedLinks().get(0).getTarget());
+
+    assertEquals(Collections.singletonList("russellwhyte"), userNames(store.readDelta(people, "1")));
+    delta = store.readDelta(people, "5");
+    assertTrue(delta.getEntities().isEmpty());
+    assertTrue(delta.getAddedLinks().isEmpty());
+    assertEquals(URI.create("People?$deltatoken=5"), delta.getDeltaLink());
+
+    // Deleting the link target records the removal of the link.
+    store.delete(people, key("scottketchum"));
+    delta = store.readDelta(people, "0");
+    assertEquals(Collections.singletonList("russellwhyte"), userNames(delta));
+    assertEquals(2, delta.getDeletedEntities().size());
+    assertTrue(delta.getAddedLinks().isEmpty());
+    assertEquals(1, delta.getDeletedLinks().size());
+    assertEquals(URI.create("People?$deltatoken=7"), delta.getDeltaLink());
+  }
+
+  @Test
+  public void errors() throws Exception {
+    store.create(people, person("scottketchum", "Ketchum"));
+    store.update(people, key("scottketchum"), person("scottketchum", "Miller"), true);
+    store.update(people, key("russellwhyte"), person("russellwhyte", "White"), true);
+    assertStatus("x", people, HttpStatusCode.BAD_REQUEST);
+    assertStatus("4", people, HttpStatusCode.GONE);
+    assertStatus("0", photos, HttpStatusCode.NOT_IMPLEMENTED);
+
+    store.expireChanges("2");
+    assertStatus("1", people, HttpStatusCode.GONE);
+    assertEquals(Collections.singletonList("russellwhyte"), userNames(store.readDelta(people, "2")));
+  }
+
+  @Test
+  public void compaction() throws Exception {
+    final ChangeTracker compacted = new ChangeTracker(2, 2);
+    final ChangeTracker uncompacted = new ChangeTracker(1000, 1000);
+    compacted.track("People");
+    uncompacted.track("People");
+    final String[] userNames = { "russellwhyte", "scottketchum", "ronaldmundy" };
+    for (int i = 0; i < 50; i++) {
+      final EntityKey key = EntityKey.of(people.getEntityType(), person(userNames[i % 3], null));
+      final EntityKey target = EntityKey.of(people.getEntityType(), person(userNames[i % 2], null));
+      for (final ChangeTracker tracker : new ChangeTracker[] { compacted, uncompacted }) {
+        if (i % 5 == 4) {
+          tracker.record("People", i % 2 == 0 ? Kind.LINK_ADDED : Kind.LINK_DELETED, key,
+              "Friends", "People", target);
+        } else {
+          tracker.record("People", i % 7 == 0 ? Kind.ENTITY_DELETED : Kind.ENTITY_CHANGED, key);
+        }
+      }
+    }
+    for (long since = 0; since <= 50; since++) {
+      assertEquals(tokens(uncompacted.getChanges("People", since, 50)),
+          tokens(compacted.getChanges("People", since, 50)));
+    }
+
+    compacted.expire(30);
+    assertEquals(tokens(uncompacted.getChanges("People", 30, 50)), tokens(compacted.getChanges("People", 30, 50)));
+  }
+
+  private static List<Long> tokens(final Iterator<Change> changes) {
+    final List<Long> tokens = new ArrayList<Long>();
+    while (changes.hasNext()) {
+      tokens.add(changes.next().getToken());
+    }
+    return tokens;
+  }
+}
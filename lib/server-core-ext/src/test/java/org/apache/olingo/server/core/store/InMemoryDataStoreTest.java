@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.FileReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.core.MetadataParser;
+import org.apache.olingo.server.core.uri.UriParameterImpl;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class InMemoryDataStoreTest {
+
+  private static EdmEntitySet people;
+
+  private static EdmEntitySet photos;
+
+  private static EdmNavigationProperty friends;
+
+  private static EdmNavigationProperty photo;
+
+  private InMemoryDataStore store;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    final ServiceMetadata metadata =
+        new MetadataParser().buildServiceMetadata(new FileReader("src/test/resources/trippin.xml"));
+    people = metadata.getEdm().getEntityContainer(null).getEntitySet("People");
+    photos = metadata.getEdm().getEntityContainer(null).getEntitySet("Photos");
+    friends = people.getEntityType().getNavigationProperty("Friends");
+    photo = people.getEntityType().getNavigationProperty("Photo");
+  }
+
+  @Before
+  public void before() throws Exception {
+    store = new InMemoryDataStore();
+    store.addIndex(people, "Concurrency");
+    store.create(people, person("russellwhyte", "Russell", 10L));
+    store.create(people, person("scottketchum", "Scott", 20));
+    store.create(people, person("ronaldmundy", null, 30L));
+    store.create(photos, new Entity().addProperty(new Property(null, "Id", ValueType.PRIMITIVE, 1L)));
+  }
+
+  private static Entity person(final String userName, final String firstName, final Object concurrency) {
+    return new Entity()
+        .addProperty(new Property(null, "UserName", ValueType.PRIMITIVE, userName))
+        .addProperty(new Property(null, "FirstName", ValueType.PRIMITIVE, firstName))
+        .addProperty(new Property(null, "Concurrency", ValueType.PRIMITIVE, concurrency));
+  }
+
+  private static Link binding(final String name, final String link) {
+    final Link binding = new Link();
+    binding.setTitle(name);
+    binding.setBindingLink(link);
+    return binding;
+  }
+
+  private static List<UriParameter> key(final String literal) {
+    return Collections.<UriParameter> singletonList(new UriParameterImpl().setName("UserName").setText(literal));
+  }
+
+  private static Entity get(final EntityCollection entitySet, final int index) {
+    return entitySet.getEntities().get(index);
+  }
+
+  @Test
+  public void read() throws Exception {
+    assertEquals(3, store.readAll(people).getEntities().size());
+    assertEquals("Scott", store.read(people, key("'scottketchum'")).getProperty("FirstName").getValue());
+    assertNull(store.read(people, key("'nobody'")));
+    assertNotNull(store.read(photos,
+        Collections.<UriParameter> singletonList(new UriParameterImpl().setName("Id").setText("1"))));
+  }
+
+  @Test
+  public void keyByName() throws Exception {
+    try {
+      store.read(people, Collections.<UriParameter> singletonList(
+          new UriParameterImpl().setName("FirstName").setText("'russellwhyte'")));
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void duplicateKey() throws Exception {
+    try {
+      store.create(people, person("russellwhyte", "Other", 0L));
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.CONFLICT.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void secondaryIndex() throws Exception {
+    assertEquals("Scott", get(store.findEqual(people, "Concurrency", 20L), 0).getProperty("FirstName").getValue());
+    assertEquals(1, store.findEqual(people, "Concurrency", (short) 30).getEntities().size());
+
+    final EntityCollection range = store.findRange(people, "Concurrency", 15, true, 30L, true);
+    assertEquals(2, range.getEntities().size());
+    assertEquals("scottketchum", get(range, 0).getProperty("UserName").getValue());
+    assertEquals(1, store.findRange(people, "Concurrency", null, false, 20L, false).getEntities().size());
+
+    store.update(people, key("'scottketchum'"), person("scottketchum", "Scott", 40L), true);
+    assertEquals(0, store.findEqual(people, "Concurrency", 20L).getEntities().size());
+    assertEquals(1, store.findRange(people, "Concurrency", 35L, true, null, false).getEntities().size());
+
+    store.delete(people, key("'russellwhyte'"));
+    assertEquals(0, store.findEqual(people, "Concurrency", 10L).getEntities().size());
+
+    // Values of another type match nothing instead of failing.
+    assertEquals(0, store.findEqual(people, "Concurrency", "20").getEntities().size());
+    assertEquals(0, store.findRange(people, "Concurrency", new Date(0), true, null, false).getEntities().size());
+    store.addIndex(people, "FirstName");
+    assertEquals(0, store.findEqual(people, "FirstName", BigDecimal.ONE).getEntities().size());
+    assertEquals(1, store.findRange(people, "FirstName", "S", true, null, false).getEntities().size());
+  }
+
+  @Test
+  public void specialFloatingPointValues() throws Exception {
+    store.create(people, person("nan", null, Double.NaN));
+    store.create(people, person("infinity", null, Float.POSITIVE_INFINITY));
+    store.create(people, person("negativeinfinity", null, Double.NEGATIVE_INFINITY));
+    assertEquals("nan", get(store.findEqual(people, "Concurrency", Float.NaN), 0).getProperty("UserName").getValue());
+    assertEquals(1, store.findEqual(people, "Concurrency", Double.POSITIVE_INFINITY).getEntities().size());
+
+    final EntityCollection low = store.findRange(people, "Concurrency", null, false, 10L, true);
+    assertEquals(2, low.getEntities().size());
+    assertEquals("negativeinfinity", get(low, 0).getProperty("UserName").getValue());
+    final EntityCollection high = store.findRange(people, "Concurrency", 25, true, Double.POSITIVE_INFINITY, true);
+    assertEquals(2, high.getEntities().size());
+    assertEquals("infinity", get(high, 1).getProperty("UserName").getValue());
+  }
+
+  @Test
+  public void createAll() throws Exception {
+    final InMemoryDataStore.Snapshot before = store.snapshot();
+    final List<Entity> entities = new ArrayList<Entity>();
+    for (int i = 0; i < 1000; i++) {
+      entities.add(person("user" + i, "User", (long) i % 10));
+    }
+    store.createAll(people, entities);
+    assertEquals(3, before.size(people));
+    assertEquals(1003, store.snapshot().size(people));
+    assertEquals("user0", get(store.readAll(people), 3).getProperty("UserName").getValue());
+    assertEquals("user999", get(store.readAll(people), 1002).getProperty("UserName").getValue());
+    assertEquals(100, store.findEqual(people, "Concurrency", 0L).getEntities().size());
+    assertEquals("user5", get(store.findEqual(people, "Concurrency", 5L), 0).getProperty("UserName").getValue());
+
+    try {
+      store.createAll(people, Arrays.asList(person("new", null, 1L), person("new", null, 2L)));
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.CONFLICT.getStatusCode(), e.getStatusCode());
+    }
+    assertNull(store.read(people, key("'new'")));
+    assertEquals(1003, store.snapshot().size(people));
+  }
+
+  @Test
+  public void merge() throws Exception {
+    final Entity update = new Entity()
+        .addProperty(new Property(null, "UserName", ValueType.PRIMITIVE, "ronaldmundy"))
+        .addProperty(new Property(null, "FirstName", ValueType.PRIMITIVE, "Ronald"));
+    store.update(people, key("'ronaldmundy'"), update, true);
+    final Entity merged = store.read(people, key("'ronaldmundy'"));
+    assertEquals("Ronald", merged.getProperty("FirstName").getValue());
+    assertEquals(30L, merged.getProperty("Concurrency").getValue());
+    assertNotNull(merged.getETag());
+    assertNull(update.getETag());
+
+    final Entity replacement = person("ronaldmundy", "Ron", 30L);
+    replacement.setMediaETag("W/\"media\"");
+    replacement.getNavigationBindings().add(binding("Photo", "Photos(1)"));
+    ComplexValue address = new ComplexValue();
+    address.getValue().add(new Property(null, "Address", ValueType.PRIMITIVE, "187 Suffolk Ln."));
+    address.getValue().add(new Property(null, "City", ValueType.PRIMITIVE, "Boise"));
+    replacement.addProperty(new Property(null, "HomeAddress", ValueType.COMPLEX, address));
+    store.update(people, key("'ronaldmundy'"), replacement, false);
+    final String etag = store.read(people, key("'ronaldmundy'")).getETag();
+    assertFalse(merged.getETag().equals(etag));
+
+    address = new ComplexValue();
+    address.getValue().add(new Property(null, "City", ValueType.PRIMITIVE, "Seattle"));
+    store.update(people, key("'ronaldmundy'"), new Entity()
+        .addProperty(new Property(null, "HomeAddress", ValueType.COMPLEX, address)), true);
+    final Entity deepMerged = store.read(people, key("'ronaldmundy'"));
+    assertFalse(etag.equals(deepMerged.getETag()));
+    assertEquals("W/\"media\"", deepMerged.getMediaETag());
+    assertEquals("Photos(1)", deepMerged.getNavigationBinding("Photo").getBindingLink());
+    final List<Property> addressProperties = deepMerged.getProperty("HomeAddress").asComplex().getValue();
+    assertEquals(2, addressProperties.size());
+    assertEquals("187 Suffolk Ln.", addressProperties.get(0).getValue());
+    assertEquals("Seattle", addressProperties.get(1).getValue());
+    assertEquals("Ron", deepMerged.getProperty("FirstName").getValue());
+
+    try {
+      store.update(people, key("'ronaldmundy'"), person("other", null, 0L), false);
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void links() throws Exception {
+    final Entity russell = store.read(people, key("'russellwhyte'"));
+    final Entity scott = store.read(people, key("'scottketchum'"));
+    final Entity ronald = store.read(people, key("'ronaldmundy'"));
+    final Entity picture = get(store.readAll(photos), 0);
+
+    store.addLink(people, russell, friends, people, scott);
+    store.addLink(people, russell, friends, people, ronald);
+    store.addLink(people, scott, friends, people, ronald);
+    store.addLink(people, russell, photo, photos, picture);
+    store.addLink(people, scott, photo, photos, picture);
+    store.addLink(people, scott, photo, photos, picture);
+    assertEquals(2, store.readRelated(people, russell, friends).getEntities().size());
+    assertEquals(1, store.readRelated(people, scott, photo).getEntities().size());
+
+    store.removeLink(people, russell, friends, people, scott);
+    assertEquals(ronald, get(store.readRelated(people, russell, friends), 0));
+
+    final InMemoryDataStore.Snapshot before = store.snapshot();
+    store.delete(people, key("'ronaldmundy'"));
+    assertEquals(0, store.readRelated(people, russell, friends).getEntities().size());
+    assertEquals(0, store.readRelated(people, scott, friends).getEntities().size());
+    assertEquals(1, store.readRelated(people, scott, photo).getEntities().size());
+
+    // the snapshot taken before is not affected
+    assertEquals(3, before.size(people));
+    assertEquals(1, before.readRelated(people, scott, friends).getEntities().size());
+
+    store.removeLink(people, scott, photo, null, null);
+    assertEquals(0, store.readRelated(people, scott, photo).getEntities().size());
+    assertEquals(1, store.readRelated(people, russell, photo).getEntities().size());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class PersistentSortedMapTest {
+
+  private static <K, V> List<K> keys(final Iterable<Map.Entry<K, V>> entries) {
+    final List<K> keys = new ArrayList<K>();
+    for (final Map.Entry<K, V> entry : entries) {
+      keys.add(entry.getKey());
+    }
+    return keys;
+  }
+
+  @Test
+  public void sameAsTreeMap() {
+    final Random random = new Random(42);
+    final TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+    PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty();
+    for (int i = 0; i < 5000; i++) {
+      final Integer key = random.nextInt(1000);
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.remove(key);
+      } else {
+        expected.put(key, "v" + i);
+        map = map.put(key, "v" + i);
+      }
+    }
+    assertEquals(expected.size(), map.size());
+    assertEquals(new ArrayList<Integer>(expected.keySet()), keys(map.entries()));
+    for (final Map.Entry<Integer, String> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), map.get(entry.getKey()));
+    }
+    assertEquals(new ArrayList<Integer>(expected.subMap(100, true, 200, false).keySet()),
+        keys(map.range(100, true, 200, false)));
+    assertEquals(new ArrayList<Integer>(expected.subMap(100, false, 200, true).keySet()),
+        keys(map.range(100, false, 200, true)));
+    assertEquals(new ArrayList<Integer>(expected.headMap(50, true).keySet()), keys(map.range(null, false, 50, true)));
+    assertEquals(new ArrayList<Integer>(expected.tailMap(950, false).keySet()),
+        keys(map.range(950, false, null, false)));
+  }
+
+  @Test
+  public void unchanged() {
+    final PersistentSortedMap<String, String> map = PersistentSortedMap.<String, String> empty().put("a", "1");
+    final PersistentSortedMap<String, String> changed = map.put("b", "2").remove("a");
+    assertEquals("1", map.get("a"));
+    assertNull(map.get("b"));
+    assertNull(changed.get("a"));
+    assertEquals(1, changed.size());
+    assertSame(map, map.remove("c"));
+  }
+}
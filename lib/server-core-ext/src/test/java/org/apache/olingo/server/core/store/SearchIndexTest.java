@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchExpression;
+import org.apache.olingo.server.core.MetadataParser;
+import org.apache.olingo.server.core.uri.UriParameterImpl;
+import org.apache.olingo.server.core.uri.parser.search.SearchParser;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+  private SearchIndex<String> index;
+
+  @Before
+  public void before() {
+    index = new SearchIndex<String>();
+    index.put("russell", person("Russell", "Whyte", "Russell@example.com", "Russell@contoso.com"));
+    index.put("scott", person("Scott", "Ketchum", "Scott@example.com"));
+    index.put("ronald", person("Ronald", "Mundy", "Ronald@example.com", "Ronald@contoso.com"));
+  }
+
+  private static Entity person(final String firstName, final String lastName, final String... emails) {
+    final ComplexValue address = new ComplexValue();
+    address.getValue().add(new Property(null, "Address", ValueType.PRIMITIVE, "187 Suffolk Ln."));
+    return new Entity()
+        .addProperty(new Property(null, "FirstName", ValueType.PRIMITIVE, firstName))
+        .addProperty(new Property(null, "LastName", ValueType.PRIMITIVE, lastName))
+        .addProperty(new Property(null, "Emails", ValueType.COLLECTION_PRIMITIVE, Arrays.asList(emails)))
+        .addProperty(new Property(null, "AddressInfo", ValueType.COLLECTION_COMPLEX,
+            Collections.singletonList(address)))
+        .addProperty(new Property(null, "Concurrency", ValueType.PRIMITIVE, 42L));
+  }
+
+  private static SearchExpression parse(final String search) throws Exception {
+    return new SearchParser().parse(search).getSearchExpression();
+  }
+
+  private Set<String> search(final String search) throws Exception {
+    return index.search(parse(search));
+  }
+
+  private static Set<String> keys(final String... keys) {
+    return new HashSet<String>(Arrays.asList(keys));
+  }
+
+  @Test
+  public void tokenize() {
+    assertEquals(Arrays.asList("russell", "example", "com"), SearchIndex.tokenize("Russell@Example.COM"));
+    assertEquals(Arrays.asList("187", "suffolk", "ln"), SearchIndex.tokenize(" 187 Suffolk Ln. "));
+    assertTrue(SearchIndex.tokenize("-- ").isEmpty());
+  }
+
+  @Test
+  public void terms() throws Exception {
+    assertEquals(keys("scott"), search("SCOTT"));
+    assertEquals(keys("russell", "ronald"), search("contoso"));
+    assertEquals(keys("russell", "scott", "ronald"), search("suffolk"));
+    assertEquals(keys("russell", "scott", "ronald"), search("\"42\""));
+    assertEquals(keys(), search("ron"));
+  }
+
+  @Test
+  public void phrases() throws Exception {
+    assertEquals(keys("russell", "scott", "ronald"), search("\"Suffolk Ln\""));
+    assertEquals(keys(), search("\"Ln Suffolk\""));
+    assertEquals(keys("ronald"), search("\"ronald contoso\""));
+    // phrases do not span values
+    assertEquals(keys(), search("\"Scott Ketchum\""));
+  }
+
+  @Test
+  public void operators() throws Exception {
+    assertEquals(keys("russell"), search("contoso AND Whyte"));
+    assertEquals(keys("russell", "scott"), search("Whyte OR Scott"));
+    assertEquals(keys("scott"), search("NOT contoso"));
+    assertEquals(keys("ronald"), search("contoso NOT Russell"));
+    assertEquals(keys("ronald"), search("NOT Russell AND contoso"));
+    assertEquals(keys("scott"), search("NOT contoso AND NOT Russell"));
+    assertEquals(keys("scott", "ronald"), search("(Scott OR Mundy) AND example"));
+  }
+
+  @Test
+  public void updates() throws Exception {
+    index.put("scott", person("Scott", "Miller"));
+    assertEquals(keys(), search("Ketchum"));
+    assertEquals(keys("scott"), search("Miller"));
+    index.remove("russell");
+    index.remove("nobody");
+    assertEquals(keys("ronald"), search("contoso"));
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  public void store() throws Exception {
+    final EdmEntitySet people = new MetadataParser().buildServiceMetadata(
+        new FileReader("src/test/resources/trippin.xml")).getEdm().getEntityContainer(null).getEntitySet("People");
+    final InMemoryDataStore store = new InMemoryDataStore();
+    store.create(people, person("Russell", "Whyte").addProperty(
+        new Property(null, "UserName", ValueType.PRIMITIVE, "russellwhyte")));
+    store.addSearchIndex(people);
+    store.create(people, person("Scott", "Ketchum").addProperty(
+        new Property(null, "UserName", ValueType.PRIMITIVE, "scottketchum")));
+    assertEquals(2, store.search(people, parse("Suffolk")).getEntities().size());
+    assertEquals("Russell", store.search(people, parse("Whyte")).getEntities().get(0)
+        .getProperty("FirstName").getValue());
+
+    final List<UriParameter> key =
+        Collections.<UriParameter> singletonList(new UriParameterImpl().setName("UserName").setText("'scottketchum'"));
+    store.update(people, key, new Entity().addProperty(
+        new Property(null, "UserName", ValueType.PRIMITIVE, "scottketchum"))
+        .addProperty(new Property(null, "LastName", ValueType.PRIMITIVE, "Miller")), true);
+    assertEquals(0, store.search(people, parse("Ketchum")).getEntities().size());
+    assertEquals(1, store.search(people, parse("Miller")).getEntities().size());
+    store.delete(people, key);
+    assertEquals(0, store.search(people, parse("Miller")).getEntities().size());
+    assertEquals(1, store.search(people, parse("Suffolk")).getEntities().size());
+  }
+}
@@ -21,6 +21,8 @@ package org.apache.olingo.server.core;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.olingo.commons.api.format.AcceptType;
 import org.apache.olingo.commons.api.format.ContentType;
@@ -44,6 +46,14 @@ public final class ContentNegotiator {
           ContentType.APPLICATION_ATOM_XML,
           ContentType.APPLICATION_XML));
 
+  /** Maximum number of negotiation results kept; if reached, the cache is cleared. */
+  private static final int MAX_CACHED_RESULTS = 256;
+  /**
+   * Results of the content negotiation with the default supported content types,
+   * by representation type and <code>$format</code> or <code>Accept</code> header value.
+   */
+  private static final ConcurrentMap<String, ContentType> RESULTS = new ConcurrentHashMap<String, ContentType>();
+
   private ContentNegotiator() {}
 
   private static List<ContentType> getDefaultSupportedContentTypes(final RepresentationType type) {
@@ -80,9 +90,18 @@ public final class ContentNegotiator {
   public static ContentType doContentNegotiation(final FormatOption formatOption, final ODataRequest request,
       final CustomContentTypeSupport customContentTypeSupport, final RepresentationType representationType)
           throws ContentNegotiatorException {
+    final String acceptHeaderValue = request.getHeader(HttpHeader.ACCEPT);
+    // Custom content-type support may decide differently for each request, so its results are not cached.
+    final String key = customContentTypeSupport == null ?
+        getKey(formatOption, acceptHeaderValue, representationType) : null;
+    if (key != null) {
+      final ContentType cached = RESULTS.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
     final List<ContentType> supportedContentTypes =
         getSupportedContentTypes(customContentTypeSupport, representationType);
-    final String acceptHeaderValue = request.getHeader(HttpHeader.ACCEPT);
     ContentType result = null;
 
     if (formatOption != null && formatOption.getFormat() != null) {
@@ -122,9 +141,24 @@ public final class ContentNegotiator {
             requestedContentType.toContentTypeString());
       }
     }
+    if (key != null) {
+      if (RESULTS.size() >= MAX_CACHED_RESULTS) {
+        RESULTS.clear();
+      }
+      RESULTS.put(key, result);
+    }
     return result;
   }
 
+  private static String getKey(final FormatOption formatOption, final String acceptHeaderValue,
+      final RepresentationType representationType) {
+    return formatOption != null && formatOption.getFormat() != null ?
+        representationType.name() + " $format=" + formatOption.getFormat() :
+        acceptHeaderValue != null ?
+            representationType.name() + " Accept: " + acceptHeaderValue :
+            representationType.name();
+  }
+
   private static ContentType mapContentType(final String formatString) {
     return JSON.equalsIgnoreCase(formatString) ? ContentType.JSON :
         XML.equalsIgnoreCase(formatString) ? ContentType.APPLICATION_XML :
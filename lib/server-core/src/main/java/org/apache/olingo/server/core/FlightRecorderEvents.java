@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.metrics.FlightRecorderEventType;
+
+/**
+ * Types of the events the server library emits to the JDK Flight Recorder while a recording has them enabled.
+ * @see org.apache.olingo.server.api.metrics.FlightRecorderMetricsSupport
+ */
+public final class FlightRecorderEvents {
+
+  /** Serialization of an entity or an entity collection; fields: format, kind, and entity type. */
+  public static final FlightRecorderEventType SERIALIZATION = FlightRecorderEventType
+      .with("org.apache.olingo.Serialization", "OData Serialization")
+      .field(String.class, "format", "Format")
+      .field(String.class, "kind", "Kind")
+      .field(String.class, "entityType", "Entity Type")
+      .build();
+
+  /** Deserialization of an entity or an entity collection; fields: format, kind, and entity type. */
+  public static final FlightRecorderEventType DESERIALIZATION = FlightRecorderEventType
+      .with("org.apache.olingo.Deserialization", "OData Deserialization")
+      .field(String.class, "format", "Format")
+      .field(String.class, "kind", "Kind")
+      .field(String.class, "entityType", "Entity Type")
+      .build();
+
+  /** Processing of a request in a batch request; fields: method, path, status code, and change-set flag. */
+  public static final FlightRecorderEventType BATCH_PART = FlightRecorderEventType
+      .with("org.apache.olingo.BatchPart", "OData Batch Part")
+      .field(String.class, "method", "HTTP Method")
+      .field(String.class, "path", "Path")
+      .field(int.class, "statusCode", "Status Code")
+      .field(boolean.class, "changeSet", "In Change Set")
+      .build();
+
+  private FlightRecorderEvents() {
+    // Holder of constants only.
+  }
+
+  /**
+   * Commits a serialization or deserialization event.
+   * @param eventType {@link #SERIALIZATION} or {@link #DESERIALIZATION}
+   * @param event the event begun with {@link FlightRecorderEventType#begin()} or <code>null</code>
+   * @param format the format, e.g., <code>JSON</code>
+   * @param kind the kind of payload, e.g., <code>entity</code>
+   * @param entityType the entity type or <code>null</code>
+   */
+  public static void commit(final FlightRecorderEventType eventType, final Object event,
+      final String format, final String kind, final EdmEntityType entityType) {
+    if (event != null) {
+      eventType.commit(event, format, kind,
+          entityType == null ? null : entityType.getFullQualifiedName().getFullQualifiedNameAsString());
+    }
+  }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.olingo.server.core;
 
+import java.util.List;
+
 import org.apache.olingo.commons.api.edm.EdmAction;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmFunction;
@@ -28,12 +30,14 @@ import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
+import org.apache.olingo.server.api.etag.ETagProvider;
 import org.apache.olingo.server.api.etag.PreconditionException;
 import org.apache.olingo.server.api.processor.ActionComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.ActionComplexProcessor;
@@ -42,12 +46,14 @@ import org.apache.olingo.server.api.processor.ActionEntityProcessor;
 import org.apache.olingo.server.api.processor.ActionPrimitiveCollectionProcessor;
 import org.apache.olingo.server.api.processor.ActionPrimitiveProcessor;
 import org.apache.olingo.server.api.processor.ActionVoidProcessor;
+import org.apache.olingo.server.api.processor.ApplyEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.BatchProcessor;
 import org.apache.olingo.server.api.processor.ComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.ComplexProcessor;
 import org.apache.olingo.server.api.processor.CountComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountPrimitiveCollectionProcessor;
+import org.apache.olingo.server.api.processor.DeltaProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityProcessor;
 import org.apache.olingo.server.api.processor.MediaEntityProcessor;
@@ -64,12 +70,18 @@ import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceAction;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
 import org.apache.olingo.server.api.uri.UriResourceFunction;
+import org.apache.olingo.server.api.uri.UriResourceKind;
 import org.apache.olingo.server.api.uri.UriResourceNavigation;
 import org.apache.olingo.server.api.uri.UriResourcePartTyped;
 import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
 import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.DeltaTokenOption;
+import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
 import org.apache.olingo.server.core.batchhandler.BatchHandler;
+import org.apache.olingo.server.core.etag.ETagHelperImpl;
 import org.apache.olingo.server.core.etag.PreconditionsValidator;
+import org.apache.olingo.server.core.uri.UriInfoImpl;
 
 public class ODataDispatcher {
 
@@ -107,7 +119,9 @@ public class ODataDispatcher {
       break;
 
     case resource:
-      handleResourceDispatching(request, response);
+      if (!handlePreconditions(request, response)) {
+        handleResourceDispatching(request, response);
+      }
       break;
 
     case batch:
@@ -471,8 +485,20 @@ public class ODataDispatcher {
       if (method == HttpMethod.GET) {
         final ContentType requestedContentType = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
             request, handler.getCustomContentTypeSupport(), RepresentationType.COLLECTION_ENTITY);
-        handler.selectProcessor(EntityCollectionProcessor.class)
-            .readEntityCollection(request, response, uriInfo, requestedContentType);
+        final ApplyOption applyOption =
+            (ApplyOption) UriInfoImpl.getSystemQueryOption(uriInfo, SystemQueryOptionKind.APPLY);
+        final DeltaTokenOption deltaToken =
+            (DeltaTokenOption) UriInfoImpl.getSystemQueryOption(uriInfo, SystemQueryOptionKind.DELTATOKEN);
+        if (deltaToken != null) {
+          handler.selectProcessor(DeltaProcessor.class)
+              .readDelta(request, response, uriInfo, deltaToken, requestedContentType);
+        } else if (applyOption != null) {
+          handler.selectProcessor(ApplyEntityCollectionProcessor.class)
+              .applyEntityCollection(request, response, uriInfo, applyOption, requestedContentType);
+        } else {
+          handler.selectProcessor(EntityCollectionProcessor.class)
+              .readEntityCollection(request, response, uriInfo, requestedContentType);
+        }
       } else if (method == HttpMethod.POST) {
         final ContentType responseFormat = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
             request, handler.getCustomContentTypeSupport(), RepresentationType.ENTITY);
@@ -526,6 +552,47 @@ public class ODataDispatcher {
     }
   }
 
+  /**
+   * Checks the If-Match and If-None-Match headers against the current ETag of the {@link ETagProvider}
+   * before any processor is called.
+   * @return <code>true</code> if the response is complete because the requested data has not been modified
+   * @throws PreconditionException if the preconditions are not fulfilled
+   */
+  private boolean handlePreconditions(final ODataRequest request, final ODataResponse response)
+      throws PreconditionException {
+    final ETagProvider eTagProvider = handler.getETagProvider();
+    final List<String> ifMatch = request.getHeaders(HttpHeader.IF_MATCH);
+    final List<String> ifNoneMatch = request.getHeaders(HttpHeader.IF_NONE_MATCH);
+    if (eTagProvider == null || ifMatch == null && ifNoneMatch == null) {
+      return false;
+    }
+    final PreconditionsValidator validator = new PreconditionsValidator(uriInfo);
+    if (validator.getAffectedKeyPredicates() == null) {
+      return false;
+    }
+    final List<UriResource> resourceParts = uriInfo.getUriResourceParts();
+    final int lastPathSegmentIndex = resourceParts.size() - 1;
+    final boolean isMediaValue = lastPathSegmentIndex > 0
+        && resourceParts.get(lastPathSegmentIndex).getKind() == UriResourceKind.value
+        && isEntityOrNavigationMedia(resourceParts.get(lastPathSegmentIndex - 1));
+    final String eTag = eTagProvider.getETag(validator.getAffectedEntitySetOrSingleton(),
+        validator.getAffectedKeyPredicates(), isMediaValue);
+    if (eTag == null) {
+      return false;
+    }
+    final ETagHelperImpl eTagHelper = new ETagHelperImpl();
+    if (request.getMethod() == HttpMethod.GET) {
+      if (eTagHelper.checkReadPreconditions(eTag, ifMatch, ifNoneMatch)) {
+        response.setStatusCode(HttpStatusCode.NOT_MODIFIED.getStatusCode());
+        response.setHeader(HttpHeader.ETAG, eTag);
+        return true;
+      }
+    } else {
+      eTagHelper.checkChangePreconditions(eTag, ifMatch, ifNoneMatch);
+    }
+    return false;
+  }
+
   private void checkMethod(final HttpMethod requestMethod, final HttpMethod allowedMethod)
       throws ODataHandlerException {
     if (requestMethod != allowedMethod) {
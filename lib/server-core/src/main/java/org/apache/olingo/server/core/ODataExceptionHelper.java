@@ -26,8 +26,10 @@ import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataLibraryException.ODataErrorMessage;
 import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
+import org.apache.olingo.server.api.deserializer.batch.BatchDeserializerException;
 import org.apache.olingo.server.api.etag.PreconditionException;
 import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
 import org.apache.olingo.server.core.uri.parser.UriParserException;
 import org.apache.olingo.server.core.uri.parser.UriParserSemanticException;
 import org.apache.olingo.server.core.uri.parser.UriParserSyntaxException;
@@ -109,7 +111,11 @@ public class ODataExceptionHelper {
 
   public static ODataServerError createServerErrorObject(final DeserializerException e, final Locale requestedLocale) {
     return basicTranslatedError(e, requestedLocale)
-        .setStatusCode(HttpStatusCode.BAD_REQUEST.getStatusCode());
+        .setStatusCode(DeserializerException.MessageKeys.LIMIT_EXCEEDED == e.getMessageKey()
+            || BatchDeserializerException.MessageKeys.LIMIT_EXCEEDED == e.getMessageKey()
+            || LimitedInputStream.findLimitExceeded(e) != null ?
+            HttpStatusCode.PAYLOAD_TOO_LARGE.getStatusCode() :
+            HttpStatusCode.BAD_REQUEST.getStatusCode());
   }
 
   public static ODataServerError createServerErrorObject(final PreconditionException e,
@@ -137,7 +143,10 @@ public class ODataExceptionHelper {
 
   public static ODataServerError createServerErrorObject(final Exception e) {
     ODataServerError serverError = basicServerError(e);
-    serverError.setStatusCode(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+    // Processors reading the request body themselves may report an exceeded limit in any way.
+    serverError.setStatusCode(LimitedInputStream.findLimitExceeded(e) == null ?
+        HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode() :
+        HttpStatusCode.PAYLOAD_TOO_LARGE.getStatusCode());
     serverError.setLocale(Locale.ENGLISH);
     return serverError;
   }
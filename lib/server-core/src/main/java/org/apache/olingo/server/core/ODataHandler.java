@@ -21,6 +21,7 @@ package org.apache.olingo.server.core;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
 import org.apache.olingo.commons.api.edm.constants.ODataServiceVersion;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
@@ -31,10 +32,15 @@ import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ODataServerError;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.cache.CachedResponse;
+import org.apache.olingo.server.api.cache.ResponseCache;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
+import org.apache.olingo.server.api.etag.ETagProvider;
 import org.apache.olingo.server.api.etag.PreconditionException;
+import org.apache.olingo.server.api.metrics.RequestMetrics;
 import org.apache.olingo.server.api.processor.DefaultProcessor;
 import org.apache.olingo.server.api.processor.ErrorProcessor;
 import org.apache.olingo.server.api.processor.Processor;
@@ -42,7 +48,10 @@ import org.apache.olingo.server.api.serializer.CustomContentTypeSupport;
 import org.apache.olingo.server.api.serializer.RepresentationType;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriInfoKind;
+import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
 import org.apache.olingo.server.core.uri.parser.Parser;
 import org.apache.olingo.server.core.uri.parser.UriParserException;
 import org.apache.olingo.server.core.uri.parser.UriParserSemanticException;
@@ -59,9 +68,13 @@ public class ODataHandler {
 
   private CustomContentTypeSupport customContentTypeSupport;
   private CustomETagSupport customETagSupport;
+  private ETagProvider eTagProvider;
+  private RequestLimits requestLimits;
+  private ResponseCache responseCache;
 
   private UriInfo uriInfo;
   private Exception lastThrownException;
+  private RequestMetrics metrics;
 
   public ODataHandler(final OData server, final ServiceMetadata serviceMetadata, final ServerCoreDebugger debugger) {
     odata = server;
@@ -75,8 +88,11 @@ public class ODataHandler {
   public ODataResponse process(final ODataRequest request) {
     ODataResponse response = new ODataResponse();
     final int responseHandle = debugger.startRuntimeMeasurement("ODataHandler", "process");
+    // Requests processed while dispatching, e.g., the parts of a batch request, are not measured separately.
+    final RequestMetrics requestMetrics = metrics;
+    metrics = null;
     try {
-      processInternal(request, response);
+      processInternal(request, response, requestMetrics);
     } catch (final UriValidationException e) {
       ODataServerError serverError = ODataExceptionHelper.createServerErrorObject(e, null);
       handleException(request, response, serverError, e);
@@ -115,8 +131,9 @@ public class ODataHandler {
     return response;
   }
 
-  private void processInternal(final ODataRequest request, final ODataResponse response)
-      throws ODataApplicationException, ODataLibraryException {
+  private void processInternal(final ODataRequest request, final ODataResponse response,
+      final RequestMetrics requestMetrics) throws ODataApplicationException, ODataLibraryException {
+    applyRequestLimits(request);
     final int measurementHandle = debugger.startRuntimeMeasurement("ODataHandler", "processInternal");
 
     response.setHeader(HttpHeader.ODATA_VERSION, ODataServiceVersion.V40.toString());
@@ -128,15 +145,25 @@ public class ODataHandler {
     }
 
     final int measurementUriParser = debugger.startRuntimeMeasurement("UriParser", "parseUri");
+    long started = requestMetrics == null ? 0 : System.nanoTime();
     try {
-      uriInfo = new Parser(serviceMetadata.getEdm(), odata)
-          .parseUri(request.getRawODataPath(), request.getRawQueryPath(), null);
+      uriInfo = serviceMetadata instanceof ServiceMetadataImpl ?
+          ((ServiceMetadataImpl) serviceMetadata).getQueryTemplateCache().parseUri(serviceMetadata.getEdm(), odata,
+              request.getRawODataPath(), request.getRawQueryPath(), null) :
+          new Parser(serviceMetadata.getEdm(), odata)
+              .parseUri(request.getRawODataPath(), request.getRawQueryPath(), null);
     } catch (final ODataLibraryException e) {
       debugger.stopRuntimeMeasurement(measurementUriParser);
       debugger.stopRuntimeMeasurement(measurementHandle);
       throw e;
     }
     debugger.stopRuntimeMeasurement(measurementUriParser);
+    if (requestMetrics != null) {
+      final long parsed = System.nanoTime();
+      requestMetrics.addDuration(RequestMetrics.Stage.URI_PARSE, parsed - started);
+      requestMetrics.setResource(getResourceName(uriInfo));
+      started = parsed;
+    }
 
     final int measurementUriValidator = debugger.startRuntimeMeasurement("UriValidator", "validate");
     final HttpMethod method = request.getMethod();
@@ -148,6 +175,27 @@ public class ODataHandler {
       throw e;
     }
     debugger.stopRuntimeMeasurement(measurementUriValidator);
+    if (requestMetrics != null) {
+      final long validated = System.nanoTime();
+      requestMetrics.addDuration(RequestMetrics.Stage.URI_VALIDATE, validated - started);
+      started = validated;
+    }
+
+    String cacheKey = null;
+    String cacheVersion = null;
+    if (responseCache != null) {
+      final EdmBindingTarget cacheTarget = ResponseCacheHelper.getCacheableTarget(request, uriInfo);
+      if (cacheTarget != null) {
+        cacheKey = ResponseCacheHelper.getKey(request);
+        cacheVersion = responseCache.getVersion(cacheTarget);
+        final CachedResponse cachedResponse = responseCache.get(cacheKey, cacheVersion);
+        if (cachedResponse != null) {
+          ResponseCacheHelper.write(cachedResponse, response);
+          debugger.stopRuntimeMeasurement(measurementHandle);
+          return;
+        }
+      }
+    }
 
     final int measurementDispatcher = debugger.startRuntimeMeasurement("ODataDispatcher", "dispatch");
     try {
@@ -155,6 +203,49 @@ public class ODataHandler {
     } finally {
       debugger.stopRuntimeMeasurement(measurementDispatcher);
       debugger.stopRuntimeMeasurement(measurementHandle);
+      if (requestMetrics != null) {
+        requestMetrics.addDuration(RequestMetrics.Stage.DISPATCH, System.nanoTime() - started);
+      }
+      // Data may have been changed even if the processing failed.
+      if (responseCache != null && method != HttpMethod.GET) {
+        ResponseCacheHelper.invalidate(responseCache, uriInfo);
+      }
+    }
+
+    if (cacheKey != null) {
+      ResponseCacheHelper.store(responseCache, cacheKey, cacheVersion, response);
+    }
+  }
+
+  /**
+   * Rejects a request whose announced body size exceeds the limit
+   * and lets the body enforce the request limits while it is read.
+   */
+  private void applyRequestLimits(final ODataRequest request) throws DeserializerException {
+    if (requestLimits == null || request.getBody() == null || request.getBody() instanceof LimitedInputStream) {
+      return;
+    }
+    long contentLength = -1;
+    try {
+      final String value = request.getHeader(HttpHeader.CONTENT_LENGTH);
+      contentLength = value == null ? -1 : Long.parseLong(value.trim());
+    } catch (final NumberFormatException e) {
+      // The actual size is checked while the body is read.
+    }
+    if (contentLength > requestLimits.getMaxBodySize()) {
+      throw new DeserializerException("The request body is too large.",
+          DeserializerException.MessageKeys.LIMIT_EXCEEDED,
+          LimitedInputStream.BODY_SIZE, Long.toString(requestLimits.getMaxBodySize()));
+    }
+    request.setBody(new LimitedInputStream(request.getBody(), requestLimits));
+  }
+
+  private static String getResourceName(final UriInfo uriInfo) {
+    if (uriInfo.getKind() == UriInfoKind.resource) {
+      final List<UriResource> resourceParts = uriInfo.getUriResourceParts();
+      return resourceParts.isEmpty() ? "" : resourceParts.get(0).getSegmentValue();
+    } else {
+      return "$" + uriInfo.getKind().name();
     }
   }
 
@@ -222,6 +313,18 @@ public class ODataHandler {
     return customETagSupport;
   }
 
+  public void register(final ETagProvider eTagProvider) {
+    this.eTagProvider = eTagProvider;
+  }
+
+  public ETagProvider getETagProvider() {
+    return eTagProvider;
+  }
+
+  public void register(final ResponseCache responseCache) {
+    this.responseCache = responseCache;
+  }
+
   public Exception getLastThrownException() {
     return lastThrownException;
   }
@@ -229,4 +332,20 @@ public class ODataHandler {
   public UriInfo getUriInfo() {
     return uriInfo;
   }
+
+  /**
+   * Sets the metrics to be collected for the next request processed by this handler.
+   * @param metrics the metrics, or <code>null</code> if no metrics should be collected
+   */
+  public void setMetrics(final RequestMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Sets the limits for the content of the requests processed by this handler.
+   * @param requestLimits the limits, or <code>null</code> if request bodies should not be limited
+   */
+  public void setRequestLimits(final RequestLimits requestLimits) {
+    this.requestLimits = requestLimits;
+  }
 }
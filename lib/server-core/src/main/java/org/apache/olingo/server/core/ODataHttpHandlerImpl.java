@@ -45,10 +45,15 @@ import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ODataServerError;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.cache.ResponseCache;
 import org.apache.olingo.server.api.debug.DebugSupport;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
+import org.apache.olingo.server.api.etag.ETagProvider;
+import org.apache.olingo.server.api.metrics.MetricsSupport;
+import org.apache.olingo.server.api.metrics.RequestMetrics;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.serializer.CustomContentTypeSupport;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
@@ -61,6 +66,7 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   private final ServerCoreDebugger debugger;
 
   private int split = 0;
+  private MetricsSupport metricsSupport;
 
   public ODataHttpHandlerImpl(final OData odata, final ServiceMetadata serviceMetadata) {
     debugger = new ServerCoreDebugger(odata);
@@ -73,6 +79,12 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
     Exception exception = null;
     ODataResponse odResponse;
     debugger.resolveDebugMode(request);
+    final RequestMetrics metrics = metricsSupport == null ? null : new RequestMetrics();
+    final long started = metrics == null ? 0 : System.nanoTime();
+    if (metrics != null) {
+      metricsSupport.requestStarted(metrics);
+    }
+    handler.setMetrics(metrics);
 
     final int processMethodHandle = debugger.startRuntimeMeasurement("ODataHttpHandlerImpl", "process");
     try {
@@ -97,7 +109,23 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
               serverEnvironmentVariables);
     }
 
-    convertToHttp(response, odResponse);
+    if (metrics == null) {
+      convertToHttp(response, odResponse);
+    } else {
+      final long writeStarted = System.nanoTime();
+      metrics.setResponseSize(writeToHttp(response, odResponse));
+      final long finished = System.nanoTime();
+      metrics.addDuration(RequestMetrics.Stage.WRITE, finished - writeStarted);
+      metrics.setDuration(finished - started);
+      metrics.setMethod(odRequest.getMethod());
+      metrics.setStatusCode(odResponse.getStatusCode());
+      metrics.setRequestSize(request.getContentLength());
+      if (exception == null) {
+        exception = handler.getLastThrownException();
+      }
+      metrics.setErrorKind(exception == null ? null : exception.getClass().getSimpleName());
+      metricsSupport.requestProcessed(metrics);
+    }
   }
 
   private Map<String, String> createEnvironmentVariablesMap(final HttpServletRequest request) {
@@ -143,6 +171,14 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   }
 
   static void convertToHttp(final HttpServletResponse response, final ODataResponse odResponse) {
+    writeToHttp(response, odResponse);
+  }
+
+  /**
+   * Writes the OData response to the HTTP response.
+   * @return the number of content bytes written
+   */
+  private static long writeToHttp(final HttpServletResponse response, final ODataResponse odResponse) {
     response.setStatus(odResponse.getStatusCode());
 
     for (Entry<String, List<String>> entry : odResponse.getAllHeaders().entrySet()) {
@@ -152,35 +188,40 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
     }
 
     if (odResponse.getContent() != null ) {
-      copyContent(odResponse.getContent(), response);
+      return copyContent(odResponse.getContent(), response);
     } else if(odResponse.getODataContent() != null) {
-      writeContent(odResponse, response);
+      return writeContent(odResponse, response);
     }
+    return 0;
   }
 
-  static void writeContent(final ODataResponse odataResponse, final HttpServletResponse servletResponse) {
+  static long writeContent(final ODataResponse odataResponse, final HttpServletResponse servletResponse) {
     try {
       ODataContent res = odataResponse.getODataContent();
-      res.write(Channels.newChannel(servletResponse.getOutputStream()));
+      final CountingChannel output = new CountingChannel(Channels.newChannel(servletResponse.getOutputStream()));
+      res.write(output);
+      return output.count;
     } catch (IOException e) {
       throw new ODataRuntimeException("Error on reading request content", e);
     }
   }
 
-  static void copyContent(final InputStream inputStream, final HttpServletResponse servletResponse) {
-    copyContent(Channels.newChannel(inputStream), servletResponse);
+  static long copyContent(final InputStream inputStream, final HttpServletResponse servletResponse) {
+    return copyContent(Channels.newChannel(inputStream), servletResponse);
   }
 
-  static void copyContent(final ReadableByteChannel input, final HttpServletResponse servletResponse) {
+  static long copyContent(final ReadableByteChannel input, final HttpServletResponse servletResponse) {
     WritableByteChannel output = null;
+    long count = 0;
     try {
       ByteBuffer inBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
       output = Channels.newChannel(servletResponse.getOutputStream());
       while (input.read(inBuffer) > 0) {
         inBuffer.flip();
-        output.write(inBuffer);
+        count += output.write(inBuffer);
         inBuffer.clear();
       }
+      return count;
     } catch (IOException e) {
       throw new ODataRuntimeException("Error on reading request content", e);
     } finally {
@@ -316,8 +357,55 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
     handler.register(customConcurrencyControlSupport);
   }
 
+  @Override
+  public void setRequestLimits(final RequestLimits requestLimits) {
+    handler.setRequestLimits(requestLimits);
+  }
+
+  @Override
+  public void register(final ETagProvider eTagProvider) {
+    handler.register(eTagProvider);
+  }
+
   @Override
   public void register(final DebugSupport debugSupport) {
     debugger.setDebugSupportProcessor(debugSupport);
   }
+
+  @Override
+  public void register(final MetricsSupport metricsSupport) {
+    this.metricsSupport = metricsSupport;
+  }
+
+  @Override
+  public void register(final ResponseCache responseCache) {
+    handler.register(responseCache);
+  }
+
+  /** Channel counting the bytes written to the underlying channel. */
+  private static final class CountingChannel implements WritableByteChannel {
+    private final WritableByteChannel channel;
+    private long count = 0;
+
+    private CountingChannel(final WritableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int write(final ByteBuffer source) throws IOException {
+      final int written = channel.write(source);
+      count += written;
+      return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
 }
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.cache.CachedResponse;
+import org.apache.olingo.server.api.cache.ResponseCache;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriInfoKind;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceAction;
+import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.UriResourceFunction;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.UriResourceSingleton;
+import org.apache.olingo.server.api.uri.queryoption.QueryOption;
+import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
+import org.apache.olingo.server.core.uri.UriInfoImpl;
+
+/**
+ * Connects the {@link ResponseCache} with the request processing of the {@link ODataHandler}.
+ */
+final class ResponseCacheHelper {
+
+  private static final String[] CONDITIONAL_HEADERS = { HttpHeader.IF_MATCH, HttpHeader.IF_NONE_MATCH,
+      HttpHeader.IF_MODIFIED_SINCE, HttpHeader.IF_UNMODIFIED_SINCE };
+
+  private ResponseCacheHelper() { /* static helper class */}
+
+  /**
+   * Gets the entity set or singleton whose data the response to the given request depends on exclusively.
+   * @return the entity set or singleton, or <code>null</code> if the response must not be cached
+   */
+  static EdmBindingTarget getCacheableTarget(final ODataRequest request, final UriInfo uriInfo) {
+    if (request.getMethod() != HttpMethod.GET || uriInfo.getKind() != UriInfoKind.resource
+        || uriInfo.getExpandOption() != null
+        || hasPath(uriInfo.getFilterOption()) || hasPath(uriInfo.getOrderByOption())
+        || hasPath(UriInfoImpl.getSystemQueryOption(uriInfo, SystemQueryOptionKind.APPLY))) {
+      return null;
+    }
+    for (final String name : CONDITIONAL_HEADERS) {
+      if (request.getHeader(name) != null) {
+        return null;
+      }
+    }
+    return getTarget(uriInfo);
+  }
+
+  /**
+   * Invalidates the cached responses whose data may have been changed by the given request.
+   * <br/>
+   * A request to an entity or a collection of entities whose type has navigation properties may change other
+   * entity sets, too: through inline entities or bindings in its body (deep insert or update), or through
+   * the links removed with a deleted entity; all cached responses are invalidated then.
+   */
+  static void invalidate(final ResponseCache cache, final UriInfo uriInfo) {
+    if (uriInfo.getKind() == UriInfoKind.resource) {
+      final EdmBindingTarget target = getTarget(uriInfo);
+      if (target == null
+          || uriInfo.getUriResourceParts().size() == 1
+              && !target.getEntityType().getNavigationPropertyNames().isEmpty()) {
+        cache.invalidateAll();
+      } else {
+        cache.invalidate(target);
+      }
+    }
+  }
+
+  /** Gets the cache key of the given request. */
+  static String getKey(final ODataRequest request) {
+    final StringBuilder key = new StringBuilder(request.getRawBaseUri()).append(' ')
+        .append(request.getRawODataPath());
+    if (request.getRawQueryPath() != null && !request.getRawQueryPath().isEmpty()) {
+      // The order of the query options does not matter.
+      final String[] options = request.getRawQueryPath().split("&");
+      Arrays.sort(options);
+      char separator = '?';
+      for (final String option : options) {
+        key.append(separator).append(option);
+        separator = '&';
+      }
+    }
+    return key.append('\n').append(request.getHeader(HttpHeader.ACCEPT))
+        .append('\n').append(request.getHeader(HttpHeader.ACCEPT_CHARSET))
+        .append('\n').append(request.getHeaders(HttpHeader.PREFER))
+        .toString();
+  }
+
+  /** Writes the cached response into the given response. */
+  static void write(final CachedResponse cachedResponse, final ODataResponse response) {
+    response.setStatusCode(cachedResponse.getStatusCode());
+    for (final Map.Entry<String, List<String>> header : cachedResponse.getHeaders().entrySet()) {
+      final List<String> values = header.getValue();
+      response.setHeader(header.getKey(), values.get(0));
+      if (values.size() > 1) {
+        response.addHeader(header.getKey(), values.subList(1, values.size()));
+      }
+    }
+    response.setContent(new ByteArrayInputStream(cachedResponse.getContent()));
+  }
+
+  /**
+   * Stores a successful response in the cache; its content is replaced by a copy.
+   * Streamed responses are not cached.
+   */
+  static void store(final ResponseCache cache, final String key, final String version,
+      final ODataResponse response) {
+    if (response.getStatusCode() != HttpStatusCode.OK.getStatusCode()
+        || response.getODataContent() != null || response.getContent() == null) {
+      return;
+    }
+    final InputStream content = response.getContent();
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try {
+      final byte[] bytes = new byte[8192];
+      int count;
+      while ((count = content.read(bytes)) >= 0) {
+        buffer.write(bytes, 0, count);
+      }
+    } catch (final IOException e) {
+      // The response is not cached; the remaining content is read by the caller as usual.
+      response.setContent(new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), content));
+      return;
+    }
+    final byte[] bytes = buffer.toByteArray();
+    response.setContent(new ByteArrayInputStream(bytes));
+    cache.put(key, version, new CachedResponse(response.getStatusCode(), response.getAllHeaders(), bytes));
+  }
+
+  private static EdmBindingTarget getTarget(final UriInfo uriInfo) {
+    final List<UriResource> parts = uriInfo.getUriResourceParts();
+    for (final UriResource part : parts) {
+      if (part instanceof UriResourceNavigation
+          || part instanceof UriResourceFunction
+          || part instanceof UriResourceAction) {
+        return null;
+      }
+    }
+    final UriResource first = parts.isEmpty() ? null : parts.get(0);
+    return first instanceof UriResourceEntitySet ? ((UriResourceEntitySet) first).getEntitySet() :
+        first instanceof UriResourceSingleton ? ((UriResourceSingleton) first).getSingleton() :
+            null;
+  }
+
+  /** Whether the expressions of the given option could refer to data of other entity sets. */
+  private static boolean hasPath(final QueryOption option) {
+    return option != null && (option.getText() == null || option.getText().indexOf('/') >= 0);
+  }
+}
@@ -21,22 +21,34 @@ package org.apache.olingo.server.core;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
 import org.apache.olingo.commons.api.edm.constants.ODataServiceVersion;
 import org.apache.olingo.commons.api.edm.provider.CsdlEdmProvider;
 import org.apache.olingo.commons.core.edm.EdmProviderImpl;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.edmx.EdmxReference;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.uri.parser.QueryTemplateCache;
+import org.apache.olingo.server.core.uri.queryoption.ProjectionTree;
 
 /**
  */
 public class ServiceMetadataImpl implements ServiceMetadata {
 
+  /** Maximum number of projection trees kept; if reached, the cache is cleared. */
+  private static final int MAX_PROJECTION_TREES = 1000;
+
   private final Edm edm;
   private final List<EdmxReference> references;
   private final ServiceMetadataETagSupport serviceMetadataETagSupport;
+  private final ConcurrentMap<String, ProjectionTree> projectionTrees =
+      new ConcurrentHashMap<String, ProjectionTree>();
+  private final QueryTemplateCache queryTemplateCache = new QueryTemplateCache();
 
   public ServiceMetadataImpl(final CsdlEdmProvider edmProvider, final List<EdmxReference> references,
       final ServiceMetadataETagSupport serviceMetadataETagSupport) {
@@ -65,4 +77,26 @@ public class ServiceMetadataImpl implements ServiceMetadata {
   public ServiceMetadataETagSupport getServiceMetadataETagSupport() {
     return serviceMetadataETagSupport;
   }
+
+  /**
+   * Gets the projection tree for the text of the given select option applied to the given type,
+   * computing it only once for all requests with the same <code>$select</code>.
+   */
+  public ProjectionTree getProjectionTree(final EdmStructuredType type, final SelectOption select) {
+    final String key = type.getFullQualifiedName().getFullQualifiedNameAsString() + '?' + select.getText();
+    ProjectionTree tree = projectionTrees.get(key);
+    if (tree == null) {
+      tree = ProjectionTree.create(select);
+      if (projectionTrees.size() >= MAX_PROJECTION_TREES) {
+        projectionTrees.clear();
+      }
+      projectionTrees.put(key, tree);
+    }
+    return tree;
+  }
+
+  /** Gets the cache of the query templates used to parse the request URIs of this service. */
+  public QueryTemplateCache getQueryTemplateCache() {
+    return queryTemplateCache;
+  }
 }
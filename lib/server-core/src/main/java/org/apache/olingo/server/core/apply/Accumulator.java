@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression.StandardMethod;
+
+/**
+ * Accumulates the values of one aggregate expression for one group of entities.
+ * Null values are ignored. Sums and averages are held in primitive fields as long as possible.
+ */
+abstract class Accumulator {
+
+  abstract void add(Object value);
+
+  /** Returns the aggregated value, or <code>null</code> if no value has been added. */
+  abstract Object getValue();
+
+  /** Returns the full-qualified name of the EDM type of the aggregated value, or <code>null</code> if unknown. */
+  abstract String getType();
+
+  /**
+   * Creates an accumulator for the given method.
+   * @param method the aggregation method, or <code>null</code> for <code>$count</code>
+   */
+  static Accumulator create(final StandardMethod method) {
+    if (method == null) {
+      return new Count();
+    }
+    switch (method) {
+    case SUM:
+      return new Sum();
+    case AVERAGE:
+      return new Average();
+    case MIN:
+      return new MinMax(false);
+    case MAX:
+      return new MinMax(true);
+    case COUNT_DISTINCT:
+      return new CountDistinct();
+    default:
+      throw new IllegalArgumentException("Unknown aggregation method " + method);
+    }
+  }
+
+  /**
+   * Compares two values; numbers of different types are compared numerically.
+   * Values that are not comparable are considered equal.
+   */
+  @SuppressWarnings("unchecked")
+  static int compare(final Object value1, final Object value2) {
+    if (value1 instanceof Number && value2 instanceof Number && value1.getClass() != value2.getClass()) {
+      if (isFloatingPoint(value1) || isFloatingPoint(value2)) {
+        return Double.compare(((Number) value1).doubleValue(), ((Number) value2).doubleValue());
+      }
+      return toBigDecimal((Number) value1).compareTo(toBigDecimal((Number) value2));
+    } else if (value1 instanceof Comparable && value1.getClass() == value2.getClass()) {
+      return ((Comparable<Object>) value1).compareTo(value2);
+    } else {
+      return 0;
+    }
+  }
+
+  private static boolean isFloatingPoint(final Object value) {
+    return value instanceof Double || value instanceof Float;
+  }
+
+  private static boolean isIntegral(final Object value) {
+    return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+  }
+
+  /**
+   * Gets a value that equals the normalized values of all values with the same content:
+   * binary values are compared by content, integral numbers as <code>long</code> values,
+   * and decimal values by numeric value, so that, e.g., <code>1.0</code> and <code>1.00</code> are equal.
+   */
+  static Object normalize(final Object value) {
+    if (value instanceof byte[]) {
+      return ByteBuffer.wrap((byte[]) value);
+    } else if (isIntegral(value)) {
+      return Long.valueOf(((Number) value).longValue());
+    } else if (value instanceof BigDecimal) {
+      // BigDecimal.stripTrailingZeros() does not normalize zero in Java 6 and 7.
+      return ((BigDecimal) value).signum() == 0 ? BigDecimal.ZERO : ((BigDecimal) value).stripTrailingZeros();
+    } else {
+      return value;
+    }
+  }
+
+  private static BigDecimal toBigDecimal(final Number value) {
+    if (value instanceof BigDecimal) {
+      return (BigDecimal) value;
+    } else if (value instanceof BigInteger) {
+      return new BigDecimal((BigInteger) value);
+    } else if (isIntegral(value)) {
+      return BigDecimal.valueOf(value.longValue());
+    } else {
+      return new BigDecimal(value.toString());
+    }
+  }
+
+  private static String getName(final EdmPrimitiveTypeKind kind) {
+    return kind.getFullQualifiedName().getFullQualifiedNameAsString();
+  }
+
+  /** Sum of numbers, as <code>long</code> until a fractional value or an overflow needs another representation. */
+  static class Sum extends Accumulator {
+    private static final int NONE = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int DECIMAL = 3;
+
+    private int mode = NONE;
+    private long longSum;
+    private double doubleSum;
+    private BigDecimal decimalSum;
+
+    @Override
+    void add(final Object value) {
+      if (value == null) {
+        return;
+      }
+      if (mode <= LONG && isIntegral(value)) {
+        final long summand = ((Number) value).longValue();
+        final long result = longSum + summand;
+        if (((longSum ^ result) & (summand ^ result)) < 0) {
+          decimalSum = BigDecimal.valueOf(longSum).add(BigDecimal.valueOf(summand));
+          mode = DECIMAL;
+        } else {
+          longSum = result;
+          mode = LONG;
+        }
+      } else if (mode == DOUBLE || isFloatingPoint(value)) {
+        if (mode != DOUBLE) {
+          doubleSum = mode == LONG ? longSum : mode == DECIMAL ? decimalSum.doubleValue() : 0;
+          mode = DOUBLE;
+        }
+        doubleSum += ((Number) value).doubleValue();
+      } else {
+        if (mode != DECIMAL) {
+          decimalSum = BigDecimal.valueOf(longSum);
+          mode = DECIMAL;
+        }
+        decimalSum = decimalSum.add(toBigDecimal((Number) value));
+      }
+    }
+
+    @Override
+    Object getValue() {
+      switch (mode) {
+      case LONG:
+        return longSum;
+      case DOUBLE:
+        return doubleSum;
+      case DECIMAL:
+        return decimalSum;
+      default:
+        return null;
+      }
+    }
+
+    @Override
+    String getType() {
+      return getName(mode == LONG ? EdmPrimitiveTypeKind.Int64
+          : mode == DOUBLE ? EdmPrimitiveTypeKind.Double : EdmPrimitiveTypeKind.Decimal);
+    }
+
+    boolean isDecimal() {
+      return mode == DECIMAL;
+    }
+  }
+
+  /** Average of numbers, computed from a sum and a count. */
+  static class Average extends Accumulator {
+    private final Sum sum = new Sum();
+    private long count;
+
+    @Override
+    void add(final Object value) {
+      if (value != null) {
+        sum.add(value);
+        count++;
+      }
+    }
+
+    @Override
+    Object getValue() {
+      if (count == 0) {
+        return null;
+      }
+      final Number total = (Number) sum.getValue();
+      if (sum.isDecimal()) {
+        return ((BigDecimal) total).divide(BigDecimal.valueOf(count), MathContext.DECIMAL128);
+      } else {
+        return total.doubleValue() / count;
+      }
+    }
+
+    @Override
+    String getType() {
+      return getName(sum.isDecimal() ? EdmPrimitiveTypeKind.Decimal : EdmPrimitiveTypeKind.Double);
+    }
+  }
+
+  /** Minimum or maximum of comparable values. */
+  static class MinMax extends Accumulator {
+    private final boolean max;
+    private Object value;
+
+    MinMax(final boolean max) {
+      this.max = max;
+    }
+
+    @Override
+    void add(final Object value) {
+      if (value != null) {
+        if (this.value == null) {
+          this.value = value;
+        } else {
+          final int comparison = compare(value, this.value);
+          if (max ? comparison > 0 : comparison < 0) {
+            this.value = value;
+          }
+        }
+      }
+    }
+
+    @Override
+    Object getValue() {
+      return value;
+    }
+
+    @Override
+    String getType() {
+      return null;
+    }
+  }
+
+  /** Number of distinct values, compared as normalized values (see {@link #normalize(Object)}). */
+  static class CountDistinct extends Accumulator {
+    private final Set<Object> values = new HashSet<Object>();
+
+    @Override
+    void add(final Object value) {
+      if (value != null) {
+        values.add(normalize(value));
+      }
+    }
+
+    @Override
+    Object getValue() {
+      return (long) values.size();
+    }
+
+    @Override
+    String getType() {
+      return getName(EdmPrimitiveTypeKind.Int64);
+    }
+  }
+
+  /** Number of entities, for <code>$count</code>. */
+  static class Count extends Accumulator {
+    private long count;
+
+    @Override
+    void add(final Object value) {
+      count++;
+    }
+
+    @Override
+    Object getValue() {
+      return count;
+    }
+
+    @Override
+    String getType() {
+      return getName(EdmPrimitiveTypeKind.Int64);
+    }
+  }
+}
@@ -0,0 +1,463 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.olingo.commons.api.data.AbstractEntityCollection;
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.apply.ApplyExpressionEvaluator;
+import org.apache.olingo.server.api.apply.ApplyHelper;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceComplexProperty;
+import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.apply.Aggregate;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.ApplyItem;
+import org.apache.olingo.server.api.uri.queryoption.apply.BottomTop;
+import org.apache.olingo.server.api.uri.queryoption.apply.Filter;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupBy;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+/**
+ * Applies the transformations of $apply as a chain of stages; every entity is pushed through the chain once.
+ * Grouping is done with a hash map from the grouping values to the accumulators of the group.
+ */
+public class ApplyHelperImpl implements ApplyHelper {
+
+  private ApplyExpressionEvaluator evaluator;
+
+  @Override
+  public EntityCollection apply(final AbstractEntityCollection entities, final ApplyOption applyOption)
+      throws ODataApplicationException {
+    EntityCollection result = new EntityCollection();
+    final Stage chain = createChain(applyOption, new Collector(result.getEntities()));
+    for (final Entity entity : entities) {
+      chain.accept(entity);
+    }
+    chain.finish();
+    return result;
+  }
+
+  @Override
+  public void setExpressionEvaluator(final ApplyExpressionEvaluator evaluator) {
+    this.evaluator = evaluator;
+  }
+
+  private Stage createChain(final ApplyOption applyOption, final Stage last) throws ODataApplicationException {
+    Stage stage = last;
+    final List<ApplyItem> items = applyOption.getApplyItems();
+    for (int i = items.size() - 1; i >= 0; i--) {
+      stage = createStage(items.get(i), stage);
+    }
+    return stage;
+  }
+
+  private Stage createStage(final ApplyItem item, final Stage next) throws ODataApplicationException {
+    switch (item.getKind()) {
+    case AGGREGATE:
+      return new AggregateStage((Aggregate) item, next);
+    case GROUP_BY:
+      return new GroupByStage((GroupBy) item, next);
+    case FILTER:
+      return new FilterStage((Filter) item, next);
+    case TOP_COUNT:
+    case BOTTOM_COUNT:
+      return new BottomTopStage((BottomTop) item, next);
+    default:
+      throw new ODataApplicationException("Transformation " + item.getKind() + " is not supported.",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+  }
+
+  private Object evaluate(final Expression expression, final Entity entity) throws ODataApplicationException {
+    if (expression instanceof Member) {
+      final List<UriResource> path = getPath((Member) expression);
+      if (path != null) {
+        final Property property = getProperty(entity.getProperties(), path);
+        return property == null ? null : property.getValue();
+      }
+    }
+    if (evaluator == null) {
+      throw new ODataApplicationException("Only property paths can be evaluated without expression evaluator.",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+    return evaluator.evaluate(expression, entity);
+  }
+
+  /** Returns the path of complex properties ending in a primitive property, or <code>null</code>. */
+  private static List<UriResource> getPath(final Member member) {
+    if (member.getStartTypeFilter() != null || member.isCollection()) {
+      return null;
+    }
+    final List<UriResource> path = member.getResourcePath().getUriResourceParts();
+    for (int i = 0; i < path.size(); i++) {
+      final UriResource segment = path.get(i);
+      if (!(i < path.size() - 1 && segment instanceof UriResourceComplexProperty
+          && ((UriResourceComplexProperty) segment).getComplexTypeFilter() == null
+          || i == path.size() - 1 && segment instanceof UriResourcePrimitiveProperty)) {
+        return null;
+      }
+    }
+    return path;
+  }
+
+  private static Property getProperty(final List<Property> properties, final List<UriResource> path) {
+    List<Property> current = properties;
+    Property found = null;
+    for (final UriResource segment : path) {
+      found = find(current, segment.getSegmentValue());
+      if (found == null || found.isNull()) {
+        return null;
+      }
+      if (found.isComplex()) {
+        current = found.asComplex().getValue();
+      }
+    }
+    return found;
+  }
+
+  private static Property find(final List<Property> properties, final String name) {
+    for (final Property property : properties) {
+      if (name.equals(property.getName())) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+  /** Adds a primitive property at the given path, creating the complex properties on the way if necessary. */
+  private static void addProperty(final List<Property> properties, final List<UriResource> path,
+      final String type, final Object value) {
+    List<Property> current = properties;
+    for (final UriResource segment : path.subList(0, path.size() - 1)) {
+      Property complex = find(current, segment.getSegmentValue());
+      if (complex == null) {
+        final EdmType complexType = ((UriResourceComplexProperty) segment).getComplexType();
+        complex = new Property(complexType.getFullQualifiedName().getFullQualifiedNameAsString(),
+            segment.getSegmentValue(), ValueType.COMPLEX, new ComplexValue());
+        current.add(complex);
+      }
+      current = complex.asComplex().getValue();
+    }
+    current.add(new Property(type, path.get(path.size() - 1).getSegmentValue(), ValueType.PRIMITIVE, value));
+  }
+
+  /** Copies a property including its complex and collection values. */
+  private static Property copy(final Property property) {
+    return new Property(property.getType(), property.getName(), property.getValueType(),
+        copyValue(property.getValueType(), property.getValue()));
+  }
+
+  private static Object copyValue(final ValueType valueType, final Object value) {
+    if (value == null || valueType == null) {
+      return value;
+    } else if (valueType != valueType.getBaseType()) {
+      List<Object> collection = new ArrayList<Object>();
+      for (final Object item : (List<?>) value) {
+        collection.add(copyValue(valueType.getBaseType(), item));
+      }
+      return collection;
+    } else if (valueType == ValueType.COMPLEX) {
+      ComplexValue complexValue = new ComplexValue();
+      for (final Property property : ((ComplexValue) value).getValue()) {
+        complexValue.getValue().add(copy(property));
+      }
+      return complexValue;
+    } else {
+      return value;
+    }
+  }
+
+  /** A step of the transformation chain; it receives entities one by one and passes results on. */
+  private abstract static class Stage {
+    abstract void accept(Entity entity) throws ODataApplicationException;
+
+    abstract void finish() throws ODataApplicationException;
+  }
+
+  private static class Collector extends Stage {
+    private final List<Entity> entities;
+
+    private Collector(final List<Entity> entities) {
+      this.entities = entities;
+    }
+
+    @Override
+    void accept(final Entity entity) {
+      entities.add(entity);
+    }
+
+    @Override
+    void finish() {
+      // Nothing to do.
+    }
+  }
+
+  private class FilterStage extends Stage {
+    private final Expression condition;
+    private final Stage next;
+
+    private FilterStage(final Filter filter, final Stage next) {
+      condition = filter.getExpression();
+      this.next = next;
+    }
+
+    @Override
+    void accept(final Entity entity) throws ODataApplicationException {
+      if (Boolean.TRUE.equals(evaluate(condition, entity))) {
+        next.accept(entity);
+      }
+    }
+
+    @Override
+    void finish() throws ODataApplicationException {
+      next.finish();
+    }
+  }
+
+  private class AggregateStage extends Stage {
+    private final List<AggregateExpression> expressions;
+    private final Accumulator[] accumulators;
+    private final Stage next;
+
+    private AggregateStage(final Aggregate aggregate, final Stage next) {
+      expressions = aggregate.getExpressions();
+      accumulators = new Accumulator[expressions.size()];
+      for (int i = 0; i < accumulators.length; i++) {
+        accumulators[i] = Accumulator.create(expressions.get(i).getStandardMethod());
+      }
+      this.next = next;
+    }
+
+    @Override
+    void accept(final Entity entity) throws ODataApplicationException {
+      for (int i = 0; i < accumulators.length; i++) {
+        final Expression expression = expressions.get(i).getExpression();
+        accumulators[i].add(expression == null ? null : evaluate(expression, entity));
+      }
+    }
+
+    @Override
+    void finish() throws ODataApplicationException {
+      Entity result = new Entity();
+      for (int i = 0; i < accumulators.length; i++) {
+        final AggregateExpression expression = expressions.get(i);
+        String type = accumulators[i].getType();
+        if (type == null && expression.getExpression() instanceof Member
+            && ((Member) expression.getExpression()).getType() != null) {
+          type = ((Member) expression.getExpression()).getType().getFullQualifiedName()
+              .getFullQualifiedNameAsString();
+        }
+        result.addProperty(new Property(type, expression.getAlias(), ValueType.PRIMITIVE,
+            accumulators[i].getValue()));
+      }
+      next.accept(result);
+      next.finish();
+    }
+  }
+
+  private class GroupByStage extends Stage {
+    private final List<Member> items;
+    private final List<List<UriResource>> paths = new ArrayList<List<UriResource>>();
+    private final ApplyOption nested;
+    private final Map<List<Object>, Group> groups = new LinkedHashMap<List<Object>, Group>();
+    private final Stage next;
+
+    private GroupByStage(final GroupBy groupBy, final Stage next) throws ODataApplicationException {
+      items = groupBy.getGroupByItems();
+      for (final Member item : items) {
+        final List<UriResource> path = getPath(item);
+        if (path == null) {
+          throw new ODataApplicationException("Only paths to primitive properties can be grouped by.",
+              HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+        }
+        paths.add(path);
+      }
+      nested = groupBy.getApplyOption();
+      this.next = next;
+    }
+
+    @Override
+    void accept(final Entity entity) throws ODataApplicationException {
+      final Object[] values = new Object[paths.size()];
+      final String[] types = new String[paths.size()];
+      for (int i = 0; i < values.length; i++) {
+        final Property property = getProperty(entity.getProperties(), paths.get(i));
+        values[i] = property == null ? null : property.getValue();
+        types[i] = property == null ? null : property.getType();
+      }
+      final List<Object> key = groupKey(values);
+      Group group = groups.get(key);
+      if (group == null) {
+        group = new Group(values, types);
+        groups.put(key, group);
+      }
+      if (group.chain != null) {
+        group.chain.accept(entity);
+      }
+    }
+
+    /**
+     * Gets the key of the group with the given grouping values. Binary values are compared by content
+     * and decimal values by numeric value, so that, e.g., <code>1.0</code> and <code>1.00</code> are in one group.
+     */
+    private List<Object> groupKey(final Object[] values) {
+      Object[] key = new Object[values.length];
+      for (int i = 0; i < values.length; i++) {
+        key[i] = Accumulator.normalize(values[i]);
+      }
+      return Arrays.asList(key);
+    }
+
+    @Override
+    void finish() throws ODataApplicationException {
+      for (final Group group : groups.values()) {
+        if (group.chain == null) {
+          next.accept(group.createEntity(new Entity()));
+        } else {
+          group.chain.finish();
+          for (final Entity entity : group.results) {
+            next.accept(group.createEntity(entity));
+          }
+        }
+      }
+      next.finish();
+    }
+
+    private class Group {
+      private final Object[] values;
+      private final String[] types;
+      private final List<Entity> results = new ArrayList<Entity>();
+      private final Stage chain;
+
+      private Group(final Object[] values, final String[] types) throws ODataApplicationException {
+        this.values = values;
+        this.types = types;
+        chain = nested == null ? null : createChain(nested, new Collector(results));
+      }
+
+      /**
+       * Creates a result entity with the grouping properties, followed by copies of the properties
+       * of the given entity that are not grouping properties; the given entity is not changed.
+       */
+      private Entity createEntity(final Entity entity) {
+        Entity result = new Entity();
+        for (int i = 0; i < values.length; i++) {
+          final String type = types[i] == null && items.get(i).getType() != null ?
+              items.get(i).getType().getFullQualifiedName().getFullQualifiedNameAsString() :
+              types[i];
+          addProperty(result.getProperties(), paths.get(i), type, values[i]);
+        }
+        final int groupingProperties = result.getProperties().size();
+        for (final Property property : entity.getProperties()) {
+          if (find(result.getProperties().subList(0, groupingProperties), property.getName()) == null) {
+            result.getProperties().add(copy(property));
+          }
+        }
+        return result;
+      }
+    }
+  }
+
+  private class BottomTopStage extends Stage {
+    private final int n;
+    private final boolean top;
+    private final Expression value;
+    private final Stage next;
+    private final PriorityQueue<Ranked> kept;
+    private long position = 0;
+
+    private BottomTopStage(final BottomTop bottomTop, final Stage next) {
+      n = bottomTop.getN();
+      top = bottomTop.getKind() == ApplyItem.Kind.TOP_COUNT;
+      value = bottomTop.getValue();
+      this.next = next;
+      // The head of the queue is the entity to be dropped first.
+      kept = new PriorityQueue<Ranked>(Math.max(1, Math.min(n, 1024)), Collections.reverseOrder(ranking()));
+    }
+
+    /** Orders entities from the first to be kept to the first to be dropped. */
+    private Comparator<Ranked> ranking() {
+      return new Comparator<Ranked>() {
+        @Override
+        public int compare(final Ranked ranked1, final Ranked ranked2) {
+          int result;
+          if (ranked1.value == null || ranked2.value == null) {
+            result = ranked1.value == null ? ranked2.value == null ? 0 : 1 : -1;
+          } else {
+            result = top ?
+                Accumulator.compare(ranked2.value, ranked1.value) :
+                Accumulator.compare(ranked1.value, ranked2.value);
+          }
+          return result == 0 ? Long.valueOf(ranked1.position).compareTo(ranked2.position) : result;
+        }
+      };
+    }
+
+    @Override
+    void accept(final Entity entity) throws ODataApplicationException {
+      if (n > 0) {
+        kept.add(new Ranked(evaluate(value, entity), position++, entity));
+        if (kept.size() > n) {
+          kept.poll();
+        }
+      }
+    }
+
+    @Override
+    void finish() throws ODataApplicationException {
+      List<Ranked> result = new ArrayList<Ranked>(kept);
+      Collections.sort(result, ranking());
+      for (final Ranked ranked : result) {
+        next.accept(ranked.entity);
+      }
+      next.finish();
+    }
+  }
+
+  private static class Ranked {
+    private final Object value;
+    private final long position;
+    private final Entity entity;
+
+    private Ranked(final Object value, final long position, final Entity entity) {
+      this.value = value;
+      this.position = position;
+      this.entity = entity;
+    }
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.olingo.server.api.deserializer.batch.BatchDeserializerExceptio
 import org.apache.olingo.server.api.deserializer.batch.BatchRequestPart;
 import org.apache.olingo.server.api.deserializer.batch.ODataResponsePart;
 import org.apache.olingo.server.api.processor.BatchProcessor;
+import org.apache.olingo.server.core.FlightRecorderEvents;
 import org.apache.olingo.server.core.ODataHandler;
 import org.apache.olingo.server.core.batchhandler.referenceRewriting.BatchReferenceRewriter;
 
@@ -62,6 +63,7 @@ public class BatchPartHandler {
 
   public ODataResponse handle(final ODataRequest request, final boolean isChangeSet)
       throws BatchDeserializerException {
+    final Object event = FlightRecorderEvents.BATCH_PART.begin();
     ODataResponse response;
 
     if (isChangeSet) {
@@ -80,6 +82,11 @@ public class BatchPartHandler {
       response.setHeader(HttpHeader.CONTENT_ID, contentId);
     }
 
+    if (event != null) {
+      FlightRecorderEvents.BATCH_PART.commit(event,
+          request.getMethod() == null ? null : request.getMethod().name(),
+          request.getRawODataPath(), response.getStatusCode(), isChangeSet);
+    }
     return response;
   }
 
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.deserializer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.olingo.server.api.RequestLimits;
+
+/**
+ * Request body that enforces the maximum body size of its {@link RequestLimits} while it is read
+ * and carries the limits to the deserializers reading it.
+ */
+public class LimitedInputStream extends FilterInputStream {
+
+  public static final String BODY_SIZE = "body size";
+  public static final String ENTITIES = "number of entities";
+  public static final String DEPTH = "nesting depth";
+  public static final String BATCH_PARTS = "number of requests";
+  public static final String STRING_LENGTH = "string length";
+
+  private final RequestLimits limits;
+  private long count = 0;
+  private long mark = 0;
+
+  public LimitedInputStream(final InputStream in, final RequestLimits limits) {
+    super(in);
+    this.limits = limits;
+  }
+
+  public RequestLimits getLimits() {
+    return limits;
+  }
+
+  /**
+   * Gets the request limits of the given stream.
+   * @return the limits or <code>null</code> if the stream is not a {@link LimitedInputStream}
+   */
+  public static RequestLimits getLimits(final InputStream stream) {
+    return stream instanceof LimitedInputStream ? ((LimitedInputStream) stream).getLimits() : null;
+  }
+
+  /**
+   * Finds the exception about an exceeded limit in the causes of the given exception.
+   * @return the exception or <code>null</code> if no limit has been exceeded
+   */
+  public static LimitExceededException findLimitExceeded(final Throwable exception) {
+    Throwable cause = exception;
+    for (int i = 0; cause != null && i < 10; i++) {
+      if (cause instanceof LimitExceededException) {
+        return (LimitExceededException) cause;
+      }
+      cause = cause instanceof XMLStreamException && cause.getCause() == null ?
+          ((XMLStreamException) cause).getNestedException() :
+          cause.getCause();
+    }
+    return null;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final int result = super.read();
+    if (result >= 0) {
+      count(1);
+    }
+    return result;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    final int result = super.read(b, off, len);
+    if (result > 0) {
+      count(result);
+    }
+    return result;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    final long result = super.skip(n);
+    count(result);
+    return result;
+  }
+
+  @Override
+  public synchronized void mark(final int readlimit) {
+    super.mark(readlimit);
+    mark = count;
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    super.reset();
+    count = mark;
+  }
+
+  private void count(final long read) throws LimitExceededException {
+    count += read;
+    if (count > limits.getMaxBodySize()) {
+      throw new LimitExceededException(BODY_SIZE, limits.getMaxBodySize());
+    }
+  }
+
+  /** Signals that a request exceeds one of its limits while it is read. */
+  public static class LimitExceededException extends IOException {
+    private static final long serialVersionUID = 6375406377385466214L;
+
+    private final String limitName;
+    private final long limit;
+
+    public LimitExceededException(final String limitName, final long limit) {
+      super("The request exceeds the limit for the " + limitName + " of " + limit + ".");
+      this.limitName = limitName;
+      this.limit = limit;
+    }
+
+    public String getLimitName() {
+      return limitName;
+    }
+
+    public long getLimit() {
+      return limit;
+    }
+  }
+}
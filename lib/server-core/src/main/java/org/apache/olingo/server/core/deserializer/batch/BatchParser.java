@@ -24,18 +24,23 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.deserializer.batch.BatchDeserializerException;
 import org.apache.olingo.server.api.deserializer.batch.BatchOptions;
 import org.apache.olingo.server.api.deserializer.batch.BatchRequestPart;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream.LimitExceededException;
 
 public class BatchParser {
 
   private BatchOptions options;
+  private RequestLimits limits;
 
   public List<BatchRequestPart> parseBatchRequest(final InputStream content, final String boundary,
       final BatchOptions options)
       throws BatchDeserializerException {
     this.options = options;
+    limits = LimitedInputStream.getLimits(content);
 
     BatchRequestTransformator transformator = new BatchRequestTransformator(options.getRawBaseUri(),
         options.getRawServiceResolutionUri());
@@ -48,6 +53,11 @@ public class BatchParser {
     try {
       return parseBatch(in, boundary, transformator);
     } catch (IOException e) {
+      final LimitExceededException limitExceeded = LimitedInputStream.findLimitExceeded(e);
+      if (limitExceeded != null) {
+        throw new BatchDeserializerException(e.getMessage(), e, BatchDeserializerException.MessageKeys.LIMIT_EXCEEDED,
+            limitExceeded.getLimitName(), Long.toString(limitExceeded.getLimit()));
+      }
       throw new ODataRuntimeException(e);
     } finally {
       try {
@@ -62,15 +72,31 @@ public class BatchParser {
       final BatchRequestTransformator transformator) throws IOException, BatchDeserializerException {
     final List<BatchRequestPart> resultList = new LinkedList<BatchRequestPart>();
     final List<List<Line>> bodyPartStrings = splitBodyParts(in, boundary);
+    final int maxRequests = limits == null ? Integer.MAX_VALUE : limits.getMaxBatchParts();
+    checkRequestCount(bodyPartStrings.size(), maxRequests);
 
+    int requestCount = 0;
     for (List<Line> bodyPartString : bodyPartStrings) {
       BatchBodyPart bodyPart = new BatchBodyPart(bodyPartString, boundary, options.isStrict()).parse();
-      resultList.addAll(transformator.transform(bodyPart));
+      final List<BatchRequestPart> requestParts = transformator.transform(bodyPart);
+      for (final BatchRequestPart requestPart : requestParts) {
+        requestCount += requestPart.getRequests().size();
+      }
+      checkRequestCount(requestCount, maxRequests);
+      resultList.addAll(requestParts);
     }
 
     return resultList;
   }
 
+  private void checkRequestCount(final int requestCount, final int maxRequests) throws BatchDeserializerException {
+    if (requestCount > maxRequests) {
+      throw new BatchDeserializerException("Too many requests in the batch request.",
+          BatchDeserializerException.MessageKeys.LIMIT_EXCEEDED,
+          LimitedInputStream.BATCH_PARTS, Integer.toString(maxRequests));
+    }
+  }
+
   private List<List<Line>> splitBodyParts(final InputStream in, final String boundary) throws IOException,
   BatchDeserializerException {
     final BatchLineReader reader = new BatchLineReader(in);
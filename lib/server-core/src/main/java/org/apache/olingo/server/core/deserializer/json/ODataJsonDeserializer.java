@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -54,18 +55,24 @@ import org.apache.olingo.commons.api.edm.EdmTypeDefinition;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
 import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.DeserializerException.MessageKeys;
 import org.apache.olingo.server.api.deserializer.DeserializerResult;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
+import org.apache.olingo.server.core.FlightRecorderEvents;
 import org.apache.olingo.server.core.deserializer.DeserializerResultImpl;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream.LimitExceededException;
 import org.apache.olingo.server.core.deserializer.helper.ExpandTreeBuilder;
 import org.apache.olingo.server.core.deserializer.helper.ExpandTreeBuilderImpl;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -80,6 +87,7 @@ public class ODataJsonDeserializer implements ODataDeserializer {
 
   private final boolean isIEEE754Compatible;
   private ServiceMetadata serviceMetadata;
+  private RequestLimits limits;
 
   public ODataJsonDeserializer(final ContentType contentType) {
     isIEEE754Compatible = isODataIEEE754Compatible(contentType);
@@ -97,12 +105,16 @@ public class ODataJsonDeserializer implements ODataDeserializer {
   @Override
   public DeserializerResult entityCollection(final InputStream stream, final EdmEntityType edmEntityType)
       throws DeserializerException {
+    final Object event = FlightRecorderEvents.DESERIALIZATION.begin();
     try {
       return DeserializerResultImpl.with().entityCollection(
           consumeEntityCollectionNode(edmEntityType, parseJsonTree(stream), null))
           .build();
     } catch (final IOException e) {
       throw wrapParseException(e);
+    } finally {
+      FlightRecorderEvents.commit(FlightRecorderEvents.DESERIALIZATION, event,
+          "JSON", "entityCollection", edmEntityType);
     }
   }
 
@@ -131,6 +143,10 @@ public class ODataJsonDeserializer implements ODataDeserializer {
   private List<Entity> consumeEntitySetArray(final EdmEntityType edmEntityType, final JsonNode jsonNode,
       final ExpandTreeBuilder expandBuilder) throws DeserializerException {
     if (jsonNode.isArray()) {
+      if (limits != null && jsonNode.size() > limits.getMaxEntities()) {
+        throw new DeserializerException("Too many entities.", DeserializerException.MessageKeys.LIMIT_EXCEEDED,
+            LimitedInputStream.ENTITIES, Integer.toString(limits.getMaxEntities()));
+      }
       List<Entity> entities = new ArrayList<Entity>();
       for (JsonNode arrayElement : jsonNode) {
         if (arrayElement.isArray() || arrayElement.isValueNode()) {
@@ -150,6 +166,7 @@ public class ODataJsonDeserializer implements ODataDeserializer {
   @Override
   public DeserializerResult entity(final InputStream stream, final EdmEntityType edmEntityType)
       throws DeserializerException {
+    final Object event = FlightRecorderEvents.DESERIALIZATION.begin();
     try {
       final ObjectNode tree = parseJsonTree(stream);
       final ExpandTreeBuilderImpl expandBuilder = new ExpandTreeBuilderImpl();
@@ -161,6 +178,8 @@ public class ODataJsonDeserializer implements ODataDeserializer {
           .build();
     } catch (final IOException e) {
       throw wrapParseException(e);
+    } finally {
+      FlightRecorderEvents.commit(FlightRecorderEvents.DESERIALIZATION, event, "JSON", "entity", edmEntityType);
     }
   }
 
@@ -205,6 +224,10 @@ public class ODataJsonDeserializer implements ODataDeserializer {
     ObjectMapper objectMapper = new ObjectMapper();
     objectMapper.configure(DeserializationFeature.FAIL_ON_READING_DUP_TREE_KEY, true);
     JsonParser parser = new JsonFactory(objectMapper).createParser(stream);
+    limits = LimitedInputStream.getLimits(stream);
+    if (limits != null) {
+      parser = new LimitingJsonParser(parser, limits);
+    }
     final JsonNode tree = parser.getCodec().readTree(parser);
     if (tree == null || !tree.isObject()) {
       throw new DeserializerException("Invalid JSON syntax.",
@@ -813,7 +836,10 @@ public class ODataJsonDeserializer implements ODataDeserializer {
   }
 
   private DeserializerException wrapParseException(final IOException e) {
-    if (e instanceof JsonParseException) {
+    if (e instanceof LimitExceededException) {
+      return new DeserializerException(e.getMessage(), e, DeserializerException.MessageKeys.LIMIT_EXCEEDED,
+          ((LimitExceededException) e).getLimitName(), Long.toString(((LimitExceededException) e).getLimit()));
+    } else if (e instanceof JsonParseException) {
       return new DeserializerException("A JsonParseException occurred.", e,
           DeserializerException.MessageKeys.JSON_SYNTAX_EXCEPTION);
     } else if (e instanceof JsonMappingException) {
@@ -879,4 +905,59 @@ public class ODataJsonDeserializer implements ODataDeserializer {
           edmStructuredTypeToAssign.getBaseType());
     }
   }
+
+  /**
+   * Enforces the limits for the nesting depth, the number of entities, and the string lengths
+   * while the JSON tree is read.
+   * <br/>
+   * The entity limit is checked against the number of objects in each array, so a collection with too many
+   * entities is rejected before the tree is complete. The parser cannot tell entity arrays from arrays of
+   * complex values, so the limit applies to both.
+   * <br/>
+   * The parser has already buffered a complete string token when its length is checked, so the string-length
+   * limit does not bound memory; the real memory bound is the body-size limit of the {@link LimitedInputStream}.
+   */
+  private static class LimitingJsonParser extends JsonParserDelegate {
+    private final RequestLimits limits;
+    private int depth = 0;
+    /** Number of objects in the array opened at each depth, or -1 if an object is open at that depth. */
+    private int[] objectsInArray = new int[16];
+
+    private LimitingJsonParser(final JsonParser parser, final RequestLimits limits) {
+      super(parser);
+      this.limits = limits;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+      return check(super.nextToken());
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+      return check(super.nextValue());
+    }
+
+    private JsonToken check(final JsonToken token) throws IOException {
+      if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+        if (token == JsonToken.START_OBJECT && depth > 0 && objectsInArray[depth - 1] >= 0
+            && ++objectsInArray[depth - 1] > limits.getMaxEntities()) {
+          throw new LimitExceededException(LimitedInputStream.ENTITIES, limits.getMaxEntities());
+        }
+        if (++depth > limits.getMaxDepth()) {
+          throw new LimitExceededException(LimitedInputStream.DEPTH, limits.getMaxDepth());
+        }
+        if (depth > objectsInArray.length) {
+          objectsInArray = Arrays.copyOf(objectsInArray, 2 * depth);
+        }
+        objectsInArray[depth - 1] = token == JsonToken.START_ARRAY ? 0 : -1;
+      } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+        depth--;
+      } else if ((token == JsonToken.FIELD_NAME || token == JsonToken.VALUE_STRING)
+          && getTextLength() > limits.getMaxStringLength()) {
+        throw new LimitExceededException(LimitedInputStream.STRING_LENGTH, limits.getMaxStringLength());
+      }
+      return token;
+    }
+  }
 }
@@ -21,9 +21,11 @@ package org.apache.olingo.server.core.deserializer.xml;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventReader;
@@ -32,6 +34,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.EventReaderDelegate;
 
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.AbstractODataObject;
@@ -58,12 +61,16 @@ import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.core.edm.EdmTypeInfo;
 import org.apache.olingo.commons.core.edm.primitivetype.AbstractGeospatialType;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.DeserializerException.MessageKeys;
 import org.apache.olingo.server.api.deserializer.DeserializerResult;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
+import org.apache.olingo.server.core.FlightRecorderEvents;
 import org.apache.olingo.server.core.deserializer.DeserializerResultImpl;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream.LimitExceededException;
 
 public class ODataXmlDeserializer implements ODataDeserializer {
 
@@ -81,6 +88,7 @@ public class ODataXmlDeserializer implements ODataDeserializer {
   private static final QName typeQName = new QName(Constants.NS_METADATA, Constants.ATTR_TYPE);
   
   private ServiceMetadata serviceMetadata;
+  private RequestLimits limits;
 
   public ODataXmlDeserializer() {
   }
@@ -94,7 +102,17 @@ public class ODataXmlDeserializer implements ODataDeserializer {
   }
   
   protected XMLEventReader getReader(final InputStream input) throws XMLStreamException {
-    return FACTORY.createXMLEventReader(input);
+    limits = LimitedInputStream.getLimits(input);
+    final XMLEventReader reader = FACTORY.createXMLEventReader(input);
+    return limits == null ? reader : new LimitingEventReader(reader, limits);
+  }
+
+  private DeserializerException wrapXMLStreamException(final XMLStreamException e) {
+    final LimitExceededException limitExceeded = LimitedInputStream.findLimitExceeded(e);
+    return limitExceeded == null ?
+        new DeserializerException(e.getMessage(), e, DeserializerException.MessageKeys.IO_EXCEPTION) :
+        new DeserializerException(limitExceeded.getMessage(), e, DeserializerException.MessageKeys.LIMIT_EXCEEDED,
+            limitExceeded.getLimitName(), Long.toString(limitExceeded.getLimit()));
   }
 
   private Object primitive(final XMLEventReader reader, final StartElement start,
@@ -274,7 +292,7 @@ public class ODataXmlDeserializer implements ODataDeserializer {
       return DeserializerResultImpl.with().property(property)
           .build();
     } catch (XMLStreamException e) {
-      throw new DeserializerException(e.getMessage(), e, DeserializerException.MessageKeys.IO_EXCEPTION);
+      throw wrapXMLStreamException(e);
     } catch (final EdmPrimitiveTypeException e) {
       throw new DeserializerException(e.getMessage(), e,
           DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY);
@@ -579,6 +597,7 @@ public class ODataXmlDeserializer implements ODataDeserializer {
   @Override
   public DeserializerResult entity(final InputStream input, final EdmEntityType edmEntityType)
       throws DeserializerException {
+    final Object event = FlightRecorderEvents.DESERIALIZATION.begin();
     try {
       final XMLEventReader reader = getReader(input);
       final StartElement start = skipBeforeFirstStartElement(reader);
@@ -589,11 +608,12 @@ public class ODataXmlDeserializer implements ODataDeserializer {
       return DeserializerResultImpl.with().entity(entity)
           .build();
     } catch (XMLStreamException e) {
-      throw new DeserializerException(e.getMessage(), e,
-          DeserializerException.MessageKeys.IO_EXCEPTION);
+      throw wrapXMLStreamException(e);
     } catch (final EdmPrimitiveTypeException e) {
       throw new DeserializerException(e.getMessage(), e,
           DeserializerException.MessageKeys.INVALID_ENTITY);
+    } finally {
+      FlightRecorderEvents.commit(FlightRecorderEvents.DESERIALIZATION, event, "XML", "entity", edmEntityType);
     }
   }
 
@@ -649,8 +669,10 @@ public class ODataXmlDeserializer implements ODataDeserializer {
             }
           }
         } else if (Constants.QNAME_ATOM_ELEM_ENTRY.equals(event.asStartElement().getName())) {
+          checkEntityCount(entitySet);
           entitySet.getEntities().add(entity(reader, event.asStartElement(), edmEntityType));
         } else if (entryRefQName.equals(event.asStartElement().getName())) {
+          checkEntityCount(entitySet);
           entitySet.getEntities().add(entityRef(event.asStartElement()));
         }
       }
@@ -662,9 +684,17 @@ public class ODataXmlDeserializer implements ODataDeserializer {
     return entitySet;
   }
 
+  private void checkEntityCount(final EntityCollection entitySet) throws DeserializerException {
+    if (limits != null && entitySet.getEntities().size() >= limits.getMaxEntities()) {
+      throw new DeserializerException("Too many entities.", DeserializerException.MessageKeys.LIMIT_EXCEEDED,
+          LimitedInputStream.ENTITIES, Integer.toString(limits.getMaxEntities()));
+    }
+  }
+
   @Override
   public DeserializerResult entityCollection(final InputStream input, final EdmEntityType edmEntityType)
       throws DeserializerException {
+    final Object event = FlightRecorderEvents.DESERIALIZATION.begin();
     try {
       final XMLEventReader reader = getReader(input);
       final StartElement start = skipBeforeFirstStartElement(reader);
@@ -676,10 +706,13 @@ public class ODataXmlDeserializer implements ODataDeserializer {
       }
       return DeserializerResultImpl.with().entityCollection(entityCollection).build();
     } catch (final XMLStreamException e) {
-      throw new DeserializerException(e.getMessage(), e, DeserializerException.MessageKeys.IO_EXCEPTION);
+      throw wrapXMLStreamException(e);
     } catch (final EdmPrimitiveTypeException e) {
       throw new DeserializerException(e.getMessage(), e,
           DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY);
+    } finally {
+      FlightRecorderEvents.commit(FlightRecorderEvents.DESERIALIZATION, event,
+          "XML", "entityCollection", edmEntityType);
     }
   }
 
@@ -702,7 +735,7 @@ public class ODataXmlDeserializer implements ODataDeserializer {
       }
       return DeserializerResultImpl.with().entityReferences(references).build();
     } catch (XMLStreamException e) {
-      throw new DeserializerException(e.getMessage(), e, DeserializerException.MessageKeys.IO_EXCEPTION);
+      throw wrapXMLStreamException(e);
     }
   }
 
@@ -747,7 +780,7 @@ public class ODataXmlDeserializer implements ODataDeserializer {
       return DeserializerResultImpl.with().actionParameters(parameters)
           .build();
     } catch (XMLStreamException e) {
-      throw new DeserializerException(e.getMessage(), e, DeserializerException.MessageKeys.IO_EXCEPTION);
+      throw wrapXMLStreamException(e);
     } catch (final EdmPrimitiveTypeException e) {
       throw new DeserializerException(e.getMessage(), e,
           DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY);
@@ -873,4 +906,60 @@ public class ODataXmlDeserializer implements ODataDeserializer {
           edmStructuredTypeToAssign.getBaseType());
     }
   }  
+
+  /**
+   * Enforces the limits for the nesting depth and the string lengths while the XML events are read.
+   * <br/>
+   * The parser may split the text of an element into several events, e.g., around CDATA sections
+   * or entity references, so the text length is summed up per element; attribute values are checked, too.
+   */
+  private static class LimitingEventReader extends EventReaderDelegate {
+    private final RequestLimits limits;
+    private int depth = 0;
+    private long textLength = 0;
+
+    private LimitingEventReader(final XMLEventReader reader, final RequestLimits limits) {
+      super(reader);
+      this.limits = limits;
+    }
+
+    @Override
+    public Object next() {
+      try {
+        return nextEvent();
+      } catch (final XMLStreamException e) {
+        throw new NoSuchElementException(e.getMessage());
+      }
+    }
+
+    @Override
+    public XMLEvent nextEvent() throws XMLStreamException {
+      final XMLEvent event = super.nextEvent();
+      if (event.isStartElement()) {
+        if (++depth > limits.getMaxDepth()) {
+          throw new XMLStreamException("Too deeply nested.",
+              new LimitExceededException(LimitedInputStream.DEPTH, limits.getMaxDepth()));
+        }
+        textLength = 0;
+        final Iterator<?> attributes = event.asStartElement().getAttributes();
+        while (attributes.hasNext()) {
+          checkLength(((Attribute) attributes.next()).getValue().length());
+        }
+      } else if (event.isEndElement()) {
+        depth--;
+        textLength = 0;
+      } else if (event.isCharacters()) {
+        textLength += event.asCharacters().getData().length();
+        checkLength(textLength);
+      }
+      return event;
+    }
+
+    private void checkLength(final long length) throws XMLStreamException {
+      if (length > limits.getMaxStringLength()) {
+        throw new XMLStreamException("Too long text.",
+            new LimitExceededException(LimitedInputStream.STRING_LENGTH, limits.getMaxStringLength()));
+      }
+    }
+  }
 }
@@ -18,12 +18,17 @@
  */
 package org.apache.olingo.server.core.etag;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.olingo.commons.api.edm.EdmBindingTarget;
 import org.apache.olingo.commons.api.edm.EdmFunctionImport;
 import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.edm.EdmSingleton;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
 import org.apache.olingo.server.api.etag.PreconditionException;
 import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
 import org.apache.olingo.server.api.uri.UriResourceFunction;
@@ -33,6 +38,7 @@ import org.apache.olingo.server.api.uri.UriResourceSingleton;
 public class PreconditionsValidator {
 
   private final EdmBindingTarget affectedEntitySetOrSingleton;
+  private List<UriParameter> affectedKeyPredicates;
 
   public PreconditionsValidator(final UriInfo uriInfo) throws PreconditionException {
     affectedEntitySetOrSingleton = extractInformation(uriInfo);
@@ -45,6 +51,23 @@ public class PreconditionsValidator {
               customETagSupport.hasETag(affectedEntitySetOrSingleton));
   }
 
+  /**
+   * Gets the entity set or singleton of the entity affected by the request.
+   * @return the entity set or singleton or <code>null</code> if the request does not affect a single entity
+   */
+  public EdmBindingTarget getAffectedEntitySetOrSingleton() {
+    return affectedEntitySetOrSingleton;
+  }
+
+  /**
+   * Gets the key predicates of the entity affected by the request.
+   * @return the key predicates (empty for a singleton) or <code>null</code> if the entity
+   * cannot be identified by the URI alone, e.g., if it is reached through a single-valued navigation property
+   */
+  public List<UriParameter> getAffectedKeyPredicates() {
+    return affectedEntitySetOrSingleton == null ? null : affectedKeyPredicates;
+  }
+
   private EdmBindingTarget extractInformation(final UriInfo uriInfo) throws PreconditionException {
     EdmBindingTarget lastFoundEntitySetOrSingleton = null;
     int counter = 0;
@@ -52,16 +75,22 @@ public class PreconditionsValidator {
       switch (uriResourcePart.getKind()) {
       case function:
         lastFoundEntitySetOrSingleton = getEntitySetFromFunctionImport((UriResourceFunction) uriResourcePart);
+        affectedKeyPredicates = getKeyPredicates(((UriResourceFunction) uriResourcePart).getKeyPredicates());
         break;
       case singleton:
         lastFoundEntitySetOrSingleton = ((UriResourceSingleton) uriResourcePart).getSingleton();
+        affectedKeyPredicates = Collections.emptyList();
         break;
       case entitySet:
         lastFoundEntitySetOrSingleton = getEntitySet((UriResourceEntitySet) uriResourcePart);
+        affectedKeyPredicates = ((UriResourceEntitySet) uriResourcePart).getKeyPredicates();
         break;
       case navigationProperty:
         lastFoundEntitySetOrSingleton = getEntitySetFromNavigation(lastFoundEntitySetOrSingleton,
             (UriResourceNavigation) uriResourcePart);
+        affectedKeyPredicates = lastFoundEntitySetOrSingleton instanceof EdmSingleton ?
+            Collections.<UriParameter> emptyList() :
+            getKeyPredicates(((UriResourceNavigation) uriResourcePart).getKeyPredicates());
         break;
       case primitiveProperty:
       case complexProperty:
@@ -96,6 +125,10 @@ public class PreconditionsValidator {
     return null;
   }
 
+  private List<UriParameter> getKeyPredicates(final List<UriParameter> keyPredicates) {
+    return keyPredicates == null || keyPredicates.isEmpty() ? null : keyPredicates;
+  }
+
   private EdmBindingTarget getEntitySet(final UriResourceEntitySet uriResourceEntitySet) {
     return uriResourceEntitySet.isCollection() ? null : uriResourceEntitySet.getEntitySet();
   }
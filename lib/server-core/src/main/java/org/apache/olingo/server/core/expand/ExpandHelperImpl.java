@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.expand;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmElement;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.edm.EdmNavigationPropertyBinding;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.expand.ExpandHelper;
+import org.apache.olingo.server.api.expand.ExpandLoader;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
+
+public class ExpandHelperImpl implements ExpandHelper {
+
+  public static final int DEFAULT_MAX_LEVELS = 10;
+
+  private int maxLevels = DEFAULT_MAX_LEVELS;
+
+  private int maxEntities = Integer.MAX_VALUE;
+
+  @Override
+  public void expand(final EntityCollection entitySet, final EdmBindingTarget edmBindingTarget,
+      final ExpandOption expandOption, final ExpandLoader loader) throws ODataApplicationException {
+    new Expansion(loader).expand(entitySet.getEntities(), edmBindingTarget, expandOption);
+  }
+
+  @Override
+  public void expand(final Entity entity, final EdmBindingTarget edmBindingTarget,
+      final ExpandOption expandOption, final ExpandLoader loader) throws ODataApplicationException {
+    new Expansion(loader).expand(Collections.singletonList(entity), edmBindingTarget, expandOption);
+  }
+
+  @Override
+  public void setMaxLevels(final int maxLevels) {
+    this.maxLevels = maxLevels;
+  }
+
+  @Override
+  public void setMaxEntities(final int maxEntities) {
+    this.maxEntities = maxEntities;
+  }
+
+  /** State of one call of the helper. */
+  private class Expansion {
+
+    private final ExpandLoader loader;
+
+    private int loaded = 0;
+
+    private Expansion(final ExpandLoader loader) {
+      this.loader = loader;
+    }
+
+    /**
+     * Expands one level for all the given parents and then descends into the next level
+     * with all the entities loaded for an expand item.
+     */
+    private void expand(final List<Entity> parents, final EdmBindingTarget edmBindingTarget,
+        final ExpandOption expandOption) throws ODataApplicationException {
+      if (expandOption == null || parents.isEmpty()) {
+        return;
+      }
+
+      for (final ExpandItem item : expandOption.getExpandItems()) {
+        if (item.getLevelsOption() != null && item.isStar()) {
+          throw new ODataApplicationException("$levels is not implemented for '*'",
+              HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+        }
+
+        for (final EdmNavigationProperty navigationProperty : getNavigationProperties(edmBindingTarget, item)) {
+          if (item.getLevelsOption() == null) {
+            final EdmBindingTarget target = getTarget(edmBindingTarget, navigationProperty);
+            expand(load(parents, target, navigationProperty, item), target, item.getExpandOption());
+          } else {
+            expandLevels(parents, edmBindingTarget, navigationProperty, item);
+          }
+        }
+      }
+    }
+
+    /**
+     * Expands a navigation property recursively, one level at a time; entities seen on a previous level
+     * are not expanded again.
+     */
+    private void expandLevels(final List<Entity> parents, final EdmBindingTarget edmBindingTarget,
+        final EdmNavigationProperty navigationProperty, final ExpandItem item) throws ODataApplicationException {
+      final LevelsExpandOption levelsOption = item.getLevelsOption();
+      if (!levelsOption.isMax() && levelsOption.getValue() > maxLevels) {
+        throw new ODataApplicationException("$levels must not be greater than " + maxLevels,
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+      final int levels = levelsOption.isMax() ? maxLevels : levelsOption.getValue();
+
+      final Set<Entity> visited = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+      visited.addAll(parents);
+      List<Entity> current = parents;
+      EdmBindingTarget currentTarget = edmBindingTarget;
+      for (int level = 1; level <= levels && !current.isEmpty(); level++) {
+        final EdmBindingTarget target = getTarget(currentTarget, navigationProperty);
+        final List<Entity> children = load(current, target, navigationProperty, item);
+        expand(children, target, item.getExpandOption());
+
+        current = new ArrayList<Entity>();
+        for (final Entity child : children) {
+          if (visited.add(child)) {
+            current.add(child);
+          }
+        }
+        currentTarget = target;
+      }
+    }
+
+    /**
+     * Loads the related entities of all parents with a single call of the loader and sets them as inline content
+     * of the navigation links of the parents.
+     * @return all the entities loaded, each one only once
+     */
+    private List<Entity> load(final List<Entity> parents, final EdmBindingTarget target,
+        final EdmNavigationProperty navigationProperty, final ExpandItem item) throws ODataApplicationException {
+      final List<EntityCollection> related = loader.loadRelated(target, navigationProperty, parents, item);
+      if (related == null || related.size() != parents.size()) {
+        throw new ODataApplicationException("The expand loader did not return one result per parent entity.",
+            HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+      }
+
+      final List<Entity> children = new ArrayList<Entity>();
+      final Set<Entity> known = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+      for (int i = 0; i < parents.size(); i++) {
+        final EntityCollection entities = related.get(i) == null ? new EntityCollection() : related.get(i);
+        setLink(parents.get(i), navigationProperty, entities);
+        for (final Entity child : entities.getEntities()) {
+          if (known.add(child)) {
+            children.add(child);
+          }
+        }
+      }
+
+      loaded += children.size();
+      if (loaded > maxEntities) {
+        throw new ODataApplicationException("The expansion must not contain more than " + maxEntities + " entities",
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+      return children;
+    }
+  }
+
+  private EdmBindingTarget getTarget(final EdmBindingTarget edmBindingTarget,
+      final EdmNavigationProperty navigationProperty) {
+    return edmBindingTarget == null ? null : edmBindingTarget.getRelatedBindingTarget(navigationProperty.getName());
+  }
+
+  private void setLink(final Entity parent, final EdmNavigationProperty navigationProperty,
+      final EntityCollection entities) {
+    final String name = navigationProperty.getName();
+    Link link = parent.getNavigationLink(name);
+    if (link == null) {
+      link = new Link();
+      link.setRel(Constants.NS_NAVIGATION_LINK_REL + name);
+      link.setType(navigationProperty.isCollection() ?
+          Constants.ENTITY_SET_NAVIGATION_LINK_TYPE : Constants.ENTITY_NAVIGATION_LINK_TYPE);
+      link.setTitle(name);
+      parent.getNavigationLinks().add(link);
+    }
+    if (navigationProperty.isCollection()) {
+      link.setInlineEntitySet(entities);
+    } else {
+      link.setInlineEntity(entities.getEntities().isEmpty() ? null : entities.getEntities().get(0));
+    }
+  }
+
+  private List<EdmNavigationProperty> getNavigationProperties(final EdmBindingTarget edmBindingTarget,
+      final ExpandItem item) throws ODataApplicationException {
+    final List<EdmNavigationProperty> navigationProperties = new ArrayList<EdmNavigationProperty>();
+    if (item.isStar()) {
+      if (edmBindingTarget != null) {
+        for (final EdmNavigationPropertyBinding binding : edmBindingTarget.getNavigationPropertyBindings()) {
+          final EdmElement property = edmBindingTarget.getEntityType().getProperty(binding.getPath());
+          if (property instanceof EdmNavigationProperty) {
+            navigationProperties.add((EdmNavigationProperty) property);
+          }
+        }
+      }
+    } else {
+      final List<UriResource> parts = item.getResourcePath() == null ? null :
+          item.getResourcePath().getUriResourceParts();
+      if (parts != null && parts.size() == 1 && parts.get(0) instanceof UriResourceNavigation) {
+        navigationProperties.add(((UriResourceNavigation) parts.get(0)).getProperty());
+      } else {
+        throw new ODataApplicationException("Not supported resource part in expand system query option",
+            HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+      }
+    }
+    return navigationProperties;
+  }
+}
@@ -21,8 +21,12 @@ package org.apache.olingo.server.core.serializer;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.serializer.EntitySerializerOptions;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.core.serializer.utils.RecursiveExpandOption;
 
 public abstract class AbstractODataSerializer implements ODataSerializer {
 
@@ -44,4 +48,16 @@ public abstract class AbstractODataSerializer implements ODataSerializer {
       }
     }
   }
+
+  /** Gets the expand option of the options with the limits for recursive expansion. */
+  protected ExpandOption getExpand(final EntitySerializerOptions options) {
+    return options == null ? null :
+        RecursiveExpandOption.withLimits(options.getExpand(), options.getMaxLevels(), options.getMaxExpandedEntities());
+  }
+
+  /** Gets the expand option of the options with the limits for recursive expansion. */
+  protected ExpandOption getExpand(final EntityCollectionSerializerOptions options) {
+    return options == null ? null :
+        RecursiveExpandOption.withLimits(options.getExpand(), options.getMaxLevels(), options.getMaxExpandedEntities());
+  }
 }
@@ -20,20 +20,29 @@ package org.apache.olingo.server.core.serializer.json;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.ColumnarEntityCollection;
+import org.apache.olingo.commons.api.data.CompactEntity;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaLink;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.AbstractEntityCollection;
 import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.EntityLayout;
 import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Linked;
 import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
@@ -47,6 +56,7 @@ import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
 import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.core.Encoder;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
 import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.ServiceMetadata;
@@ -64,16 +74,21 @@ import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.core.serializer.AbstractODataSerializer;
+import org.apache.olingo.server.core.FlightRecorderEvents;
 import org.apache.olingo.server.core.ODataWritableContent;
 import org.apache.olingo.server.core.serializer.SerializerResultImpl;
+import org.apache.olingo.server.core.serializer.utils.ChunkedEntityWriter;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 import org.apache.olingo.server.core.serializer.utils.ContentTypeHelper;
 import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
 import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
+import org.apache.olingo.server.core.uri.queryoption.ProjectionTree;
+import org.apache.olingo.server.core.serializer.utils.RecursiveExpandOption;
 import org.apache.olingo.server.core.uri.UriHelperImpl;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 
 public class ODataJsonSerializer extends AbstractODataSerializer {
 
@@ -141,6 +156,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
   public SerializerResult entityCollection(final ServiceMetadata metadata,
       final EdmEntityType entityType, final AbstractEntityCollection entitySet,
       final EntityCollectionSerializerOptions options) throws SerializerException {
+    final Object event = FlightRecorderEvents.SERIALIZATION.begin();
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
@@ -158,13 +174,18 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
         writeCount(entitySet, json);
       }
       json.writeFieldName(Constants.VALUE);
-      if (options == null) {
+      if (entitySet instanceof Delta) {
+        writeDelta(metadata, entityType, (Delta) entitySet, options, json);
+      } else if (isChunked(entityType, entitySet, options)) {
+        writeEntitySetInChunks(metadata, entityType, entitySet.iterator(), options, json, outputStream);
+      } else if (options == null) {
         writeEntitySet(metadata, entityType, entitySet, null, null, false, json);
       } else {
         writeEntitySet(metadata, entityType, entitySet,
-            options.getExpand(), options.getSelect(), options.getWriteOnlyReferences(), json);
+            getExpand(options), options.getSelect(), options.getWriteOnlyReferences(), json);
       }
       writeNextLink(entitySet, json);
+      writeDeltaLink(entitySet, json);
 
       json.close();
       outputStream.close();
@@ -175,6 +196,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       throw cachedException;
     } finally {
       closeCircleStreamBufferOutput(outputStream, cachedException);
+      FlightRecorderEvents.commit(FlightRecorderEvents.SERIALIZATION, event, "JSON", "entityCollection", entityType);
     }
   }
 
@@ -191,6 +213,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final EntityCollectionSerializerOptions options, final OutputStream outputStream)
         throws SerializerException {
 
+    final Object event = FlightRecorderEvents.SERIALIZATION.begin();
     SerializerException cachedException;
     try {
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
@@ -205,11 +228,13 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
         writeCount(entitySet, json);
       }
       json.writeFieldName(Constants.VALUE);
-      if (options == null) {
+      if (isChunked(entityType, entitySet, options)) {
+        writeEntitySetInChunks(metadata, entityType, entitySet, options, json, outputStream);
+      } else if (options == null) {
         writeEntitySet(metadata, entityType, entitySet, null, null, false, json);
       } else {
         writeEntitySet(metadata, entityType, entitySet,
-            options.getExpand(), options.getSelect(), options.getWriteOnlyReferences(), json);
+            getExpand(options), options.getSelect(), options.getWriteOnlyReferences(), json);
       }
       // next link not supported by default for streaming results
 //      writeNextLink(entitySet, json);
@@ -219,12 +244,15 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       cachedException =
           new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
       throw cachedException;
+    } finally {
+      FlightRecorderEvents.commit(FlightRecorderEvents.SERIALIZATION, event, "JSON", "entityCollection", entityType);
     }
   }
 
   @Override
   public SerializerResult entity(final ServiceMetadata metadata, final EdmEntityType entityType,
       final Entity entity, final EntitySerializerOptions options) throws SerializerException {
+    final Object event = FlightRecorderEvents.SERIALIZATION.begin();
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
@@ -233,7 +261,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       outputStream = buffer.getOutputStream();
       JsonGenerator json = new JsonFactory().createGenerator(outputStream);
       writeEntity(metadata, entityType, entity, contextURL,
-          options == null ? null : options.getExpand(),
+          getExpand(options),
               options == null ? null : options.getSelect(),
                   options == null ? false : options.getWriteOnlyReferences(),
                       json);
@@ -247,6 +275,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       throw cachedException;
     } finally {
       closeCircleStreamBufferOutput(outputStream, cachedException);
+      FlightRecorderEvents.commit(FlightRecorderEvents.SERIALIZATION, event, "JSON", "entity", entityType);
     }
   }
 
@@ -264,6 +293,12 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final boolean onlyReference, final JsonGenerator json) throws IOException,
       SerializerException {
     json.writeStartArray();
+    if (entitySet instanceof ColumnarEntityCollection && !onlyReference
+        && isColumnarWritable(entityType, (ColumnarEntityCollection) entitySet, expand)) {
+      writeRows(metadata, entityType, (ColumnarEntityCollection) entitySet, select, json);
+      json.writeEndArray();
+      return;
+    }
     for (final Entity entity : entitySet) {
       if (onlyReference) {
         json.writeStartObject();
@@ -276,16 +311,193 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     json.writeEndArray();
   }
 
+  private boolean isChunked(final EdmEntityType entityType, final AbstractEntityCollection entitySet,
+      final EntityCollectionSerializerOptions options) {
+    return options != null && options.getExecutor() != null && !options.getWriteOnlyReferences()
+        && !(entitySet instanceof ColumnarEntityCollection
+        && isColumnarWritable(entityType, (ColumnarEntityCollection) entitySet, options.getExpand()));
+  }
+
+  /**
+   * Writes the entities with the same result as {@link #writeEntitySet}, but serializes chunks of them
+   * in parallel on the executor of the options. The serialized chunks are written directly to the
+   * output stream of the generator, separated by commas.
+   */
+  private void writeEntitySetInChunks(final ServiceMetadata metadata, final EdmEntityType entityType,
+      final Iterator<Entity> entities, final EntityCollectionSerializerOptions options, final JsonGenerator json,
+      final OutputStream outputStream) throws IOException, SerializerException {
+    final ExpandOption expand = getExpand(options);
+    json.writeStartArray();
+    json.flush();
+    new ChunkedEntityWriter(options.getExecutor(), options.getChunkSize()).write(entities,
+        new ChunkedEntityWriter.ChunkSerializer() {
+          @Override
+          public void serialize(final List<Entity> chunk, final OutputStream chunkStream)
+              throws SerializerException {
+            try {
+              final JsonGenerator chunkJson = new JsonFactory().createGenerator(chunkStream);
+              chunkJson.setRootValueSeparator(new SerializedString(","));
+              for (final Entity entity : chunk) {
+                writeEntity(metadata, entityType, entity, null, expand, options.getSelect(), false, chunkJson);
+              }
+              chunkJson.close();
+            } catch (final IOException e) {
+              throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+            }
+          }
+        },
+        new byte[] { ',' }, outputStream);
+    json.writeEndArray();
+  }
+
+  private boolean isColumnarWritable(final EdmEntityType entityType, final ColumnarEntityCollection entitySet,
+      final ExpandOption expand) {
+    return !ExpandSelectHelper.hasExpand(expand) && !entityType.hasStream()
+        && entitySet.getLayout().getType().equals(entityType.getFullQualifiedName().getFullQualifiedNameAsString());
+  }
+
+  /**
+   * Writes the rows of a columnar entity collection directly from its columns, with the same result as writing
+   * its entities. The selected properties are determined once for all rows; values of integer and boolean
+   * columns are written without creating objects.
+   */
+  private void writeRows(final ServiceMetadata metadata, final EdmEntityType entityType,
+      final ColumnarEntityCollection entitySet, final SelectOption select, final JsonGenerator json)
+      throws IOException, SerializerException {
+    final EntityLayout layout = entitySet.getLayout();
+    final ProjectionTree projection = ProjectionTree.get(metadata, entityType, select);
+    final List<EdmProperty> edmProperties = new ArrayList<EdmProperty>();
+    final List<Integer> slots = new ArrayList<Integer>();
+    final List<ProjectionTree> selectedParts = new ArrayList<ProjectionTree>();
+    for (final String propertyName : entityType.getPropertyNames()) {
+      if (projection.isSelected(propertyName)) {
+        final EdmProperty edmProperty = entityType.getStructuralProperty(propertyName);
+        edmProperties.add(edmProperty);
+        slots.add(layout.getSlot(propertyName));
+        selectedParts.add(edmProperty.isPrimitive() ? null : projection.getSelected(propertyName));
+      }
+    }
+    final int size = edmProperties.size();
+    for (int row = 0; row < entitySet.getRowCount(); row++) {
+      json.writeStartObject();
+      for (int i = 0; i < size; i++) {
+        final int slot = slots.get(i);
+        final ColumnarEntityCollection.Column column = slot < 0 ? null : entitySet.getColumn(slot);
+        if (column == null || column.isNull(row)) {
+          writeProperty(metadata, edmProperties.get(i), null, null, json);
+        } else if (layout.getValueType(slot) == ValueType.PRIMITIVE) {
+          writeCell(edmProperties.get(i), column, row, json);
+        } else {
+          writeProperty(metadata, edmProperties.get(i), new Property(layout.getPropertyType(slot),
+              layout.getName(slot), layout.getValueType(slot), column.getValue(row)), selectedParts.get(i), json);
+        }
+      }
+      json.writeEndObject();
+    }
+  }
+
+  private void writeCell(final EdmProperty edmProperty, final ColumnarEntityCollection.Column column,
+      final int row, final JsonGenerator json) throws IOException, SerializerException {
+    final EdmPrimitiveType type = (EdmPrimitiveType) edmProperty.getType();
+    json.writeFieldName(edmProperty.getName());
+    if (column instanceof ColumnarEntityCollection.BooleanColumn) {
+      json.writeBoolean(((ColumnarEntityCollection.BooleanColumn) column).getBoolean(row));
+    } else if (column instanceof ColumnarEntityCollection.IntColumn) {
+      json.writeNumber(((ColumnarEntityCollection.IntColumn) column).getInt(row));
+    } else if (column instanceof ColumnarEntityCollection.LongColumn) {
+      final long value = ((ColumnarEntityCollection.LongColumn) column).getLong(row);
+      if (isIEEE754Compatible) {
+        json.writeString(String.valueOf(value));
+      } else {
+        json.writeNumber(value);
+      }
+    } else if (column instanceof ColumnarEntityCollection.ShortColumn
+        && type == EdmPrimitiveTypeFactory.getInstance(EdmPrimitiveTypeKind.Int16)) {
+      json.writeNumber(((ColumnarEntityCollection.ShortColumn) column).getShort(row));
+    } else {
+      final Object value = column.getValue(row);
+      try {
+        writePrimitiveValue(type, value, edmProperty.isNullable(), edmProperty.getMaxLength(),
+            edmProperty.getPrecision(), edmProperty.getScale(), edmProperty.isUnicode(), json);
+      } catch (final EdmPrimitiveTypeException e) {
+        throw new SerializerException("Wrong value for property!", e,
+            SerializerException.MessageKeys.WRONG_PROPERTY_VALUE, edmProperty.getName(), value.toString());
+      }
+    }
+  }
+
+  /**
+   * Writes the changed entities, followed by the deleted entities and the added and deleted links of a delta
+   * response. The context URL of the response provides the entity set the removals and links refer to.
+   */
+  protected void writeDelta(final ServiceMetadata metadata, final EdmEntityType entityType, final Delta delta,
+      final EntityCollectionSerializerOptions options, final JsonGenerator json)
+      throws IOException, SerializerException {
+    final ContextURL contextURL = options == null ? null : options.getContextURL();
+    if (contextURL == null || contextURL.getEntitySetOrSingletonOrType() == null) {
+      throw new SerializerException("ContextURL null!", SerializerException.MessageKeys.NO_CONTEXT_URL);
+    }
+    final String entitySetName = Encoder.encode(contextURL.getEntitySetOrSingletonOrType());
+    final String itemContext = "#" + entitySetName + '/';
+    final ExpandOption expand = getExpand(options);
+    final UriHelper uriHelper = new UriHelperImpl();
+    json.writeStartArray();
+    for (final Entity entity : delta) {
+      // Clients correlate changed entities by their id, so it is written even without metadata.
+      final String id = entity.getId() == null ?
+          entitySetName + '(' + uriHelper.buildKeyPredicate(entityType, entity) + ')' :
+          entity.getId().toASCIIString();
+      writeEntity(metadata, entityType, entity, null, id, expand, options.getSelect(), false, json);
+    }
+    for (final DeletedEntity deletedEntity : delta.getDeletedEntities()) {
+      json.writeStartObject();
+      json.writeStringField(Constants.JSON_CONTEXT,
+          itemContext + ContextURL.Suffix.DELTA_DELETED_ENTITY.getRepresentation());
+      json.writeStringField(Constants.ATOM_ATTR_ID, deletedEntity.getId().toASCIIString());
+      if (deletedEntity.getReason() != null) {
+        json.writeStringField(Constants.ELEM_REASON, deletedEntity.getReason().name());
+      }
+      json.writeEndObject();
+    }
+    writeDeltaLinks(delta.getAddedLinks(), itemContext + ContextURL.Suffix.DELTA_LINK.getRepresentation(), json);
+    writeDeltaLinks(delta.getDeletedLinks(),
+        itemContext + ContextURL.Suffix.DELTA_DELETED_LINK.getRepresentation(), json);
+    json.writeEndArray();
+  }
+
+  private void writeDeltaLinks(final List<DeltaLink> links, final String context, final JsonGenerator json)
+      throws IOException {
+    for (final DeltaLink link : links) {
+      json.writeStartObject();
+      json.writeStringField(Constants.JSON_CONTEXT, context);
+      json.writeStringField(Constants.ATTR_SOURCE, link.getSource().toASCIIString());
+      json.writeStringField(Constants.ATTR_RELATIONSHIP, link.getRelationship());
+      json.writeStringField(Constants.ATTR_TARGET, link.getTarget().toASCIIString());
+      json.writeEndObject();
+    }
+  }
+
   public void writeEntity(final ServiceMetadata metadata, final EdmEntityType entityType, final Entity entity,
       final ContextURL contextURL, final ExpandOption expand, final SelectOption select, final boolean onlyReference,
       final JsonGenerator json)
           throws IOException, SerializerException {
+    writeEntity(metadata, entityType, entity, contextURL, null, expand, select, onlyReference, json);
+  }
+
+  private void writeEntity(final ServiceMetadata metadata, final EdmEntityType entityType, final Entity entity,
+      final ContextURL contextURL, final String id, final ExpandOption expand, final SelectOption select,
+      final boolean onlyReference, final JsonGenerator json) throws IOException, SerializerException {
     json.writeStartObject();
     if (!isODataMetadataNone) {
       if (contextURL != null) { // top-level entity
         writeContextURL(contextURL, json);
         writeMetadataETag(metadata, json);
       }
+    }
+    if (id != null) {
+      json.writeStringField(Constants.JSON_ID, id);
+    }
+    if (!isODataMetadataNone) {
       if (entity.getETag() != null) {
         json.writeStringField(Constants.JSON_ETAG, entity.getETag());
       }
@@ -369,16 +581,13 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final List<Property> properties,
       final SelectOption select, final JsonGenerator json)
           throws IOException, SerializerException {
-    final boolean all = ExpandSelectHelper.isAll(select);
-    final Set<String> selected = all ? new HashSet<String>() :
-      ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
+    final ProjectionTree projection = ProjectionTree.get(metadata, type, select);
     for (final String propertyName : type.getPropertyNames()) {
-      if (all || selected.contains(propertyName)) {
+      if (projection.isSelected(propertyName)) {
         final EdmProperty edmProperty = type.getStructuralProperty(propertyName);
         final Property property = findProperty(propertyName, properties);
-        final Set<List<String>> selectedPaths = all || edmProperty.isPrimitive() ? null :
-          ExpandSelectHelper.getSelectedPaths(select.getSelectItems(), propertyName);
-        writeProperty(metadata, edmProperty, property, selectedPaths, json);
+        writeProperty(metadata, edmProperty, property,
+            edmProperty.isPrimitive() ? null : projection.getSelected(propertyName), json);
       }
     }
   }
@@ -397,17 +606,34 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
           final ExpandItem innerOptions = expandAll ? null :
             ExpandSelectHelper.getExpandItem(expand.getExpandItems(), propertyName);
           if (innerOptions != null && innerOptions.getLevelsOption() != null) {
-            throw new SerializerException("Expand option $levels is not supported.",
-                SerializerException.MessageKeys.NOT_IMPLEMENTED);
+            if (RecursiveExpandOption.isExpanded(expand, linked, propertyName)) {
+              writeExpandedNavigationProperty(metadata, property, navigationLink,
+                  RecursiveExpandOption.nextLevel(innerOptions, expand, linked, navigationLink),
+                  innerOptions.getSelectOption(), json);
+            } else {
+              // Recursive expansion stops where the data has not been expanded or where a cycle starts;
+              // the navigation property is written as not expanded, with its navigation link as in XML.
+              writeNavigationLink(linked, propertyName, navigationLink, json);
+            }
+          } else {
+            writeExpandedNavigationProperty(metadata, property, navigationLink,
+                innerOptions == null ? null : RecursiveExpandOption.inner(innerOptions.getExpandOption(), expand),
+                    innerOptions == null ? null : innerOptions.getSelectOption(), json);
           }
-          writeExpandedNavigationProperty(metadata, property, navigationLink,
-              innerOptions == null ? null : innerOptions.getExpandOption(),
-                  innerOptions == null ? null : innerOptions.getSelectOption(), json);
         }
       }
     }
   }
 
+  private void writeNavigationLink(final Linked linked, final String propertyName, final Link navigationLink,
+      final JsonGenerator json) throws IOException {
+    final String href = navigationLink != null && navigationLink.getHref() != null ? navigationLink.getHref() :
+        linked.getId() == null ? null : linked.getId().toASCIIString() + "/" + propertyName;
+    if (!isODataMetadataNone && href != null) {
+      json.writeStringField(propertyName + Constants.JSON_NAVIGATION_LINK, href);
+    }
+  }
+
   protected void writeExpandedNavigationProperty(final ServiceMetadata metadata, final EdmNavigationProperty property,
       final Link navigationLink, final ExpandOption innerExpand, final SelectOption innerSelect,
       final JsonGenerator json) throws IOException, SerializerException {
@@ -431,7 +657,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
   }
 
   protected void writeProperty(final ServiceMetadata metadata, final EdmProperty edmProperty, final Property property,
-      final Set<List<String>> selectedPaths, final JsonGenerator json)
+      final ProjectionTree projection, final JsonGenerator json)
           throws IOException, SerializerException {
     json.writeFieldName(edmProperty.getName());
     if (property == null || property.isNull()) {
@@ -447,12 +673,12 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
         }
       }
     } else {
-      writePropertyValue(metadata, edmProperty, property, selectedPaths, json);
+      writePropertyValue(metadata, edmProperty, property, projection, json);
     }
   }
 
   private void writePropertyValue(final ServiceMetadata metadata, final EdmProperty edmProperty,
-      final Property property, final Set<List<String>> selectedPaths, final JsonGenerator json)
+      final Property property, final ProjectionTree projection, final JsonGenerator json)
           throws IOException, SerializerException {
     final EdmType type = edmProperty.getType();
     try {
@@ -469,9 +695,9 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
         }
       } else if (property.isComplex()) {
         if (edmProperty.isCollection()) {
-          writeComplexCollection(metadata, (EdmComplexType) type, property, selectedPaths, json);
+          writeComplexCollection(metadata, (EdmComplexType) type, property, projection, json);
         } else {
-          writeComplexValue(metadata, property, (EdmComplexType) type, property.asComplex().getValue(), selectedPaths,
+          writeComplexValue(metadata, property, (EdmComplexType) type, property.asComplex().getValue(), projection,
               json);
         }
       } else {
@@ -515,13 +741,13 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
 
   private void writeComplexCollection(final ServiceMetadata metadata, final EdmComplexType type,
       final Property property,
-      final Set<List<String>> selectedPaths, final JsonGenerator json)
+      final ProjectionTree projection, final JsonGenerator json)
           throws IOException, SerializerException {
     json.writeStartArray();
     for (Object value : property.asCollection()) {
       switch (property.getValueType()) {
       case COLLECTION_COMPLEX:
-        writeComplexValue(metadata, property, type, ((ComplexValue) value).getValue(), selectedPaths, json);
+        writeComplexValue(metadata, property, type, ((ComplexValue) value).getValue(), projection, json);
         break;
       default:
         throw new SerializerException("Property type not yet supported!",
@@ -576,7 +802,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
 
   protected void writeComplexValue(final ServiceMetadata metadata, final Property complexProperty,
       final EdmComplexType type, final List<Property> properties,
-      final Set<List<String>> selectedPaths, final JsonGenerator json)
+      final ProjectionTree projection, final JsonGenerator json)
           throws IOException, SerializerException {
     json.writeStartObject();
 
@@ -589,16 +815,18 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
 
     for (final String propertyName : resolvedType.getPropertyNames()) {
       final Property property = findProperty(propertyName, properties);
-      if (selectedPaths == null || ExpandSelectHelper.isSelected(selectedPaths, propertyName)) {
+      if (projection == null || projection.isSelected(propertyName)) {
         writeProperty(metadata, (EdmProperty) resolvedType.getProperty(propertyName), property,
-            selectedPaths == null ? null : ExpandSelectHelper.getReducedSelectedPaths(selectedPaths, propertyName),
-                json);
+            projection == null ? null : projection.getSelected(propertyName), json);
       }
     }
     json.writeEndObject();
   }
 
   private Property findProperty(final String propertyName, final List<Property> properties) {
+    if (properties instanceof CompactEntity.PropertyList) {
+      return ((CompactEntity.PropertyList) properties).get(propertyName);
+    }
     for (final Property property : properties) {
       if (propertyName.equals(property.getName())) {
         return property;
@@ -858,6 +1086,12 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     }
   }
 
+  void writeDeltaLink(final AbstractEntityCollection entitySet, final JsonGenerator json) throws IOException {
+    if (entitySet.getDeltaLink() != null) {
+      json.writeStringField(Constants.JSON_DELTA_LINK, entitySet.getDeltaLink().toASCIIString());
+    }
+  }
+
   private boolean isODataIEEE754Compatible(final ContentType contentType) {
     return contentType.getParameters().containsKey(ContentType.PARAMETER_IEEE754_COMPATIBLE)
         && Boolean.TRUE.toString().equalsIgnoreCase(
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.serializer.SerializerException;
+
+/**
+ * Serializes entities in chunks on an executor and writes the serialized chunks in the order of the entities.
+ * <br/>
+ * The calling thread reads the entities, submits a task per chunk, and writes the finished chunks one after
+ * the other, with the separator between two chunks; the framing around the entities is left to the caller.
+ * Only a limited number of chunks is in progress at any time, so entities are read from an iterator only
+ * shortly before they are needed, and the buffers of written chunks are reused for the next chunks.
+ * <br/>
+ * The calling thread never waits for a chunk that has not been started: if the executor rejects a chunk or has not
+ * started it yet when it is to be written, the calling thread serializes it itself. So the executor being busy,
+ * e.g., with the chunks of other responses, slows the serialization down but cannot make it wait forever.
+ * The executor should still be dedicated to serialization and not process requests.
+ */
+public class ChunkedEntityWriter {
+
+  /** Serializes the entities of one chunk; called concurrently for different chunks. */
+  public interface ChunkSerializer {
+    void serialize(List<Entity> entities, OutputStream outputStream) throws SerializerException;
+  }
+
+  private static final String IO_EXCEPTION_TEXT = "An I/O exception occurred.";
+
+  private final ExecutorService executor;
+  private final int chunkSize;
+  private final int maxPendingChunks;
+  private final Queue<ByteArrayOutputStream> buffers = new ConcurrentLinkedQueue<ByteArrayOutputStream>();
+
+  public ChunkedEntityWriter(final ExecutorService executor, final int chunkSize) {
+    this(executor, chunkSize, 2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param executor the executor the chunks are serialized on
+   * @param chunkSize the number of entities per chunk
+   * @param maxPendingChunks the maximum number of chunks submitted but not yet written
+   */
+  public ChunkedEntityWriter(final ExecutorService executor, final int chunkSize, final int maxPendingChunks) {
+    if (chunkSize <= 0 || maxPendingChunks <= 0) {
+      throw new IllegalArgumentException("Chunk size and number of pending chunks must be positive.");
+    }
+    this.executor = executor;
+    this.chunkSize = chunkSize;
+    this.maxPendingChunks = maxPendingChunks;
+  }
+
+  /**
+   * Serializes the given entities and writes them to the output stream.
+   * @param entities the entities
+   * @param serializer the serializer for a chunk of entities
+   * @param separator the bytes written between two chunks
+   * @param outputStream the output stream
+   */
+  public void write(final Iterator<Entity> entities, final ChunkSerializer serializer, final byte[] separator,
+      final OutputStream outputStream) throws SerializerException {
+    final LinkedList<FutureTask<ByteArrayOutputStream>> pending = new LinkedList<FutureTask<ByteArrayOutputStream>>();
+    boolean first = true;
+    try {
+      while (entities.hasNext()) {
+        final List<Entity> chunk = new ArrayList<Entity>(chunkSize);
+        while (chunk.size() < chunkSize && entities.hasNext()) {
+          chunk.add(entities.next());
+        }
+        final FutureTask<ByteArrayOutputStream> task =
+            new FutureTask<ByteArrayOutputStream>(new Callable<ByteArrayOutputStream>() {
+              @Override
+              public ByteArrayOutputStream call() throws SerializerException {
+                final ByteArrayOutputStream buffer = getBuffer();
+                serializer.serialize(chunk, buffer);
+                return buffer;
+              }
+            });
+        pending.add(task);
+        try {
+          executor.execute(task);
+        } catch (final RejectedExecutionException e) {
+          task.run();
+        }
+        while (pending.size() > maxPendingChunks) {
+          writeChunk(pending.removeFirst(), first ? null : separator, outputStream);
+          first = false;
+        }
+      }
+      while (!pending.isEmpty()) {
+        writeChunk(pending.removeFirst(), first ? null : separator, outputStream);
+        first = false;
+      }
+    } catch (final IOException e) {
+      throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+    } finally {
+      for (final FutureTask<ByteArrayOutputStream> task : pending) {
+        task.cancel(true);
+      }
+    }
+  }
+
+  private ByteArrayOutputStream getBuffer() {
+    final ByteArrayOutputStream buffer = buffers.poll();
+    return buffer == null ? new ByteArrayOutputStream() : buffer;
+  }
+
+  private void writeChunk(final FutureTask<ByteArrayOutputStream> task, final byte[] separator,
+      final OutputStream outputStream) throws SerializerException, IOException {
+    // Serializes the chunk in the calling thread if no thread of the executor has started it;
+    // does nothing if the chunk is in progress or done.
+    task.run();
+    final ByteArrayOutputStream buffer;
+    try {
+      buffer = task.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof SerializerException) {
+        throw (SerializerException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new SerializerException(IO_EXCEPTION_TEXT, e.getCause(), SerializerException.MessageKeys.IO_EXCEPTION);
+    }
+    if (separator != null && buffer.size() > 0) {
+      outputStream.write(separator);
+    }
+    buffer.writeTo(outputStream);
+    buffer.reset();
+    buffers.offer(buffer);
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.serializer.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.data.Linked;
+import org.apache.olingo.server.api.serializer.EntitySerializerOptions;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
+import org.apache.olingo.server.core.uri.queryoption.ExpandItemImpl;
+import org.apache.olingo.server.core.uri.queryoption.ExpandOptionImpl;
+import org.apache.olingo.server.core.uri.queryoption.LevelsOptionImpl;
+
+/**
+ * Expand option for the entities one level down an expand item with <code>$levels</code>.
+ * <br/>
+ * For the entities reached through <code>Nav($levels=n;$expand=Other)</code>, the expand option is
+ * <code>Nav($levels=n-1;$expand=Other),Other</code>. The option also keeps the entities on the path
+ * of the recursive expansion so that cycles in the data can be detected.
+ * <br/>
+ * All recursive expansions of one serialization share a budget: <code>$levels=max</code> is written with
+ * the maximum number of levels, larger explicit values are rejected, and so is writing more than the
+ * maximum number of entities through expand items with <code>$levels</code>.
+ */
+public class RecursiveExpandOption extends ExpandOptionImpl {
+
+  /** The limits of all recursive expansions of one serialization and the entities counted so far. */
+  private static final class Budget {
+    private final int maxLevels;
+    private final int maxEntities;
+    private final AtomicInteger entities = new AtomicInteger();
+
+    private Budget(final int maxLevels, final int maxEntities) {
+      this.maxLevels = maxLevels;
+      this.maxEntities = maxEntities;
+    }
+  }
+
+  private final List<Linked> path;
+  private final Budget budget;
+
+  private RecursiveExpandOption(final List<Linked> path, final Budget budget) {
+    this.path = path;
+    this.budget = budget;
+  }
+
+  /**
+   * Creates the expand option to start a serialization with, so that all recursive expansions
+   * of the serialization share the given limits.
+   * @param expand the expand option, or <code>null</code>
+   * @param maxLevels the number of levels written for <code>$levels=max</code> and the maximum explicit value
+   * @param maxEntities the maximum number of entities written through expand items with <code>$levels</code>
+   * @return the expand option with the limits, or <code>null</code> if the expand option is <code>null</code>
+   */
+  public static ExpandOption withLimits(final ExpandOption expand, final int maxLevels, final int maxEntities) {
+    return expand == null ? null :
+        copy(expand, Collections.<Linked> emptyList(), new Budget(maxLevels, maxEntities));
+  }
+
+  /**
+   * Gets the expand option for the entities reached through an expand item without <code>$levels</code>,
+   * keeping the limits of the serialization.
+   * @param innerExpand the expand option of the expand item
+   * @param expand the expand option the item belongs to
+   */
+  public static ExpandOption inner(final ExpandOption innerExpand, final ExpandOption expand) {
+    return innerExpand == null || !(expand instanceof RecursiveExpandOption) ? innerExpand :
+        copy(innerExpand, Collections.<Linked> emptyList(), ((RecursiveExpandOption) expand).budget);
+  }
+
+  /**
+   * Creates the expand option for the entities reached from a parent through an expand item
+   * with <code>$levels</code> and counts these entities against the budget.
+   * @param item the expand item with <code>$levels</code>
+   * @param expand the expand option the item belongs to
+   * @param parent the parent the entities are reached from
+   * @param link the navigation link of the parent with the entities as inline content
+   * @return the expand option for the next level, or <code>null</code> if nothing is to be expanded
+   * @throws SerializerException if a limit is exceeded
+   */
+  public static ExpandOption nextLevel(final ExpandItem item, final ExpandOption expand, final Linked parent,
+      final Link link) throws SerializerException {
+    final Budget budget = expand instanceof RecursiveExpandOption ? ((RecursiveExpandOption) expand).budget :
+        new Budget(EntitySerializerOptions.DEFAULT_MAX_LEVELS, EntitySerializerOptions.DEFAULT_MAX_EXPANDED_ENTITIES);
+    final LevelsExpandOption levels = item.getLevelsOption();
+    if (!levels.isMax() && levels.getValue() > budget.maxLevels) {
+      throw new SerializerException("$levels must not be greater than " + budget.maxLevels,
+          SerializerException.MessageKeys.TOO_MANY_EXPAND_LEVELS, Integer.toString(budget.maxLevels));
+    }
+    final int count = link.getInlineEntitySet() == null ? link.getInlineEntity() == null ? 0 : 1 :
+        link.getInlineEntitySet().getEntities().size();
+    if (budget.entities.addAndGet(count) > budget.maxEntities) {
+      throw new SerializerException("The recursive expansion must not contain more than "
+          + budget.maxEntities + " entities",
+          SerializerException.MessageKeys.TOO_MANY_EXPANDED_ENTITIES, Integer.toString(budget.maxEntities));
+    }
+
+    final List<Linked> path = new ArrayList<Linked>(expand instanceof RecursiveExpandOption ?
+        ((RecursiveExpandOption) expand).path : Collections.<Linked> emptyList());
+    path.add(parent);
+    final RecursiveExpandOption next = new RecursiveExpandOption(path, budget);
+
+    final int remaining = levels.isMax() ? budget.maxLevels : levels.getValue();
+    if (remaining > 1) {
+      next.addExpandItem(copy(item, new LevelsOptionImpl().setValue(remaining - 1)));
+    }
+    if (item.getExpandOption() != null) {
+      for (final ExpandItem nestedItem : item.getExpandOption().getExpandItems()) {
+        next.addExpandItem(nestedItem);
+      }
+    }
+    return next.getExpandItems().isEmpty() ? null : next;
+  }
+
+  /**
+   * Determines whether the navigation property of the given entity is written as expanded for an expand item
+   * with <code>$levels</code>. It is not if the data have not been expanded or if the entity has already been
+   * expanded on the path of the recursive expansion, i.e., a cycle starts. Serializers write the navigation
+   * property as not expanded in these cases.
+   */
+  public static boolean isExpanded(final ExpandOption expand, final Linked linked, final String propertyName) {
+    if (linked.getNavigationLink(propertyName) == null) {
+      return false;
+    }
+    if (expand instanceof RecursiveExpandOption) {
+      for (final Linked ancestor : ((RecursiveExpandOption) expand).path) {
+        if (ancestor == linked) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static RecursiveExpandOption copy(final ExpandOption expand, final List<Linked> path,
+      final Budget budget) {
+    final RecursiveExpandOption copy = new RecursiveExpandOption(path, budget);
+    copy.setText(expand.getText());
+    for (final ExpandItem item : expand.getExpandItems()) {
+      copy.addExpandItem(item);
+    }
+    return copy;
+  }
+
+  private static ExpandItem copy(final ExpandItem item, final LevelsOptionImpl levels) {
+    final ExpandItemImpl copy = new ExpandItemImpl()
+        .setResourcePath(item.getResourcePath())
+        .setIsStar(item.isStar())
+        .setIsRef(item.isRef())
+        .setTypeFilter(item.getStartTypeFilter())
+        .setSystemQueryOption(levels);
+    if (item.getFilterOption() != null) {
+      copy.setSystemQueryOption(item.getFilterOption());
+    }
+    if (item.getSearchOption() != null) {
+      copy.setSystemQueryOption(item.getSearchOption());
+    }
+    if (item.getOrderByOption() != null) {
+      copy.setSystemQueryOption(item.getOrderByOption());
+    }
+    if (item.getSkipOption() != null) {
+      copy.setSystemQueryOption(item.getSkipOption());
+    }
+    if (item.getTopOption() != null) {
+      copy.setSystemQueryOption(item.getTopOption());
+    }
+    if (item.getCountOption() != null) {
+      copy.setSystemQueryOption(item.getCountOption());
+    }
+    if (item.getSelectOption() != null) {
+      copy.setSystemQueryOption(item.getSelectOption());
+    }
+    if (item.getExpandOption() != null) {
+      copy.setSystemQueryOption(item.getExpandOption());
+    }
+    return copy;
+  }
+}
@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -31,8 +32,10 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.CompactEntity;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.AbstractEntityCollection;
@@ -69,12 +72,16 @@ import org.apache.olingo.server.api.serializer.SerializerStreamResult;
 import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.FlightRecorderEvents;
 import org.apache.olingo.server.core.ODataWritableContent;
 import org.apache.olingo.server.core.serializer.AbstractODataSerializer;
 import org.apache.olingo.server.core.serializer.SerializerResultImpl;
+import org.apache.olingo.server.core.serializer.utils.ChunkedEntityWriter;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
 import org.apache.olingo.server.core.serializer.utils.ExpandSelectHelper;
+import org.apache.olingo.server.core.uri.queryoption.ProjectionTree;
+import org.apache.olingo.server.core.serializer.utils.RecursiveExpandOption;
 
 public class ODataXmlSerializer extends AbstractODataSerializer {
 
@@ -217,6 +224,11 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       final EdmEntityType entityType, final AbstractEntityCollection entitySet,
       final EntityCollectionSerializerOptions options) throws SerializerException {
 
+    if (entitySet instanceof Delta) {
+      // A plain feed would silently drop the deleted entities and the changed links.
+      throw new SerializerException("Delta responses are not supported in XML.",
+          SerializerException.MessageKeys.NOT_IMPLEMENTED);
+    }
     final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
     if (options != null && options.getWriteOnlyReferences()) {
       ReferenceCollectionSerializerOptions rso = ReferenceCollectionSerializerOptions.with()
@@ -224,6 +236,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       return entityReferenceCollection(entitySet, rso);
     }
 
+    final Object event = FlightRecorderEvents.SERIALIZATION.begin();
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
@@ -254,11 +267,13 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
         writeNextLink(entitySet, writer);
       }
 
-      if (options == null) {
+      if (options != null && options.getExecutor() != null) {
+        writeEntitySetInChunks(metadata, entityType, entitySet.iterator(), options, writer, outputStream);
+      } else if (options == null) {
         writeEntitySet(metadata, entityType, entitySet, null, null, null, writer);
       } else {
         writeEntitySet(metadata, entityType, entitySet,
-            options.getExpand(), options.getSelect(), options.xml10InvalidCharReplacement(), writer);
+            getExpand(options), options.getSelect(), options.xml10InvalidCharReplacement(), writer);
       }
 
       writer.writeEndElement();
@@ -279,6 +294,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       throw cachedException;
     } finally {
       closeCircleStreamBufferOutput(outputStream, cachedException);
+      FlightRecorderEvents.commit(FlightRecorderEvents.SERIALIZATION, event, "XML", "entityCollection", entityType);
     }
   }
 
@@ -286,6 +302,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       EntityCollectionSerializerOptions options, OutputStream outputStream) throws SerializerException {
 
     final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
+    final Object event = FlightRecorderEvents.SERIALIZATION.begin();
     SerializerException cachedException;
     try {
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
@@ -310,11 +327,13 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
         writeCount(entitySet, writer);
       }
 
-      if (options == null) {
+      if (options != null && options.getExecutor() != null) {
+        writeEntitySetInChunks(metadata, entityType, entitySet.iterator(), options, writer, outputStream);
+      } else if (options == null) {
         writeEntitySet(metadata, entityType, entitySet, null, null, null, writer);
       } else {
         writeEntitySet(metadata, entityType, entitySet,
-            options.getExpand(), options.getSelect(), options.xml10InvalidCharReplacement(), writer);
+            getExpand(options), options.getSelect(), options.xml10InvalidCharReplacement(), writer);
       }
 
       writer.writeEndElement();
@@ -325,6 +344,8 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       cachedException =
           new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
       throw cachedException;
+    } finally {
+      FlightRecorderEvents.commit(FlightRecorderEvents.SERIALIZATION, event, "XML", "entityCollection", entityType);
     }
   }
 
@@ -344,6 +365,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
           ReferenceSerializerOptions.with().contextURL(contextURL).build());
     }
 
+    final Object event = FlightRecorderEvents.SERIALIZATION.begin();
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
@@ -352,7 +374,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, "1.0");
       writeEntity(metadata, entityType, entity, contextURL,
-          options == null ? null : options.getExpand(),
+          getExpand(options),
           options == null ? null : options.getSelect(),
           options == null ? null : options.xml10InvalidCharReplacement(),
           writer, true);
@@ -373,6 +395,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       throw cachedException;
     } finally {
       closeCircleStreamBufferOutput(outputStream, cachedException);
+      FlightRecorderEvents.commit(FlightRecorderEvents.SERIALIZATION, event, "XML", "entity", entityType);
     }
   }
 
@@ -402,6 +425,45 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     }
   }
 
+  /**
+   * Writes the entries with the same result as {@link #writeEntitySet}, but serializes chunks of them
+   * in parallel on the executor of the options. The serialized chunks are written directly to the
+   * output stream of the writer.
+   */
+  private void writeEntitySetInChunks(final ServiceMetadata metadata, final EdmEntityType entityType,
+      final Iterator<Entity> entities, final EntityCollectionSerializerOptions options, final XMLStreamWriter writer,
+      final OutputStream outputStream) throws XMLStreamException, SerializerException {
+    final ExpandOption expand = getExpand(options);
+    // Closes the start tag of the feed.
+    writer.writeCharacters("");
+    writer.flush();
+    new ChunkedEntityWriter(options.getExecutor(), options.getChunkSize()).write(entities,
+        new ChunkedEntityWriter.ChunkSerializer() {
+          @Override
+          public void serialize(final List<Entity> chunk, final OutputStream chunkStream)
+              throws SerializerException {
+            try {
+              final XMLOutputFactory factory = XMLOutputFactory.newInstance();
+              for (final Entity entity : chunk) {
+                // Each entry is a separate root element for the writer.
+                final XMLStreamWriter chunkWriter = factory.createXMLStreamWriter(chunkStream, DEFAULT_CHARSET);
+                // The namespaces have been declared at the feed.
+                chunkWriter.setPrefix(ATOM, NS_ATOM);
+                chunkWriter.setPrefix(METADATA, NS_METADATA);
+                chunkWriter.setPrefix(DATA, NS_DATA);
+                writeEntity(metadata, entityType, entity, null, expand, options.getSelect(),
+                    options.xml10InvalidCharReplacement(), chunkWriter, false);
+                chunkWriter.flush();
+                chunkWriter.close();
+              }
+            } catch (final XMLStreamException e) {
+              throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+            }
+          }
+        },
+        null, outputStream);
+  }
+
   protected void writeEntity(final ServiceMetadata metadata, final EdmEntityType entityType,
       final Entity entity, final ContextURL contextURL, final ExpandOption expand,
       final SelectOption select, final String xml10InvalidCharReplacement,
@@ -553,16 +615,14 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
   protected void writeProperties(final ServiceMetadata metadata, final EdmStructuredType type,
       final List<Property> properties, final SelectOption select, final String xml10InvalidCharReplacement, 
       final XMLStreamWriter writer) throws XMLStreamException, SerializerException {
-    final boolean all = ExpandSelectHelper.isAll(select);
-    final Set<String> selected = all ? new HashSet<String>() :
-        ExpandSelectHelper.getSelectedPropertyNames(select.getSelectItems());
+    final ProjectionTree projection = ProjectionTree.get(metadata, type, select);
     for (final String propertyName : type.getPropertyNames()) {
-      if (all || selected.contains(propertyName)) {
+      if (projection.isSelected(propertyName)) {
         final EdmProperty edmProperty = type.getStructuralProperty(propertyName);
         final Property property = findProperty(propertyName, properties);
-        final Set<List<String>> selectedPaths = all || edmProperty.isPrimitive() ? null :
-            ExpandSelectHelper.getSelectedPaths(select.getSelectItems(), propertyName);
-        writeProperty(metadata, edmProperty, property, selectedPaths, xml10InvalidCharReplacement, writer);
+        writeProperty(metadata, edmProperty, property,
+            edmProperty.isPrimitive() ? null : projection.getSelected(propertyName),
+            xml10InvalidCharReplacement, writer);
       }
     }
   }
@@ -581,15 +641,18 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
         if (expandAll || expanded.contains(propertyName)) {
           final ExpandItem innerOptions = expandAll ? null :
               ExpandSelectHelper.getExpandItem(expand.getExpandItems(), propertyName);
-          if (innerOptions != null && innerOptions.getLevelsOption() != null) {
-            throw new SerializerException("Expand option $levels is not supported.",
-                SerializerException.MessageKeys.NOT_IMPLEMENTED);
-          }
-          if (navigationLink != null) {
+          final boolean recursive = innerOptions != null && innerOptions.getLevelsOption() != null;
+          if (recursive && !RecursiveExpandOption.isExpanded(expand, linked, propertyName)) {
+            // Recursive expansion stops where the data has not been expanded or where a cycle starts;
+            // the navigation property is written as not expanded, with its navigation link as in JSON.
+            writeLink(writer, navigationLink);
+          } else if (navigationLink != null) {
             writeLink(writer, navigationLink, false);
             writer.writeStartElement(METADATA, Constants.ATOM_ELEM_INLINE, NS_METADATA);
             writeExpandedNavigationProperty(metadata, property, navigationLink,
-                innerOptions == null ? null : innerOptions.getExpandOption(),
+                innerOptions == null ? null : recursive ?
+                    RecursiveExpandOption.nextLevel(innerOptions, expand, linked, navigationLink) :
+                    RecursiveExpandOption.inner(innerOptions.getExpandOption(), expand),
                 innerOptions == null ? null : innerOptions.getSelectOption(),
                     xml10InvalidCharReplacement, writer);
             writer.writeEndElement();
@@ -669,7 +732,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
 
   protected void writeProperty(final ServiceMetadata metadata,
       final EdmProperty edmProperty, final Property property,
-      final Set<List<String>> selectedPaths,
+      final ProjectionTree projection,
       final String xml10InvalidCharReplacement, final XMLStreamWriter writer)
       throws XMLStreamException, SerializerException {
     writer.writeStartElement(DATA, edmProperty.getName(), NS_DATA);
@@ -681,7 +744,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
             SerializerException.MessageKeys.MISSING_PROPERTY, edmProperty.getName());
       }
     } else {
-      writePropertyValue(metadata, edmProperty, property, selectedPaths, xml10InvalidCharReplacement, writer);
+      writePropertyValue(metadata, edmProperty, property, projection, xml10InvalidCharReplacement, writer);
     }
     writer.writeEndElement();
   }
@@ -707,7 +770,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
 
   private void writePropertyValue(final ServiceMetadata metadata,
       final EdmProperty edmProperty, final Property property,
-      final Set<List<String>> selectedPaths,
+      final ProjectionTree projection,
       final String xml10InvalidCharReplacement, final XMLStreamWriter writer)
       throws XMLStreamException, SerializerException {
     try {
@@ -732,13 +795,13 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       } else if (property.isComplex()) {
         if (edmProperty.isCollection()) {
           writer.writeAttribute(METADATA, NS_METADATA, Constants.ATTR_TYPE, collectionType(edmProperty.getType()));
-          writeComplexCollection(metadata, (EdmComplexType) edmProperty.getType(), property, selectedPaths, 
+          writeComplexCollection(metadata, (EdmComplexType) edmProperty.getType(), property, projection, 
               xml10InvalidCharReplacement, writer);
         } else {
           writer.writeAttribute(METADATA, NS_METADATA, Constants.ATTR_TYPE,
               "#" + complexType(metadata, (EdmComplexType) edmProperty.getType(), property.getType()));
           writeComplexValue(metadata, property, (EdmComplexType) edmProperty.getType(), property.asComplex().getValue(),
-              selectedPaths, xml10InvalidCharReplacement, writer);
+              projection, xml10InvalidCharReplacement, writer);
         }
       } else {
         throw new SerializerException("Property type not yet supported!",
@@ -775,7 +838,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
   }
 
   private void writeComplexCollection(final ServiceMetadata metadata,
-      final EdmComplexType type, final Property property, final Set<List<String>> selectedPaths,
+      final EdmComplexType type, final Property property, final ProjectionTree projection,
       final String xml10InvalidCharReplacement, final XMLStreamWriter writer)
       throws XMLStreamException, SerializerException {
     for (Object value : property.asCollection()) {
@@ -786,7 +849,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       switch (property.getValueType()) {
       case COLLECTION_COMPLEX:
         writeComplexValue(metadata, property, type,
-            ((ComplexValue) value).getValue(), selectedPaths,
+            ((ComplexValue) value).getValue(), projection,
             xml10InvalidCharReplacement, writer);
         break;
       default:
@@ -841,7 +904,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
 
   protected void writeComplexValue(final ServiceMetadata metadata,
       Property complexProperty, final EdmComplexType type,
-      final List<Property> properties, final Set<List<String>> selectedPaths,
+      final List<Property> properties, final ProjectionTree projection,
       final String xml10InvalidCharReplacement, final XMLStreamWriter writer)
       throws XMLStreamException, SerializerException {
 
@@ -850,15 +913,18 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
     
     for (final String propertyName : resolvedType.getPropertyNames()) {
       final Property property = findProperty(propertyName, properties);
-      if (selectedPaths == null || ExpandSelectHelper.isSelected(selectedPaths, propertyName)) {
+      if (projection == null || projection.isSelected(propertyName)) {
         writeProperty(metadata, (EdmProperty) resolvedType.getProperty(propertyName), property,
-            selectedPaths == null ? null : ExpandSelectHelper.getReducedSelectedPaths(selectedPaths, propertyName),
+            projection == null ? null : projection.getSelected(propertyName),
             xml10InvalidCharReplacement, writer);
       }
     }
   }
 
   private Property findProperty(final String propertyName, final List<Property> properties) {
+    if (properties instanceof CompactEntity.PropertyList) {
+      return ((CompactEntity.PropertyList) properties).get(propertyName);
+    }
     for (final Property property : properties) {
       if (propertyName.equals(property.getName())) {
         return property;
@@ -38,8 +38,10 @@ import org.apache.olingo.server.api.uri.UriInfoResource;
 import org.apache.olingo.server.api.uri.UriInfoService;
 import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.queryoption.AliasQueryOption;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
 import org.apache.olingo.server.api.uri.queryoption.CustomQueryOption;
+import org.apache.olingo.server.api.uri.queryoption.DeltaTokenOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.FilterOption;
 import org.apache.olingo.server.api.uri.queryoption.FormatOption;
@@ -193,6 +195,8 @@ public class UriInfoImpl implements UriInfo {
     case SKIPTOKEN:
     case TOP:
     case LEVELS:
+    case APPLY:
+    case DELTATOKEN:
       systemQueryOptions.put(kind, systemOption);
       break;
     default:
@@ -256,6 +260,39 @@ public class UriInfoImpl implements UriInfo {
     return (TopOption) systemQueryOptions.get(SystemQueryOptionKind.TOP);
   }
 
+  /**
+   * @return Object containing information of the $apply option;
+   * processors get it through {@link org.apache.olingo.server.api.processor.ApplyEntityCollectionProcessor}
+   */
+  public ApplyOption getApplyOption() {
+    return (ApplyOption) systemQueryOptions.get(SystemQueryOptionKind.APPLY);
+  }
+
+  /**
+   * @return Object containing information of the $deltatoken option;
+   * processors get it through {@link org.apache.olingo.server.api.processor.DeltaProcessor}
+   */
+  public DeltaTokenOption getDeltaTokenOption() {
+    return (DeltaTokenOption) systemQueryOptions.get(SystemQueryOptionKind.DELTATOKEN);
+  }
+
+  /**
+   * Gets the system query option of the given kind from the given URI info object.
+   * This works also for options without getter in the API, like $apply and $deltatoken.
+   * @return the system query option or <code>null</code> if the URI does not contain it
+   */
+  public static SystemQueryOption getSystemQueryOption(final UriInfo uriInfo, final SystemQueryOptionKind kind) {
+    if (uriInfo instanceof UriInfoImpl) {
+      return ((UriInfoImpl) uriInfo).systemQueryOptions.get(kind);
+    }
+    for (final SystemQueryOption option : uriInfo.getSystemQueryOptions()) {
+      if (option.getKind() == kind) {
+        return option;
+      }
+    }
+    return null;
+  }
+
   @Override
   public List<SystemQueryOption> getSystemQueryOptions() {
     return Collections.unmodifiableList(new ArrayList<SystemQueryOption>(systemQueryOptions.values()));
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri.parser;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.uri.queryoption.AliasQueryOption;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression.StandardMethod;
+import org.apache.olingo.server.api.uri.queryoption.apply.ApplyItem;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.core.uri.parser.UriTokenizer.TokenKind;
+import org.apache.olingo.server.core.uri.queryoption.ApplyOptionImpl;
+import org.apache.olingo.server.core.uri.queryoption.apply.AggregateExpressionImpl;
+import org.apache.olingo.server.core.uri.queryoption.apply.AggregateImpl;
+import org.apache.olingo.server.core.uri.queryoption.apply.BottomTopImpl;
+import org.apache.olingo.server.core.uri.queryoption.apply.FilterImpl;
+import org.apache.olingo.server.core.uri.queryoption.apply.GroupByImpl;
+import org.apache.olingo.server.core.uri.validator.UriValidationException;
+
+/**
+ * Parses the transformations <code>aggregate</code>, <code>groupby</code>, <code>filter</code>,
+ * <code>topcount</code>, and <code>bottomcount</code> of the system query option $apply.
+ * Expressions are parsed in the context of the referenced type; properties introduced by aliases
+ * of earlier transformations cannot be referenced.
+ */
+public class ApplyParser {
+
+  private static final Set<EdmPrimitiveTypeKind> NUMERIC_KINDS = EnumSet.of(
+      EdmPrimitiveTypeKind.Byte, EdmPrimitiveTypeKind.SByte,
+      EdmPrimitiveTypeKind.Int16, EdmPrimitiveTypeKind.Int32, EdmPrimitiveTypeKind.Int64,
+      EdmPrimitiveTypeKind.Decimal, EdmPrimitiveTypeKind.Single, EdmPrimitiveTypeKind.Double);
+
+  private final Edm edm;
+  private final OData odata;
+
+  public ApplyParser(final Edm edm, final OData odata) {
+    this.edm = edm;
+    this.odata = odata;
+  }
+
+  public ApplyOption parse(UriTokenizer tokenizer, final EdmType referencedType,
+      final Collection<String> crossjoinEntitySetNames, final Map<String, AliasQueryOption> aliases)
+      throws UriParserException, UriValidationException {
+    ApplyOptionImpl option = new ApplyOptionImpl();
+    do {
+      option.add(parseTrafo(tokenizer, referencedType, crossjoinEntitySetNames, aliases));
+    } while (tokenizer.next(TokenKind.SLASH));
+    return option;
+  }
+
+  private ApplyItem parseTrafo(UriTokenizer tokenizer, final EdmType referencedType,
+      final Collection<String> crossjoinEntitySetNames, final Map<String, AliasQueryOption> aliases)
+      throws UriParserException, UriValidationException {
+    if (tokenizer.next(TokenKind.AggregateTrafo)) {
+      AggregateImpl aggregate = new AggregateImpl();
+      do {
+        aggregate.addExpression(parseAggregateExpression(tokenizer, referencedType, crossjoinEntitySetNames,
+            aliases));
+      } while (tokenizer.next(TokenKind.COMMA));
+      ParserHelper.requireNext(tokenizer, TokenKind.CLOSE);
+      return aggregate;
+
+    } else if (tokenizer.next(TokenKind.GroupByTrafo)) {
+      GroupByImpl groupBy = new GroupByImpl();
+      ParserHelper.requireNext(tokenizer, TokenKind.OPEN);
+      do {
+        final Expression expression = parseExpression(tokenizer, referencedType, crossjoinEntitySetNames, aliases);
+        if (!(expression instanceof Member)) {
+          throw new UriParserSemanticException("Only property paths are allowed for grouping.",
+              UriParserSemanticException.MessageKeys.NOT_IMPLEMENTED, expression.toString());
+        }
+        groupBy.addGroupByItem((Member) expression);
+      } while (tokenizer.next(TokenKind.COMMA));
+      ParserHelper.requireNext(tokenizer, TokenKind.CLOSE);
+      if (tokenizer.next(TokenKind.COMMA)) {
+        groupBy.setApplyOption(parse(tokenizer, referencedType, crossjoinEntitySetNames, aliases));
+      }
+      ParserHelper.requireNext(tokenizer, TokenKind.CLOSE);
+      return groupBy;
+
+    } else if (tokenizer.next(TokenKind.FilterTrafo)) {
+      final FilterImpl filter = new FilterImpl().setExpression(
+          new FilterParser(edm, odata).parse(tokenizer, referencedType, crossjoinEntitySetNames, aliases)
+              .getExpression());
+      ParserHelper.requireNext(tokenizer, TokenKind.CLOSE);
+      return filter;
+
+    } else if (tokenizer.next(TokenKind.TopCountTrafo) || tokenizer.next(TokenKind.BottomCountTrafo)) {
+      BottomTopImpl bottomTop = new BottomTopImpl().setKind(
+          tokenizer.getText().startsWith("top") ? ApplyItem.Kind.TOP_COUNT : ApplyItem.Kind.BOTTOM_COUNT);
+      ParserHelper.requireNext(tokenizer, TokenKind.IntegerValue);
+      bottomTop.setN(ParserHelper.parseNonNegativeInteger("$apply", tokenizer.getText(), true));
+      ParserHelper.requireNext(tokenizer, TokenKind.COMMA);
+      final Expression value = parseExpression(tokenizer, referencedType, crossjoinEntitySetNames, aliases);
+      checkNumeric(value);
+      bottomTop.setValue(value);
+      ParserHelper.requireNext(tokenizer, TokenKind.CLOSE);
+      return bottomTop;
+
+    } else {
+      throw new UriParserSyntaxException("Invalid $apply transformation.",
+          UriParserSyntaxException.MessageKeys.SYNTAX);
+    }
+  }
+
+  private AggregateExpression parseAggregateExpression(UriTokenizer tokenizer, final EdmType referencedType,
+      final Collection<String> crossjoinEntitySetNames, final Map<String, AliasQueryOption> aliases)
+      throws UriParserException, UriValidationException {
+    AggregateExpressionImpl aggregateExpression = new AggregateExpressionImpl();
+    if (!tokenizer.next(TokenKind.COUNT)) {
+      final Expression expression = parseExpression(tokenizer, referencedType, crossjoinEntitySetNames, aliases);
+      ParserHelper.requireNext(tokenizer, TokenKind.WithOperator);
+      final StandardMethod method = parseStandardMethod(tokenizer);
+      if (method == StandardMethod.SUM || method == StandardMethod.AVERAGE) {
+        checkNumeric(expression);
+      }
+      aggregateExpression.setExpression(expression).setStandardMethod(method);
+    }
+    ParserHelper.requireNext(tokenizer, TokenKind.AsOperator);
+    ParserHelper.requireNext(tokenizer, TokenKind.ODataIdentifier);
+    aggregateExpression.setAlias(tokenizer.getText());
+    return aggregateExpression;
+  }
+
+  private StandardMethod parseStandardMethod(UriTokenizer tokenizer) throws UriParserException {
+    if (tokenizer.next(TokenKind.QualifiedName)) {
+      throw new UriParserSemanticException("Custom aggregation methods are not supported.",
+          UriParserSemanticException.MessageKeys.NOT_IMPLEMENTED, tokenizer.getText());
+    }
+    ParserHelper.requireNext(tokenizer, TokenKind.ODataIdentifier);
+    final String name = tokenizer.getText();
+    for (final StandardMethod method : StandardMethod.values()) {
+      if (method.name().replace("_", "").toLowerCase(Locale.ROOT).equals(name)) {
+        return method;
+      }
+    }
+    throw new UriParserSyntaxException("Unknown aggregation method '" + name + "'.",
+        UriParserSyntaxException.MessageKeys.SYNTAX);
+  }
+
+  private Expression parseExpression(UriTokenizer tokenizer, final EdmType referencedType,
+      final Collection<String> crossjoinEntitySetNames, final Map<String, AliasQueryOption> aliases)
+      throws UriParserException, UriValidationException {
+    return new ExpressionParser(edm, odata).parse(tokenizer, referencedType, crossjoinEntitySetNames, aliases);
+  }
+
+  private void checkNumeric(final Expression expression) throws UriParserException {
+    final EdmType type = ExpressionParser.getType(expression);
+    if (type != null && !(type.getKind() == EdmTypeKind.PRIMITIVE
+        && NUMERIC_KINDS.contains(EdmPrimitiveTypeKind.valueOfFQN(type.getFullQualifiedName())))) {
+      throw new UriParserSemanticException("Incompatible types.",
+          UriParserSemanticException.MessageKeys.TYPES_NOT_COMPATIBLE,
+          type.getFullQualifiedName().getFullQualifiedNameAsString(), Arrays.toString(NUMERIC_KINDS.toArray()));
+    }
+  }
+}
@@ -38,6 +38,7 @@ import org.apache.olingo.server.api.uri.UriResourcePartTyped;
 import org.apache.olingo.server.api.uri.UriResourceRef;
 import org.apache.olingo.server.api.uri.UriResourceValue;
 import org.apache.olingo.server.api.uri.queryoption.AliasQueryOption;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.FilterOption;
@@ -47,12 +48,15 @@ import org.apache.olingo.server.api.uri.queryoption.QueryOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.api.uri.queryoption.SystemQueryOption;
 import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
+import org.apache.olingo.server.api.uri.queryoption.apply.ApplyItem;
 import org.apache.olingo.server.core.uri.UriInfoImpl;
 import org.apache.olingo.server.core.uri.UriResourceStartingTypeFilterImpl;
 import org.apache.olingo.server.core.uri.parser.UriTokenizer.TokenKind;
 import org.apache.olingo.server.core.uri.parser.search.SearchParser;
 import org.apache.olingo.server.core.uri.queryoption.AliasQueryOptionImpl;
+import org.apache.olingo.server.core.uri.queryoption.ApplyOptionImpl;
 import org.apache.olingo.server.core.uri.queryoption.CountOptionImpl;
+import org.apache.olingo.server.core.uri.queryoption.DeltaTokenOptionImpl;
 import org.apache.olingo.server.core.uri.queryoption.ExpandOptionImpl;
 import org.apache.olingo.server.core.uri.queryoption.FilterOptionImpl;
 import org.apache.olingo.server.core.uri.queryoption.FormatOptionImpl;
@@ -212,6 +216,8 @@ public class Parser {
         !contextUriInfo.getEntitySetNames().isEmpty() || contextUriInfo.getKind() == UriInfoKind.all,
         contextUriInfo.getAliasMap());
     parseSelectOption(contextUriInfo.getSelectOption(), contextType, contextIsCollection);
+    parseApplyOption(contextUriInfo.getApplyOption(), contextType,
+        contextUriInfo.getEntitySetNames(), contextUriInfo.getAliasMap());
 
     return contextUriInfo;
   }
@@ -288,6 +294,17 @@ public class Parser {
       case LEVELS:
         throw new UriParserSyntaxException("System query option '$levels' is allowed only inside '$expand'!",
             UriParserSyntaxException.MessageKeys.SYSTEM_QUERY_OPTION_LEVELS_NOT_ALLOWED_HERE);
+      case APPLY:
+        systemOption = new ApplyOptionImpl();
+        break;
+      case DELTATOKEN:
+        if (optionValue.isEmpty()) {
+          throw new UriParserSyntaxException("Illegal value of $deltatoken option!",
+              UriParserSyntaxException.MessageKeys.WRONG_VALUE_FOR_SYSTEM_QUERY_OPTION,
+              optionName, optionValue);
+        }
+        systemOption = new DeltaTokenOptionImpl().setValue(optionValue);
+        break;
       }
       ((SystemQueryOptionImpl) systemOption).setText(optionValue);
       return systemOption;
@@ -367,6 +384,21 @@ public class Parser {
     }
   }
 
+  private void parseApplyOption(ApplyOption applyOption, final EdmType contextType,
+      final List<String> entitySetNames, final Map<String, AliasQueryOption> aliases)
+      throws UriParserException, UriValidationException {
+    if (applyOption != null) {
+      final String optionValue = applyOption.getText();
+      UriTokenizer applyTokenizer = new UriTokenizer(optionValue);
+      final ApplyOption option = new ApplyParser(edm, odata).parse(applyTokenizer, contextType,
+          entitySetNames, aliases);
+      checkOptionEOF(applyTokenizer, applyOption.getName(), optionValue);
+      for (final ApplyItem item : option.getApplyItems()) {
+        ((ApplyOptionImpl) applyOption).add(item);
+      }
+    }
+  }
+
   private void ensureLastSegment(final String segment, final int pos, final int size)
       throws UriParserSyntaxException {
     if (pos < size) {
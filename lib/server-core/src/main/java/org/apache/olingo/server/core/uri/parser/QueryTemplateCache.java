@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri.parser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriInfoKind;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceCount;
+import org.apache.olingo.server.api.uri.UriResourcePartTyped;
+import org.apache.olingo.server.api.uri.UriResourceRef;
+import org.apache.olingo.server.api.uri.UriResourceValue;
+import org.apache.olingo.server.api.uri.queryoption.AliasQueryOption;
+import org.apache.olingo.server.api.uri.queryoption.CustomQueryOption;
+import org.apache.olingo.server.api.uri.queryoption.QueryOption;
+import org.apache.olingo.server.api.uri.queryoption.SystemQueryOption;
+import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.core.uri.UriInfoImpl;
+import org.apache.olingo.server.core.uri.parser.UriTokenizer.TokenKind;
+import org.apache.olingo.server.core.uri.queryoption.AliasQueryOptionImpl;
+import org.apache.olingo.server.core.uri.validator.UriValidationException;
+
+/**
+ * <p>Parses URIs that differ only in the values of their parameter aliases once.</p>
+ * <p>Clients often send requests of the same shape, e.g., <code>$filter=PropertyInt16 eq @p</code>,
+ * with different alias values. The first URI of such a shape, with the alias values left out,
+ * becomes a query template: its resource path and system query options are kept, and
+ * later URIs of the same shape only have their alias values parsed and bound to them.</p>
+ * <p>The alias values must have the same types as the ones of the template; otherwise the
+ * URI is parsed completely, so the result of the type checks in the parser is always the same.
+ * Templates are created for resource paths only, and only if the aliases are used in
+ * <code>$filter</code> and <code>$orderby</code> expressions.</p>
+ * <p>The resource parts and system query options of the parse results are shared between the
+ * requests of a template and must not be modified.</p>
+ */
+public class QueryTemplateCache {
+
+  /** Maximum number of templates kept; if reached, the cache is cleared. */
+  private static final int MAX_TEMPLATES = 1000;
+  private static final String AT = "@";
+  private static final String NULL = "null";
+
+  private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<String, Template>();
+
+  /**
+   * Parses the URI, using the template for its shape if there is one.
+   * @see Parser#parseUri(String, String, String)
+   */
+  public UriInfo parseUri(final Edm edm, final OData odata, final String path, final String query,
+      final String fragment) throws UriParserException, UriValidationException {
+    final Parser parser = new Parser(edm, odata);
+    if (query == null || query.indexOf('@') < 0 || path.indexOf('@') >= 0) {
+      return parser.parseUri(path, query, fragment);
+    }
+    final List<QueryOption> options = UriDecoder.splitAndDecodeOptions(query);
+    final String key = getKey(path, options, fragment);
+    if (key == null) {
+      return parser.parseUri(path, query, fragment);
+    }
+
+    final Template template = templates.get(key);
+    if (template != null) {
+      final UriInfo uriInfo = template.bind(edm, odata, options);
+      return uriInfo == null ? parser.parseUri(path, query, fragment) : uriInfo;
+    }
+
+    final UriInfo uriInfo = parser.parseUri(path, query, fragment);
+    final Template newTemplate = Template.create((UriInfoImpl) uriInfo);
+    if (newTemplate != null) {
+      if (templates.size() >= MAX_TEMPLATES) {
+        templates.clear();
+      }
+      templates.put(key, newTemplate);
+    }
+    return uriInfo;
+  }
+
+  /**
+   * Gets the key of the template of the given URI, with the alias values left out,
+   * or <code>null</code> if aliases are used elsewhere than in <code>$filter</code> and <code>$orderby</code>.
+   */
+  private static String getKey(final String path, final List<QueryOption> options, final String fragment) {
+    final StringBuilder key = new StringBuilder(path).append('?');
+    for (final QueryOption option : options) {
+      final String name = option.getName();
+      final String text = option.getText();
+      key.append(name.length()).append(':').append(name);
+      if (!name.startsWith(AT)) {
+        if (text.indexOf('@') >= 0
+            && !SystemQueryOptionKind.FILTER.toString().equals(name)
+            && !SystemQueryOptionKind.ORDERBY.toString().equals(name)) {
+          return null;
+        }
+        key.append(text.length()).append(':').append(text);
+      }
+      key.append('&');
+    }
+    return fragment == null ? key.toString() : key.append('#').append(fragment).toString();
+  }
+
+  private static final class Template {
+    private final UriInfoImpl uriInfo;
+    private final EdmType referringType;
+    private final Map<String, EdmType> aliasTypes;
+
+    private Template(final UriInfoImpl uriInfo, final EdmType referringType, final Map<String, EdmType> aliasTypes) {
+      this.uriInfo = uriInfo;
+      this.referringType = referringType;
+      this.aliasTypes = aliasTypes;
+    }
+
+    /** Creates a template from the result of parsing a URI, or returns <code>null</code> if not possible. */
+    private static Template create(final UriInfoImpl uriInfo) {
+      if (uriInfo.getKind() != UriInfoKind.resource) {
+        return null;
+      }
+      final Map<String, EdmType> aliasTypes = new HashMap<String, EdmType>();
+      try {
+        for (final AliasQueryOption alias : uriInfo.getAliases()) {
+          // Aliases without parsed value have not been used in expressions.
+          if (alias.getValue() == null) {
+            return null;
+          }
+          aliasTypes.put(alias.getName(), ExpressionParser.getType(alias.getValue()));
+        }
+      } catch (final UriParserException e) {
+        return null;
+      }
+      // The same context type the parser uses for the system query options.
+      UriResource lastSegment = null;
+      for (final UriResource segment : uriInfo.getUriResourceParts()) {
+        if (!(segment instanceof UriResourceCount
+            || segment instanceof UriResourceRef
+            || segment instanceof UriResourceValue)) {
+          lastSegment = segment;
+        }
+      }
+      return new Template(uriInfo,
+          lastSegment instanceof UriResourcePartTyped ?
+              ParserHelper.getTypeInformation((UriResourcePartTyped) lastSegment) : null,
+          aliasTypes);
+    }
+
+    /**
+     * Binds the alias values of the given options to this template.
+     * @return the parse result or <code>null</code> if the alias values do not fit to this template
+     */
+    private UriInfo bind(final Edm edm, final OData odata, final List<QueryOption> options) {
+      final UriInfoImpl result = new UriInfoImpl().setKind(uriInfo.getKind());
+      for (final UriResource segment : uriInfo.getUriResourceParts()) {
+        result.addResourcePart(segment);
+      }
+      for (final SystemQueryOption option : uriInfo.getSystemQueryOptions()) {
+        result.setSystemQueryOption(option);
+      }
+      for (final CustomQueryOption option : uriInfo.getCustomQueryOptions()) {
+        result.addCustomQueryOption(option);
+      }
+      result.setFragment(uriInfo.getFragment());
+      for (final QueryOption option : options) {
+        if (option.getName().startsWith(AT)) {
+          if (NULL.equals(option.getText())) {
+            return null;
+          }
+          result.addAlias((AliasQueryOption) new AliasQueryOptionImpl()
+              .setName(option.getName())
+              .setText(option.getText()));
+        }
+      }
+
+      final Map<String, AliasQueryOption> aliases = result.getAliasMap();
+      if (!aliases.keySet().equals(aliasTypes.keySet())) {
+        return null;
+      }
+      try {
+        for (final AliasQueryOption alias : aliases.values()) {
+          // Don't pass on the current alias to avoid circular references.
+          Map<String, AliasQueryOption> aliasesInner = new HashMap<String, AliasQueryOption>(aliases);
+          aliasesInner.remove(alias.getName());
+          final UriTokenizer tokenizer = new UriTokenizer(alias.getText());
+          final Expression expression = new ExpressionParser(edm, odata)
+              .parse(tokenizer, referringType, null, aliasesInner);
+          final EdmType type = ExpressionParser.getType(expression);
+          final EdmType expectedType = aliasTypes.get(alias.getName());
+          if (!tokenizer.next(TokenKind.EOF) || (type == null ? expectedType != null : !type.equals(expectedType))) {
+            return null;
+          }
+          ((AliasQueryOptionImpl) alias).setAliasValue(expression);
+        }
+      } catch (final UriParserException e) {
+        return null;
+      } catch (final UriValidationException e) {
+        return null;
+      }
+      return result;
+    }
+  }
+}
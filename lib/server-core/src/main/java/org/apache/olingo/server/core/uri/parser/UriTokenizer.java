@@ -18,6 +18,8 @@
  */
 package org.apache.olingo.server.core.uri.parser;
 
+import java.util.Arrays;
+
 /**
  * <p>Simple OData URI tokenizer that works on a given string by keeping an index.</p>
  * <p>As far as feasible, it tries to work on character basis, assuming this to be faster than string operations.
@@ -26,6 +28,10 @@ package org.apache.olingo.server.core.uri.parser;
  * because this tokenizer should behave like a classical token-consuming tokenizer.</p>
  * <p>Whitespace is not an extra token but consumed with the tokens that require whitespace.
  * Optional whitespace is not supported.</p>
+ * <p>Since parsers probe many token kinds at the same index, a token kind is first checked against a table
+ * of the characters its tokens can start with (and, for tokens starting with whitespace, the character following
+ * the whitespace); literals with a fixed structure are checked by looking ahead at their separators.
+ * Only token kinds passing these checks are scanned, and each token kind is scanned at most once per index.</p>
  */
 public class UriTokenizer {
 
@@ -159,7 +165,140 @@ public class UriTokenizer {
     YearMethod,
 
     AscSuffix,
-    DescSuffix
+    DescSuffix,
+
+    AggregateTrafo,
+    BottomCountTrafo,
+    FilterTrafo,
+    GroupByTrafo,
+    TopCountTrafo,
+
+    AsOperator,
+    WithOperator
+  }
+
+  private static final TokenKind[] TOKEN_KINDS = TokenKind.values();
+  private static final String DIGITS = "0123456789";
+  private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+  private static final String WHITESPACE = " \t";
+
+  /** Per token kind (by ordinal) the ASCII characters a token can start with, or <code>null</code> for any. */
+  private static final boolean[][] START = new boolean[TOKEN_KINDS.length][];
+  /** Per token kind whether a token can start with a non-ASCII character. */
+  private static final boolean[] START_NON_ASCII = new boolean[TOKEN_KINDS.length];
+  /** Per token kind starting with whitespace the character following the whitespace, or 0 for any. */
+  private static final char[] AFTER_WHITESPACE = new char[TOKEN_KINDS.length];
+
+  static {
+    for (final TokenKind kind : TOKEN_KINDS) {
+      initStart(kind);
+    }
+  }
+
+  private static void initStart(final TokenKind kind) {
+    final String name = kind.name();
+    if (kind == TokenKind.EOF) {
+      return;
+    } else if (kind.compareTo(TokenKind.TOP) <= 0) {
+      setStart(kind, "$");
+    } else if (kind.compareTo(TokenKind.MAX) <= 0) {
+      switch (kind) {
+      case OPEN: setStart(kind, "("); break;
+      case CLOSE: setStart(kind, ")"); break;
+      case COMMA: setStart(kind, ","); break;
+      case SEMI: setStart(kind, ";"); break;
+      case COLON: setStart(kind, ":"); break;
+      case DOT: setStart(kind, "."); break;
+      case SLASH: setStart(kind, "/"); break;
+      case EQ: setStart(kind, "="); break;
+      case STAR: setStart(kind, "*"); break;
+      case PLUS: setStart(kind, "+"); break;
+      default: setStart(kind, name.substring(0, 1).toLowerCase());
+      }
+    } else if (name.endsWith("Method") || name.endsWith("Trafo")) {
+      setStart(kind, name.substring(0, 1).toLowerCase());
+    } else {
+      switch (kind) {
+      case ODataIdentifier:
+      case QualifiedName:
+      case EnumValue:
+        setStart(kind, LETTERS + "_");
+        START_NON_ASCII[kind.ordinal()] = true;
+        break;
+      case Word:
+        setStart(kind, LETTERS);
+        START_NON_ASCII[kind.ordinal()] = true;
+        break;
+      case ParameterAliasName: setStart(kind, "@"); break;
+      case BooleanValue: setStart(kind, "tTfF"); break;
+      case StringValue: setStart(kind, "'"); break;
+      case IntegerValue:
+      case DecimalValue:
+        setStart(kind, DIGITS + "+-");
+        break;
+      case DoubleValue: setStart(kind, DIGITS + "+-NI"); break;
+      case GuidValue: setStart(kind, DIGITS + "ABCDEFabcdef"); break;
+      case DateValue:
+      case DateTimeOffsetValue:
+        setStart(kind, DIGITS + "-");
+        break;
+      case TimeOfDayValue: setStart(kind, "012"); break;
+      case DurationValue: setStart(kind, "dD"); break;
+      case BinaryValue: setStart(kind, "bB"); break;
+      case jsonArrayOrObject: setStart(kind, "[{"); break;
+      case Phrase: setStart(kind, "\""); break;
+      case NotOperatorSearch: setStart(kind, "N"); break;
+      case NotOperator: setStart(kind, "n"); break;
+      case MinusOperator: setStart(kind, "-"); break;
+      case AndOperatorSearch: setStart(kind, WHITESPACE); break;
+      case OrOperatorSearch: setStart(kind, WHITESPACE, 'O'); break;
+      case AscSuffix:
+      case AsOperator:
+      case AddOperator:
+      case AndOperator:
+        setStart(kind, WHITESPACE, 'a');
+        break;
+      case DescSuffix:
+      case DivOperator:
+        setStart(kind, WHITESPACE, 'd');
+        break;
+      case OrOperator: setStart(kind, WHITESPACE, 'o'); break;
+      case EqualsOperator: setStart(kind, WHITESPACE, 'e'); break;
+      case NotEqualsOperator: setStart(kind, WHITESPACE, 'n'); break;
+      case GreaterThanOperator:
+      case GreaterThanOrEqualsOperator:
+        setStart(kind, WHITESPACE, 'g');
+        break;
+      case LessThanOperator:
+      case LessThanOrEqualsOperator:
+        setStart(kind, WHITESPACE, 'l');
+        break;
+      case HasOperator: setStart(kind, WHITESPACE, 'h'); break;
+      case SubOperator: setStart(kind, WHITESPACE, 's'); break;
+      case MulOperator:
+      case ModOperator:
+        setStart(kind, WHITESPACE, 'm');
+        break;
+      case WithOperator: setStart(kind, WHITESPACE, 'w'); break;
+      default:
+        if (name.startsWith("Geo")) {
+          setStart(kind, "gG");
+        }
+      }
+    }
+  }
+
+  private static void setStart(final TokenKind kind, final String characters) {
+    final boolean[] start = new boolean[128];
+    for (final char character : characters.toCharArray()) {
+      start[character] = true;
+    }
+    START[kind.ordinal()] = start;
+  }
+
+  private static void setStart(final TokenKind kind, final String characters, final char afterWhitespace) {
+    setStart(kind, characters);
+    AFTER_WHITESPACE[kind.ordinal()] = afterWhitespace;
   }
 
   private final String parseString;
@@ -167,6 +306,10 @@ public class UriTokenizer {
   private int startIndex = 0;
   private int index = 0;
 
+  /** The token kinds (as bits by ordinal) already tried without success at {@link #failedIndex}. */
+  private final long[] failed = new long[(TOKEN_KINDS.length + 63) / 64];
+  private int failedIndex = -1;
+
   public UriTokenizer(final String parseString) {
     this.parseString = parseString == null ? "" : parseString;
   }
@@ -190,6 +333,18 @@ public class UriTokenizer {
     if (allowedTokenKind == null) {
       return false;
     }
+    if (failedIndex != index) {
+      Arrays.fill(failed, 0);
+      failedIndex = index;
+    }
+    final int ordinal = allowedTokenKind.ordinal();
+    if ((failed[ordinal >> 6] & 1L << ordinal) != 0) {
+      return false;
+    }
+    if (!isPossible(allowedTokenKind)) {
+      failed[ordinal >> 6] |= 1L << ordinal;
+      return false;
+    }
 
     boolean found = false;
     final int previousIndex = index;
@@ -561,16 +716,86 @@ public class UriTokenizer {
     case DescSuffix:
       found = nextSuffix("desc");
       break;
+
+    // Transformations of $apply
+    case AggregateTrafo:
+      found = nextMethod("aggregate");
+      break;
+    case BottomCountTrafo:
+      found = nextMethod("bottomcount");
+      break;
+    case FilterTrafo:
+      found = nextMethod("filter");
+      break;
+    case GroupByTrafo:
+      found = nextMethod("groupby");
+      break;
+    case TopCountTrafo:
+      found = nextMethod("topcount");
+      break;
+
+    case AsOperator:
+      found = nextBinaryOperator("as");
+      break;
+    case WithOperator:
+      found = nextBinaryOperator("with");
+      break;
     }
 
     if (found) {
       startIndex = previousIndex;
     } else {
       index = previousIndex;
+      failed[ordinal >> 6] |= 1L << ordinal;
     }
     return found;
   }
 
+  /**
+   * Checks whether a token of the given kind could be found at the current index,
+   * looking only at the first characters.
+   * @return <code>false</code> if there is definitely no such token; <code>true</code> otherwise
+   */
+  private boolean isPossible(final TokenKind kind) {
+    final int length = parseString.length();
+    if (index >= length) {
+      return kind == TokenKind.EOF;
+    }
+    final boolean[] start = START[kind.ordinal()];
+    if (start == null) {
+      return true;
+    }
+    final char first = parseString.charAt(index);
+    if (first >= 128 ? !START_NON_ASCII[kind.ordinal()] : !start[first]) {
+      return false;
+    }
+    final char afterWhitespace = AFTER_WHITESPACE[kind.ordinal()];
+    if (afterWhitespace != 0) {
+      int position = index;
+      while (position < length && (parseString.charAt(position) == ' ' || parseString.charAt(position) == '\t')) {
+        position++;
+      }
+      return position < length && parseString.charAt(position) == afterWhitespace;
+    }
+    switch (kind) {
+    case GuidValue:
+      return index + 8 < length && parseString.charAt(index + 8) == '-';
+    case DateValue:
+    case DateTimeOffsetValue:
+      // The year has at least four digits and is followed by a hyphen.
+      int position = first == '-' ? index + 1 : index;
+      final int yearStart = position;
+      while (position < length && parseString.charAt(position) >= '0' && parseString.charAt(position) <= '9') {
+        position++;
+      }
+      return position - yearStart >= 4 && position < length && parseString.charAt(position) == '-';
+    case TimeOfDayValue:
+      return index + 2 < length && parseString.charAt(index + 2) == ':';
+    default:
+      return true;
+    }
+  }
+
   /**
    * Moves past the given string constant if found; otherwise leaves the index unchanged.
    * @return whether the constant has been found at the current index
@@ -590,8 +815,7 @@ public class UriTokenizer {
    */
   private boolean nextConstantIgnoreCase(final String constant) {
     final int length = constant.length();
-    if (index + length <= parseString.length()
-        && constant.equalsIgnoreCase(parseString.substring(index, index + length))) {
+    if (parseString.regionMatches(true, index, constant, 0, length)) {
       index += length;
       return true;
     } else {
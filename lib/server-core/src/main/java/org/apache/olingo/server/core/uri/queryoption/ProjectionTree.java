@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri.queryoption;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.SelectItem;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.ServiceMetadataImpl;
+
+/**
+ * The structural properties selected by a <code>$select</code> option, as tree of property names.
+ * <br/>
+ * Each node selects either all properties (see {@link #ALL}) or the properties it has children for;
+ * a child describes which parts of a complex property are selected.
+ * Trees are immutable; they are computed once per select option and, for options parsed from a request,
+ * shared across requests through the {@link ServiceMetadata}.
+ */
+public final class ProjectionTree {
+
+  /** The tree selecting everything. */
+  public static final ProjectionTree ALL = new ProjectionTree(null);
+
+  private final Map<String, ProjectionTree> children;
+
+  private ProjectionTree(final Map<String, ProjectionTree> children) {
+    this.children = children;
+  }
+
+  /**
+   * Gets the projection tree for the given select option applied to the given structured type.
+   * @param metadata the service metadata holding the trees shared across requests, or <code>null</code>
+   * @param type the structured type the select option is applied to
+   * @param select the select option or <code>null</code>
+   * @return the projection tree, never <code>null</code>
+   */
+  public static ProjectionTree get(final ServiceMetadata metadata, final EdmStructuredType type,
+      final SelectOption select) {
+    if (select == null) {
+      return ALL;
+    } else if (select instanceof SelectOptionImpl) {
+      final SelectOptionImpl selectImpl = (SelectOptionImpl) select;
+      ProjectionTree tree = selectImpl.getProjectionTree();
+      if (tree == null) {
+        tree = metadata instanceof ServiceMetadataImpl && type != null && select.getText() != null ?
+            ((ServiceMetadataImpl) metadata).getProjectionTree(type, select) :
+            create(select);
+        selectImpl.setProjectionTree(tree);
+      }
+      return tree;
+    } else {
+      return create(select);
+    }
+  }
+
+  /**
+   * Creates the projection tree for the given select option.
+   * @param select the select option or <code>null</code>
+   */
+  public static ProjectionTree create(final SelectOption select) {
+    if (select == null || select.getSelectItems() == null || select.getSelectItems().isEmpty()) {
+      return ALL;
+    }
+    final Node root = new Node();
+    for (final SelectItem item : select.getSelectItems()) {
+      if (item.isStar()) {
+        return ALL;
+      }
+      final List<UriResource> parts = item.getResourcePath() == null ? null :
+          item.getResourcePath().getUriResourceParts();
+      if (parts != null && !parts.isEmpty() && parts.get(0) instanceof UriResourceProperty) {
+        Node node = root;
+        for (final UriResource part : parts) {
+          if (part instanceof UriResourceProperty) {
+            node = node.getChild(((UriResourceProperty) part).getProperty().getName());
+            if (node.all) {
+              break;
+            }
+          }
+        }
+        node.all = true;
+      }
+    }
+    return root.toTree();
+  }
+
+  /** Whether all properties are selected. */
+  public boolean isAll() {
+    return children == null;
+  }
+
+  /** Whether the property with the given name is selected, completely or in parts. */
+  public boolean isSelected(final String propertyName) {
+    return children == null || children.containsKey(propertyName);
+  }
+
+  /**
+   * Gets the tree of the selected parts of the property with the given name.
+   * @return the tree or <code>null</code> if the property is not selected
+   */
+  public ProjectionTree getSelected(final String propertyName) {
+    return children == null ? ALL : children.get(propertyName);
+  }
+
+  /**
+   * Gets the names of the selected properties.
+   * @return the names or <code>null</code> if all properties are selected
+   */
+  public Set<String> getSelectedPropertyNames() {
+    return children == null ? null : children.keySet();
+  }
+
+  @Override
+  public String toString() {
+    return children == null ? "*" : children.toString();
+  }
+
+  private static final class Node {
+    private final Map<String, Node> children = new LinkedHashMap<String, Node>();
+    private boolean all;
+
+    private Node getChild(final String name) {
+      Node child = children.get(name);
+      if (child == null) {
+        child = new Node();
+        children.put(name, child);
+      }
+      return child;
+    }
+
+    private ProjectionTree toTree() {
+      if (all) {
+        return ALL;
+      }
+      final Map<String, ProjectionTree> trees = new LinkedHashMap<String, ProjectionTree>();
+      for (final Map.Entry<String, Node> entry : children.entrySet()) {
+        trees.put(entry.getKey(), entry.getValue().toTree());
+      }
+      return new ProjectionTree(Collections.unmodifiableMap(trees));
+    }
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
 public class SelectOptionImpl extends SystemQueryOptionImpl implements SelectOption {
 
   private List<SelectItem> selectItems;
+  private ProjectionTree projectionTree;
 
   public SelectOptionImpl() {
     setKind(SystemQueryOptionKind.SELECT);
@@ -35,6 +36,7 @@ public class SelectOptionImpl extends SystemQueryOptionImpl implements SelectOpt
 
   public SelectOptionImpl setSelectItems(final List<SelectItem> selectItems) {
     this.selectItems = selectItems;
+    projectionTree = null;
     return this;
   }
 
@@ -43,4 +45,13 @@ public class SelectOptionImpl extends SystemQueryOptionImpl implements SelectOpt
     return selectItems == null ? Collections.<SelectItem> emptyList() : Collections.unmodifiableList(selectItems);
   }
 
+  /** Gets the projection tree computed for this option, or <code>null</code>; see {@link ProjectionTree#get}. */
+  ProjectionTree getProjectionTree() {
+    return projectionTree;
+  }
+
+  void setProjectionTree(final ProjectionTree projectionTree) {
+    this.projectionTree = projectionTree;
+  }
+
 }
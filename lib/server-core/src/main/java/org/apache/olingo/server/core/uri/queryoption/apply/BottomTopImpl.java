@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri.queryoption.apply;
+
+import org.apache.olingo.server.api.uri.queryoption.apply.BottomTop;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+
+public class BottomTopImpl implements BottomTop {
+
+  private Kind kind;
+  private int n;
+  private Expression value;
+
+  @Override
+  public Kind getKind() {
+    return kind;
+  }
+
+  public BottomTopImpl setKind(final Kind kind) {
+    this.kind = kind;
+    return this;
+  }
+
+  @Override
+  public int getN() {
+    return n;
+  }
+
+  public BottomTopImpl setN(final int n) {
+    this.n = n;
+    return this;
+  }
+
+  @Override
+  public Expression getValue() {
+    return value;
+  }
+
+  public BottomTopImpl setValue(final Expression value) {
+    this.value = value;
+    return this;
+  }
+
+}
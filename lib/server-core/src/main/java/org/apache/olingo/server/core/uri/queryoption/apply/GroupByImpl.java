@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri.queryoption.apply;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupBy;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+public class GroupByImpl implements GroupBy {
+
+  private List<Member> groupByItems = new ArrayList<Member>();
+  private ApplyOption applyOption;
+
+  @Override
+  public Kind getKind() {
+    return Kind.GROUP_BY;
+  }
+
+  @Override
+  public List<Member> getGroupByItems() {
+    return Collections.unmodifiableList(groupByItems);
+  }
+
+  public GroupByImpl addGroupByItem(final Member groupByItem) {
+    groupByItems.add(groupByItem);
+    return this;
+  }
+
+  @Override
+  public ApplyOption getApplyOption() {
+    return applyOption;
+  }
+
+  public GroupByImpl setApplyOption(final ApplyOption applyOption) {
+    this.applyOption = applyOption;
+    return this;
+  }
+
+}
@@ -20,6 +20,7 @@ package org.apache.olingo.server.core;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
@@ -176,6 +177,29 @@ public class ContentNegotiatorTest {
     }
   }
 
+  @Test
+  public void cachedResults() throws Exception {
+    final ODataRequest request = new ODataRequest();
+    request.addHeader(HttpHeader.ACCEPT, Arrays.asList(ACCEPT_CASE_MIN_UTF8_IEEE754));
+    final ContentType first = ContentNegotiator.doContentNegotiation(null, request, null, RepresentationType.ENTITY);
+    assertSame(first, ContentNegotiator.doContentNegotiation(null, request, null, RepresentationType.ENTITY));
+    assertEquals(ContentType.create(ACCEPT_CASE_MIN_UTF8_IEEE754), first);
+    // The representation type is part of the key.
+    try {
+      ContentNegotiator.doContentNegotiation(null, request, null, RepresentationType.METADATA);
+      fail("Exception expected.");
+    } catch (final ContentNegotiatorException e) {
+      assertEquals(ContentNegotiatorException.MessageKeys.UNSUPPORTED_ACCEPT_TYPES, e.getMessageKey());
+    }
+    // Results with custom content-type support are not cached.
+    final ODataRequest wildcardRequest = new ODataRequest();
+    wildcardRequest.addHeader(HttpHeader.ACCEPT, Arrays.asList(ACCEPT_CASE_WILDCARD1));
+    assertEquals(ContentType.create("a/b"), ContentNegotiator.doContentNegotiation(null, wildcardRequest,
+        createCustomContentTypeSupport("a/b"), RepresentationType.ENTITY));
+    assertEquals(ContentType.create("c/d"), ContentNegotiator.doContentNegotiation(null, wildcardRequest,
+        createCustomContentTypeSupport("c/d"), RepresentationType.ENTITY));
+  }
+
   private void testContentNegotiation(final String[] useCase, final RepresentationType representationType)
       throws ContentNegotiatorException {
 
@@ -67,7 +67,10 @@ public class ExceptionHelperTest {
     for (MessageKey key : DeserializerException.MessageKeys.values()) {
       final DeserializerException e = new DeserializerException(DEV_MSG, key);
       ODataServerError serverError = ODataExceptionHelper.createServerErrorObject(e, null);
-      checkStatusCode(serverError, HttpStatusCode.BAD_REQUEST, e);
+      checkStatusCode(serverError,
+          key == DeserializerException.MessageKeys.LIMIT_EXCEEDED ?
+              HttpStatusCode.PAYLOAD_TOO_LARGE : HttpStatusCode.BAD_REQUEST,
+          e);
     }
   }
 
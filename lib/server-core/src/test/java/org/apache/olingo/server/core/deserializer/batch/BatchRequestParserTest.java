@@ -32,10 +32,12 @@ import org.apache.commons.io.IOUtils;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
 import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.deserializer.batch.BatchDeserializerException;
 import org.apache.olingo.server.api.deserializer.batch.BatchDeserializerException.MessageKeys;
 import org.apache.olingo.server.api.deserializer.batch.BatchOptions;
 import org.apache.olingo.server.api.deserializer.batch.BatchRequestPart;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
 import org.junit.Test;
 
 public class BatchRequestParserTest {
@@ -1287,6 +1289,38 @@ public class BatchRequestParserTest {
     parseInvalidBatchBody(batch, MessageKeys.FORBIDDEN_HEADER);
   }
 
+  @Test
+  public void limits() throws Exception {
+    final String batch = IOUtils.toString(readFile("/batchWithPost.batch"));
+    final BatchOptions options = BatchOptions.with().rawBaseUri(SERVICE_ROOT).build();
+    final int requestCount = countRequests(new BatchParser().parseBatchRequest(
+        new LimitedInputStream(IOUtils.toInputStream(batch), RequestLimits.with().maxBatchParts(100).build()),
+        BOUNDARY, options));
+
+    try {
+      new BatchParser().parseBatchRequest(new LimitedInputStream(IOUtils.toInputStream(batch),
+          RequestLimits.with().maxBatchParts(requestCount - 1).build()), BOUNDARY, options);
+      fail("Expected an exception.");
+    } catch (final BatchDeserializerException e) {
+      assertMessageKey(e, MessageKeys.LIMIT_EXCEEDED);
+    }
+    try {
+      new BatchParser().parseBatchRequest(new LimitedInputStream(IOUtils.toInputStream(batch),
+          RequestLimits.with().maxBodySize(batch.length() / 2).build()), BOUNDARY, options);
+      fail("Expected an exception.");
+    } catch (final BatchDeserializerException e) {
+      assertMessageKey(e, MessageKeys.LIMIT_EXCEEDED);
+    }
+  }
+
+  private int countRequests(final List<BatchRequestPart> batchRequestParts) {
+    int count = 0;
+    for (final BatchRequestPart part : batchRequestParts) {
+      count += part.getRequests().size();
+    }
+    return count;
+  }
+
   private List<BatchRequestPart> parse(final InputStream in, final boolean isStrict) throws Exception {
     final BatchParser parser = new BatchParser();
     final BatchOptions options = BatchOptions.with().isStrict(isStrict).rawBaseUri(SERVICE_ROOT).build();
@@ -19,6 +19,7 @@
 package org.apache.olingo.server.core.deserializer.json;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -27,8 +28,10 @@ import java.util.List;
 
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
 import org.junit.Test;
 
 public class ODataJsonDeserializerBasicTest {
@@ -143,4 +146,29 @@ public class ODataJsonDeserializerBasicTest {
         "}";
     deserializer.entityReferences(new ByteArrayInputStream(entityString.getBytes()));
   }
+
+  @Test
+  public void limits() throws Exception {
+    final String references = "{\"value\":[{\"@odata.id\":\"ESAllPrim(0)\"},{\"@odata.id\":\"ESAllPrim(1)\"}]}";
+    assertEquals(2, deserializer.entityReferences(limited(references, RequestLimits.with()
+        .maxBodySize(references.length()).maxDepth(3).maxStringLength(12).build()))
+        .getEntityReferences().size());
+
+    assertLimitExceeded(references, RequestLimits.with().maxBodySize(references.length() - 1).build());
+    assertLimitExceeded(references, RequestLimits.with().maxDepth(2).build());
+    assertLimitExceeded(references, RequestLimits.with().maxStringLength(11).build());
+  }
+
+  private static InputStream limited(final String content, final RequestLimits limits) {
+    return new LimitedInputStream(new ByteArrayInputStream(content.getBytes()), limits);
+  }
+
+  private void assertLimitExceeded(final String content, final RequestLimits limits) {
+    try {
+      deserializer.entityReferences(limited(content, limits));
+      fail("Expected an exception.");
+    } catch (final DeserializerException e) {
+      assertEquals(DeserializerException.MessageKeys.LIMIT_EXCEEDED, e.getMessageKey());
+    }
+  }
 }
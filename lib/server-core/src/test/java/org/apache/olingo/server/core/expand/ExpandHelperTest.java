@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.expand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.expand.ExpandHelper;
+import org.apache.olingo.server.api.expand.ExpandLoader;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.core.uri.UriInfoImpl;
+import org.apache.olingo.server.core.uri.UriResourceNavigationPropertyImpl;
+import org.apache.olingo.server.core.uri.queryoption.ExpandItemImpl;
+import org.apache.olingo.server.core.uri.queryoption.ExpandOptionImpl;
+import org.apache.olingo.server.core.uri.queryoption.LevelsOptionImpl;
+import org.junit.Test;
+
+public class ExpandHelperTest {
+
+  private static final ExpandHelper expandHelper = OData.newInstance().createExpandHelper();
+
+  private final EdmBindingTarget customers = mock(EdmBindingTarget.class);
+
+  private final EdmBindingTarget orders = mock(EdmBindingTarget.class);
+
+  private final EdmBindingTarget items = mock(EdmBindingTarget.class);
+
+  private final EdmNavigationProperty ordersProperty = navigationProperty("Orders", true);
+
+  private final EdmNavigationProperty itemsProperty = navigationProperty("Items", true);
+
+  private final EdmNavigationProperty customerProperty = navigationProperty("Customer", false);
+
+  /** Creates for each parent as many children as the parent's number, counting the calls. */
+  private static class CountingLoader implements ExpandLoader {
+
+    private final List<String> calls = new ArrayList<String>();
+
+    @Override
+    public List<EntityCollection> loadRelated(final EdmBindingTarget target,
+        final EdmNavigationProperty navigationProperty, final List<Entity> parents, final ExpandItem expandItem) {
+      calls.add(navigationProperty.getName());
+      final List<EntityCollection> result = new ArrayList<EntityCollection>();
+      for (final Entity parent : parents) {
+        final int number = (Integer) parent.getProperty("Number").getValue();
+        final EntityCollection related = new EntityCollection();
+        for (int i = 1; i <= (navigationProperty.isCollection() ? number : 1); i++) {
+          related.getEntities().add(entity(number * 10 + i));
+        }
+        result.add(related);
+      }
+      return result;
+    }
+  }
+
+  private static EdmNavigationProperty navigationProperty(final String name, final boolean isCollection) {
+    final EdmNavigationProperty property = mock(EdmNavigationProperty.class);
+    when(property.getName()).thenReturn(name);
+    when(property.isCollection()).thenReturn(isCollection);
+    return property;
+  }
+
+  private static Entity entity(final int number) {
+    return new Entity().addProperty(new Property(null, "Number", ValueType.PRIMITIVE, number));
+  }
+
+  private static ExpandItemImpl item(final EdmNavigationProperty property, final ExpandOption nested) {
+    final ExpandItemImpl item = new ExpandItemImpl().setResourcePath(
+        new UriInfoImpl().addResourcePart(new UriResourceNavigationPropertyImpl(property)));
+    if (nested != null) {
+      item.setSystemQueryOption((ExpandOptionImpl) nested);
+    }
+    return item;
+  }
+
+  private static ExpandOption expand(final ExpandItem... items) {
+    final ExpandOptionImpl expandOption = new ExpandOptionImpl();
+    for (final ExpandItem item : items) {
+      expandOption.addExpandItem(item);
+    }
+    return expandOption;
+  }
+
+  private EntityCollection customers(final int count) {
+    when(customers.getRelatedBindingTarget("Orders")).thenReturn(orders);
+    when(orders.getRelatedBindingTarget("Items")).thenReturn(items);
+    when(orders.getRelatedBindingTarget("Customer")).thenReturn(customers);
+    final EntityCollection entitySet = new EntityCollection();
+    for (int i = 1; i <= count; i++) {
+      entitySet.getEntities().add(entity(i));
+    }
+    return entitySet;
+  }
+
+  @Test
+  public void nestedExpandLoadsOncePerLevel() throws Exception {
+    final EntityCollection entitySet = customers(3);
+    final CountingLoader loader = new CountingLoader();
+    expandHelper.expand(entitySet, customers,
+        expand(item(ordersProperty, expand(item(itemsProperty, null), item(customerProperty, null)))), loader);
+
+    assertEquals(3, loader.calls.size());
+    assertEquals("Orders", loader.calls.get(0));
+    assertEquals("Items", loader.calls.get(1));
+    assertEquals("Customer", loader.calls.get(2));
+
+    final Entity customer = entitySet.getEntities().get(1);
+    final EntityCollection customerOrders = customer.getNavigationLink("Orders").getInlineEntitySet();
+    assertEquals(2, customerOrders.getEntities().size());
+    final Entity order = customerOrders.getEntities().get(1);
+    assertEquals(22, order.getProperty("Number").getValue());
+    assertEquals(22, order.getNavigationLink("Items").getInlineEntitySet().getEntities().size());
+    assertNotNull(order.getNavigationLink("Customer").getInlineEntity());
+    assertNull(customer.getNavigationLink("Customer"));
+  }
+
+  @Test
+  public void singleEntity() throws Exception {
+    customers(0);
+    final Entity customer = entity(1);
+    final CountingLoader loader = new CountingLoader();
+    expandHelper.expand(customer, customers, expand(item(ordersProperty, null)), loader);
+    assertEquals(1, loader.calls.size());
+    assertEquals(1, customer.getNavigationLink("Orders").getInlineEntitySet().getEntities().size());
+  }
+
+  @Test
+  public void wrongLoaderResult() throws Exception {
+    final ExpandLoader loader = new ExpandLoader() {
+      @Override
+      public List<EntityCollection> loadRelated(final EdmBindingTarget target,
+          final EdmNavigationProperty navigationProperty, final List<Entity> parents, final ExpandItem expandItem) {
+        return new ArrayList<EntityCollection>();
+      }
+    };
+    try {
+      expandHelper.expand(customers(2), customers, expand(item(ordersProperty, null)), loader);
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  /** Loader following the "Manager" links of a fixed cycle of entities. */
+  private static class ManagerLoader implements ExpandLoader {
+
+    private final List<Entity> entities;
+
+    private int calls = 0;
+
+    private ManagerLoader(final List<Entity> entities) {
+      this.entities = entities;
+    }
+
+    @Override
+    public List<EntityCollection> loadRelated(final EdmBindingTarget target,
+        final EdmNavigationProperty navigationProperty, final List<Entity> parents, final ExpandItem expandItem) {
+      calls++;
+      final List<EntityCollection> result = new ArrayList<EntityCollection>();
+      for (final Entity parent : parents) {
+        final EntityCollection related = new EntityCollection();
+        int index = 0;
+        while (entities.get(index) != parent) {
+          index++;
+        }
+        related.getEntities().add(entities.get((index + 1) % entities.size()));
+        result.add(related);
+      }
+      return result;
+    }
+  }
+
+  private ExpandOption managerLevels(final LevelsOptionImpl levels) {
+    when(customers.getRelatedBindingTarget("Manager")).thenReturn(customers);
+    final ExpandItemImpl item = item(navigationProperty("Manager", false), null);
+    item.setSystemQueryOption(levels);
+    return expand(item);
+  }
+
+  @Test
+  public void levels() throws Exception {
+    final EntityCollection entitySet = customers(5);
+    final ManagerLoader loader = new ManagerLoader(entitySet.getEntities());
+    expandHelper.expand(entitySet.getEntities().get(0), customers, managerLevels(new LevelsOptionImpl().setValue(2)),
+        loader);
+    assertEquals(2, loader.calls);
+    final Entity manager = entitySet.getEntities().get(0).getNavigationLink("Manager").getInlineEntity();
+    assertEquals(2, manager.getProperty("Number").getValue());
+    assertEquals(3, manager.getNavigationLink("Manager").getInlineEntity().getProperty("Number").getValue());
+    assertNull(entitySet.getEntities().get(2).getNavigationLink("Manager"));
+  }
+
+  @Test
+  public void levelsMaxStopsAtCycle() throws Exception {
+    final EntityCollection entitySet = customers(3);
+    final ManagerLoader loader = new ManagerLoader(entitySet.getEntities());
+    expandHelper.expand(entitySet.getEntities().get(0), customers, managerLevels(new LevelsOptionImpl().setMax()),
+        loader);
+    assertEquals(3, loader.calls);
+    assertSame(entitySet.getEntities().get(0),
+        entitySet.getEntities().get(2).getNavigationLink("Manager").getInlineEntity());
+  }
+
+  @Test
+  public void levelsLimits() throws Exception {
+    final ExpandHelper limitedHelper = OData.newInstance().createExpandHelper();
+    limitedHelper.setMaxLevels(3);
+    limitedHelper.setMaxEntities(5);
+    final EntityCollection entitySet = customers(10);
+    try {
+      limitedHelper.expand(entitySet, customers, managerLevels(new LevelsOptionImpl().setValue(4)),
+          new ManagerLoader(entitySet.getEntities()));
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+    try {
+      limitedHelper.expand(entitySet, customers, managerLevels(new LevelsOptionImpl().setMax()),
+          new ManagerLoader(entitySet.getEntities()));
+      fail("Expected an ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+
+    final ManagerLoader loader = new ManagerLoader(entitySet.getEntities());
+    limitedHelper.expand(entitySet.getEntities().get(0), customers, managerLevels(new LevelsOptionImpl().setMax()),
+        loader);
+    assertEquals(3, loader.calls);
+  }
+}
@@ -531,6 +531,51 @@ public class UriTokenizerTest {
     wrongToken(TokenKind.DescSuffix, " desc", 'D');
   }
 
+  @Test
+  public void apply() {
+    UriTokenizer tokenizer = new UriTokenizer("groupby((p1),aggregate(p2 with sum as s,$count as c))"
+        + "/filter(p3)/topcount(1,p4)/bottomcount(2,p5)");
+    assertTrue(tokenizer.next(TokenKind.GroupByTrafo));
+    assertTrue(tokenizer.next(TokenKind.OPEN));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertTrue(tokenizer.next(TokenKind.CLOSE));
+    assertTrue(tokenizer.next(TokenKind.COMMA));
+    assertTrue(tokenizer.next(TokenKind.AggregateTrafo));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertFalse(tokenizer.next(TokenKind.AsOperator));
+    assertTrue(tokenizer.next(TokenKind.WithOperator));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertEquals("sum", tokenizer.getText());
+    assertTrue(tokenizer.next(TokenKind.AsOperator));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertTrue(tokenizer.next(TokenKind.COMMA));
+    assertTrue(tokenizer.next(TokenKind.COUNT));
+    assertTrue(tokenizer.next(TokenKind.AsOperator));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertTrue(tokenizer.next(TokenKind.CLOSE));
+    assertTrue(tokenizer.next(TokenKind.CLOSE));
+    assertTrue(tokenizer.next(TokenKind.SLASH));
+    assertTrue(tokenizer.next(TokenKind.FilterTrafo));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertTrue(tokenizer.next(TokenKind.CLOSE));
+    assertTrue(tokenizer.next(TokenKind.SLASH));
+    assertTrue(tokenizer.next(TokenKind.TopCountTrafo));
+    assertTrue(tokenizer.next(TokenKind.IntegerValue));
+    assertTrue(tokenizer.next(TokenKind.COMMA));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertTrue(tokenizer.next(TokenKind.CLOSE));
+    assertTrue(tokenizer.next(TokenKind.SLASH));
+    assertTrue(tokenizer.next(TokenKind.BottomCountTrafo));
+    assertTrue(tokenizer.next(TokenKind.IntegerValue));
+    assertTrue(tokenizer.next(TokenKind.COMMA));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertTrue(tokenizer.next(TokenKind.CLOSE));
+    assertTrue(tokenizer.next(TokenKind.EOF));
+
+    assertFalse(new UriTokenizer("groupby").next(TokenKind.GroupByTrafo));
+    wrongToken(TokenKind.WithOperator, " with ", 'x');
+  }
+
   @Test
   public void search() {
     UriTokenizer tokenizer = new UriTokenizer("a AND b OR NOT \"c\" d");
@@ -642,6 +687,26 @@ public class UriTokenizerTest {
     wrongToken(TokenKind.GeometryCollection, "geometry'SRID=0;Collection(Point(1 2),Point(3 4))'", 'x');
   }
 
+  @Test
+  public void repeatedProbes() {
+    final UriTokenizer tokenizer = new UriTokenizer("2000-01-01 eq \u00e4bc");
+    assertFalse(tokenizer.next(TokenKind.GuidValue));
+    assertFalse(tokenizer.next(TokenKind.TimeOfDayValue));
+    assertFalse(tokenizer.next(TokenKind.ODataIdentifier));
+    assertFalse(tokenizer.next(TokenKind.GuidValue));
+    assertTrue(tokenizer.next(TokenKind.DateValue));
+    assertFalse(tokenizer.next(TokenKind.DateValue));
+    assertFalse(tokenizer.next(TokenKind.NotEqualsOperator));
+    assertFalse(tokenizer.next(TokenKind.AscSuffix));
+    assertTrue(tokenizer.next(TokenKind.EqualsOperator));
+    assertEquals(" eq ", tokenizer.getText());
+    assertFalse(tokenizer.next(TokenKind.StringValue));
+    assertTrue(tokenizer.next(TokenKind.ODataIdentifier));
+    assertEquals("\u00e4bc", tokenizer.getText());
+    assertFalse(tokenizer.next(TokenKind.ODataIdentifier));
+    assertTrue(tokenizer.next(TokenKind.EOF));
+  }
+
   private void wrongToken(final TokenKind kind, final String value, final char disturbCharacter) {
     assertFalse(new UriTokenizer(disturbCharacter + value).next(kind));
 
@@ -72,13 +72,9 @@ import org.apache.olingo.server.tecsvc.async.TechnicalAsyncService;
 import org.apache.olingo.server.tecsvc.data.DataProvider;
 import org.apache.olingo.server.tecsvc.data.RequestValidator;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.ExpandSystemQueryOptionHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.CountHandler;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.SystemQueryOptionsPipeline;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.FilterHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.OrderByHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SearchHandler;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.options.ServerSidePagingHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SkipHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.TopHandler;
 import org.apache.olingo.server.tecsvc.provider.ContainerProvider;
 
 /**
@@ -490,12 +486,7 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     entitySet.getEntities().addAll(entitySetInitial.getEntities());
 
     // Apply system query options.
-    SearchHandler.applySearchSystemQueryOption(uriInfo.getSearchOption(), entitySet);
-    FilterHandler.applyFilterSystemQuery(uriInfo.getFilterOption(), entitySet, uriInfo, serviceMetadata.getEdm());
-    CountHandler.applyCountSystemQueryOption(uriInfo.getCountOption(), entitySet);
-    OrderByHandler.applyOrderByOption(uriInfo.getOrderByOption(), entitySet, uriInfo, serviceMetadata.getEdm());
-    SkipHandler.applySkipSystemQueryHandler(uriInfo.getSkipOption(), entitySet);
-    TopHandler.applyTopSystemQueryOption(uriInfo.getTopOption(), entitySet);
+    SystemQueryOptionsPipeline.create(uriInfo, serviceMetadata.getEdm()).apply(entitySet);
 
     final Integer pageSize = odata.createPreferences(request.getHeaders(HttpHeader.PREFER)).getMaxPageSize();
     final Integer serverPageSize = ServerSidePagingHandler.applyServerSidePaging(uriInfo.getSkipTokenOption(),
@@ -46,11 +46,6 @@ import org.apache.olingo.server.api.uri.queryoption.FilterOption;
 import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
 import org.apache.olingo.server.api.uri.queryoption.SkipOption;
 import org.apache.olingo.server.api.uri.queryoption.TopOption;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.CountHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.FilterHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.OrderByHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SkipHandler;
-import org.apache.olingo.server.tecsvc.processor.queryoptions.options.TopHandler;
 
 public class ExpandSystemQueryOptionHandler {
 
@@ -80,10 +75,18 @@ public class ExpandSystemQueryOptionHandler {
     final EdmEntityType entityType = edmBindingTarget.getEntityType();
 
     for (ExpandItem item : expandOption.getExpandItems()) {
-      if(item.getLevelsOption() != null) {
-        throw new ODataApplicationException("$levels is not implemented", 
-            HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+      if (item.getLevelsOption() != null) {
+        // The recursively expanded entities are taken from the data graph as they are
+        // and are not copied, so no system query options can be applied to them.
+        if (item.isStar() || item.getFilterOption() != null || item.getSearchOption() != null
+            || item.getOrderByOption() != null || item.getSkipOption() != null || item.getTopOption() != null
+            || item.getCountOption() != null || item.getExpandOption() != null) {
+          throw new ODataApplicationException("$levels is not implemented together with these options",
+              HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+        }
+        continue;
       }
+
       
       List<EdmNavigationProperty> navigationProperties = new ArrayList<EdmNavigationProperty>();
       if(item.isStar()) {
@@ -131,11 +134,13 @@ public class ExpandSystemQueryOptionHandler {
       final UriInfoResource uriInfo, final Edm edm)
       throws ODataApplicationException {
 
-    FilterHandler.applyFilterSystemQuery(filterOption, entitySet, uriInfo, edm);
-    OrderByHandler.applyOrderByOption(orderByOption, entitySet, uriInfo, edm);
-    CountHandler.applyCountSystemQueryOption(countOption, entitySet);
-    SkipHandler.applySkipSystemQueryHandler(skipOption, entitySet);
-    TopHandler.applyTopSystemQueryOption(topOption, entitySet);
+    new SystemQueryOptionsPipeline(uriInfo, edm)
+        .filter(filterOption)
+        .count(countOption)
+        .orderBy(orderByOption)
+        .skip(skipOption)
+        .top(topOption)
+        .apply(entitySet);
 
     // Apply nested expand system query options to remaining entities
     if (expandOption != null) {
@@ -175,7 +180,12 @@ public class ExpandSystemQueryOptionHandler {
           newEntity.getNavigationLinks().add(newLink);
           final ExpandOption innerExpandOption = getInnerExpandOption(expand, propertyName);
 
-          if (edmNavigationProperty.isCollection()) {
+          if (isRecursive(expand, propertyName)) {
+            // The serializer follows the links of the data graph level by level; it stops at cycles
+            // and rejects expansions beyond the limits of the serializer options.
+            newLink.setInlineEntitySet(link.getInlineEntitySet());
+            newLink.setInlineEntity(link.getInlineEntity());
+          } else if (edmNavigationProperty.isCollection()) {
             newLink.setInlineEntitySet(transformEntitySetGraphToTree(link.getInlineEntitySet(),
                 edmBindingTarget,
                 innerExpandOption));
@@ -263,6 +273,19 @@ public class ExpandSystemQueryOptionHandler {
     return expanded;
   }
 
+  private boolean isRecursive(final ExpandOption expand, final String propertyName) {
+    for (final ExpandItem item : expand.getExpandItems()) {
+      if (!item.isStar() && item.getLevelsOption() != null) {
+        final UriResource resource = item.getResourcePath().getUriResourceParts().get(0);
+        if (resource instanceof UriResourceNavigation
+            && propertyName.equals(((UriResourceNavigation) resource).getProperty().getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   private ExpandOption getInnerExpandOption(final ExpandOption expand, final String propertyName) {
     for (final ExpandItem item : expand.getExpandItems()) {
       if(item.isStar()) {
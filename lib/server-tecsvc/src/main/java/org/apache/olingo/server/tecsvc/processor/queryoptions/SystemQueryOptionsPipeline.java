@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.processor.queryoptions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfoResource;
+import org.apache.olingo.server.api.uri.queryoption.CountOption;
+import org.apache.olingo.server.api.uri.queryoption.FilterOption;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.SearchOption;
+import org.apache.olingo.server.api.uri.queryoption.SkipOption;
+import org.apache.olingo.server.api.uri.queryoption.TopOption;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.EntitySorter;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.FilterHandler;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SearchHandler;
+
+/**
+ * Applies the system query options $search, $filter, $count, $orderby, $skip, and $top to a collection
+ * of entities in a single pass, with the same result as applying the single handlers one after the other.
+ * <br/>
+ * Entities are evaluated once each and only the selected entities are kept:
+ * <ul>
+ * <li>without $orderby, the pass stops as soon as $skip + $top matching entities have been seen
+ * (unless $count is requested);</li>
+ * <li>with $orderby and $top, a bounded heap keeps the first $skip + $top entities;</li>
+ * <li>with $orderby but without $top, the matching entities are sorted.</li>
+ * </ul>
+ * An {@link EntityCollection} is compacted in place instead of removing entities one by one.
+ */
+public class SystemQueryOptionsPipeline {
+
+  private final UriInfoResource uriInfo;
+  private final Edm edm;
+
+  private SearchOption searchOption;
+  private FilterOption filterOption;
+  private CountOption countOption;
+  private OrderByOption orderByOption;
+  private SkipOption skipOption;
+  private TopOption topOption;
+
+  public SystemQueryOptionsPipeline(final UriInfoResource uriInfo, final Edm edm) {
+    this.uriInfo = uriInfo;
+    this.edm = edm;
+  }
+
+  /**
+   * Creates a pipeline for all the system query options of the given URI info.
+   */
+  public static SystemQueryOptionsPipeline create(final UriInfoResource uriInfo, final Edm edm) {
+    return new SystemQueryOptionsPipeline(uriInfo, edm)
+        .search(uriInfo.getSearchOption())
+        .filter(uriInfo.getFilterOption())
+        .count(uriInfo.getCountOption())
+        .orderBy(uriInfo.getOrderByOption())
+        .skip(uriInfo.getSkipOption())
+        .top(uriInfo.getTopOption());
+  }
+
+  public SystemQueryOptionsPipeline search(final SearchOption searchOption) {
+    this.searchOption = searchOption;
+    return this;
+  }
+
+  public SystemQueryOptionsPipeline filter(final FilterOption filterOption) {
+    this.filterOption = filterOption;
+    return this;
+  }
+
+  public SystemQueryOptionsPipeline count(final CountOption countOption) {
+    this.countOption = countOption;
+    return this;
+  }
+
+  public SystemQueryOptionsPipeline orderBy(final OrderByOption orderByOption) {
+    this.orderByOption = orderByOption;
+    return this;
+  }
+
+  public SystemQueryOptionsPipeline skip(final SkipOption skipOption) {
+    this.skipOption = skipOption;
+    return this;
+  }
+
+  public SystemQueryOptionsPipeline top(final TopOption topOption) {
+    this.topOption = topOption;
+    return this;
+  }
+
+  /**
+   * Applies the system query options to the given entity collection, modifying it.
+   */
+  public void apply(final EntityCollection entitySet) throws ODataApplicationException {
+    final List<Entity> entities = entitySet.getEntities();
+    final Selection selection = select(entities.iterator());
+    final List<Entity> result = selection.getResult();
+    for (int i = 0; i < result.size(); i++) {
+      entities.set(i, result.get(i));
+    }
+    entities.subList(result.size(), entities.size()).clear();
+    if (isCountRequested()) {
+      entitySet.setCount(selection.matched);
+    }
+  }
+
+  /**
+   * Applies the system query options to the entities of the given iterator, consuming it
+   * only as far as necessary.
+   * @return a new entity collection with the selected entities
+   */
+  public EntityCollection apply(final EntityIterator entityIterator) throws ODataApplicationException {
+    final Selection selection = select(entityIterator);
+    final EntityCollection entitySet = new EntityCollection();
+    entitySet.getEntities().addAll(selection.getResult());
+    if (isCountRequested()) {
+      entitySet.setCount(selection.matched);
+    }
+    return entitySet;
+  }
+
+  private boolean isCountRequested() {
+    return countOption != null && countOption.getValue();
+  }
+
+  private Selection select(final Iterator<Entity> entities) throws ODataApplicationException {
+    final Selection selection = new Selection(getValue(skipOption == null ? null : skipOption.getValue(), "Skip"),
+        getValue(topOption == null ? null : topOption.getValue(), "Top"));
+    while (entities.hasNext() && !selection.isComplete()) {
+      final Entity entity = entities.next();
+      if ((searchOption == null || SearchHandler.isMatch(searchOption, entity))
+          && (filterOption == null || FilterHandler.isMatch(filterOption, entity, uriInfo, edm))) {
+        selection.add(entity);
+      }
+    }
+    selection.finish();
+    return selection;
+  }
+
+  private static int getValue(final Integer value, final String name) throws ODataApplicationException {
+    if (value == null) {
+      return -1;
+    } else if (value < 0) {
+      throw new ODataApplicationException(name + " value must be positive",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+    return value;
+  }
+
+  /** Selects the entities to keep from the stream of matching entities. */
+  private final class Selection {
+    private final int skip;
+    private final int top;
+    private final EntitySorter sorter;
+    private List<Entity> result = new ArrayList<Entity>();
+    private int matched = 0;
+
+    /**
+     * @param skip number of entities to skip, or -1
+     * @param top maximum number of entities, or -1
+     */
+    private Selection(final int skip, final int top) {
+      this.skip = Math.max(skip, 0);
+      this.top = top;
+      if (orderByOption == null) {
+        sorter = null;
+      } else {
+        final long limit = top < 0 ? -1 : Math.min((long) this.skip + top, Integer.MAX_VALUE);
+        sorter = new EntitySorter(orderByOption, uriInfo, edm).limit((int) limit);
+      }
+    }
+
+    /** Whether further entities cannot change the result. */
+    private boolean isComplete() {
+      return sorter == null && top >= 0 && result.size() >= top && !isCountRequested();
+    }
+
+    private void add(final Entity entity) throws ODataApplicationException {
+      final int position = matched++;
+      if (sorter != null) {
+        sorter.add(entity);
+      } else if (position >= skip && (top < 0 || result.size() < top)) {
+        result.add(entity);
+      }
+    }
+
+    private void finish() {
+      if (sorter != null) {
+        final Iterator<Entity> sorted = sorter.getSorted();
+        for (int i = 0; i < skip && sorted.hasNext(); i++) {
+          sorted.next();
+        }
+        while (sorted.hasNext() && (top < 0 || result.size() < top)) {
+          result.add(sorted.next());
+        }
+      }
+    }
+
+    private List<Entity> getResult() {
+      return result;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfoResource;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.expression.ExpressionVisitorImpl;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.expression.operand.TypedOperand;
+
+/**
+ * Sorts entities according to an order-by option.
+ * <br/>
+ * The order-by expressions are evaluated once per entity when the entity is added, not for every comparison.
+ * The sort is stable: entities with equal sort keys keep the order in which they have been added.
+ * With a {@link #limit(int) limit}, only the first entities are kept, in a bounded heap.
+ */
+public class EntitySorter {
+
+  /** An entity with its pre-computed sort keys and its position to keep the sort stable. */
+  private static final class SortEntry {
+    private final Object[] keys;
+    private final int position;
+    private final Entity entity;
+
+    private SortEntry(final Object[] keys, final int position, final Entity entity) {
+      this.keys = keys;
+      this.position = position;
+      this.entity = entity;
+    }
+  }
+
+  private final OrderByOption orderByOption;
+  private final UriInfoResource uriInfo;
+  private final Edm edm;
+  private final Comparator<SortEntry> comparator = new Comparator<SortEntry>() {
+    @Override
+    public int compare(final SortEntry e1, final SortEntry e2) {
+      final int result = compareKeys(e1.keys, e2.keys);
+      return result == 0 ? (e1.position < e2.position ? -1 : e1.position == e2.position ? 0 : 1) : result;
+    }
+  };
+
+  private int limit = -1;
+  private int count = 0;
+  private List<SortEntry> entries = new ArrayList<SortEntry>();
+  private PriorityQueue<SortEntry> heap;
+
+  public EntitySorter(final OrderByOption orderByOption, final UriInfoResource uriInfo, final Edm edm) {
+    this.orderByOption = orderByOption;
+    this.uriInfo = uriInfo;
+    this.edm = edm;
+  }
+
+  /**
+   * Keeps only the given number of entities that come first in sort order.
+   * @param limit maximum number of entities in the result, or a negative value for no limit
+   */
+  public EntitySorter limit(final int limit) {
+    this.limit = limit;
+    heap = limit < 0 ? null : new PriorityQueue<SortEntry>(Math.min(limit, 1024) + 1,
+        Collections.reverseOrder(comparator));
+    return this;
+  }
+
+  public void add(final Entity entity) throws ODataApplicationException {
+    final SortEntry entry = new SortEntry(getSortKeys(entity), count++, entity);
+    if (heap != null) {
+      if (heap.size() < limit) {
+        heap.add(entry);
+      } else if (limit > 0 && comparator.compare(entry, heap.peek()) < 0) {
+        // The last entity kept so far is replaced; on equal keys the entity added earlier wins.
+        heap.poll();
+        heap.add(entry);
+      }
+    } else {
+      entries.add(entry);
+    }
+  }
+
+  /**
+   * Gets the entities added so far in sort order.
+   */
+  public Iterator<Entity> getSorted() {
+    return getSortedList().iterator();
+  }
+
+  /**
+   * Gets all the entities added so far in sort order.
+   */
+  public List<Entity> getSortedList() {
+    if (heap != null) {
+      entries = new ArrayList<SortEntry>(heap);
+      heap.clear();
+    }
+    Collections.sort(entries, comparator);
+    final List<Entity> result = new ArrayList<Entity>(entries.size());
+    for (final SortEntry entry : entries) {
+      result.add(entry.entity);
+    }
+    return result;
+  }
+
+  private Object[] getSortKeys(final Entity entity) throws ODataApplicationException {
+    final List<OrderByItem> orders = orderByOption.getOrders();
+    final Object[] keys = new Object[orders.size()];
+    try {
+      for (int i = 0; i < keys.length; i++) {
+        final TypedOperand operand =
+            orders.get(i).getExpression().accept(new ExpressionVisitorImpl(entity, uriInfo, edm)).asTypedOperand();
+        keys[i] = operand.isNull() ? null : operand.getValue();
+      }
+    } catch (final ExpressionVisitException e) {
+      throw new ODataApplicationException("Exception in orderBy evaluation",
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+    }
+    return keys;
+  }
+
+  /**
+   * Compares the sort keys of two entities: <code>null</code> comes first, values of different types
+   * are considered equal, and descending order items reverse the result.
+   */
+  @SuppressWarnings("unchecked")
+  private int compareKeys(final Object[] keys1, final Object[] keys2) {
+    int result = 0;
+    for (int i = 0; i < keys1.length && result == 0; i++) {
+      final Object o1 = keys1[i];
+      final Object o2 = keys2[i];
+      if (o1 == null || o2 == null) {
+        result = o1 == null && o2 == null ? 0 : o1 == null ? -1 : 1;
+      } else if (o1.getClass() == o2.getClass() && o1 instanceof Comparable) {
+        result = ((Comparable<Object>) o1).compareTo(o2);
+      } else {
+        result = 0;
+      }
+      result = orderByOption.getOrders().get(i).isDescending() ? result * -1 : result;
+    }
+    return result;
+  }
+}
@@ -18,7 +18,7 @@
  */
 package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
-import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.olingo.commons.api.data.Entity;
@@ -48,25 +48,35 @@ public class FilterHandler {
       return;
     }
 
-    try {
-      final Iterator<Entity> iter = entitySet.getEntities().iterator();
+    // Move the matching entities to the front instead of removing the others one by one.
+    final List<Entity> entities = entitySet.getEntities();
+    int kept = 0;
+    for (int i = 0; i < entities.size(); i++) {
+      final Entity entity = entities.get(i);
+      if (isMatch(filterOption, entity, uriInfo, edm)) {
+        entities.set(kept++, entity);
+      }
+    }
+    entities.subList(kept, entities.size()).clear();
+  }
 
-      while (iter.hasNext()) {
-        final VisitorOperand operand = filterOption.getExpression()
-            .accept(new ExpressionVisitorImpl(iter.next(), uriInfo, edm));
-        final TypedOperand typedOperand = operand.asTypedOperand();
+  /**
+   * Evaluates the filter expression for a single entity.
+   */
+  public static boolean isMatch(final FilterOption filterOption, final Entity entity,
+      final UriInfoResource uriInfo, final Edm edm) throws ODataApplicationException {
+    try {
+      final VisitorOperand operand = filterOption.getExpression()
+          .accept(new ExpressionVisitorImpl(entity, uriInfo, edm));
+      final TypedOperand typedOperand = operand.asTypedOperand();
 
-        if (typedOperand.is(primBoolean)) {
-          if (Boolean.FALSE.equals(typedOperand.getTypedValue(Boolean.class))) {
-            iter.remove();
-          }
-        } else {
-          throw new ODataApplicationException(
-              "Invalid filter expression. Filter expressions must return a value of type Edm.Boolean",
-              HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
-        }
+      if (typedOperand.is(primBoolean)) {
+        return !Boolean.FALSE.equals(typedOperand.getTypedValue(Boolean.class));
+      } else {
+        throw new ODataApplicationException(
+            "Invalid filter expression. Filter expressions must return a value of type Edm.Boolean",
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
       }
-
     } catch (ExpressionVisitException e) {
       throw new ODataApplicationException("Exception in filter evaluation",
           HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
@@ -19,7 +19,7 @@
 package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
 import java.util.Calendar;
-import java.util.Iterator;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
 
@@ -41,20 +41,31 @@ public class SearchHandler {
   public static void applySearchSystemQueryOption(final SearchOption searchOption, EntityCollection entitySet)
       throws ODataApplicationException {
     if (searchOption != null) {
-      SearchExpression se = searchOption.getSearchExpression();
-      Iterator<Entity> it = entitySet.getEntities().iterator();
-      while (it.hasNext()) {
-        boolean keep = false;
-        Entity entity = it.next();
-        ListIterator<Property> properties = entity.getProperties().listIterator();
-        while (properties.hasNext() && !keep) {
-          keep = isTrue(se, properties.next());
-        }
-        if (!keep) {
-          it.remove();
+      // Move the matching entities to the front instead of removing the others one by one.
+      final List<Entity> entities = entitySet.getEntities();
+      int kept = 0;
+      for (int i = 0; i < entities.size(); i++) {
+        final Entity entity = entities.get(i);
+        if (isMatch(searchOption, entity)) {
+          entities.set(kept++, entity);
         }
       }
+      entities.subList(kept, entities.size()).clear();
+    }
+  }
+
+  /**
+   * Evaluates the search expression for a single entity.
+   */
+  public static boolean isMatch(final SearchOption searchOption, final Entity entity)
+      throws ODataApplicationException {
+    final SearchExpression se = searchOption.getSearchExpression();
+    boolean keep = false;
+    ListIterator<Property> properties = entity.getProperties().listIterator();
+    while (properties.hasNext() && !keep) {
+      keep = isTrue(se, properties.next());
     }
+    return keep;
   }
 
   private static boolean isTrue(final SearchTerm term, final Property property) {
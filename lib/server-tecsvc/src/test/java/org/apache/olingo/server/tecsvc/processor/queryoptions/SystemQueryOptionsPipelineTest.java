@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.processor.queryoptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.data.DataProvider;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.CountHandler;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.FilterHandler;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.OrderByHandler;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.SkipHandler;
+import org.apache.olingo.server.tecsvc.processor.queryoptions.options.TopHandler;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class SystemQueryOptionsPipelineTest {
+
+  private final OData odata = OData.newInstance();
+  private final Edm edm = odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList())
+      .getEdm();
+  private final EdmEntitySet esServerSidePaging = edm.getEntityContainer().getEntitySet("ESServerSidePaging");
+
+  private EntityCollection readAll() throws Exception {
+    final EntityCollection entitySet = new EntityCollection();
+    entitySet.getEntities().addAll(new DataProvider(odata, edm).readAll(esServerSidePaging).getEntities());
+    return entitySet;
+  }
+
+  /** Applies the query with the pipeline and with the single handlers and compares the results. */
+  private EntityCollection assertSameAsHandlers(final String query) throws Exception {
+    final UriInfo uriInfo = new Parser(edm, odata).parseUri("ESServerSidePaging", query, null);
+
+    final EntityCollection expected = readAll();
+    FilterHandler.applyFilterSystemQuery(uriInfo.getFilterOption(), expected, uriInfo, edm);
+    CountHandler.applyCountSystemQueryOption(uriInfo.getCountOption(), expected);
+    OrderByHandler.applyOrderByOption(uriInfo.getOrderByOption(), expected, uriInfo, edm);
+    SkipHandler.applySkipSystemQueryHandler(uriInfo.getSkipOption(), expected);
+    TopHandler.applyTopSystemQueryOption(uriInfo.getTopOption(), expected);
+
+    final EntityCollection actual = readAll();
+    SystemQueryOptionsPipeline.create(uriInfo, edm).apply(actual);
+
+    assertEquals(expected.getCount(), actual.getCount());
+    assertEquals(expected.getEntities().size(), actual.getEntities().size());
+    for (int i = 0; i < expected.getEntities().size(); i++) {
+      assertEquals(expected.getEntities().get(i).getProperty("PropertyInt16").getValue(),
+          actual.getEntities().get(i).getProperty("PropertyInt16").getValue());
+    }
+    return actual;
+  }
+
+  @Test
+  public void noOrder() throws Exception {
+    assertEquals(503, assertSameAsHandlers("$count=true").getCount().intValue());
+    assertEquals(3, assertSameAsHandlers("$filter=PropertyInt16 gt 100&$skip=10&$top=3").getEntities().size());
+    assertEquals(0, assertSameAsHandlers("$skip=600&$count=true").getEntities().size());
+    assertEquals(0, assertSameAsHandlers("$top=0").getEntities().size());
+  }
+
+  @Test
+  public void orderWithTop() throws Exception {
+    assertSameAsHandlers("$orderby=PropertyInt16 desc&$top=5");
+    // many equal values; the order of equal entities must be kept
+    assertSameAsHandlers("$orderby=PropertyInt16 mod 7&$top=20");
+    assertSameAsHandlers("$orderby=PropertyInt16 mod 7 desc,PropertyString&$skip=70&$top=30&$count=true");
+    assertSameAsHandlers("$filter=PropertyInt16 lt 50&$orderby=PropertyString&$skip=45&$top=10");
+  }
+
+  @Test
+  public void orderWithoutTop() throws Exception {
+    assertSameAsHandlers("$orderby=PropertyString desc");
+    assertSameAsHandlers("$orderby=length(PropertyString)&$skip=500");
+  }
+
+  @Test
+  public void iterator() throws Exception {
+    final Iterator<Entity> entities = readAll().getEntities().iterator();
+    final int[] consumed = new int[] { 0 };
+    final EntityIterator entityIterator = new EntityIterator() {
+      @Override
+      public boolean hasNext() {
+        return entities.hasNext();
+      }
+
+      @Override
+      public Entity next() {
+        consumed[0]++;
+        return entities.next();
+      }
+    };
+    final UriInfo uriInfo = new Parser(edm, odata).parseUri("ESServerSidePaging", "$skip=2&$top=3", null);
+    final EntityCollection result = SystemQueryOptionsPipeline.create(uriInfo, edm).apply(entityIterator);
+    assertEquals(3, result.getEntities().size());
+    assertEquals((short) 3, result.getEntities().get(0).getProperty("PropertyInt16").getValue());
+    assertNull(result.getCount());
+    // Only the entities needed for the result have been read.
+    assertEquals(5, consumed[0]);
+  }
+}
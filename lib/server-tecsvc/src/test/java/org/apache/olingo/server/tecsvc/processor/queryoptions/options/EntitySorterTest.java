@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.geo.Geospatial;
+import org.apache.olingo.commons.api.edm.geo.Point;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.data.DataProvider;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class EntitySorterTest {
+
+  private final OData odata = OData.newInstance();
+  private final Edm edm = odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList())
+      .getEdm();
+
+  private EntitySorter sorter(final String entitySetName, final String orderBy) throws Exception {
+    final UriInfo uriInfo = new Parser(edm, odata).parseUri(entitySetName, "$orderby=" + orderBy, null);
+    return new EntitySorter(uriInfo.getOrderByOption(), uriInfo, edm);
+  }
+
+  private List<Entity> readAll(final String entitySetName) throws Exception {
+    return new DataProvider(odata, edm).readAll(edm.getEntityContainer().getEntitySet(entitySetName))
+        .getEntities();
+  }
+
+  private static Entity entity(final int number, final String string) {
+    return new Entity()
+        .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) number))
+        .addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, string));
+  }
+
+  @Test
+  public void nullsFirst() throws Exception {
+    EntitySorter sorter = sorter("ESServerSidePaging", "PropertyString");
+    sorter.add(entity(1, "b"));
+    sorter.add(entity(2, null));
+    sorter.add(entity(3, "a"));
+    sorter.add(entity(4, null));
+    List<Entity> sorted = sorter.getSortedList();
+    assertEquals((short) 2, sorted.get(0).getProperty("PropertyInt16").getValue());
+    assertEquals((short) 4, sorted.get(1).getProperty("PropertyInt16").getValue());
+    assertEquals("a", sorted.get(2).getProperty("PropertyString").getValue());
+
+    sorter = sorter("ESServerSidePaging", "PropertyString desc").limit(3);
+    sorter.add(entity(1, "b"));
+    sorter.add(entity(2, null));
+    sorter.add(entity(3, "a"));
+    sorter.add(entity(4, null));
+    sorted = sorter.getSortedList();
+    assertEquals(3, sorted.size());
+    assertEquals("b", sorted.get(0).getProperty("PropertyString").getValue());
+    assertNull(sorted.get(2).getProperty("PropertyString").getValue());
+    assertEquals((short) 2, sorted.get(2).getProperty("PropertyInt16").getValue());
+  }
+
+  @Test
+  public void limit() throws Exception {
+    final EntitySorter full = sorter("ESServerSidePaging", "PropertyInt16 mod 10 desc");
+    final EntitySorter limited = sorter("ESServerSidePaging", "PropertyInt16 mod 10 desc").limit(25);
+    for (final Entity entity : readAll("ESServerSidePaging")) {
+      full.add(entity);
+      limited.add(entity);
+    }
+    final List<Entity> expected = full.getSortedList().subList(0, 25);
+    assertEquals(expected, limited.getSortedList());
+    assertEquals((short) 9, expected.get(0).getProperty("PropertyInt16").getValue());
+    assertEquals((short) 19, expected.get(1).getProperty("PropertyInt16").getValue());
+
+    final EntitySorter empty = sorter("ESServerSidePaging", "PropertyInt16").limit(0);
+    empty.add(entity(1, null));
+    assertEquals(0, empty.getSortedList().size());
+  }
+
+  @Test
+  public void keepsEntities() throws Exception {
+    final Entity first = entity(1, "b");
+    first.addProperty(new Property(null, "PropertyPoint", ValueType.GEOSPATIAL,
+        new Point(Geospatial.Dimension.GEOGRAPHY, null)));
+    final Link link = new Link();
+    link.setTitle("NavPropertyETTwoPrimOne");
+    first.getNavigationLinks().add(link);
+    final Entity second = entity(2, "a");
+    final EntitySorter sorter = sorter("ESServerSidePaging", "PropertyString");
+    sorter.add(first);
+    sorter.add(second);
+    final List<Entity> sorted = sorter.getSortedList();
+    assertSame(second, sorted.get(0));
+    assertSame(first, sorted.get(1));
+    assertSame(link, sorted.get(1).getNavigationLink("NavPropertyETTwoPrimOne"));
+  }
+}
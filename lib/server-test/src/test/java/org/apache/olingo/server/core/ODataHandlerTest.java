@@ -22,17 +22,22 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.constants.ODataServiceVersion;
 import org.apache.olingo.commons.api.edm.provider.CsdlAbstractEdmProvider;
@@ -47,9 +52,13 @@ import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ODataServerError;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.batch.BatchFacade;
+import org.apache.olingo.server.api.cache.ResponseCache;
 import org.apache.olingo.server.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.etag.ETagProvider;
+import org.apache.olingo.server.api.metrics.RequestMetrics;
 import org.apache.olingo.server.api.processor.ActionComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.ActionComplexProcessor;
 import org.apache.olingo.server.api.processor.ActionEntityCollectionProcessor;
@@ -57,12 +66,14 @@ import org.apache.olingo.server.api.processor.ActionEntityProcessor;
 import org.apache.olingo.server.api.processor.ActionPrimitiveCollectionProcessor;
 import org.apache.olingo.server.api.processor.ActionPrimitiveProcessor;
 import org.apache.olingo.server.api.processor.ActionVoidProcessor;
+import org.apache.olingo.server.api.processor.ApplyEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.BatchProcessor;
 import org.apache.olingo.server.api.processor.ComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.ComplexProcessor;
 import org.apache.olingo.server.api.processor.CountComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountPrimitiveCollectionProcessor;
+import org.apache.olingo.server.api.processor.DeltaProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityProcessor;
 import org.apache.olingo.server.api.processor.ErrorProcessor;
@@ -76,10 +87,16 @@ import org.apache.olingo.server.api.processor.ReferenceCollectionProcessor;
 import org.apache.olingo.server.api.processor.ReferenceProcessor;
 import org.apache.olingo.server.api.processor.ServiceDocumentProcessor;
 import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.DeltaTokenOption;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
 import org.apache.olingo.server.tecsvc.provider.ContainerProvider;
 import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class ODataHandlerTest {
 
@@ -268,6 +285,195 @@ public class ODataHandlerTest {
     dispatchMethodNotAllowed(HttpMethod.DELETE, uri, processor);
   }
 
+  @Test
+  public void metrics() throws Exception {
+    final OData odata = OData.newInstance();
+    final ODataHandler handler = new ODataHandler(odata,
+        odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList()),
+        new ServerCoreDebugger(odata));
+    handler.register(mock(EntityCollectionProcessor.class));
+    final ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.GET);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("ESAllPrim");
+
+    final RequestMetrics metrics = new RequestMetrics();
+    handler.setMetrics(metrics);
+    handler.process(request);
+    assertEquals("ESAllPrim", metrics.getResource());
+    assertTrue(metrics.getDuration(RequestMetrics.Stage.DISPATCH) >= 0);
+
+    // Only the next request is measured.
+    request.setRawODataPath("$metadata");
+    handler.process(request);
+    assertEquals("ESAllPrim", metrics.getResource());
+
+    final RequestMetrics metadataMetrics = new RequestMetrics();
+    handler.setMetrics(metadataMetrics);
+    handler.process(request);
+    assertEquals("$metadata", metadataMetrics.getResource());
+  }
+
+  @Test
+  public void responseCache() throws Exception {
+    final OData odata = OData.newInstance();
+    final ODataHandler handler = new ODataHandler(odata,
+        odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList()),
+        new ServerCoreDebugger(odata));
+    final EntityCollectionProcessor collectionProcessor = mock(EntityCollectionProcessor.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        final ODataResponse response = (ODataResponse) invocation.getArguments()[1];
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.APPLICATION_JSON.toContentTypeString());
+        response.setContent(IOUtils.toInputStream("{\"value\":[]}"));
+        return null;
+      }
+    }).when(collectionProcessor).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    final EntityProcessor entityProcessor = mock(EntityProcessor.class);
+    handler.register(collectionProcessor);
+    handler.register(entityProcessor);
+    final ResponseCache cache = new ResponseCache(100000);
+    handler.register(cache);
+
+    final ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.GET);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("ESAllPrim");
+    request.setRawQueryPath("$top=1");
+    assertEquals("{\"value\":[]}", IOUtils.toString(handler.process(request).getContent()));
+    final ODataResponse cached = handler.process(request);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), cached.getStatusCode());
+    assertEquals(ContentType.APPLICATION_JSON.toContentTypeString(), cached.getHeader(HttpHeader.CONTENT_TYPE));
+    assertEquals("{\"value\":[]}", IOUtils.toString(cached.getContent()));
+    verify(collectionProcessor, times(1)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    assertEquals(1, cache.getHitCount());
+
+    // Changes of the entity set invalidate the cached responses.
+    final ODataRequest deleteRequest = new ODataRequest();
+    deleteRequest.setMethod(HttpMethod.DELETE);
+    deleteRequest.setRawBaseUri(BASE_URI);
+    deleteRequest.setRawODataPath("ESAllPrim(1)");
+    handler.process(deleteRequest);
+    handler.process(request);
+    verify(collectionProcessor, times(2)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+
+    // Changes of entity sets without navigation keep the cached responses of other entity sets.
+    handler.process(request);
+    verify(collectionProcessor, times(2)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    final ODataRequest patchRequest = new ODataRequest();
+    patchRequest.setMethod(HttpMethod.PATCH);
+    patchRequest.setRawBaseUri(BASE_URI);
+    patchRequest.setRawODataPath("ESMixPrimCollComp(1)");
+    handler.process(patchRequest);
+    handler.process(request);
+    verify(collectionProcessor, times(2)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+
+    // A deep update through an entity set with navigation may change any other entity set.
+    patchRequest.setRawODataPath("ESTwoPrim(1)");
+    handler.process(patchRequest);
+    handler.process(request);
+    verify(collectionProcessor, times(3)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+
+    // Conditional requests are always processed.
+    request.addHeader(HttpHeader.IF_NONE_MATCH, "*");
+    handler.process(request);
+    verify(collectionProcessor, times(4)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+  }
+
+  @Test
+  public void eTagProvider() throws Exception {
+    final OData odata = OData.newInstance();
+    final ODataHandler handler = new ODataHandler(odata,
+        odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList()),
+        new ServerCoreDebugger(odata));
+    final EntityProcessor processor = mock(EntityProcessor.class);
+    handler.register(processor);
+    handler.register(new ETagProvider() {
+      @Override
+      public String getETag(final EdmBindingTarget entitySetOrSingleton, final List<UriParameter> keyPredicates,
+          final boolean isMediaValue) {
+        return "1".equals(keyPredicates.get(0).getText()) ? "W/\"1\"" : null;
+      }
+    });
+
+    ODataResponse response = process(handler, HttpMethod.GET, "ESAllPrim(1)", HttpHeader.IF_NONE_MATCH, "W/\"1\"");
+    assertEquals(HttpStatusCode.NOT_MODIFIED.getStatusCode(), response.getStatusCode());
+    assertEquals("W/\"1\"", response.getHeader(HttpHeader.ETAG));
+    response = process(handler, HttpMethod.GET, "ESAllPrim(1)/PropertyString", HttpHeader.IF_MATCH, "W/\"0\"");
+    assertEquals(HttpStatusCode.PRECONDITION_FAILED.getStatusCode(), response.getStatusCode());
+    response = process(handler, HttpMethod.DELETE, "ESAllPrim(1)", HttpHeader.IF_MATCH, "W/\"0\"");
+    assertEquals(HttpStatusCode.PRECONDITION_FAILED.getStatusCode(), response.getStatusCode());
+    verifyZeroInteractions(processor);
+
+    process(handler, HttpMethod.GET, "ESAllPrim(1)", HttpHeader.IF_NONE_MATCH, "W/\"0\"");
+    verify(processor).readEntity(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    process(handler, HttpMethod.DELETE, "ESAllPrim(1)", HttpHeader.IF_MATCH, "*");
+    // unknown ETag
+    process(handler, HttpMethod.DELETE, "ESAllPrim(2)", HttpHeader.IF_MATCH, "W/\"0\"");
+    verify(processor, times(2)).deleteEntity(any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class));
+  }
+
+  private ODataResponse process(final ODataHandler handler, final HttpMethod method, final String path,
+      final String headerName, final String headerValue) {
+    final ODataRequest request = new ODataRequest();
+    request.setMethod(method);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath(path);
+    request.addHeader(headerName, headerValue);
+    return handler.process(request);
+  }
+
+  @Test
+  public void requestLimits() throws Exception {
+    final OData odata = OData.newInstance();
+    final ODataHandler handler = new ODataHandler(odata,
+        odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList()),
+        new ServerCoreDebugger(odata));
+    final EntityProcessor processor = mock(EntityProcessor.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) throws Exception {
+        final ODataRequest request = (ODataRequest) invocation.getArguments()[0];
+        final UriInfo uriInfo = (UriInfo) invocation.getArguments()[2];
+        odata.createDeserializer(ContentType.JSON).entity(request.getBody(),
+            ((UriResourceEntitySet) uriInfo.getUriResourceParts().get(0)).getEntityType());
+        return null;
+      }
+    }).when(processor).createEntity(any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class),
+        any(ContentType.class), any(ContentType.class));
+    handler.register(processor);
+    handler.setRequestLimits(RequestLimits.with().maxBodySize(100).maxDepth(1).build());
+
+    final ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.POST);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("ESAllPrim");
+    request.addHeader(HttpHeader.CONTENT_TYPE, ContentType.JSON.toContentTypeString());
+    request.addHeader(HttpHeader.CONTENT_LENGTH, "1000");
+    request.setBody(IOUtils.toInputStream("{}"));
+    assertEquals(HttpStatusCode.PAYLOAD_TOO_LARGE.getStatusCode(), handler.process(request).getStatusCode());
+    verifyZeroInteractions(processor);
+
+    // without Content-Length header, the limits are enforced while deserializing
+    final ODataRequest nestedRequest = new ODataRequest();
+    nestedRequest.setMethod(HttpMethod.POST);
+    nestedRequest.setRawBaseUri(BASE_URI);
+    nestedRequest.setRawODataPath("ESAllPrim");
+    nestedRequest.addHeader(HttpHeader.CONTENT_TYPE, ContentType.JSON.toContentTypeString());
+    nestedRequest.setBody(IOUtils.toInputStream("{\"PropertyComp\":{}}"));
+    assertEquals(HttpStatusCode.PAYLOAD_TOO_LARGE.getStatusCode(), handler.process(nestedRequest).getStatusCode());
+  }
+
   @Test
   public void dispatchEntitySetCount() throws Exception {
     final String uri = "ESAllPrim/$count";
@@ -292,6 +498,38 @@ public class ODataHandlerTest {
         any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class));
   }
 
+  @Test
+  public void dispatchEntitySetApply() throws Exception {
+    final String uri = "ESAllPrim";
+    final String query = "$apply=aggregate($count%20as%20Count)";
+    final EntityCollectionProcessor processor = mock(EntityCollectionProcessor.class);
+    final ODataResponse response = dispatch(HttpMethod.GET, uri, query, null, null, processor);
+    assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), response.getStatusCode());
+    verifyZeroInteractions(processor);
+
+    final ApplyEntityCollectionProcessor applyProcessor = mock(ApplyEntityCollectionProcessor.class);
+    dispatch(HttpMethod.GET, uri, query, null, null, applyProcessor);
+    verify(applyProcessor).applyEntityCollection(any(ODataRequest.class), any(ODataResponse.class),
+        any(UriInfo.class), any(ApplyOption.class), any(ContentType.class));
+    verify(applyProcessor, never()).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+  }
+
+  @Test
+  public void dispatchEntitySetDelta() throws Exception {
+    final String uri = "ESAllPrim";
+    final String query = "$deltatoken=42";
+    final EntityCollectionProcessor processor = mock(EntityCollectionProcessor.class);
+    final ODataResponse response = dispatch(HttpMethod.GET, uri, query, null, null, processor);
+    assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), response.getStatusCode());
+    verifyZeroInteractions(processor);
+
+    final DeltaProcessor deltaProcessor = mock(DeltaProcessor.class);
+    dispatch(HttpMethod.GET, uri, query, null, null, deltaProcessor);
+    verify(deltaProcessor).readDelta(any(ODataRequest.class), any(ODataResponse.class),
+        any(UriInfo.class), any(DeltaTokenOption.class), any(ContentType.class));
+  }
+
   @Test
   public void dispatchFunction() throws Exception {
     EntityProcessor entityProcessor = mock(EntityProcessor.class);
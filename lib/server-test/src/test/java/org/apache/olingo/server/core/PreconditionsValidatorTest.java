@@ -20,6 +20,7 @@ package org.apache.olingo.server.core;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -35,6 +36,7 @@ import org.apache.olingo.server.api.edmx.EdmxReference;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
 import org.apache.olingo.server.api.etag.PreconditionException;
 import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriParameter;
 import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
 import org.apache.olingo.server.api.uri.UriResourceValue;
@@ -150,6 +152,20 @@ public class PreconditionsValidatorTest {
     assertFalse(new PreconditionsValidator(uriInfo).mustValidatePreconditions(support, true));
   }
 
+  @Test
+  public void affectedEntity() throws Exception {
+    assertAffectedKeys("ESAllPrim(1)/PropertyInt16", "ESAllPrim", "1");
+    assertAffectedKeys("ESAllPrim(1)/NavPropertyETTwoPrimMany(2)", "ESTwoPrim", "2");
+    assertAffectedKeys("SI", "SI");
+    assertAffectedKeys("FICRTESTwoKeyNav()/NavPropertySINav", "SINav");
+    assertAffectedKeys("ESKeyNav(1)/Namespace1_Alias.BAETTwoKeyNavRTETTwoKeyNav", "ESKeyNav", "1");
+    // The key of the entity is not part of the URI.
+    assertNull(new PreconditionsValidator(new Parser(edm, odata).parseUri("ESAllPrim(1)/NavPropertyETTwoPrimOne",
+        null, null)).getAffectedKeyPredicates());
+    assertNull(new PreconditionsValidator(new Parser(edm, odata).parseUri("ESAllPrim", null, null))
+        .getAffectedKeyPredicates());
+  }
+
   // -------------- IGNORE VALIDATION TESTS -----------------------------------------------------------------------
 
   @Test
@@ -191,6 +207,18 @@ public class PreconditionsValidatorTest {
     assertFalse(mustValidate("$all", null));
   }
 
+  private void assertAffectedKeys(final String uri, final String entitySetName, final String... keys)
+      throws Exception {
+    final PreconditionsValidator validator =
+        new PreconditionsValidator(new Parser(edm, odata).parseUri(uri, null, null));
+    assertEquals(entitySetName, validator.getAffectedEntitySetOrSingleton().getName());
+    final List<UriParameter> keyPredicates = validator.getAffectedKeyPredicates();
+    assertEquals(keys.length, keyPredicates.size());
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(keys[i], keyPredicates.get(i).getText());
+    }
+  }
+
   private boolean mustValidate(final String uri, final String entitySetName)
       throws UriParserException, UriValidationException, PreconditionException {
     final UriInfo uriInfo = new Parser(edm, odata).parseUri(uri, null, null);
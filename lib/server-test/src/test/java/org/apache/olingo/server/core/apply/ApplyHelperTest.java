@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.apply.ApplyExpressionEvaluator;
+import org.apache.olingo.server.api.apply.ApplyHelper;
+import org.apache.olingo.server.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.expression.Binary;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.core.uri.UriInfoImpl;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class ApplyHelperTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(
+      new EdmTechProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+
+  private final ApplyHelper applyHelper = odata.createApplyHelper();
+
+  private static ApplyOption parse(final String path, final String apply) throws Exception {
+    return ((UriInfoImpl) new Parser(edm, odata).parseUri(path, "$apply=" + apply, null)).getApplyOption();
+  }
+
+  private static Entity entity(final int number, final String string, final Double floating) {
+    return new Entity()
+        .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) number))
+        .addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, string))
+        .addProperty(new Property(null, "PropertyInt64", ValueType.PRIMITIVE, Long.MAX_VALUE - number))
+        .addProperty(new Property(null, "PropertyDecimal", ValueType.PRIMITIVE, BigDecimal.valueOf(number, 1)))
+        .addProperty(new Property(null, "PropertyDouble", ValueType.PRIMITIVE, floating));
+  }
+
+  private static EntityCollection entities() {
+    EntityCollection entities = new EntityCollection();
+    entities.getEntities().add(entity(1, "a", 1.5));
+    entities.getEntities().add(entity(2, "b", null));
+    entities.getEntities().add(entity(3, "a", 2.5));
+    entities.getEntities().add(entity(4, null, 0.5));
+    entities.getEntities().add(entity(3, "a", -1.0));
+    return entities;
+  }
+
+  private static Object value(final Entity entity, final String name) {
+    return entity.getProperty(name).getValue();
+  }
+
+  @Test
+  public void aggregate() throws Exception {
+    final List<Entity> result = applyHelper.apply(entities(), parse("ESAllPrim",
+        "aggregate(PropertyInt16 with sum as Sum,PropertyInt16 with average as Average,"
+            + "PropertyInt16 with min as Min,PropertyString with max as Max,"
+            + "PropertyInt16 with countdistinct as Distinct,$count as Count,"
+            + "PropertyInt64 with sum as BigSum,PropertyDecimal with average as DecimalAverage,"
+            + "PropertyDouble with sum as DoubleSum)")).getEntities();
+    assertEquals(1, result.size());
+    final Entity entity = result.get(0);
+    assertEquals(13L, value(entity, "Sum"));
+    assertEquals("Edm.Int64", entity.getProperty("Sum").getType());
+    assertEquals(2.6, value(entity, "Average"));
+    assertEquals("Edm.Double", entity.getProperty("Average").getType());
+    assertEquals((short) 1, value(entity, "Min"));
+    assertEquals("Edm.Int16", entity.getProperty("Min").getType());
+    assertEquals("b", value(entity, "Max"));
+    assertEquals(4L, value(entity, "Distinct"));
+    assertEquals(5L, value(entity, "Count"));
+    // The sum of the Int64 values does not fit into a long.
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(5)).subtract(BigDecimal.valueOf(13)),
+        value(entity, "BigSum"));
+    assertEquals("Edm.Decimal", entity.getProperty("BigSum").getType());
+    assertEquals(new BigDecimal("0.26"), value(entity, "DecimalAverage"));
+    assertEquals(3.5, value(entity, "DoubleSum"));
+  }
+
+  @Test
+  public void aggregateNothing() throws Exception {
+    final List<Entity> result = applyHelper.apply(new EntityCollection(), parse("ESAllPrim",
+        "aggregate(PropertyInt16 with sum as Sum,$count as Count)")).getEntities();
+    assertEquals(1, result.size());
+    assertNull(value(result.get(0), "Sum"));
+    assertEquals(0L, value(result.get(0), "Count"));
+  }
+
+  @Test
+  public void groupBy() throws Exception {
+    List<Entity> result = applyHelper.apply(entities(), parse("ESAllPrim",
+        "groupby((PropertyString),aggregate(PropertyInt16 with sum as Sum,$count as Count))")).getEntities();
+    assertEquals(3, result.size());
+    assertEquals("a", value(result.get(0), "PropertyString"));
+    assertEquals(7L, value(result.get(0), "Sum"));
+    assertEquals(3L, value(result.get(0), "Count"));
+    assertEquals("b", value(result.get(1), "PropertyString"));
+    assertEquals(2L, value(result.get(1), "Sum"));
+    assertNull(value(result.get(2), "PropertyString"));
+    assertEquals("Edm.String", result.get(2).getProperty("PropertyString").getType());
+    assertEquals(3, result.get(0).getProperties().size());
+
+    result = applyHelper.apply(entities(), parse("ESAllPrim", "groupby((PropertyInt16,PropertyString))"))
+        .getEntities();
+    assertEquals(4, result.size());
+    assertEquals(2, result.get(0).getProperties().size());
+  }
+
+  @Test
+  public void groupByComplexProperty() throws Exception {
+    EntityCollection entities = new EntityCollection();
+    for (int i = 0; i < 6; i++) {
+      ComplexValue complexValue = new ComplexValue();
+      complexValue.getValue().add(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) i));
+      complexValue.getValue().add(new Property(null, "PropertyString", ValueType.PRIMITIVE, "s" + i % 2));
+      entities.getEntities().add(new Entity()
+          .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) (i % 3)))
+          .addProperty(new Property(null, "PropertyComp", ValueType.COMPLEX, complexValue)));
+    }
+    final List<Entity> result = applyHelper.apply(entities, parse("ESMixPrimCollComp",
+        "groupby((PropertyComp/PropertyString),aggregate(PropertyComp/PropertyInt16 with max as Max))"))
+        .getEntities();
+    assertEquals(2, result.size());
+    final Property complex = result.get(1).getProperty("PropertyComp");
+    assertEquals("olingo.odata.test1.CTTwoPrim", complex.getType());
+    assertEquals("s1", complex.asComplex().getValue().get(0).getValue());
+    assertEquals((short) 5, value(result.get(1), "Max"));
+  }
+
+  @Test
+  public void groupByNormalizedValues() throws Exception {
+    EntityCollection entities = new EntityCollection();
+    entities.getEntities().add(new Entity()
+        .addProperty(new Property(null, "PropertyBinary", ValueType.PRIMITIVE, new byte[] { 1, 2 }))
+        .addProperty(new Property(null, "PropertyDecimal", ValueType.PRIMITIVE, new BigDecimal("1.0"))));
+    entities.getEntities().add(new Entity()
+        .addProperty(new Property(null, "PropertyBinary", ValueType.PRIMITIVE, new byte[] { 1, 2 }))
+        .addProperty(new Property(null, "PropertyDecimal", ValueType.PRIMITIVE, new BigDecimal("1.00"))));
+    entities.getEntities().add(new Entity()
+        .addProperty(new Property(null, "PropertyBinary", ValueType.PRIMITIVE, new byte[] { 1 }))
+        .addProperty(new Property(null, "PropertyDecimal", ValueType.PRIMITIVE, new BigDecimal("0.00"))));
+    entities.getEntities().add(new Entity()
+        .addProperty(new Property(null, "PropertyBinary", ValueType.PRIMITIVE, new byte[] { 1 }))
+        .addProperty(new Property(null, "PropertyDecimal", ValueType.PRIMITIVE, BigDecimal.ZERO)));
+
+    List<Entity> result = applyHelper.apply(entities, parse("ESAllPrim",
+        "groupby((PropertyBinary),aggregate($count as Count))")).getEntities();
+    assertEquals(2, result.size());
+    assertEquals(2L, value(result.get(0), "Count"));
+    assertEquals(2L, value(result.get(1), "Count"));
+
+    result = applyHelper.apply(entities, parse("ESAllPrim",
+        "groupby((PropertyDecimal),aggregate($count as Count))")).getEntities();
+    assertEquals(2, result.size());
+    assertEquals(new BigDecimal("1.0"), value(result.get(0), "PropertyDecimal"));
+    assertEquals(2L, value(result.get(0), "Count"));
+    assertEquals(2L, value(result.get(1), "Count"));
+
+    final Entity distinct = applyHelper.apply(entities, parse("ESAllPrim",
+        "aggregate(PropertyDecimal with countdistinct as Decimals,PropertyBinary with countdistinct as Binaries)"))
+        .getEntities().get(0);
+    assertEquals(2L, value(distinct, "Decimals"));
+    assertEquals(2L, value(distinct, "Binaries"));
+  }
+
+  @Test
+  public void groupByNestedTopCount() throws Exception {
+    final EntityCollection entities = entities();
+    final List<Entity> result = applyHelper.apply(entities, parse("ESAllPrim",
+        "groupby((PropertyString),topcount(1,PropertyInt16))")).getEntities();
+    assertEquals(3, result.size());
+    assertEquals("a", value(result.get(0), "PropertyString"));
+    assertEquals((short) 3, value(result.get(0), "PropertyInt16"));
+    assertEquals(2.5, value(result.get(0), "PropertyDouble"));
+    // The grouping property is contained once, and the input entities are not changed.
+    assertEquals(5, result.get(0).getProperties().size());
+    assertEquals("PropertyString", result.get(0).getProperties().get(0).getName());
+    assertEquals("PropertyInt16", entities.getEntities().get(2).getProperties().get(0).getName());
+    assertEquals(5, entities.getEntities().get(2).getProperties().size());
+    assertNotSame(entities.getEntities().get(2), result.get(0));
+  }
+
+  @Test
+  public void groupByNestedFilter() throws Exception {
+    applyHelper.setExpressionEvaluator(new ApplyExpressionEvaluator() {
+      @Override
+      public Object evaluate(final Expression expression, final Entity entity) {
+        return (Short) entity.getProperty("PropertyInt16").getValue() > 2;
+      }
+    });
+    final EntityCollection entities = entities();
+    final List<Entity> result = applyHelper.apply(entities, parse("ESAllPrim",
+        "groupby((PropertyString),filter(PropertyInt16 gt 2))")).getEntities();
+    assertEquals(3, result.size());
+    assertEquals("a", value(result.get(0), "PropertyString"));
+    assertEquals(2.5, value(result.get(0), "PropertyDouble"));
+    assertEquals("a", value(result.get(1), "PropertyString"));
+    assertEquals(-1.0, value(result.get(1), "PropertyDouble"));
+    assertNull(value(result.get(2), "PropertyString"));
+    assertEquals((short) 4, value(result.get(2), "PropertyInt16"));
+    for (final Entity entity : result) {
+      assertEquals(5, entity.getProperties().size());
+    }
+    for (final Entity entity : entities.getEntities()) {
+      assertEquals("PropertyInt16", entity.getProperties().get(0).getName());
+      assertEquals(5, entity.getProperties().size());
+    }
+  }
+
+  @Test
+  public void topAndBottomCount() throws Exception {
+    List<Entity> result = applyHelper.apply(entities(), parse("ESAllPrim", "topcount(3,PropertyInt16)"))
+        .getEntities();
+    assertEquals(3, result.size());
+    assertEquals((short) 4, value(result.get(0), "PropertyInt16"));
+    assertEquals(2.5, value(result.get(1), "PropertyDouble"));
+    assertEquals(-1.0, value(result.get(2), "PropertyDouble"));
+
+    result = applyHelper.apply(entities(), parse("ESAllPrim",
+        "bottomcount(2,PropertyDouble)/aggregate(PropertyInt16 with sum as Sum)")).getEntities();
+    assertEquals(7L, value(result.get(0), "Sum"));
+
+    assertEquals(0, applyHelper.apply(entities(), parse("ESAllPrim", "topcount(0,PropertyInt16)"))
+        .getEntities().size());
+  }
+
+  @Test
+  public void streaming() throws Exception {
+    final Iterator<Entity> source = entities().iterator();
+    final int[] read = new int[] { 0 };
+    final EntityIterator iterator = new EntityIterator() {
+      @Override
+      public boolean hasNext() {
+        return source.hasNext();
+      }
+
+      @Override
+      public Entity next() {
+        read[0]++;
+        return source.next();
+      }
+    };
+    final List<Entity> result = applyHelper.apply(iterator, parse("ESAllPrim",
+        "groupby((PropertyString),aggregate(PropertyDouble with average as Average))")).getEntities();
+    assertEquals(5, read[0]);
+    assertEquals(3, result.size());
+    assertEquals(1.0, value(result.get(0), "Average"));
+    assertNull(value(result.get(1), "Average"));
+  }
+
+  @Test
+  public void filter() throws Exception {
+    final ApplyOption applyOption = parse("ESAllPrim",
+        "filter(PropertyInt16 gt 2)/aggregate($count as Count)");
+    try {
+      applyHelper.apply(entities(), applyOption);
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+    }
+
+    applyHelper.setExpressionEvaluator(new ApplyExpressionEvaluator() {
+      @Override
+      public Object evaluate(final Expression expression, final Entity entity) {
+        // Only the filter condition of this test is supported.
+        final Binary binary = (Binary) expression;
+        final int limit = Integer.parseInt(((Literal) binary.getRightOperand()).getText());
+        return (Short) entity.getProperty("PropertyInt16").getValue() > limit;
+      }
+    });
+    assertEquals(3L, value(applyHelper.apply(entities(), applyOption).getEntities().get(0), "Count"));
+  }
+}
@@ -34,8 +34,10 @@ import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.RequestLimits;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.core.deserializer.AbstractODataDeserializerTest;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
 import org.junit.Test;
 
 public class ODataDeserializerEntityCollectionTest extends AbstractODataDeserializerTest {
@@ -163,6 +165,22 @@ public class ODataDeserializerEntityCollectionTest extends AbstractODataDeserial
         DeserializerException.MessageKeys.NOT_IMPLEMENTED);
   }
 
+  @Test
+  public void entityLimit() throws Exception {
+    final String payload = "{\"value\":[{\"PropertyInt16\":1},{\"PropertyInt16\":2}]}";
+    assertEquals(2, deserialize(limited(payload, RequestLimits.with().maxEntities(2).build()), "ETAllPrim")
+        .getEntities().size());
+    expectException(limited(payload, RequestLimits.with().maxEntities(1).build()), "ETAllPrim",
+        DeserializerException.MessageKeys.LIMIT_EXCEEDED);
+    // The limit is exceeded before the parser reaches the syntax error at the end of the body.
+    expectException(limited("{\"value\":[{},{},{", RequestLimits.with().maxEntities(2).build()), "ETAllPrim",
+        DeserializerException.MessageKeys.LIMIT_EXCEEDED);
+  }
+
+  private static InputStream limited(final String content, final RequestLimits limits) {
+    return new LimitedInputStream(new ByteArrayInputStream(content.getBytes()), limits);
+  }
+
   private EntityCollection deserialize(final InputStream stream, final String entityTypeName)
       throws DeserializerException {
     return OData.newInstance().createDeserializer(ContentType.JSON, metadata)
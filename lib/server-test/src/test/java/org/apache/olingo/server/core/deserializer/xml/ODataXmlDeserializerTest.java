@@ -19,6 +19,7 @@
 package org.apache.olingo.server.core.deserializer.xml;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.util.Arrays;
@@ -38,8 +39,11 @@ import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmDate;
 import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.RequestLimits;
+import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.core.deserializer.AbstractODataDeserializerTest;
+import org.apache.olingo.server.core.deserializer.LimitedInputStream;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -639,4 +643,54 @@ public class ODataXmlDeserializerTest extends AbstractODataDeserializerTest {
     Assert.assertEquals("http://host/service/Orders(10643)", result.get(0).toASCIIString());
     Assert.assertEquals("http://host/service/Orders(10759)", result.get(1).toASCIIString());
   }  
+
+  @Test
+  public void limits() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final String payload = "<feed xmlns=\"http://www.w3.org/2005/Atom\"\n" +
+        "      xmlns:metadata=\"http://docs.oasis-open.org/odata/ns/metadata\">\n" +
+        "  <metadata:ref id=\"http://host/service/ESAllPrim(1)\" />\n" +
+        "  <metadata:ref id=\"http://host/service/ESAllPrim(2)\" />\n" +
+        "</feed>";
+    Assert.assertEquals(2, deserializer.entityCollection(limited(payload,
+        RequestLimits.with().maxEntities(2).maxDepth(2).maxBodySize(payload.length()).build()),
+        edmEntitySet.getEntityType()).getEntityCollection().getEntities().size());
+
+    assertLimitExceeded(payload, RequestLimits.with().maxEntities(1).build(), edmEntitySet);
+    assertLimitExceeded(payload, RequestLimits.with().maxDepth(1).build(), edmEntitySet);
+    assertLimitExceeded(payload, RequestLimits.with().maxBodySize(payload.length() - 1).build(), edmEntitySet);
+  }
+
+  @Test
+  public void stringLengthLimit() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final String payload = "<feed xmlns=\"http://www.w3.org/2005/Atom\"\n" +
+        "      xmlns:metadata=\"http://docs.oasis-open.org/odata/ns/metadata\">\n" +
+        "  <id>abcdef<![CDATA[ghijkl]]>mnopqr</id>\n" +
+        "  <metadata:ref id=\"http://host/service/ESAllPrim(1)\" />\n" +
+        "</feed>";
+    Assert.assertEquals(1, deserializer.entityCollection(limited(payload,
+        RequestLimits.with().maxStringLength(40).build()),
+        edmEntitySet.getEntityType()).getEntityCollection().getEntities().size());
+
+    // The text of the element is split into three parts around the CDATA section; each is short enough.
+    assertLimitExceeded(payload, RequestLimits.with().maxStringLength(17).build(), edmEntitySet);
+    // The attribute value is longer than the text.
+    assertLimitExceeded(payload.replace("abcdef<![CDATA[ghijkl]]>mnopqr", "a<![CDATA[b]]>c"),
+        RequestLimits.with().maxStringLength(20).build(), edmEntitySet);
+  }
+
+  private static InputStream limited(final String content, final RequestLimits limits) {
+    return new LimitedInputStream(new ByteArrayInputStream(content.getBytes()), limits);
+  }
+
+  private void assertLimitExceeded(final String content, final RequestLimits limits,
+      final EdmEntitySet edmEntitySet) {
+    try {
+      deserializer.entityCollection(limited(content, limits), edmEntitySet.getEntityType());
+      Assert.fail("Expected an exception.");
+    } catch (final DeserializerException e) {
+      Assert.assertEquals(DeserializerException.MessageKeys.LIMIT_EXCEEDED, e.getMessageKey());
+    }
+  }
 }
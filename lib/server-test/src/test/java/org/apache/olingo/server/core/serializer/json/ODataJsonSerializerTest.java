@@ -26,15 +26,26 @@ import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.olingo.commons.api.data.Annotation;
+import org.apache.olingo.commons.api.data.ColumnarEntityCollection;
+import org.apache.olingo.commons.api.data.CompactEntity;
 import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaLink;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.EntityLayout;
+import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
@@ -67,6 +78,7 @@ import org.apache.olingo.server.api.uri.queryoption.SelectItem;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.core.ServiceMetadataImpl;
 import org.apache.olingo.server.core.serializer.ExpandSelectMock;
+import org.apache.olingo.server.core.uri.queryoption.LevelsOptionImpl;
 import org.apache.olingo.server.tecsvc.MetadataETagSupport;
 import org.apache.olingo.server.tecsvc.data.DataProvider;
 import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
@@ -119,6 +131,243 @@ public class ODataJsonSerializerTest {
     Assert.assertEquals(expectedResult, resultString);
   }
 
+  @Test
+  public void compactEntity() throws Exception {
+    for (final String entitySetName : Arrays.asList("ESAllPrim", "ESMixPrimCollComp", "ESCompAllPrim")) {
+      final EdmEntitySet edmEntitySet = entityContainer.getEntitySet(entitySetName);
+      final EntityLayout layout = new EntityLayout(edmEntitySet.getEntityType());
+      for (final Entity entity : data.readAll(edmEntitySet).getEntities()) {
+        final Entity compact = new CompactEntity(layout);
+        compact.setId(entity.getId());
+        compact.setETag(entity.getETag());
+        for (final Property property : entity.getProperties()) {
+          compact.addProperty(property);
+        }
+        final EntitySerializerOptions options = EntitySerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.ENTITY).build())
+            .build();
+        Assert.assertEquals(
+            IOUtils.toString(serializer.entity(metadata, edmEntitySet.getEntityType(), entity, options)
+                .getContent()),
+            IOUtils.toString(serializer.entity(metadata, edmEntitySet.getEntityType(), compact, options)
+                .getContent()));
+      }
+    }
+  }
+
+  @Test
+  public void compactEntityProperties() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    final CompactEntity entity = new CompactEntity(new EntityLayout(edmEntitySet.getEntityType()));
+    Assert.assertEquals("olingo.odata.test1.ETTwoPrim", entity.getType());
+    Assert.assertTrue(entity.getProperties().isEmpty());
+    entity.addProperty(new Property(null, "PropertyString", ValueType.PRIMITIVE, "Test"));
+    entity.addProperty(new Property(null, "Other", ValueType.PRIMITIVE, 1));
+    entity.setValue("PropertyInt16", (short) 42);
+    Assert.assertEquals(3, entity.getProperties().size());
+    Assert.assertEquals("PropertyInt16", entity.getProperties().get(0).getName());
+    Assert.assertEquals("Edm.Int16", entity.getProperty("PropertyInt16").getType());
+    Assert.assertEquals("Other", entity.getProperties().get(2).getName());
+
+    entity.getProperty("PropertyString").setValue(ValueType.PRIMITIVE, "Changed");
+    Assert.assertEquals("Changed", entity.getProperty("PropertyString").getValue());
+    Assert.assertTrue(entity.getProperty("PropertyString").getAnnotations().isEmpty());
+    final Annotation annotation = new Annotation();
+    annotation.setTerm("Test");
+    entity.getProperty("PropertyString").getAnnotations().add(annotation);
+    Assert.assertEquals(Collections.singletonList(annotation), entity.getProperty("PropertyString").getAnnotations());
+    final Property removed = entity.getProperties().remove(0);
+    Assert.assertEquals(new Property("Edm.Int16", "PropertyInt16", ValueType.PRIMITIVE, (short) 42), removed);
+    Assert.assertNull(entity.getProperty("PropertyInt16"));
+    Assert.assertEquals(2, entity.getProperties().size());
+    entity.getProperties().clear();
+    Assert.assertTrue(entity.getProperties().isEmpty());
+  }
+
+  @Test
+  public void compactEntityPositionsAndRenames() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    final CompactEntity entity = new CompactEntity(new EntityLayout(edmEntitySet.getEntityType()));
+    entity.addProperty(new Property(null, "Other", ValueType.PRIMITIVE, 1));
+    entity.getProperties().add(0, new Property(null, "PropertyString", ValueType.PRIMITIVE, "Test"));
+    entity.getProperties().add(2, new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) 42));
+    Assert.assertEquals("[PropertyString=Test, Other=1, PropertyInt16=42]", entity.getProperties().toString());
+    entity.getProperties().add(0, new Property(null, "PropertyInt16", ValueType.PRIMITIVE, (short) 43));
+    Assert.assertEquals("[PropertyString=Test, Other=1, PropertyInt16=43]", entity.getProperties().toString());
+
+    final Property property = entity.getProperty("PropertyString");
+    property.setName("Renamed");
+    Assert.assertEquals("Renamed", property.getName());
+    Assert.assertNull(entity.getProperty("PropertyString"));
+    Assert.assertEquals("[Renamed=Test, Other=1, PropertyInt16=43]", entity.getProperties().toString());
+    property.setValue(ValueType.PRIMITIVE, "Changed");
+    Assert.assertEquals("Changed", entity.getProperty("Renamed").getValue());
+
+    entity.getProperty("PropertyInt16").setName("PropertyString");
+    Assert.assertEquals("[Renamed=Changed, Other=1, PropertyString=43]", entity.getProperties().toString());
+    Assert.assertEquals((short) 43, entity.getProperty("PropertyString").getValue());
+    Assert.assertNull(entity.getProperty("PropertyInt16"));
+
+    final CompactEntity copy = new CompactEntity(new EntityLayout(edmEntitySet.getEntityType()));
+    for (final Property p : entity.getProperties()) {
+      copy.addProperty(p);
+    }
+    Assert.assertEquals("[PropertyString=43, Renamed=Changed, Other=1]", copy.getProperties().toString());
+    Assert.assertFalse(entity.equals(copy));
+    copy.getProperties().add(0, copy.getProperties().remove(1));
+    copy.getProperties().add(1, copy.getProperties().remove(2));
+    Assert.assertEquals(entity.getProperties().toString(), copy.getProperties().toString());
+    Assert.assertEquals(entity.hashCode(), copy.hashCode());
+  }
+
+  private ColumnarEntityCollection columnar(final EdmEntitySet edmEntitySet, final EntityCollection entitySet) {
+    final ColumnarEntityCollection columnar =
+        new ColumnarEntityCollection(new EntityLayout(edmEntitySet.getEntityType()), 1);
+    for (final Entity entity : entitySet) {
+      final int row = columnar.addRow();
+      for (final Property property : entity.getProperties()) {
+        columnar.getColumn(property.getName()).setValue(row, property.getValue());
+      }
+    }
+    return columnar;
+  }
+
+  @Test
+  public void columnarEntityCollection() throws Exception {
+    for (final String entitySetName : Arrays.asList("ESAllPrim", "ESMixPrimCollComp", "ESTwoPrim")) {
+      final EdmEntitySet edmEntitySet = entityContainer.getEntitySet(entitySetName);
+      final EntityCollection entitySet = data.readAll(edmEntitySet);
+      final ColumnarEntityCollection columnar = columnar(edmEntitySet, entitySet);
+      Assert.assertEquals(entitySet.getEntities().size(), columnar.getRowCount());
+      for (final ODataSerializer jsonSerializer : Arrays.asList(serializer, serializerIEEECompatible)) {
+        final EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+            .build();
+        Assert.assertEquals(
+            IOUtils.toString(jsonSerializer.entityCollection(metadata, edmEntitySet.getEntityType(), entitySet,
+                options).getContent()),
+            IOUtils.toString(jsonSerializer.entityCollection(metadata, edmEntitySet.getEntityType(), columnar,
+                options).getContent()));
+      }
+    }
+  }
+
+  @Test
+  public void columnarEntityCollectionSelect() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
+    final EntityCollection entitySet = data.readAll(edmEntitySet);
+    final ColumnarEntityCollection columnar = columnar(edmEntitySet, entitySet);
+    final EdmEntityType entityType = edmEntitySet.getEntityType();
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Arrays.asList(
+        ExpandSelectMock.mockSelectItem(edmEntitySet, "PropertyDouble"),
+        ExpandSelectMock.mockSelectItem(edmEntitySet, "PropertyInt64")));
+    final EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+        .contextURL(ContextURL.with().entitySet(edmEntitySet).selectList(
+            helper.buildContextURLSelectList(entityType, null, select)).build())
+        .select(select)
+        .build();
+    final String resultString = IOUtils.toString(serializer.entityCollection(metadata, entityType, columnar, options)
+        .getContent());
+    Assert.assertEquals(IOUtils.toString(serializer.entityCollection(metadata, entityType, entitySet, options)
+        .getContent()), resultString);
+    Assert.assertThat(resultString, CoreMatchers.containsString(
+        "\"value\":[{\"PropertyInt64\":9223372036854775807,\"PropertyDouble\":-1.79E19},"));
+
+    Assert.assertEquals(entitySet.getEntities().get(0).getProperty("PropertyString").getValue(),
+        columnar.getEntities().get(0).getProperty("PropertyString").getValue());
+    columnar.getColumn("PropertyString").setNull(0);
+    Assert.assertNull(columnar.getEntity(0).getProperty("PropertyString").getValue());
+  }
+
+  @Test
+  public void entityCollectionInChunks() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESServerSidePaging");
+      final EntityCollection entitySet = data.readAll(edmEntitySet);
+      final ContextURL contextURL = ContextURL.with().entitySet(edmEntitySet).build();
+      final String expected = IOUtils.toString(serializer.entityCollection(metadata, edmEntitySet.getEntityType(),
+          entitySet, EntityCollectionSerializerOptions.with().contextURL(contextURL).build()).getContent());
+      for (final int chunkSize : new int[] { 1, 7, 1000 }) {
+        Assert.assertEquals(expected, IOUtils.toString(serializer.entityCollection(metadata,
+            edmEntitySet.getEntityType(), entitySet,
+            EntityCollectionSerializerOptions.with().contextURL(contextURL)
+                .executor(executor).chunkSize(chunkSize).build()).getContent()));
+      }
+
+      final EdmEntitySet esTwoPrim = entityContainer.getEntitySet("ESTwoPrim");
+      final EntityCollection twoPrim = data.readAll(esTwoPrim);
+      final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(
+          ExpandSelectMock.mockExpandItem(esTwoPrim, "NavPropertyETAllPrimOne")));
+      final ContextURL twoPrimContextURL = ContextURL.with().entitySet(esTwoPrim).build();
+      Assert.assertEquals(
+          IOUtils.toString(serializer.entityCollection(metadata, esTwoPrim.getEntityType(), twoPrim,
+              EntityCollectionSerializerOptions.with().contextURL(twoPrimContextURL).expand(expand).build())
+              .getContent()),
+          IOUtils.toString(serializer.entityCollection(metadata, esTwoPrim.getEntityType(), twoPrim,
+              EntityCollectionSerializerOptions.with().contextURL(twoPrimContextURL).expand(expand)
+                  .executor(executor).chunkSize(1).build())
+              .getContent()));
+
+      final Iterator<Entity> entities = entitySet.iterator();
+      final EntityIterator entityIterator = new EntityIterator() {
+        @Override
+        public boolean hasNext() {
+          return entities.hasNext();
+        }
+
+        @Override
+        public Entity next() {
+          return entities.next();
+        }
+      };
+      ByteArrayOutputStream bout = new ByteArrayOutputStream();
+      serializer.entityCollectionStreamed(metadata, edmEntitySet.getEntityType(), entityIterator,
+          EntityCollectionSerializerOptions.with().contextURL(contextURL).executor(executor).chunkSize(10).build())
+          .getODataContent().write(bout);
+      Assert.assertEquals(expected, new String(bout.toByteArray(), "UTF-8"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void entityCollectionInChunksWithoutFreeThreads() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESServerSidePaging");
+    final EntityCollection entitySet = data.readAll(edmEntitySet);
+    final ContextURL contextURL = ContextURL.with().entitySet(edmEntitySet).build();
+    final String expected = IOUtils.toString(serializer.entityCollection(metadata, edmEntitySet.getEntityType(),
+        entitySet, EntityCollectionSerializerOptions.with().contextURL(contextURL).build()).getContent());
+
+    // The only thread of the executor is busy, as if it processed the request itself.
+    final ExecutorService busy = Executors.newSingleThreadExecutor();
+    final CountDownLatch release = new CountDownLatch(1);
+    busy.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    // The executor rejects all chunks.
+    final ExecutorService rejecting = Executors.newSingleThreadExecutor();
+    rejecting.shutdown();
+    try {
+      for (final ExecutorService executor : Arrays.asList(busy, rejecting)) {
+        Assert.assertEquals(expected, IOUtils.toString(serializer.entityCollection(metadata,
+            edmEntitySet.getEntityType(), entitySet,
+            EntityCollectionSerializerOptions.with().contextURL(contextURL)
+                .executor(executor).chunkSize(7).build()).getContent()));
+      }
+    } finally {
+      release.countDown();
+      busy.shutdown();
+    }
+  }
+
   @Test
   public void entityAllPrimAllNull() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
@@ -203,6 +452,39 @@ public class ODataJsonSerializerTest {
     Assert.assertEquals(8, count);
   }
 
+  @Test
+  public void delta() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    Delta delta = new Delta();
+    delta.getEntities().add(data.readAll(edmEntitySet).getEntities().get(0));
+    DeletedEntity deletedEntity = new DeletedEntity();
+    deletedEntity.setId(URI.create("ESTwoPrim(42)"));
+    deletedEntity.setReason(DeletedEntity.Reason.deleted);
+    delta.getDeletedEntities().add(deletedEntity);
+    DeltaLink link = new DeltaLink();
+    link.setSource(URI.create("ESTwoPrim(32766)"));
+    link.setRelationship("NavPropertyETAllPrimOne");
+    link.setTarget(URI.create("ESAllPrim(0)"));
+    delta.getDeletedLinks().add(link);
+    delta.setDeltaLink(URI.create("ESTwoPrim?$deltatoken=7"));
+    final String resultString = IOUtils.toString(serializer.entityCollection(metadata,
+        edmEntitySet.getEntityType(), delta,
+        EntityCollectionSerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.DELTA).build())
+            .build()).getContent());
+
+    Assert.assertThat(resultString, CoreMatchers.startsWith("{"
+        + "\"@odata.context\":\"$metadata#ESTwoPrim/$delta\","
+        + "\"@odata.metadataEtag\":\"W/\\\"metadataETag\\\"\","
+        + "\"value\":[{\"@odata.id\":\"ESTwoPrim(32766)\",\"PropertyInt16\":32766,"));
+    Assert.assertThat(resultString, CoreMatchers.endsWith("},"
+        + "{\"@odata.context\":\"#ESTwoPrim/$deletedEntity\",\"id\":\"ESTwoPrim(42)\",\"reason\":\"deleted\"},"
+        + "{\"@odata.context\":\"#ESTwoPrim/$deletedLink\","
+        + "\"source\":\"ESTwoPrim(32766)\",\"relationship\":\"NavPropertyETAllPrimOne\","
+        + "\"target\":\"ESAllPrim(0)\"}],"
+        + "\"@odata.deltaLink\":\"ESTwoPrim?$deltatoken=7\"}"));
+  }
+
   @Test
   public void entityCollectionStreamed() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
@@ -805,6 +1087,111 @@ public class ODataJsonSerializerTest {
         resultString);
   }
 
+  @Test
+  public void expandLevels() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESKeyNav");
+    final EdmEntityType entityType = edmEntitySet.getEntityType();
+    final EntityCollection entitySet = data.readAll(edmEntitySet);
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Collections.singletonList(
+        ExpandSelectMock.mockSelectItem(edmEntitySet, "PropertyInt16")));
+    ExpandItem expandItem = ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETKeyNavOne");
+    Mockito.when(expandItem.getSelectOption()).thenReturn(select);
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItem));
+    final EntitySerializerOptions options = EntitySerializerOptions.with()
+        .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.ENTITY).build())
+        .expand(expand).select(select)
+        .build();
+
+    Mockito.when(expandItem.getLevelsOption()).thenReturn(new LevelsOptionImpl().setValue(1));
+    Assert.assertEquals("{\"PropertyInt16\":1,\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":2}}",
+        IOUtils.toString(serializerNoMetadata.entity(metadata, entityType, entitySet.getEntities().get(0), options)
+            .getContent()));
+
+    Mockito.when(expandItem.getLevelsOption()).thenReturn(new LevelsOptionImpl().setMax());
+    Assert.assertEquals("{\"PropertyInt16\":1,\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":2,"
+        + "\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":3}}}",
+        IOUtils.toString(serializerNoMetadata.entity(metadata, entityType, entitySet.getEntities().get(0), options)
+            .getContent()));
+
+    // A cycle in the data stops the recursion.
+    final Link link = new Link();
+    link.setTitle("NavPropertyETKeyNavOne");
+    link.setInlineEntity(entitySet.getEntities().get(0));
+    entitySet.getEntities().get(2).getNavigationLinks().add(link);
+    Assert.assertEquals("{\"PropertyInt16\":1,\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":2,"
+        + "\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":3,\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":1}}}}",
+        IOUtils.toString(serializerNoMetadata.entity(metadata, entityType, entitySet.getEntities().get(0), options)
+            .getContent()));
+  }
+
+  @Test
+  public void expandLevelsLimits() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESKeyNav");
+    final EdmEntityType entityType = edmEntitySet.getEntityType();
+    final EntityCollection entitySet = data.readAll(edmEntitySet);
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Collections.singletonList(
+        ExpandSelectMock.mockSelectItem(edmEntitySet, "PropertyInt16")));
+    ExpandItem expandItem = ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETKeyNavOne");
+    Mockito.when(expandItem.getSelectOption()).thenReturn(select);
+    Mockito.when(expandItem.getLevelsOption()).thenReturn(new LevelsOptionImpl().setMax());
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItem));
+    final ContextURL contextURL = ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.ENTITY).build();
+
+    Assert.assertEquals("{\"PropertyInt16\":1,\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":2}}",
+        IOUtils.toString(serializerNoMetadata.entity(metadata, entityType, entitySet.getEntities().get(0),
+            EntitySerializerOptions.with().contextURL(contextURL).expand(expand).select(select)
+                .maxLevels(1).build())
+            .getContent()));
+
+    Mockito.when(expandItem.getLevelsOption()).thenReturn(new LevelsOptionImpl().setValue(2));
+    try {
+      serializerNoMetadata.entity(metadata, entityType, entitySet.getEntities().get(0),
+          EntitySerializerOptions.with().contextURL(contextURL).expand(expand).select(select)
+              .maxLevels(1).build());
+      Assert.fail("Expected exception not thrown");
+    } catch (final SerializerException e) {
+      Assert.assertEquals(SerializerException.MessageKeys.TOO_MANY_EXPAND_LEVELS, e.getMessageKey());
+    }
+
+    try {
+      serializerNoMetadata.entityCollection(metadata, entityType, entitySet,
+          EntityCollectionSerializerOptions.with().contextURL(contextURL).expand(expand).select(select)
+              .maxExpandedEntities(2).build());
+      Assert.fail("Expected exception not thrown");
+    } catch (final SerializerException e) {
+      Assert.assertEquals(SerializerException.MessageKeys.TOO_MANY_EXPANDED_ENTITIES, e.getMessageKey());
+    }
+  }
+
+  @Test
+  public void expandLevelsCycle() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESKeyNav");
+    final EdmEntityType entityType = edmEntitySet.getEntityType();
+    final EntityCollection entitySet = data.readAll(edmEntitySet);
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Collections.singletonList(
+        ExpandSelectMock.mockSelectItem(edmEntitySet, "PropertyInt16")));
+    ExpandItem expandItem = ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETKeyNavOne");
+    Mockito.when(expandItem.getSelectOption()).thenReturn(select);
+    Mockito.when(expandItem.getLevelsOption()).thenReturn(new LevelsOptionImpl().setMax());
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItem));
+    final Link link = new Link();
+    link.setTitle("NavPropertyETKeyNavOne");
+    link.setInlineEntity(entitySet.getEntities().get(0));
+    entitySet.getEntities().get(2).getNavigationLinks().add(link);
+
+    // At the cycle, the navigation property is written as not expanded.
+    final String resultString = IOUtils.toString(serializer.entity(metadata, entityType,
+        entitySet.getEntities().get(0),
+        EntitySerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.ENTITY).build())
+            .expand(expand).select(select).build())
+        .getContent());
+    Assert.assertThat(resultString, CoreMatchers.endsWith("\"PropertyInt16\":1,"
+        + "\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":2,\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":3,"
+        + "\"NavPropertyETKeyNavOne\":{\"PropertyInt16\":1,"
+        + "\"NavPropertyETKeyNavOne@odata.navigationLink\":\"ESKeyNav(2)\"}}}}"));
+  }
+
   @Test
   public void expandNoData() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
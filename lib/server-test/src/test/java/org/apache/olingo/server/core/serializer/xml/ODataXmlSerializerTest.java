@@ -26,14 +26,18 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
 import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmComplexType;
@@ -65,6 +69,7 @@ import org.apache.olingo.server.core.ServiceMetadataImpl;
 import org.apache.olingo.server.core.serializer.ExpandSelectMock;
 import org.apache.olingo.server.core.serializer.json.ODataJsonSerializer;
 import org.apache.olingo.server.core.uri.UriHelperImpl;
+import org.apache.olingo.server.core.uri.queryoption.LevelsOptionImpl;
 import org.apache.olingo.server.tecsvc.MetadataETagSupport;
 import org.apache.olingo.server.tecsvc.data.DataProvider;
 import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
@@ -239,6 +244,22 @@ public class ODataXmlSerializerTest {
             .build());
   }
 
+  @Test
+  public void deltaNotImplemented() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
+    Delta delta = new Delta();
+    delta.getEntities().add(data.readAll(edmEntitySet).getEntities().get(0));
+    try {
+      serializer.entityCollection(metadata, edmEntitySet.getEntityType(), delta,
+          EntityCollectionSerializerOptions.with()
+              .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.DELTA).build())
+              .build());
+      Assert.fail("Expected exception not thrown!");
+    } catch (final SerializerException e) {
+      Assert.assertEquals(SerializerException.MessageKeys.NOT_IMPLEMENTED, e.getMessageKey());
+    }
+  }
+
   @Test
   public void entityWrongData() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESAllPrim");
@@ -288,6 +309,49 @@ public class ODataXmlSerializerTest {
     Assert.assertTrue(resultString.startsWith(prefix));
   }
 
+  @Test
+  public void entitySetInChunks() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESServerSidePaging");
+      final EntityCollection entitySet = data.readAll(edmEntitySet);
+      final ContextURL contextURL = ContextURL.with().serviceRoot(new URI("http://host:port"))
+          .entitySet(edmEntitySet).build();
+      final String expected = withoutUpdated(IOUtils.toString(serializer.entityCollection(metadata,
+          edmEntitySet.getEntityType(), entitySet,
+          EntityCollectionSerializerOptions.with().contextURL(contextURL).build()).getContent()));
+      for (final int chunkSize : new int[] { 1, 7, 1000 }) {
+        Assert.assertEquals(expected, withoutUpdated(IOUtils.toString(serializer.entityCollection(metadata,
+            edmEntitySet.getEntityType(), entitySet,
+            EntityCollectionSerializerOptions.with().contextURL(contextURL)
+                .executor(executor).chunkSize(chunkSize).build()).getContent())));
+      }
+
+      final EdmEntitySet esTwoPrim = entityContainer.getEntitySet("ESTwoPrim");
+      final EntityCollection twoPrim = data.readAll(esTwoPrim);
+      final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(
+          ExpandSelectMock.mockExpandItem(esTwoPrim, "NavPropertyETAllPrimOne")));
+      final ContextURL twoPrimContextURL = ContextURL.with().serviceRoot(new URI("http://host:port"))
+          .entitySet(esTwoPrim).build();
+      Assert.assertEquals(
+          withoutUpdated(IOUtils.toString(serializer.entityCollection(metadata, esTwoPrim.getEntityType(), twoPrim,
+              EntityCollectionSerializerOptions.with().contextURL(twoPrimContextURL).id("http://host/svc/ESTwoPrim")
+                  .expand(expand).build())
+              .getContent())),
+          withoutUpdated(IOUtils.toString(serializer.entityCollection(metadata, esTwoPrim.getEntityType(), twoPrim,
+              EntityCollectionSerializerOptions.with().contextURL(twoPrimContextURL).id("http://host/svc/ESTwoPrim")
+                  .expand(expand).executor(executor).chunkSize(1).build())
+              .getContent())));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /** Removes the timestamps that depend on the time of serialization. */
+  private static String withoutUpdated(final String xml) {
+    return xml.replaceAll("<a:updated>[^<]*</a:updated>", "");
+  }
+
   @Test
   public void entityCollAllPrim() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESCollAllPrim");
@@ -1564,6 +1628,35 @@ public class ODataXmlSerializerTest {
     checkXMLEqual(expected, resultString);
   }
 
+  @Test
+  public void expandLevelsCycle() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESKeyNav");
+    final EdmEntityType entityType = edmEntitySet.getEntityType();
+    final EntityCollection entitySet = data.readAll(edmEntitySet);
+    final SelectOption select = ExpandSelectMock.mockSelectOption(Collections.singletonList(
+        ExpandSelectMock.mockSelectItem(edmEntitySet, "PropertyInt16")));
+    ExpandItem expandItem = ExpandSelectMock.mockExpandItem(edmEntitySet, "NavPropertyETKeyNavOne");
+    Mockito.when(expandItem.getSelectOption()).thenReturn(select);
+    Mockito.when(expandItem.getLevelsOption()).thenReturn(new LevelsOptionImpl().setMax());
+    final ExpandOption expand = ExpandSelectMock.mockExpandOption(Collections.singletonList(expandItem));
+    final Link link = new Link();
+    link.setRel(Constants.NS_NAVIGATION_LINK_REL + "NavPropertyETKeyNavOne");
+    link.setTitle("NavPropertyETKeyNavOne");
+    link.setInlineEntity(entitySet.getEntities().get(0));
+    entitySet.getEntities().get(2).getNavigationLinks().add(link);
+
+    final String resultString = IOUtils.toString(serializer.entity(metadata, entityType,
+        entitySet.getEntities().get(0),
+        EntitySerializerOptions.with()
+            .contextURL(ContextURL.with().entitySet(edmEntitySet).suffix(Suffix.ENTITY).build())
+            .expand(expand).select(select).build())
+        .getContent());
+    // Three levels are expanded; at the cycle, the navigation property is written as not expanded, as in JSON.
+    Assert.assertEquals(3, resultString.split("<m:inline>", -1).length - 1);
+    Assert.assertThat(resultString, CoreMatchers.containsString(
+        "title=\"NavPropertyETKeyNavOne\" href=\"ESKeyNav(2)\"/>"));
+  }
+
   @Test
   public void expandTwoLevels() throws Exception {
     final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESTwoPrim");
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.apply.Aggregate;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression.StandardMethod;
+import org.apache.olingo.server.api.uri.queryoption.apply.ApplyItem;
+import org.apache.olingo.server.api.uri.queryoption.apply.BottomTop;
+import org.apache.olingo.server.api.uri.queryoption.apply.Filter;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupBy;
+import org.apache.olingo.server.api.uri.queryoption.expression.Binary;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.core.uri.UriInfoImpl;
+import org.apache.olingo.server.core.uri.testutil.TestUriValidator;
+import org.apache.olingo.server.core.uri.validator.UriValidationException;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class ApplyParserTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(
+      new EdmTechProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+
+  private final TestUriValidator testUri = new TestUriValidator().setEdm(edm);
+
+  private ApplyOption parse(final String path, final String apply) throws Exception {
+    return ((UriInfoImpl) new Parser(edm, odata).parseUri(path, "$apply=" + apply, null)).getApplyOption();
+  }
+
+  private static String getPath(final Member member) {
+    StringBuilder path = new StringBuilder();
+    for (final UriResource segment : member.getResourcePath().getUriResourceParts()) {
+      path.append(path.length() == 0 ? "" : "/").append(segment.getSegmentValue());
+    }
+    return path.toString();
+  }
+
+  @Test
+  public void aggregate() throws Exception {
+    final ApplyOption option = parse("ESAllPrim",
+        "aggregate(PropertyDecimal with sum as Total,PropertyString with countdistinct as Names,$count as Count)");
+    assertEquals("$apply", option.getName());
+    assertEquals(1, option.getApplyItems().size());
+    final ApplyItem item = option.getApplyItems().get(0);
+    assertEquals(ApplyItem.Kind.AGGREGATE, item.getKind());
+    final List<AggregateExpression> expressions = ((Aggregate) item).getExpressions();
+    assertEquals(3, expressions.size());
+    assertEquals("PropertyDecimal", getPath((Member) expressions.get(0).getExpression()));
+    assertEquals(StandardMethod.SUM, expressions.get(0).getStandardMethod());
+    assertEquals("Total", expressions.get(0).getAlias());
+    assertEquals(StandardMethod.COUNT_DISTINCT, expressions.get(1).getStandardMethod());
+    assertNull(expressions.get(2).getExpression());
+    assertNull(expressions.get(2).getStandardMethod());
+    assertEquals("Count", expressions.get(2).getAlias());
+  }
+
+  @Test
+  public void groupBy() throws Exception {
+    ApplyOption option = parse("ESMixPrimCollComp",
+        "groupby((PropertyComp/PropertyString,PropertyInt16),aggregate(PropertyComp/PropertyInt16 with max as Max))");
+    GroupBy groupBy = (GroupBy) option.getApplyItems().get(0);
+    assertEquals(2, groupBy.getGroupByItems().size());
+    assertEquals("PropertyComp/PropertyString", getPath(groupBy.getGroupByItems().get(0)));
+    assertEquals("PropertyInt16", getPath(groupBy.getGroupByItems().get(1)));
+    final Aggregate aggregate = (Aggregate) groupBy.getApplyOption().getApplyItems().get(0);
+    assertEquals(StandardMethod.MAX, aggregate.getExpressions().get(0).getStandardMethod());
+
+    option = parse("ESAllPrim", "groupby((PropertyString))");
+    groupBy = (GroupBy) option.getApplyItems().get(0);
+    assertNull(groupBy.getApplyOption());
+  }
+
+  @Test
+  public void sequence() throws Exception {
+    final ApplyOption option = parse("ESAllPrim",
+        "filter(PropertyInt16 gt 0)/topcount(2,PropertyDouble)/bottomcount(1,PropertyInt32)"
+            + "/groupby((PropertyString),filter(PropertyBoolean)/aggregate(PropertyInt64 with average as Avg))");
+    final List<ApplyItem> items = option.getApplyItems();
+    assertEquals(4, items.size());
+    assertEquals(ApplyItem.Kind.FILTER, items.get(0).getKind());
+    assertTrue(((Filter) items.get(0)).getExpression() instanceof Binary);
+    assertEquals(ApplyItem.Kind.TOP_COUNT, items.get(1).getKind());
+    assertEquals(2, ((BottomTop) items.get(1)).getN());
+    assertEquals("PropertyDouble", getPath((Member) ((BottomTop) items.get(1)).getValue()));
+    assertEquals(ApplyItem.Kind.BOTTOM_COUNT, items.get(2).getKind());
+    final ApplyOption nested = ((GroupBy) items.get(3)).getApplyOption();
+    assertEquals(2, nested.getApplyItems().size());
+    assertEquals(ApplyItem.Kind.FILTER, nested.getApplyItems().get(0).getKind());
+    assertEquals(ApplyItem.Kind.AGGREGATE, nested.getApplyItems().get(1).getKind());
+  }
+
+  @Test
+  public void wrongSyntax() throws Exception {
+    testUri.runEx("ESAllPrim", "$apply=aggregate(PropertyInt16 with median as M)")
+        .isExSyntax(UriParserSyntaxException.MessageKeys.SYNTAX);
+    testUri.runEx("ESAllPrim", "$apply=aggregate(PropertyInt16 with sum)")
+        .isExSyntax(UriParserSyntaxException.MessageKeys.SYNTAX);
+    testUri.runEx("ESAllPrim", "$apply=groupby(PropertyString)")
+        .isExSyntax(UriParserSyntaxException.MessageKeys.SYNTAX);
+    testUri.runEx("ESAllPrim", "$apply=topcount(-1,PropertyInt16)")
+        .isExSyntax(UriParserSyntaxException.MessageKeys.WRONG_VALUE_FOR_SYSTEM_QUERY_OPTION);
+    testUri.runEx("ESAllPrim", "$apply=compute(PropertyInt16 as P)")
+        .isExSyntax(UriParserSyntaxException.MessageKeys.SYNTAX);
+    testUri.runEx("ESAllPrim", "$apply=filter(true)/")
+        .isExSyntax(UriParserSyntaxException.MessageKeys.SYNTAX);
+  }
+
+  @Test
+  public void wrongSemantics() throws Exception {
+    testUri.runEx("ESAllPrim", "$apply=aggregate(PropertyString with sum as S)")
+        .isExSemantic(UriParserSemanticException.MessageKeys.TYPES_NOT_COMPATIBLE);
+    testUri.runEx("ESAllPrim", "$apply=topcount(1,PropertyDate)")
+        .isExSemantic(UriParserSemanticException.MessageKeys.TYPES_NOT_COMPATIBLE);
+    testUri.runEx("ESAllPrim", "$apply=filter(PropertyInt16)")
+        .isExSemantic(UriParserSemanticException.MessageKeys.TYPES_NOT_COMPATIBLE);
+    testUri.runEx("ESAllPrim", "$apply=groupby((PropertyInt16 add 1))")
+        .isExSemantic(UriParserSemanticException.MessageKeys.NOT_IMPLEMENTED);
+    testUri.runEx("ESAllPrim", "$apply=aggregate(PropertyInt16 with Namespace.custom as C)")
+        .isExSemantic(UriParserSemanticException.MessageKeys.NOT_IMPLEMENTED);
+    testUri.runEx("ESAllPrim", "$apply=aggregate(Wrong with sum as S)")
+        .isExSemantic(UriParserSemanticException.MessageKeys.EXPRESSION_PROPERTY_NOT_IN_TYPE);
+  }
+
+  @Test
+  public void notAllowed() throws Exception {
+    testUri.runEx("ESAllPrim(1)", "$apply=aggregate($count as Count)")
+        .isExValidation(UriValidationException.MessageKeys.SYSTEM_QUERY_OPTION_NOT_ALLOWED);
+  }
+}
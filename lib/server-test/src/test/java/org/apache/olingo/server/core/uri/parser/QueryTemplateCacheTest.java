@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.uri.UriInfoImpl;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class QueryTemplateCacheTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(new EdmTechProvider(),
+      Collections.<EdmxReference> emptyList()).getEdm();
+
+  private final QueryTemplateCache cache = new QueryTemplateCache();
+
+  private UriInfo parse(final String path, final String query) throws Exception {
+    return cache.parseUri(edm, odata, path, query, null);
+  }
+
+  @Test
+  public void bind() throws Exception {
+    final UriInfo template = parse("ESAllPrim", "$filter=PropertyInt16%20eq%20@p%20and%20PropertyString%20ne%20@s"
+        + "&@p=1&@s='a'&$top=2");
+    final UriInfo uriInfo = parse("ESAllPrim", "$filter=PropertyInt16%20eq%20@p%20and%20PropertyString%20ne%20@s"
+        + "&@p=2&@s='b'&$top=2");
+    assertSame(template.getFilterOption(), uriInfo.getFilterOption());
+    assertSame(template.getUriResourceParts().get(0), uriInfo.getUriResourceParts().get(0));
+    assertEquals("1", template.getValueForAlias("@p"));
+    assertEquals("2", uriInfo.getValueForAlias("@p"));
+    assertEquals("'b'", uriInfo.getValueForAlias("@s"));
+    assertEquals("'b'", ((UriInfoImpl) uriInfo).getAliasMap().get("@s").getValue().toString());
+    assertEquals(2, uriInfo.getTopOption().getValue());
+
+    // Other options make a different template.
+    assertNotSame(template.getFilterOption(),
+        parse("ESAllPrim", "$filter=PropertyInt16%20eq%20@p%20and%20PropertyString%20ne%20@s&@p=2&@s='b'&$top=3")
+            .getFilterOption());
+  }
+
+  @Test
+  public void differentTypes() throws Exception {
+    final UriInfo template = parse("ESAllPrim", "$orderby=PropertyInt16%20add%20@p&@p=1");
+    // A value of another type is parsed completely and validated.
+    final UriInfo uriInfo = parse("ESAllPrim", "$orderby=PropertyInt16%20add%20@p&@p=1.5");
+    assertNotSame(template.getOrderByOption(), uriInfo.getOrderByOption());
+    assertEquals("1.5", uriInfo.getValueForAlias("@p"));
+    try {
+      parse("ESAllPrim", "$orderby=PropertyInt16%20add%20@p&@p='a'");
+      fail("Expected exception not thrown.");
+    } catch (final UriParserException e) {
+      assertNotNull(e.getMessage());
+    }
+    assertSame(template.getOrderByOption(),
+        parse("ESAllPrim", "$orderby=PropertyInt16%20add%20@p&@p=2").getOrderByOption());
+  }
+
+  @Test
+  public void noTemplate() throws Exception {
+    // Aliases in other places than $filter and $orderby are not bound to templates.
+    final String query = "$expand=NavPropertyETTwoPrimMany($filter=PropertyInt16%20eq%20@p)&@p=1";
+    assertNotSame(parse("ESAllPrim", query).getExpandOption(), parse("ESAllPrim", query).getExpandOption());
+    final String path = "FICRTCollStringTwoParam(ParameterString=@p,ParameterInt16=1)";
+    assertNotSame(parse(path, "@p='a'").getUriResourceParts().get(0),
+        parse(path, "@p='b'").getUriResourceParts().get(0));
+  }
+}
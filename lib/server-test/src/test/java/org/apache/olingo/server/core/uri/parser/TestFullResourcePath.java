@@ -2999,6 +2999,18 @@ public class TestFullResourcePath {
         .isExSyntax(UriParserSyntaxException.MessageKeys.WRONG_VALUE_FOR_SYSTEM_QUERY_OPTION);
   }
 
+  @Test
+  public void deltatoken() throws Exception {
+    testUri.run("ESAllPrim", "$deltatoken=42")
+        .isKind(UriInfoKind.resource).goPath()
+        .isDeltaTokenText("42");
+
+    testUri.runEx("ESAllPrim", "$deltatoken=")
+        .isExSyntax(UriParserSyntaxException.MessageKeys.WRONG_VALUE_FOR_SYSTEM_QUERY_OPTION);
+    testUri.runEx("ESAllPrim(1)", "$deltatoken=42")
+        .isExValidation(UriValidationException.MessageKeys.SYSTEM_QUERY_OPTION_NOT_ALLOWED);
+  }
+
   @Test
   public void notExistingSystemQueryOption() throws Exception {
     testUri.runEx("ESAllPrim", "$wrong=error")
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.uri.queryoption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class ProjectionTreeTest {
+
+  private static final OData odata = OData.newInstance();
+  private final ServiceMetadata metadata =
+      odata.createServiceMetadata(new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+  private final EdmEntityType type = metadata.getEdm().getEntityContainer().getEntitySet("ESCompComp")
+      .getEntityType();
+
+  private SelectOption parse(final String select) throws Exception {
+    return new Parser(metadata.getEdm(), odata).parseUri("ESCompComp", "$select=" + select, null)
+        .getSelectOption();
+  }
+
+  @Test
+  public void all() throws Exception {
+    assertSame(ProjectionTree.ALL, ProjectionTree.get(metadata, type, null));
+    assertSame(ProjectionTree.ALL, ProjectionTree.get(metadata, type, parse("*")));
+    assertSame(ProjectionTree.ALL, ProjectionTree.get(metadata, type, parse("PropertyComp,*")));
+    assertTrue(ProjectionTree.ALL.isSelected("PropertyInt16"));
+    assertSame(ProjectionTree.ALL, ProjectionTree.ALL.getSelected("PropertyComp"));
+    assertNull(ProjectionTree.ALL.getSelectedPropertyNames());
+  }
+
+  @Test
+  public void paths() throws Exception {
+    final ProjectionTree tree = ProjectionTree.get(metadata, type,
+        parse("PropertyComp/PropertyComp/PropertyString,PropertyComp/PropertyComp/PropertyInt16"));
+    assertFalse(tree.isAll());
+    assertEquals(Collections.singleton("PropertyComp"), tree.getSelectedPropertyNames());
+    assertFalse(tree.isSelected("PropertyInt16"));
+    assertNull(tree.getSelected("PropertyInt16"));
+    final ProjectionTree inner = tree.getSelected("PropertyComp").getSelected("PropertyComp");
+    assertEquals(new HashSet<String>(Arrays.asList("PropertyString", "PropertyInt16")),
+        inner.getSelectedPropertyNames());
+    assertSame(ProjectionTree.ALL, inner.getSelected("PropertyString"));
+
+    // A complete property includes all selections of its parts.
+    assertSame(ProjectionTree.ALL, ProjectionTree.get(metadata, type,
+        parse("PropertyComp/PropertyComp/PropertyString,PropertyComp")).getSelected("PropertyComp"));
+    assertSame(ProjectionTree.ALL, ProjectionTree.get(metadata, type,
+        parse("PropertyComp,PropertyComp/PropertyComp")).getSelected("PropertyComp"));
+  }
+
+  @Test
+  public void shared() throws Exception {
+    final SelectOption select = parse("PropertyInt16,PropertyComp/PropertyComp");
+    final ProjectionTree tree = ProjectionTree.get(metadata, type, select);
+    assertSame(tree, ProjectionTree.get(metadata, type, select));
+    // Another request with the same $select uses the same tree.
+    assertSame(tree, ProjectionTree.get(metadata, type, parse("PropertyInt16,PropertyComp/PropertyComp")));
+    assertEquals(tree.toString(), ProjectionTree.create(select).toString());
+  }
+}
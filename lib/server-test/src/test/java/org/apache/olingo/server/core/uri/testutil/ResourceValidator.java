@@ -51,6 +51,7 @@ import org.apache.olingo.server.api.uri.UriResourceSingleton;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectItem;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.uri.UriInfoImpl;
 import org.apache.olingo.server.core.uri.UriResourceWithKeysImpl;
 import org.apache.olingo.server.core.uri.parser.Parser;
 import org.apache.olingo.server.core.uri.validator.UriValidationException;
@@ -494,6 +495,11 @@ public class ResourceValidator implements TestValidator {
     return this;
   }
 
+  public ResourceValidator isDeltaTokenText(final String deltaTokenText) {
+    assertEquals(deltaTokenText, ((UriInfoImpl) uriInfo).getDeltaTokenOption().getValue());
+    return this;
+  }
+
   public ResourceValidator isSelectItemStar(final int index) {
     final SelectOption select = uriInfo.getSelectOption();
     SelectItem item = select.getSelectItems().get(index);